@@ -0,0 +1,126 @@
+package oscar.algo.array
+
+/**
+ * Hash map from long keys to int values based on open addressing
+ * with linear probing. Keys and values are not boxed.
+ *
+ * @param initialCapacity the expected number of keys
+ */
+final class ArrayMapLongInt(initialCapacity: Int) {
+
+  def this() = this(16)
+
+  private[this] var capacity: Int = {
+    var c = 16
+    while (c < initialCapacity * 2) c <<= 1
+    c
+  }
+  private[this] var mask: Int = capacity - 1
+  private[this] var _keys: Array[Long] = new Array[Long](capacity)
+  private[this] var _values: Array[Int] = new Array[Int](capacity)
+  private[this] var used: Array[Boolean] = new Array[Boolean](capacity)
+  private[this] var _size: Int = 0
+
+  @inline def size: Int = _size
+
+  @inline def isEmpty: Boolean = _size == 0
+
+  /** Returns the value of the key, or default if the key is not in the map */
+  def getOrElse(key: Long, default: Int): Int = {
+    var i = indexOf(key)
+    while (used(i)) {
+      if (_keys(i) == key) return _values(i)
+      i = (i + 1) & mask
+    }
+    default
+  }
+
+  def contains(key: Long): Boolean = {
+    var i = indexOf(key)
+    while (used(i)) {
+      if (_keys(i) == key) return true
+      i = (i + 1) & mask
+    }
+    false
+  }
+
+  /** Returns the value of the key, throws a NoSuchElementException if the key is not in the map */
+  def apply(key: Long): Int = {
+    var i = indexOf(key)
+    while (used(i)) {
+      if (_keys(i) == key) return _values(i)
+      i = (i + 1) & mask
+    }
+    throw new NoSuchElementException("key not found: " + key)
+  }
+
+  def update(key: Long, value: Int): Unit = put(key, value)
+
+  def put(key: Long, value: Int): Unit = {
+    var i = indexOf(key)
+    while (used(i)) {
+      if (_keys(i) == key) {
+        _values(i) = value
+        return
+      }
+      i = (i + 1) & mask
+    }
+    used(i) = true
+    _keys(i) = key
+    _values(i) = value
+    _size += 1
+    if (_size * 2 > capacity) grow()
+  }
+
+  def remove(key: Long): Unit = {
+    var i = indexOf(key)
+    while (used(i)) {
+      if (_keys(i) == key) {
+        _size -= 1
+        // Backward shift deletion: moves up the following keys of the cluster
+        var hole = i
+        var j = (i + 1) & mask
+        while (used(j)) {
+          val home = indexOf(_keys(j))
+          // The key at j can fill the hole if its home is not in (hole, j]
+          if (((j - home) & mask) >= ((j - hole) & mask)) {
+            _keys(hole) = _keys(j)
+            _values(hole) = _values(j)
+            hole = j
+          }
+          j = (j + 1) & mask
+        }
+        used(hole) = false
+        return
+      }
+      i = (i + 1) & mask
+    }
+  }
+
+  def clear(): Unit = {
+    java.util.Arrays.fill(used, false)
+    _size = 0
+  }
+
+  @inline private def indexOf(key: Long): Int = {
+    val h = key * 0x9E3779B97F4A7C15L
+    (h ^ (h >>> 32)).toInt & mask
+  }
+
+  private def grow(): Unit = {
+    val oldKeys = _keys
+    val oldValues = _values
+    val oldUsed = used
+    capacity *= 2
+    mask = capacity - 1
+    _keys = new Array[Long](capacity)
+    _values = new Array[Int](capacity)
+    used = new Array[Boolean](capacity)
+    _size = 0
+    var i = 0
+    while (i < oldKeys.length) {
+      if (oldUsed(i)) put(oldKeys(i), oldValues(i))
+      i += 1
+    }
+  }
+}
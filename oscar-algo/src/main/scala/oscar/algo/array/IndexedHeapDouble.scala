@@ -0,0 +1,175 @@
+package oscar.algo.array
+
+/**
+ * Min-heap on the elements {0, ..., n-1} with a key of type Double for each element.
+ * The position of each element in the heap is maintained such that the key of an
+ * element can be changed and an element can be removed in O(log n).
+ * Elements with the same key are ordered by increasing tie key (0 if not given),
+ * then by increasing index.
+ */
+final class IndexedHeapDouble(n: Int) {
+
+  // Elements in the heap, from 1 to heapSize
+  private[this] val heap: Array[Int] = new Array[Int](n + 1)
+  // Position of each element in the heap, 0 if not in the heap
+  private[this] val positions: Array[Int] = new Array[Int](n)
+  // Key of each element
+  private[this] val keys: Array[Double] = new Array[Double](n)
+  // Tie key of each element
+  private[this] val ties: Array[Int] = new Array[Int](n)
+  private[this] var heapSize: Int = 0
+
+  @inline def size: Int = heapSize
+
+  @inline def isEmpty: Boolean = heapSize == 0
+
+  /** Returns the number of elements that can be stored in the heap */
+  @inline def capacity: Int = n
+
+  @inline def contains(element: Int): Boolean = positions(element) != 0
+
+  /** Returns the key of the element, also if it is not in the heap */
+  @inline def key(element: Int): Double = keys(element)
+
+  /** Returns the tie key of the element, also if it is not in the heap */
+  @inline def tieKey(element: Int): Int = ties(element)
+
+  /** Returns the element with the smallest key */
+  def min: Int = {
+    if (heapSize != 0) heap(1)
+    else throw new NoSuchElementException("empty")
+  }
+
+  /** Adds the element with the given key, changes its key if it is already in the heap */
+  def enqueue(element: Int, key: Double): Unit = {
+    if (positions(element) != 0) changeKey(element, key)
+    else {
+      keys(element) = key
+      heapSize += 1
+      heap(heapSize) = element
+      positions(element) = heapSize
+      heapifyBottomUp(heapSize)
+    }
+  }
+
+  /** Adds the element with the given keys, changes its keys if it is already in the heap */
+  def enqueue(element: Int, key: Double, tieKey: Int): Unit = {
+    if (positions(element) != 0) changeKey(element, key, tieKey)
+    else {
+      ties(element) = tieKey
+      enqueue(element, key)
+    }
+  }
+
+  /** Removes and returns the element with the smallest key */
+  def dequeue(): Int = {
+    val element = min
+    remove(element)
+    element
+  }
+
+  /** Removes the element from the heap, returns false if it was not in the heap */
+  def remove(element: Int): Boolean = {
+    val i = positions(element)
+    if (i == 0) false
+    else {
+      val last = heap(heapSize)
+      heapSize -= 1
+      positions(element) = 0
+      if (i <= heapSize) {
+        heap(i) = last
+        positions(last) = i
+        heapifyBottomUp(i)
+        heapifyTopDown(positions(last))
+      }
+      true
+    }
+  }
+
+  /** Changes the key of the element, the key is only recorded if the element is not in the heap */
+  def changeKey(element: Int, key: Double): Unit = {
+    val old = keys(element)
+    keys(element) = key
+    val i = positions(element)
+    if (i != 0) {
+      if (key < old) heapifyBottomUp(i)
+      else if (key > old) heapifyTopDown(i)
+    }
+  }
+
+  /** Changes the keys of the element, the keys are only recorded if the element is not in the heap */
+  def changeKey(element: Int, key: Double, tieKey: Int): Unit = {
+    val oldKey = keys(element)
+    val oldTie = ties(element)
+    keys(element) = key
+    ties(element) = tieKey
+    val i = positions(element)
+    if (i != 0) {
+      if (key < oldKey || (key == oldKey && tieKey < oldTie)) heapifyBottomUp(i)
+      else if (key > oldKey || (key == oldKey && tieKey > oldTie)) heapifyTopDown(i)
+    }
+  }
+
+  /** Multiplies all the keys by the positive factor (the order is unchanged) */
+  def scaleKeys(factor: Double): Unit = {
+    var i = 0
+    while (i < n) {
+      keys(i) *= factor
+      i += 1
+    }
+  }
+
+  def clear(): Unit = {
+    while (heapSize > 0) {
+      positions(heap(heapSize)) = 0
+      heapSize -= 1
+    }
+  }
+
+  @inline private def smaller(a: Int, b: Int): Boolean = {
+    val keyA = keys(a)
+    val keyB = keys(b)
+    keyA < keyB || (keyA == keyB && (ties(a) < ties(b) || (ties(a) == ties(b) && a < b)))
+  }
+
+  @inline private def heapifyBottomUp(from: Int): Unit = {
+    var i = from
+    val element = heap(i)
+    var continue = true
+    while (i > 1 && continue) {
+      val p = i >> 1 // parent
+      val parent = heap(p)
+      if (smaller(element, parent)) {
+        heap(i) = parent
+        positions(parent) = i
+        i = p
+      } else continue = false
+    }
+    heap(i) = element
+    positions(element) = i
+  }
+
+  @inline private def heapifyTopDown(from: Int): Unit = {
+    var i = from
+    val element = heap(i)
+    var continue = true
+    while (continue) {
+      val l = i << 1 // left child
+      if (l > heapSize) continue = false
+      else {
+        val r = l + 1 // right child
+        val c = if (r <= heapSize && smaller(heap(r), heap(l))) r else l
+        val child = heap(c)
+        if (smaller(child, element)) {
+          heap(i) = child
+          positions(child) = i
+          i = c
+        } else continue = false
+      }
+    }
+    heap(i) = element
+    positions(element) = i
+  }
+
+  override def toString: String = "IndexedHeapDouble(" + heap.slice(1, heapSize + 1).mkString(", ") + ")"
+}
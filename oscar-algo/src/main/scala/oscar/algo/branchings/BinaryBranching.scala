@@ -17,7 +17,7 @@ package oscar.algo.branchings
 
 import oscar.algo.search._
 import oscar.algo.reversible.ReversibleInt
-import oscar.algo.search.{Branching, Decision}
+import oscar.algo.search.BinaryDecisionBranching
 import oscar.algo.vars.IntVarLike
 
 /**
@@ -29,7 +29,7 @@ import oscar.algo.vars.IntVarLike
  * @param varHeuris is a variable heuristic, it will select preferably first the unbound
  *        variables(i) such that varHeuris(i) is the smallest
  */
-class BinaryBranching[T](variables: Array[IntVarLike], var varHeuris: Int => T, valHeuris: Int => Int, orderer: T => Ordered[T]) extends Branching {
+class BinaryBranching[T](variables: Array[IntVarLike], var varHeuris: Int => T, valHeuris: Int => Int, orderer: T => Ordered[T]) extends BinaryDecisionBranching {
   private val context = variables(0).context
   private[this] val nVariables = variables.length
   private[this] val indexes = Array.tabulate(nVariables)(i => i)
@@ -79,13 +79,21 @@ class BinaryBranching[T](variables: Array[IntVarLike], var varHeuris: Int => T,
     bestId
   }
 
-  def alternatives(): Seq[Alternative] = {
-    if (allBounds()) noAlternative
+  // Selected decision
+  private[this] var variable: IntVarLike = null
+  private[this] var value: Int = 0
+
+  override def select(): Boolean = {
+    if (allBounds()) false
     else {
       val i = nextVar()
-      val variable = variables(i)
-      val value = valHeuris(i)
-      List(Decision.assign(variable, value), Decision.remove(variable, value))
+      variable = variables(i)
+      value = valHeuris(i)
+      true
     }
   }
+
+  final override def selectedVariable: IntVarLike = variable
+
+  final override def selectedValue: Int = value
 }
@@ -1,6 +1,5 @@
 package oscar.algo.branchings
 
-import oscar.algo.search._
 import oscar.algo.vars.IntVarLike
 
 /**
@@ -10,13 +9,9 @@ class BinaryDomainSplitBranching[T](variables: Array[IntVarLike], varHeuris: (In
 
   def this(x: Array[IntVarLike], varHeuris: (Int => T), orderer: T => Ordered[T]) = this(x, varHeuris, i => (x(i).min + x(i).max) / 2, orderer)
 
-  final override def alternatives(): Seq[Alternative] = {
-    if (allBounds()) noAlternative
-    else {
-      val i = nextVar()
-      val variable = variables(i)
-      val value = valHeuris(i)
-      List(Decision.lowerEq(variable, value), Decision.greaterEq(variable, value + 1))
-    }
-  }
-}
\ No newline at end of file
+  final override def splitsDomain: Boolean = true
+
+  final override def applyLeft(variable: IntVarLike, value: Int, tag: Int): Unit = variable.context.smallerEq(variable, value)
+
+  final override def applyRight(variable: IntVarLike, value: Int, tag: Int): Unit = variable.context.largerEq(variable, value + 1)
+}
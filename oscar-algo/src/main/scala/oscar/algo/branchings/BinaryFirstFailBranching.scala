@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.branchings
+
+import oscar.algo.reversible.ReversibleInt
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+
+/**
+ * Binary first fail branching: selects the unbound variable with the smallest domain
+ * (the one with the smallest index in case of tie), tries `valHeuris` on the left branch
+ * and removes it on the right branch.
+ *
+ * Same decisions as `BinaryBranching` with the heuristic `i => (variables(i).size, i)`
+ * but the domain sizes are compared without boxing.
+ */
+class BinaryFirstFailBranching(variables: Array[IntVarLike], valHeuris: Int => Int) extends BinaryDecisionBranching {
+
+  def this(variables: Array[IntVarLike]) = this(variables, variables(_).min)
+
+  private[this] val nVariables = variables.length
+  private[this] val indexes = Array.tabulate(nVariables)(i => i)
+  private[this] val nBounds = new ReversibleInt(variables(0).context, 0)
+
+  // Selected decision
+  private[this] var variable: IntVarLike = null
+  private[this] var value: Int = 0
+
+  final override def select(): Boolean = {
+    // Moves the bound variables at the beginning of indexes
+    var nBound = nBounds.value
+    var bestId = -1
+    var bestSize = Int.MaxValue
+    var i = nBound
+    while (i < nVariables) {
+      val varId = indexes(i)
+      val size = variables(varId).size
+      if (size == 1) {
+        indexes(i) = indexes(nBound)
+        indexes(nBound) = varId
+        nBound += 1
+      } else if (size < bestSize || (size == bestSize && varId < bestId)) {
+        bestId = varId
+        bestSize = size
+      }
+      i += 1
+    }
+    nBounds.value = nBound
+    if (bestId == -1) false
+    else {
+      variable = variables(bestId)
+      value = valHeuris(bestId)
+      true
+    }
+  }
+
+  final override def selectedVariable: IntVarLike = variable
+
+  final override def selectedValue: Int = value
+}
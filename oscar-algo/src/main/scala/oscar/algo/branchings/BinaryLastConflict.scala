@@ -18,7 +18,7 @@ package oscar.algo.branchings
 
 
 import oscar.algo.reversible._
-import oscar.algo.search.{Branching, _}
+import oscar.algo.search._
 import oscar.algo.vars.IntVarLike
 
 /**
@@ -40,7 +40,7 @@ import oscar.algo.vars.IntVarLike
   * @author Renaud Hartert
   * @author Pierre Schaus pschaus@gmail.com
   */
-class BinaryLastConflict[T](variables: Array[IntVarLike], varHeuristic: Int => T, valHeuristic: Int => Int, orderer: T => Ordered[T]) extends Branching {
+class BinaryLastConflict[T](variables: Array[IntVarLike], varHeuristic: Int => T, valHeuristic: Int => Int, orderer: T => Ordered[T]) extends BinaryDecisionBranching {
 
   require(variables.length > 0, "no variable")
 
@@ -57,11 +57,16 @@ class BinaryLastConflict[T](variables: Array[IntVarLike], varHeuristic: Int => T
   private[this] var maxAssigned: Int = -1
   private[this] var conflictAssign: Int = 0
 
+  // Selected decision
+  private[this] var variable: IntVarLike = null
+  private[this] var value: Int = 0
+  private[this] var depth: Int = 0
+
   final override def reset(): Unit = maxAssigned = -1
 
-  final override def alternatives: Seq[Alternative] = {
+  final override def select(): Boolean = {
     val nAssigned = firstUnbound()
-    if (nAssigned >= nVariables) noAlternative
+    if (nAssigned >= nVariables) false
     else {
 
       // Trail the new depth
@@ -86,21 +91,28 @@ class BinaryLastConflict[T](variables: Array[IntVarLike], varHeuristic: Int => T
       }
 
       val varId = order(nAssigned)
-      val variable = variables(varId)
-      val value = valHeuristic(varId)
-      // Alternatives
-      List(assign(variable, value, nAssigned), remove(variable, value, nAssigned))
+      variable = variables(varId)
+      value = valHeuristic(varId)
+      depth = nAssigned
+      true
     }
   }
-  
-  // Return an Alternative that assign the value to the variable
-  @inline private def assign(variable: IntVarLike, value: Int, nAssigned: Int): Alternative = () => {
+
+  final override def selectedVariable: IntVarLike = variable
+
+  final override def selectedValue: Int = value
+
+  // The tag of a decision is the depth at which it is taken
+  final override def selectedTag: Int = depth
+
+  // Assigns the value to the variable
+  final override def applyLeft(variable: IntVarLike, value: Int, nAssigned: Int): Unit = {
     val out = isInconsistent(context.assign(variable, value))
     if (out) conflictAssign = nAssigned
   }
-  
-  // Return an Alternative that assign the value to the variable
-  @inline private def remove(variable: IntVarLike, value: Int, nAssigned: Int): Alternative = () => {
+
+  // Removes the value from the domain of the variable
+  final override def applyRight(variable: IntVarLike, value: Int, nAssigned: Int): Unit = {
     val out = isInconsistent(context.remove(variable, value))
     if (out) conflictAssign = nAssigned
   }
@@ -1,10 +1,10 @@
 package oscar.algo.branchings
 
 import oscar.algo.reversible.ReversibleInt
-import oscar.algo.search._
+import oscar.algo.search.BinaryDecisionBranching
 import oscar.algo.vars.IntVarLike
 
-class BinaryStaticOrderBranching(variables: Array[IntVarLike], valHeuris: (Int => Int)) extends Branching {
+class BinaryStaticOrderBranching(variables: Array[IntVarLike], valHeuris: (Int => Int)) extends BinaryDecisionBranching {
 
   def this(vars: Array[IntVarLike]) = this(vars, vars(_).min)
 
@@ -13,21 +13,26 @@ class BinaryStaticOrderBranching(variables: Array[IntVarLike], valHeuris: (Int =
   private[this] val depthRev = new ReversibleInt(context, 0)
   private[this] var depth = 0
 
-  final override def alternatives(): Seq[Alternative] = {
+  // Selected value
+  private[this] var value = 0
+
+  final override def select(): Boolean = {
     // Cache
     depth = depthRev.value
 
     // Update depth 
     while (depth < nVariables && variables(depth).isBound) depth += 1
 
-    if (depth == nVariables) noAlternative
+    if (depth == nVariables) false
     else {
       // Trail new depth
       depthRev.value = depth
-      // Alternatives
-      val variable = variables(depth)
-      val value = valHeuris(depth)
-      List(Decision.assign(variable, value), Decision.remove(variable, value))
+      value = valHeuris(depth)
+      true
     }
   }
-}
\ No newline at end of file
+
+  final override def selectedVariable: IntVarLike = variables(depth)
+
+  final override def selectedValue: Int = value
+}
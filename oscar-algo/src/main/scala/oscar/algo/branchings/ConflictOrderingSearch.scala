@@ -21,7 +21,7 @@ object ConflictOrderingSearch {
 /**
   * @author Pierre Schaus pschaus@gmail.com
   */
-class ConflictOrderingSearch[T](variables: Array[IntVarLike], varHeuristic: (Int) => T, valHeuristic: (Int) => Int, orderer: T => Ordered[T]) extends Branching {
+class ConflictOrderingSearch[T](variables: Array[IntVarLike], varHeuristic: (Int) => T, valHeuristic: (Int) => Int, orderer: T => Ordered[T]) extends BinaryDecisionBranching {
 
   require(variables.length > 0)
 
@@ -48,21 +48,36 @@ class ConflictOrderingSearch[T](variables: Array[IntVarLike], varHeuristic: (Int
 
   }
 
-  def createChildren(varIdx: Int) = {
-    val x = variables(varIdx)
-    val value = valHeuristic(varIdx)
-    branch {
-      val ko = isInconsistent(context.assign(x, value))
-      if (!ko) lastValues(varIdx) = value
-    } {
-      val ko = isInconsistent(context.remove(x, value))
-      if (!ko && x.isBound) {
-        lastValues(varIdx) = x.min
-      }
+  // Selected variable
+  private[this] var selected = -1
+  private[this] var value = 0
+
+  @inline private def selectVariable(varIdx: Int): Boolean = {
+    selected = varIdx
+    value = valHeuristic(varIdx)
+    true
+  }
+
+  final override def selectedVariable: IntVarLike = variables(selected)
+
+  final override def selectedValue: Int = value
+
+  // The tag of a decision is the index of its variable
+  final override def selectedTag: Int = selected
+
+  final override def applyLeft(x: IntVarLike, value: Int, varIdx: Int): Unit = {
+    val ko = isInconsistent(context.assign(x, value))
+    if (!ko) lastValues(varIdx) = value
+  }
+
+  final override def applyRight(x: IntVarLike, value: Int, varIdx: Int): Unit = {
+    val ko = isInconsistent(context.remove(x, value))
+    if (!ko && x.isBound) {
+      lastValues(varIdx) = x.min
     }
   }
 
-  override def alternatives(): Seq[Alternative] = {
+  final override def select(): Boolean = {
 
     timestamp += 1
 
@@ -99,8 +114,7 @@ class ConflictOrderingSearch[T](variables: Array[IntVarLike], varHeuristic: (Int
     nUnbound.value = nU
     if (highestPriorUnbound != -1) {
       lastVar = highestPriorUnbound
-      val value = valHeuristic(highestPriorUnbound)
-      return createChildren(highestPriorUnbound)
+      return selectVariable(highestPriorUnbound)
     }
 
 
@@ -119,12 +133,12 @@ class ConflictOrderingSearch[T](variables: Array[IntVarLike], varHeuristic: (Int
         }
       }
       lastVar = bestVar
-      createChildren(bestVar)
+      selectVariable(bestVar)
     }
     else {
       // all variables are bound, solution!
       lastVar = -1
-      noAlternative
+      false
     }
   }
 }
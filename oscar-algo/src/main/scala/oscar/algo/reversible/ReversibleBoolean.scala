@@ -28,28 +28,16 @@ class ReversibleBoolean(context: ReversibleContext, initialValue: Boolean) {
   private[this] var lastMagic: Long = -1L
   private[this] var pointer: Boolean = initialValue
 
-  private[this] val restoreTrue = new TrailEntry {
-    override def restore(): Unit = {
-      pointer = true;
-    }
-  }
-
-  private[this] val restoreFalse = new TrailEntry {
-    override def restore(): Unit = {
-      pointer = false;
-    }
-  }
-  
   @inline private def trail(): Unit = {
     val contextMagic = context.magic
     if (lastMagic != contextMagic) {
       lastMagic = contextMagic
-      if (this.pointer)
-        context.trail(restoreTrue)
-      else
-        context.trail(restoreFalse)
+      context.trailBoolean(this, pointer)
     }
   }
+
+  /** Restores the trailed value, called by the context on pop */
+  @inline final def restoreValue(value: Boolean): Unit = pointer = value
   
   @inline final def setValue(value: Boolean): Unit = {
     if (value != pointer) {
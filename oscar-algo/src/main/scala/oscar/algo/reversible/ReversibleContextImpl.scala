@@ -16,7 +16,6 @@
 package oscar.algo.reversible
 
 import oscar.algo.array.ArrayStackInt
-import oscar.algo.array.ArrayStack
 
 /**
   * Interface to a reversible node, that is a node able to restore all
@@ -41,22 +40,44 @@ trait ReversibleContext {
 
   /** Trail the closure such that it is called on corresponding pop */
   def trail[@specialized T](closure: => T): Unit
+
+  /** Trails the old value of the reversible integer, restored with `restoreValue` on pop */
+  def trailInt(reversible: ReversibleInt, value: Int): Unit = {
+    trail(new TrailEntry { final override def restore(): Unit = reversible.restoreValue(value) })
+  }
+
+  /** Trails the old value of the reversible boolean, restored with `restoreValue` on pop */
+  def trailBoolean(reversible: ReversibleBoolean, value: Boolean): Unit = {
+    trail(new TrailEntry { final override def restore(): Unit = reversible.restoreValue(value) })
+  }
+
+  /** Trails the state of the owner, restored with `restoreState` on pop */
+  def trailState(owner: TrailedState, word: Long, int: Int): Unit = {
+    trail(new TrailEntry { final override def restore(): Unit = owner.restoreState(word, int) })
+  }
 }
 
 /**
  * Class representing a reversible node, that is a node able to restore all
  * the reversible state attached to it (see Reversibles). <br>
  *
+ * The trail is an `ArrayTrail`: the old values of `ReversibleInt`, `ReversibleBoolean`
+ * and of the `TrailedState` objects are trailed as primitives and restored without
+ * any allocation nor virtual `restore` call. Other reversibles use `TrailEntry` objects.
+ * The trail is wrapped in a `SynchronizedTrail` while the context is concurrent. <br>
+ *
  * @author Pierre Schaus pschaus@gmail.com
  * @author Renaud Hartert ren.hartert@gmail.com
  */
 class ReversibleContextImpl extends ReversibleContext {
 
-  private[this] var maxTrailSize: Int = 0
   private[this] var trailTime: Long = 0
   private[this] var magicNumber: Long = 0
 
-  private[this] val trailStack: ArrayStack[TrailEntry] = new ArrayStack(1024)
+  // Trail used by this thread only, wrapped by a synchronized trail when concurrent
+  private[this] val arrayTrail: ArrayTrail = new ArrayTrail()
+  private[this] var trailStack: Trail = arrayTrail
+
   private[this] val levelStack: ArrayStackInt = new ArrayStackInt(128)
   
   // Actions to execute when a pop occurs 
@@ -72,7 +93,7 @@ class ReversibleContextImpl extends ReversibleContext {
   final def nLevel: Int = levelStack.length
 
   /** Returns the maximal size of the trailing stack */
-  final def maxSize: Int = maxTrailSize
+  final def maxSize: Int = trailStack.maxSize
 
   /** Returns the time spent to pop states */
   final def time: Long = trailTime
@@ -86,13 +107,28 @@ class ReversibleContextImpl extends ReversibleContext {
    *  This is added action will be removed on pop of the current context state
    */
   def onPush(action: => Unit): Unit = pushListeners.push(() => action)  
-  
-  /** Trail the entry such that its restore method is called on corresponding pop */
-  @inline final def trail(entry: TrailEntry): Unit = {
-    trailStack.push(entry)
-    val size = trailStack.size
-    if (size > maxTrailSize) maxTrailSize = size
+
+  /** Returns true if the trail is synchronized to be shared by several threads */
+  final def concurrent: Boolean = trailStack ne arrayTrail
+
+  /**
+   *  Enables or disables the synchronization of the trail, such that reversibles
+   *  modified by different threads can be trailed at the same time. Must be changed
+   *  while no other thread uses the context. The states cannot be pushed or popped
+   *  concurrently.
+   */
+  final def concurrent_=(enabled: Boolean): Unit = {
+    trailStack = if (enabled) new SynchronizedTrail(arrayTrail) else arrayTrail
   }
+
+  /** Trail the entry such that its restore method is called on corresponding pop */
+  @inline final def trail(entry: TrailEntry): Unit = trailStack.push(entry)
+
+  @inline final override def trailInt(reversible: ReversibleInt, value: Int): Unit = trailStack.pushInt(reversible, value)
+
+  @inline final override def trailBoolean(reversible: ReversibleBoolean, value: Boolean): Unit = trailStack.pushBoolean(reversible, value)
+
+  @inline final override def trailState(owner: TrailedState, word: Long, int: Int): Unit = trailStack.pushState(owner, word, int)
   
   /** Trail the closure such that it is called on corresponding pop */
   final def trail[@specialized T](closure: => T): Unit = {
@@ -102,7 +138,7 @@ class ReversibleContextImpl extends ReversibleContext {
   /** Stores the current state of the node on a stack */
   def pushState(): Unit = {
     magicNumber += 1
-    levelStack.push(trailStack.length)
+    levelStack.push(trailStack.size)
     // Executes onPpush actions
     pushListeners.foreach(action => action())
   }
@@ -119,10 +155,7 @@ class ReversibleContextImpl extends ReversibleContext {
 
   @inline private final def restoreUntil(until: Int): Unit = {
     val t0 = System.currentTimeMillis()
-    while (trailStack.length > until) {
-      val entry = trailStack.pop()
-      entry.restore()
-    }
+    trailStack.restoreUntil(until)
     trailTime += System.currentTimeMillis() - t0
   }
 
@@ -152,10 +185,10 @@ class ReversibleContextImpl extends ReversibleContext {
 
   def resetStats(): Unit = {
     trailTime = 0
-    maxTrailSize = 0
+    trailStack.resetMaxSize()
   }
 
-  override def toString: String = "nPushed: " + levelStack.length + " currentTrailSize: " + trailStack.length
+  override def toString: String = "nPushed: " + levelStack.length + " currentTrailSize: " + trailStack.size
 }
 
 object ReversibleContext {
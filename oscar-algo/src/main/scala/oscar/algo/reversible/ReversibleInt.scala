@@ -20,13 +20,7 @@ package oscar.algo.reversible;
  * @author Pierre Schaus  pschaus@gmail.com
  * @author Renaud Hartert ren.hartert@gmail.com
  */
-class ReversibleInt(context: ReversibleContext, initValue: Int, initSize: Int) extends TrailEntry {
-  
-  def this(context: ReversibleContext, initValue: Int) = this(context, initValue, 32)
-  
-  // Inner trailing queue
-  private[this] var trail = new Array[Int](initSize)
-  private[this] var trailSize = 0
+class ReversibleInt(context: ReversibleContext, initValue: Int) {
   
   // Current value
   private[this] var pointer: Int = initValue
@@ -38,17 +32,12 @@ class ReversibleInt(context: ReversibleContext, initValue: Int, initSize: Int) e
     val contextMagic = context.magic
     if (lastMagic != contextMagic) {
       lastMagic = contextMagic
-      if (trailSize == trail.length) growTrail()
-      trail(trailSize) = pointer
-      trailSize += 1
-      context.trail(this)
+      context.trailInt(this, pointer)
     }
   }
   
-  final override def restore(): Unit = {
-    trailSize -= 1
-    pointer = trail(trailSize)
-  }
+  /** Restores the trailed value, called by the context on pop */
+  @inline final def restoreValue(value: Int): Unit = pointer = value
   
   /** Increments the reversible integer by one */
   @inline final def incr(): Int = {
@@ -98,12 +87,6 @@ class ReversibleInt(context: ReversibleContext, initValue: Int, initSize: Int) e
   @inline final def getValue(): Int = pointer
 
   override def toString(): String = pointer.toString
-    
-  @inline private def growTrail(): Unit = {
-    val newTrail = new Array[Int](trailSize * 2)
-    System.arraycopy(trail, 0, newTrail, 0, trailSize)
-    trail = newTrail
-  }
 }
 
 object ReversibleInt {
@@ -66,15 +66,27 @@ object BitSetOp {
 
 import oscar.algo.reversible.BitSetOp._
 
-/* Trailable entry to restore the value of the ith Long of the valid tuples */
-final class ReversibleSparseBitSetEntry(set: ReversibleSparseBitSet, numberOfValues: Int) extends TrailEntry {
-  @inline override def restore(): Unit = set.restore(numberOfValues)
+/* Trailable entry to restore the words trailed since trailMark and the number of non-zero words */
+final class ReversibleSparseBitSetEntry(set: ReversibleSparseBitSet, trailMark: Int, nNonZero: Int) extends TrailEntry {
+  @inline override def restore(): Unit = set.restore(trailMark, nNonZero)
 }
 
 /**
  * A reversible set with an internal bit-set representation.
  * This set can remove efficiently its elements from another bit-set
  * This set can compute efficiently its intersection with another bit-set
+ *
+ * The words can be restored in three ways (see `restorationMode`):
+ *  - Copy: all the non-zero words are copied on the first change in a node (default),
+ *  - Trail: only the words that actually change are trailed,
+ *  - Adaptive: copy or trail is chosen at each node according to the
+ *    measured fraction of non-zero words changed per node.
+ * In all modes, nothing is trailed in a node until a word actually changes.
+ *
+ * While all the words are non-zero, the operations iterate over contiguous
+ * words instead of the sparse set of non-zero words, so that their loops can
+ * be vectorized by the JIT compiler.
+ *
  * @param context reversible context used for trailing
  * @param n initial values must be taken from {0,...,n-1}
  * @param initialValues the initial values contained in the set
@@ -87,11 +99,14 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * with the the ReversibleSparseBitSet
    * @param values initial values, they must be in {0,...,n-1}
    */
-  class BitSet(values: Iterable[Int]) {
+  class BitSet private[ReversibleSparseBitSet] (values: Iterable[Int], sharedWords: Array[Long]) {
+
+    def this(values: Iterable[Int]) = this(values, null)
+
     assert(values.forall(v => v < n && v >= 0), "Trying to put a value out of the bound of the BitSet")
 
     /* Variable used to store value of the bitset */
-    protected[ReversibleSparseBitSet] var words: Array[Long] = Array.fill(nWords)(0L)
+    protected[ReversibleSparseBitSet] var words: Array[Long] = if (sharedWords != null) sharedWords else Array.fill(nWords)(0L)
 
     /* Variable used to keep track of the last word intersecting with this */
     protected[ReversibleSparseBitSet] var lastSupport = 0
@@ -197,6 +212,14 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
   private[this] var wordIndex = Array.ofDim[Int](innerTrailSize)
   private[this] var wordValue = Array.ofDim[Long](innerTrailSize)
 
+  /* Variables used to choose between copy and trail restoration */
+  private[this] var _restorationMode = ReversibleSparseBitSet.Copy
+  private[this] var copyNode = true
+  private[this] val wordStamps = Array.fill(nWords)(-1L)
+  private[this] var nodeNonZero = 0
+  private[this] var nodeChanged = 0
+  private[this] var changeRate = 1.0
+
   /* Put initial values and find initial nonEmpty words */
   initialValues.foreach(v => setBit(words, v))
   var i: Int = nNonZero
@@ -222,38 +245,89 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
     innerTrailSize *= 2
   }
 
+  /**
+   * Restoration mode of the words, one of `ReversibleSparseBitSet.Copy`,
+   * `ReversibleSparseBitSet.Trail` or `ReversibleSparseBitSet.Adaptive`
+   */
+  def restorationMode: Int = _restorationMode
+
+  def restorationMode_=(mode: Int): Unit = {
+    assert(mode >= ReversibleSparseBitSet.Copy && mode <= ReversibleSparseBitSet.Adaptive, "unknown restoration mode")
+    _restorationMode = mode
+  }
+
+  /**
+   * Returns a bit-set wrapping the given words, that are shared and not copied
+   * (e.g. by several constraints on the same table). The words of a shared
+   * bit-set must not be modified, only the operations of this class that
+   * read the bit-set (collect, intersect, ...) can be used with it.
+   * @param sharedWords the words of the bit-set, bit i of word j is value 64 * j + i
+   */
+  def sharedBitSet(sharedWords: Array[Long]): BitSet = {
+    assert(sharedWords.length == nWords, "The number of words does not match the size of the set")
+    new BitSet(Nil, sharedWords)
+  }
+
   /**
    * Restore structure to a previous state
    */
-  @inline final def restore(numberOfValues: Int): Unit = {
-    var k = numberOfValues
-    while (k > 0) {
-      val pos = nTrailEntries - k
+  @inline final def restore(trailMark: Int, oldNonZero: Int): Unit = {
+    var pos = nTrailEntries
+    while (pos > trailMark) {
+      pos -= 1
       words(wordIndex(pos)) = wordValue(pos)
-      k -= 1
     }
-    nTrailEntries -= numberOfValues
-    nNonZero = numberOfValues
+    nTrailEntries = trailMark
+    nNonZero = oldNonZero
   }
 
   /**
    * Save current state of structure
    */
   private[this] def trail(): Unit = {
-    while (nTrailEntries + nNonZero > innerTrailSize) growInnerTrail()
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      val word = words(offset)
-      wordIndex(nTrailEntries) = offset
-      wordValue(nTrailEntries) = word
-      nTrailEntries += 1
+    // Measures the change rate of the previous node
+    if (_restorationMode == ReversibleSparseBitSet.Adaptive && nodeNonZero > 0) {
+      val rate = nodeChanged.toDouble / nodeNonZero
+      changeRate += ReversibleSparseBitSet.RateDecay * (rate - changeRate)
+    }
+    nodeNonZero = nNonZero
+    nodeChanged = 0
+    copyNode = _restorationMode == ReversibleSparseBitSet.Copy ||
+      (_restorationMode == ReversibleSparseBitSet.Adaptive && changeRate >= ReversibleSparseBitSet.CopyThreshold)
+
+    val trailEntry = new ReversibleSparseBitSetEntry(this, nTrailEntries, nNonZero)
+    if (copyNode) {
+      while (nTrailEntries + nNonZero > innerTrailSize) growInnerTrail()
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        val word = words(offset)
+        wordIndex(nTrailEntries) = offset
+        wordValue(nTrailEntries) = word
+        nTrailEntries += 1
+      }
     }
-    val trailEntry = new ReversibleSparseBitSetEntry(this, nNonZero)
     context.trail(trailEntry)
   }
 
+  /**
+   * Trail the word before its first change in the current node
+   * (does nothing if the words have been copied)
+   */
+  @inline private[this] def trailWord(offset: Int, word: Long, magic: Long): Unit = {
+    if (wordStamps(offset) != magic) {
+      wordStamps(offset) = magic
+      nodeChanged += 1
+      if (!copyNode) {
+        if (nTrailEntries == innerTrailSize) growInnerTrail()
+        wordIndex(nTrailEntries) = offset
+        wordValue(nTrailEntries) = word
+        nTrailEntries += 1
+      }
+    }
+  }
+
   /**
    * Check if reversible sparse bit set is empty
    * @return true if this is empty, false otherwise
@@ -274,10 +348,14 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * Clear the collected elements set
    */
   def clearCollected(): Unit = {
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      tempMask(nonZeroIdx(i)) = 0L
+    if (nNonZero == nWords) {
+      java.util.Arrays.fill(tempMask, 0L)
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        tempMask(nonZeroIdx(i)) = 0L
+      }
     }
   }
 
@@ -288,11 +366,20 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * @param bs bitset to add
    */
   def collect(bs: BitSet): Unit = {
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      tempMask(offset) |= bs.words(offset)
+    val bsWords = bs.words
+    if (nNonZero == nWords) {
+      var offset = 0
+      while (offset < nWords) {
+        tempMask(offset) |= bsWords(offset)
+        offset += 1
+      }
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        tempMask(offset) |= bsWords(offset)
+      }
     }
   }
 
@@ -303,11 +390,20 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * @param bs bitset to intersect
    */
   def collectByIntersection(bs: BitSet): Unit = {
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      tempMask(offset) &= bs.words(offset)
+    val bsWords = bs.words
+    if (nNonZero == nWords) {
+      var offset = 0
+      while (offset < nWords) {
+        tempMask(offset) &= bsWords(offset)
+        offset += 1
+      }
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        tempMask(offset) &= bsWords(offset)
+      }
     }
   }
 
@@ -317,11 +413,19 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * Negation is stored internally
    */
   def reverseCollected(): Unit = {
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      tempMask(offset) = ~tempMask(offset)
+    if (nNonZero == nWords) {
+      var offset = 0
+      while (offset < nWords) {
+        tempMask(offset) = ~tempMask(offset)
+        offset += 1
+      }
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        tempMask(offset) = ~tempMask(offset)
+      }
     }
   }
 
@@ -332,11 +436,8 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    * @return true if this has changed, false otherwise
    */
   def intersectCollected(): Boolean = {
-    if (context.magic != timeStamp) {
-      trail()
-      timeStamp = context.magic
-    }
-
+    val magic = context.magic
+    val trailWords = _restorationMode != ReversibleSparseBitSet.Copy
     var changed = false
     var i: Int = nNonZero
     while (i > 0) {
@@ -344,14 +445,22 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
       val offset = nonZeroIdx(i)
       val oldLong: Long = words(offset)
       val newLong: Long = oldLong & tempMask(offset)
-      words(offset) = newLong
-      /* Remove the word from the sparse set if equal to 0 */
-      if (newLong == 0L) {
-        nNonZero -= 1
-        nonZeroIdx(i) = nonZeroIdx(nNonZero)
-        nonZeroIdx(nNonZero) = offset
+      if (oldLong != newLong) {
+        /* The node is trailed on its first change, before any word is modified */
+        if (magic != timeStamp) {
+          trail()
+          timeStamp = magic
+        }
+        if (trailWords) trailWord(offset, oldLong, magic)
+        words(offset) = newLong
+        /* Remove the word from the sparse set if equal to 0 */
+        if (newLong == 0L) {
+          nNonZero -= 1
+          nonZeroIdx(i) = nonZeroIdx(nNonZero)
+          nonZeroIdx(nNonZero) = offset
+        }
+        changed = true
       }
-      changed |= oldLong != newLong
     }
     changed
   }
@@ -404,12 +513,21 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    */
   def intersectCount(bs: BitSet): Int = {
     var count = 0
+    val bsWords = bs.words
 
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      count += java.lang.Long.bitCount(words(offset) & bs.words(offset))
+    if (nNonZero == nWords) {
+      var offset = 0
+      while (offset < nWords) {
+        count += java.lang.Long.bitCount(words(offset) & bsWords(offset))
+        offset += 1
+      }
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        count += java.lang.Long.bitCount(words(offset) & bsWords(offset))
+      }
     }
 
     count
@@ -423,12 +541,22 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
    */
   def intersectCount(bs1: BitSet, bs2: BitSet): Int = {
     var count = 0
-
-    var i: Int = nNonZero
-    while (i > 0) {
-      i -= 1
-      val offset = nonZeroIdx(i)
-      count += java.lang.Long.bitCount(words(offset) & bs1.words(offset) & bs2.words(offset))
+    val bs1Words = bs1.words
+    val bs2Words = bs2.words
+
+    if (nNonZero == nWords) {
+      var offset = 0
+      while (offset < nWords) {
+        count += java.lang.Long.bitCount(words(offset) & bs1Words(offset) & bs2Words(offset))
+        offset += 1
+      }
+    } else {
+      var i: Int = nNonZero
+      while (i > 0) {
+        i -= 1
+        val offset = nonZeroIdx(i)
+        count += java.lang.Long.bitCount(words(offset) & bs1Words(offset) & bs2Words(offset))
+      }
     }
 
     count
@@ -461,4 +589,21 @@ class ReversibleSparseBitSet(val context: ReversibleContext, val n: Int, val ini
     "NonZeroWords:" + nNonZero + " words:" + words.map(format(_)).mkString(" , ")
   }
 
-}
\ No newline at end of file
+}
+object ReversibleSparseBitSet {
+
+  /** All the non-zero words are copied on the first change in a node */
+  final val Copy = 0
+
+  /** Only the words that change are trailed */
+  final val Trail = 1
+
+  /** Copy or trail is chosen at each node according to the measured change rate */
+  final val Adaptive = 2
+
+  /* Fraction of changed words from which copying is cheaper than trailing */
+  private final val CopyThreshold = 0.5
+
+  /* Weight of the last node in the moving average of the change rate */
+  private final val RateDecay = 0.1
+}
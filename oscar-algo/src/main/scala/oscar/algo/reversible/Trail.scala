@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.reversible
+
+/**
+ * Object of which the state is trailed as a (long, int) pair, without allocating a
+ * `TrailEntry` (e.g. the bounds and the size of a domain).
+ */
+trait TrailedState {
+
+  /** Restores the state trailed with the given words */
+  def restoreState(word: Long, int: Int): Unit
+}
+
+/**
+ * Stack of the entries trailed by a `ReversibleContextImpl`.
+ */
+abstract class Trail {
+
+  /** Returns the number of entries in the trail */
+  def size: Int
+
+  /** Returns the maximal size of the trail since the last call to `resetMaxSize` */
+  def maxSize: Int
+
+  def resetMaxSize(): Unit
+
+  def push(entry: TrailEntry): Unit
+
+  def pushInt(reversible: ReversibleInt, value: Int): Unit
+
+  def pushBoolean(reversible: ReversibleBoolean, value: Boolean): Unit
+
+  def pushState(owner: TrailedState, word: Long, int: Int): Unit
+
+  /** Restores the entries until the size of the trail is `until` */
+  def restoreUntil(until: Int): Unit
+
+  /** Removes all the entries without restoring them */
+  def clear(): Unit
+}
+
+/**
+ * Trail stored in parallel arrays. The kind of each entry tells how to restore it: the
+ * old values of the primitive reversibles and of the trailed states are kept in primitive
+ * arrays and restored by final methods, such that backtracking does not allocate nor call
+ * a megamorphic `restore` for these entries.
+ */
+final class ArrayTrail extends Trail {
+
+  import ArrayTrail._
+
+  private[this] var kinds: Array[Int] = new Array[Int](1024)
+  private[this] var entries: Array[AnyRef] = new Array[AnyRef](1024)
+  private[this] var longs: Array[Long] = new Array[Long](1024)
+  private[this] var ints: Array[Int] = new Array[Int](1024)
+  private[this] var _size: Int = 0
+  private[this] var _maxSize: Int = 0
+
+  @inline override def size: Int = _size
+
+  override def maxSize: Int = _maxSize
+
+  override def resetMaxSize(): Unit = _maxSize = 0
+
+  @inline private def add(kind: Int, entry: AnyRef): Int = {
+    if (_size == kinds.length) grow()
+    val i = _size
+    kinds(i) = kind
+    entries(i) = entry
+    _size += 1
+    if (_size > _maxSize) _maxSize = _size
+    i
+  }
+
+  @inline override def push(entry: TrailEntry): Unit = add(ObjectKind, entry)
+
+  @inline override def pushInt(reversible: ReversibleInt, value: Int): Unit = {
+    ints(add(IntKind, reversible)) = value
+  }
+
+  @inline override def pushBoolean(reversible: ReversibleBoolean, value: Boolean): Unit = {
+    ints(add(BooleanKind, reversible)) = if (value) 1 else 0
+  }
+
+  @inline override def pushState(owner: TrailedState, word: Long, int: Int): Unit = {
+    val i = add(StateKind, owner)
+    longs(i) = word
+    ints(i) = int
+  }
+
+  override def restoreUntil(until: Int): Unit = {
+    while (_size > until) {
+      _size -= 1
+      val i = _size
+      (kinds(i): @annotation.switch) match {
+        case IntKind => entries(i).asInstanceOf[ReversibleInt].restoreValue(ints(i))
+        case BooleanKind => entries(i).asInstanceOf[ReversibleBoolean].restoreValue(ints(i) != 0)
+        case StateKind => entries(i).asInstanceOf[TrailedState].restoreState(longs(i), ints(i))
+        case _ => entries(i).asInstanceOf[TrailEntry].restore()
+      }
+    }
+  }
+
+  override def clear(): Unit = _size = 0 // does not remove references
+
+  private def grow(): Unit = {
+    val newSize = _size * 2
+    kinds = java.util.Arrays.copyOf(kinds, newSize)
+    entries = java.util.Arrays.copyOf(entries, newSize)
+    longs = java.util.Arrays.copyOf(longs, newSize)
+    ints = java.util.Arrays.copyOf(ints, newSize)
+  }
+}
+
+object ArrayTrail {
+  private final val ObjectKind = 0
+  private final val IntKind = 1
+  private final val BooleanKind = 2
+  private final val StateKind = 3
+}
+
+/**
+ * Trail shared by several threads: the entries are pushed under a lock on the trail.
+ * The entries must not be restored while other threads push entries.
+ */
+final class SynchronizedTrail(trail: Trail) extends Trail {
+
+  override def size: Int = synchronized { trail.size }
+
+  override def maxSize: Int = synchronized { trail.maxSize }
+
+  override def resetMaxSize(): Unit = synchronized { trail.resetMaxSize() }
+
+  override def push(entry: TrailEntry): Unit = synchronized { trail.push(entry) }
+
+  override def pushInt(reversible: ReversibleInt, value: Int): Unit = synchronized { trail.pushInt(reversible, value) }
+
+  override def pushBoolean(reversible: ReversibleBoolean, value: Boolean): Unit = synchronized { trail.pushBoolean(reversible, value) }
+
+  override def pushState(owner: TrailedState, word: Long, int: Int): Unit = synchronized { trail.pushState(owner, word, int) }
+
+  override def restoreUntil(until: Int): Unit = synchronized { trail.restoreUntil(until) }
+
+  override def clear(): Unit = synchronized { trail.clear() }
+}
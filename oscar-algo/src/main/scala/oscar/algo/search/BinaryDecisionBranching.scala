@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.search
+
+import oscar.algo.vars.IntVarLike
+
+/**
+ * Binary branching that selects primitive decisions instead of building alternatives.
+ *
+ * At each node, `select` chooses a variable and a value (and an integer tag the branching
+ * can use to recognize the decision later on). The left branch applies `applyLeft`
+ * (x == v by default) and the right branch `applyRight` (x != v by default). `DFSearch`
+ * drives such branchings directly: it stores the pending decisions in primitive stacks
+ * and does not allocate any object per node. The `alternatives` method is still available
+ * for the other searches and for the combinators of `Branching`.
+ */
+abstract class BinaryDecisionBranching extends Branching {
+
+  /**
+   * Selects the decision of the current node.
+   *
+   * @return false if there is no decision to take (i.e. the node is a solution)
+   */
+  def select(): Boolean
+
+  /** Returns the variable of the last selected decision */
+  def selectedVariable: IntVarLike
+
+  /** Returns the value of the last selected decision */
+  def selectedValue: Int
+
+  /** Returns the tag of the last selected decision, given back to `applyLeft` and `applyRight` */
+  def selectedTag: Int = 0
+
+  /** Returns true if the branches are x <= v and x > v instead of x == v and x != v */
+  def splitsDomain: Boolean = false
+
+  /** Applies the left branch of the decision, x == v by default */
+  def applyLeft(variable: IntVarLike, value: Int, tag: Int): Unit = variable.context.assign(variable, value)
+
+  /** Applies the right branch of the decision, x != v by default */
+  def applyRight(variable: IntVarLike, value: Int, tag: Int): Unit = variable.context.remove(variable, value)
+
+  /** Returns an alternative applying a branch of the decision */
+  final def branch(variable: IntVarLike, value: Int, tag: Int, left: Boolean): Alternative = {
+    new BinaryDecisionAlternative(this, variable, value, tag, left)
+  }
+
+  override def alternatives(): Seq[Alternative] = {
+    if (!select()) noAlternative
+    else {
+      val variable = selectedVariable
+      val value = selectedValue
+      val tag = selectedTag
+      List(branch(variable, value, tag, true), branch(variable, value, tag, false))
+    }
+  }
+}
+
+final class BinaryDecisionAlternative(val branching: BinaryDecisionBranching, val variable: IntVarLike, val value: Int, val tag: Int, val left: Boolean) extends Decision {
+  override def apply(): Unit = {
+    if (left) branching.applyLeft(variable, value, tag)
+    else branching.applyRight(variable, value, tag)
+  }
+  override def toString: String = s"${if (left) "Left" else "Right"}(${variable.name}, $value)"
+}
@@ -26,6 +26,12 @@ abstract class Branching {
    */
   def reset(): Unit = {}
 
+  /**
+   * Called by `RestartSearch` at the root between two runs, the state learned by the
+   * branching being kept (e.g. to decay the scores of the variables).
+   */
+  def restart(): Unit = {}
+
   /**
    * @return the alternative action to execute in each of the child nodes under the current node
    */
@@ -40,6 +46,14 @@ abstract class Branching {
       if (r.isEmpty) b.alternatives()
       else r
     }
+    override def reset(): Unit = {
+      Branching.this.reset()
+      b.reset()
+    }
+    override def restart(): Unit = {
+      Branching.this.restart()
+      b.restart()
+    }
   }
 
   def maxDiscrepancy(maxDiscrepancy: Int = Int.MaxValue): Branching = {
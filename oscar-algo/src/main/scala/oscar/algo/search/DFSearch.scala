@@ -16,7 +16,8 @@
 package oscar.algo.search
 
 import oscar.algo.Inconsistency
-import oscar.algo.array.ArrayStack
+import oscar.algo.array.{ArrayStack, ArrayStackInt}
+import oscar.algo.vars.IntVarLike
 
 class SearchStatistics(
                         val nNodes: Int,
@@ -36,8 +37,15 @@ class SearchStatistics(
  */
 class DFSearch(node: DFSearchNode) {
 
+  // Alternatives of the open nodes, null for the nodes of a binary decision branching
   private[this] val alternativesStack = new ArrayStack[Iterator[Alternative]](100)
 
+  // Decisions of the open nodes of a binary decision branching
+  private[this] val decisionVariables = new ArrayStack[IntVarLike](100)
+  private[this] val decisionValues = new ArrayStackInt(100)
+  private[this] val decisionTags = new ArrayStackInt(100)
+  private[this] val decisionLeftDone = new ArrayStackInt(100)
+
   // Number of backtracks of the previous search
   private[this] var nbBkts: Int = 0
 
@@ -57,6 +65,9 @@ class DFSearch(node: DFSearchNode) {
   // Actions to execute in case of failed node
   private[this] var failureActions = List.empty[() => Unit]
 
+  // Actions to execute before the branching of the next search is reset
+  private[this] var resetActions = List.empty[() => Unit]
+
   private[this] var searchListener_ : DFSearchListener = null
 
   /** Gets the DFSearch listener */
@@ -80,30 +91,113 @@ class DFSearch(node: DFSearchNode) {
   /** Adds an action to execute when a failed node is found */
   final def onFailure(action: => Unit): Unit = failureActions = (() => action) :: failureActions
 
+  /** Adds an action to execute when a failed node is found, it can be removed with `removeOnFailure` */
+  final def addOnFailure(action: () => Unit): Unit = failureActions = action :: failureActions
+
+  /** Removes an action added with `addOnFailure` */
+  final def removeOnFailure(action: () => Unit): Unit = failureActions = failureActions.filterNot(_ eq action)
+
+  /**
+   * Adds an action to execute once, when the next search resets its branching (before the
+   * reset). Meant to be called by `Branching.reset` to release what the branching acquired
+   * for the search, e.g. a failure action.
+   */
+  final def onNextReset(action: => Unit): Unit = resetActions = (() => action) :: resetActions
+
   /** Adds an action to execute when a solution node is found */
   final def onSolution(action: => Unit): Unit = solutionActions = (() => action) :: solutionActions
 
+  /** Adds an action to execute when a solution node is found, it can be removed with `removeOnSolution` */
+  final def addOnSolution(action: () => Unit): Unit = solutionActions = action :: solutionActions
+
+  /** Removes an action added with `addOnSolution` */
+  final def removeOnSolution(action: () => Unit): Unit = solutionActions = solutionActions.filterNot(_ eq action)
+
   /** Clear all actions executed when a solution node is found */
   final def clearOnSolution(): Unit = solutionActions = Nil
 
   /** Clear all actions executed when a failed node is found */ 
   final def clearOnFailure(): Unit = failureActions = Nil
 
-  @inline private def expand(branching: Branching): Boolean = {
-    val alternatives = branching.alternatives
-    if (alternatives.isEmpty) false
-    else {
-      alternativesStack.push(alternatives.iterator)
-      true
+  @inline private def expand(branching: Branching, binary: BinaryDecisionBranching): Boolean = {
+    if (binary != null) {
+      if (!binary.select()) false
+      else {
+        alternativesStack.push(null)
+        decisionVariables.push(binary.selectedVariable)
+        decisionValues.push(binary.selectedValue)
+        decisionTags.push(binary.selectedTag)
+        decisionLeftDone.push(0)
+        true
+      }
+    } else {
+      val alternatives = branching.alternatives
+      if (alternatives.isEmpty) false
+      else {
+        alternativesStack.push(alternatives.iterator)
+        true
+      }
+    }
+  }
+
+  // Applies the next branch of the binary decision on top of the stack
+  @inline private def applyDecision(binary: BinaryDecisionBranching): Unit = {
+    val top = decisionLeftDone.size - 1
+    val variable = decisionVariables.top
+    val value = decisionValues.top
+    val tag = decisionTags.top
+    val left = decisionLeftDone.top == 0
+    if (left) {
+      decisionLeftDone(top) = 1
+      if (searchListener_ != null)
+        searchListener_.onPush(node)
+      node.pushState()
+    } else {
+      // No more alternative for this decision
+      alternativesStack.pop()
+      decisionVariables.pop()
+      decisionValues.pop()
+      decisionTags.pop()
+      decisionLeftDone.pop()
+    }
+
+    if (searchListener_ != null)
+      searchListener_.onBranch(binary.branch(variable, value, tag, left))
+
+    try {
+      if (left) binary.applyLeft(variable, value, tag)
+      else binary.applyRight(variable, value, tag)
+    } catch {
+      case _: Inconsistency => node.fail()
     }
   }
 
-  final def start(branching: Branching, stopCondition: DFSearch => Boolean = _ => false/*, searchListener : DFSearchListener*/): Unit = {
+  /**
+   * Explores the search tree of `branching` until it is exhausted or `stopCondition` holds.
+   * The branching is reset before the search unless `resetBranching` is false (e.g. to keep
+   * the state of the heuristics between the runs of a restarted search).
+   */
+  final def start(branching: Branching, stopCondition: DFSearch => Boolean = _ => false, resetBranching: Boolean = true): Unit = {
 
     // Initializes the search
     node.resetStats() // resets trailing time too
     alternativesStack.clear()
-    branching.reset() // resets branching
+    decisionVariables.clear()
+    decisionValues.clear()
+    decisionTags.clear()
+    decisionLeftDone.clear()
+    if (resetBranching) { // resets branching
+      val actions = resetActions
+      resetActions = Nil
+      actions.foreach(_())
+      branching.reset()
+    }
+
+    // Binary decision branchings are driven without allocating alternatives
+    val binary = branching match {
+      case b: BinaryDecisionBranching => b
+      case _ => null
+    }
     nbSols = 0
     nbBkts = 0
     nbNodes = 0
@@ -118,7 +212,7 @@ class DFSearch(node: DFSearchNode) {
       if(searchListener_ != null)
         searchListener_.onPush(node)
       node.pushState()
-      val isExpandable = expand(branching)
+      val isExpandable = expand(branching, binary)
       if (!isExpandable) {
         node.solFound()
         solutionActions.foreach(_())
@@ -132,28 +226,31 @@ class DFSearch(node: DFSearchNode) {
       nbNodes += 1
 
       val alternatives = alternativesStack.top
-      val alternative = alternatives.next()
-      
-      val isLast = !alternatives.hasNext
-      
-      if (!isLast) {
-        if(searchListener_ != null)
-          searchListener_.onPush(node)
-        node.pushState()
-      }
-      else alternativesStack.pop() // no more alternative in the sequence
+      if (alternatives == null) applyDecision(binary)
+      else {
+        val alternative = alternatives.next()
 
-      if(searchListener_ != null)
-        searchListener_.onBranch(alternative)
+        val isLast = !alternatives.hasNext
+
+        if (!isLast) {
+          if(searchListener_ != null)
+            searchListener_.onPush(node)
+          node.pushState()
+        }
+        else alternativesStack.pop() // no more alternative in the sequence
+
+        if(searchListener_ != null)
+          searchListener_.onBranch(alternative)
 
-      try {
-        alternative() // apply the alternative
-      } catch {
-        case _: Inconsistency => node.fail()
+        try {
+          alternative() // apply the alternative
+        } catch {
+          case _: Inconsistency => node.fail()
+        }
       }
 
       if (!node.isFailed) {
-        val isExpandable = expand(branching)
+        val isExpandable = expand(branching, binary)
         if (!isExpandable) {
           node.solFound()
           solutionActions.foreach(_())
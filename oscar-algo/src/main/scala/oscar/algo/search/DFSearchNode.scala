@@ -130,6 +130,9 @@ class DFSearchNode extends ReversibleContextImpl with ConstrainableContext {
     }
   }
 
+  /** Returns a restarted search on the current branching, see `RestartSearch` */
+  def restartSearch(policy: RestartPolicy): RestartSearch = new RestartSearch(this, heuristic, policy)
+
   def search(block: => Seq[Alternative]): DFSearchNode = {
     heuristic = Branching(block); this
   }
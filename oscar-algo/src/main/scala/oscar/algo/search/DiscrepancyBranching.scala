@@ -24,6 +24,8 @@ class DiscrepancyBranching(branching: Branching, maxDiscrepancy: Int) extends Br
 
   private[this] var discrepancy = 0
 
+  override def reset(): Unit = branching.reset()
+
   final override def alternatives: Seq[Alternative] = {
     val alternatives = branching.alternatives
     if (alternatives.isEmpty) noAlternative
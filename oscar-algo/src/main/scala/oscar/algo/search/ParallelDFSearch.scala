@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.search
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger}
+import java.util.concurrent.locks.LockSupport
+
+import oscar.algo.Inconsistency
+
+import scala.util.Random
+
+/**
+ * An open sub-tree of the search: the node reached by applying the
+ * alternatives of index `path(0)`, `path(1)`, ... from the root and the
+ * range of alternatives `[from, until)` that remain to be explored in it.
+ */
+final class ParallelDFSearchJob(val path: Array[Int], val from: Int, val until: Int)
+
+/**
+ * Work-stealing depth first search.
+ *
+ * Each worker explores the search tree of its own replica of the model (a
+ * `DFSearchNode` and its `Branching`). An idle worker requests work from a
+ * random worker, which gives away the upper half of the open alternatives
+ * of its shallowest open node. The thief then replays the decision path
+ * leading to that node on its own replica.
+ *
+ * Replaying a path relies on the branchings to return the same alternatives,
+ * in the same order, on the same node of each replica. The branchings must
+ * then only depend on the state of the node (e.g. first-fail or static
+ * orderings, but not learning heuristics such as conflict ordering).
+ *
+ * @param nodes the replicas of the model, one per worker
+ * @param branchings the branching of each replica
+ */
+class ParallelDFSearch(nodes: Array[DFSearchNode], branchings: Array[Branching]) {
+
+  require(nodes.length == branchings.length, "one branching is required per node")
+  require(nodes.length > 0, "at least one worker is required")
+
+  private[this] val nWorkers = nodes.length
+
+  // Open jobs waiting for a worker
+  private[this] val jobs = new ConcurrentLinkedQueue[ParallelDFSearchJob]()
+
+  // Number of jobs that are waiting or being explored
+  private[this] val pendingJobs = new AtomicInteger(0)
+
+  // Statistics of the current or previous search, updated by the workers
+  private[this] val nbSols = new AtomicInteger(0)
+  private[this] val nbNodes = new AtomicInteger(0)
+  private[this] val nbBacktracks = new AtomicInteger(0)
+  private[this] var completed: Boolean = false
+
+  @volatile private[this] var stopped: Boolean = false
+
+  // Actions to execute in case of solution node
+  private[this] var solutionActions = List.empty[Int => Unit]
+
+  private[this] val workers = Array.tabulate(nWorkers)(i => new Worker(i, nodes(i), branchings(i)))
+
+  /** Returns the number of workers */
+  final def nbWorkers: Int = nWorkers
+
+  /** Returns the number of solutions found in the current or previous search */
+  final def nSolutions: Int = nbSols.get
+
+  /** Returns the number of backtracks in the current or previous search */
+  final def nBacktracks: Int = nbBacktracks.get
+
+  /** Returns the number of nodes explored in the current or previous search */
+  final def nNodes: Int = nbNodes.get
+
+  /** Returns true if the previous search was exhaustive */
+  final def isCompleted: Boolean = completed
+
+  /**
+   * Adds an action to execute when a solution node is found.
+   * The action receives the id of the worker (i.e. of the replica) that found the solution.
+   * Actions are executed in mutual exclusion.
+   */
+  final def onSolution(action: Int => Unit): Unit = solutionActions = action :: solutionActions
+
+  /** Clear all actions executed when a solution node is found */
+  final def clearOnSolution(): Unit = solutionActions = Nil
+
+  /** Stops all the workers as soon as possible */
+  final def stop(): Unit = stopped = true
+
+  def start(nSols: Int = Int.MaxValue, failureLimit: Int = Int.MaxValue, timeLimit: Int = Int.MaxValue): SearchStatistics = {
+    val maxTime = (timeLimit * 1000L) + System.currentTimeMillis()
+    start((s: ParallelDFSearch) => {
+      var stop = false
+      stop |= (nSols < Int.MaxValue && s.nSolutions >= nSols)
+      stop |= (failureLimit < Int.MaxValue && s.nBacktracks >= failureLimit)
+      stop |= (timeLimit < Int.MaxValue && System.currentTimeMillis() >= maxTime)
+      stop
+    })
+  }
+
+  def start(stopCondition: ParallelDFSearch => Boolean): SearchStatistics = {
+    val t0 = System.currentTimeMillis()
+
+    // Initializes the search
+    jobs.clear()
+    nbSols.set(0)
+    nbNodes.set(0)
+    nbBacktracks.set(0)
+    workers.foreach(_.shareRequested.set(false))
+    completed = false
+    stopped = false
+    pendingJobs.set(1)
+    jobs.add(new ParallelDFSearchJob(new Array[Int](0), 0, Int.MaxValue))
+
+    val threads = workers.map(worker => new Thread(new Runnable {
+      override def run(): Unit = worker.run(stopCondition)
+    }, "ParallelDFSearch-worker-" + worker.id))
+    threads.foreach(_.start())
+    threads.foreach(_.join())
+
+    // Rethrows the first exception raised by a worker
+    workers.foreach(worker => if (worker.error != null) throw worker.error)
+
+    completed = !stopped && pendingJobs.get == 0
+    new SearchStatistics(
+      nNodes,
+      nBacktracks,
+      System.currentTimeMillis() - t0,
+      completed,
+      nodes.map(_.time).sum,
+      nodes.map(_.maxSize).max,
+      nbSols.get
+    )
+  }
+
+  @inline private def solutionFound(workerId: Int): Unit = {
+    nbSols.incrementAndGet()
+    if (solutionActions.nonEmpty) this.synchronized {
+      solutionActions.foreach(_(workerId))
+    }
+  }
+
+  private class Worker(val id: Int, node: DFSearchNode, branching: Branching) {
+
+    private[this] val rand = new Random(id)
+
+    // Set by idle workers to ask this worker to share its open alternatives
+    private[ParallelDFSearch] val shareRequested = new AtomicBoolean(false)
+
+    // Open nodes: alternatives, next alternative, end of the range and depth
+    private[this] var frameAlternatives = new Array[IndexedSeq[Alternative]](64)
+    private[this] var frameNext = new Array[Int](64)
+    private[this] var frameEnd = new Array[Int](64)
+    private[this] var frameDepth = new Array[Int](64)
+    private[this] var nFrames = 0
+
+    // Index of the alternative applied at each depth of the current branch
+    private[this] var path = new Array[Int](64)
+
+    // Read by the thread that started the search once the worker has been joined
+    var error: Throwable = null
+
+    def run(stopCondition: ParallelDFSearch => Boolean): Unit = {
+      node.resetStats()
+      try {
+        while (!stopped && pendingJobs.get > 0) {
+          val job = jobs.poll()
+          if (job != null) {
+            try explore(job, stopCondition)
+            finally pendingJobs.decrementAndGet()
+          } else {
+            requestWork()
+            LockSupport.parkNanos(ParallelDFSearch.IdleNanos)
+          }
+        }
+      } catch {
+        case e: Throwable =>
+          error = e
+          stopped = true
+      }
+    }
+
+    @inline private def requestWork(): Unit = {
+      if (nWorkers > 1) {
+        val victim = (id + 1 + rand.nextInt(nWorkers - 1)) % nWorkers
+        workers(victim).shareRequested.set(true)
+      }
+    }
+
+    // Gives the upper half of the open alternatives of the shallowest open node
+    @inline private def share(): Unit = {
+      shareRequested.set(false)
+      var i = 0
+      while (i < nFrames && frameNext(i) >= frameEnd(i)) i += 1
+      if (i < nFrames) {
+        val mid = (frameNext(i) + frameEnd(i)) / 2
+        val depth = frameDepth(i)
+        val jobPath = new Array[Int](depth)
+        System.arraycopy(path, 0, jobPath, 0, depth)
+        pendingJobs.incrementAndGet()
+        jobs.add(new ParallelDFSearchJob(jobPath, mid, frameEnd(i)))
+        frameEnd(i) = mid
+      }
+    }
+
+    private def explore(job: ParallelDFSearchJob, stopCondition: ParallelDFSearch => Boolean): Unit = {
+      val baseLevel = node.nLevel
+      node.pushState()
+
+      // Replays the path of the job
+      val depth = job.path.length
+      var d = 0
+      while (d < depth && !node.isFailed) {
+        val alternatives = branching.alternatives()
+        val index = job.path(d)
+        assert(index < alternatives.length, "the branching cannot be replayed")
+        setPath(d, index)
+        try {
+          alternatives(index)()
+        } catch {
+          case _: Inconsistency => node.fail()
+        }
+        d += 1
+      }
+
+      if (!node.isFailed) {
+        node.pushState()
+        nFrames = 0
+        if (!expand(depth, job.from, job.until)) {
+          solutionFound(id)
+          node.pop()
+        }
+      }
+
+      while (nFrames > 0 && !stopped) {
+
+        if (shareRequested.get) share()
+
+        val top = nFrames - 1
+        if (frameNext(top) >= frameEnd(top)) {
+          // All the remaining alternatives have been given away
+          nFrames -= 1
+          node.pop()
+        } else {
+          nbNodes.incrementAndGet()
+
+          val index = frameNext(top)
+          val alternative = frameAlternatives(top)(index)
+          val nodeDepth = frameDepth(top)
+          frameNext(top) = index + 1
+          setPath(nodeDepth, index)
+
+          val isLast = index + 1 >= frameEnd(top)
+          if (!isLast) node.pushState()
+          else {
+            frameAlternatives(top) = null
+            nFrames -= 1 // no more alternative in the range
+          }
+
+          try {
+            alternative() // apply the alternative
+          } catch {
+            case _: Inconsistency => node.fail()
+          }
+
+          if (!node.isFailed) {
+            val isExpandable = expand(nodeDepth + 1, 0, Int.MaxValue)
+            if (!isExpandable) {
+              solutionFound(id)
+              nbBacktracks.incrementAndGet()
+              node.pop()
+            }
+          } else {
+            nbBacktracks.incrementAndGet()
+            node.pop()
+          }
+
+          if (stopCondition(ParallelDFSearch.this)) stopped = true
+        }
+      }
+
+      // Restores the state of the replica
+      while (nFrames > 0) {
+        nFrames -= 1
+        frameAlternatives(nFrames) = null
+      }
+      while (node.nLevel > baseLevel) node.pop()
+    }
+
+    @inline private def expand(depth: Int, from: Int, until: Int): Boolean = {
+      val alternatives = branching.alternatives()
+      if (alternatives.isEmpty) false
+      else {
+        if (nFrames == frameNext.length) growFrames()
+        frameAlternatives(nFrames) = alternatives.toIndexedSeq
+        frameNext(nFrames) = from
+        frameEnd(nFrames) = math.min(until, alternatives.length)
+        frameDepth(nFrames) = depth
+        nFrames += 1
+        true
+      }
+    }
+
+    @inline private def setPath(depth: Int, index: Int): Unit = {
+      if (depth == path.length) {
+        val newPath = new Array[Int](depth * 2)
+        System.arraycopy(path, 0, newPath, 0, depth)
+        path = newPath
+      }
+      path(depth) = index
+    }
+
+    @inline private def growFrames(): Unit = {
+      val newSize = nFrames * 2
+      val newAlternatives = new Array[IndexedSeq[Alternative]](newSize)
+      val newNext = new Array[Int](newSize)
+      val newEnd = new Array[Int](newSize)
+      val newDepth = new Array[Int](newSize)
+      System.arraycopy(frameAlternatives, 0, newAlternatives, 0, nFrames)
+      System.arraycopy(frameNext, 0, newNext, 0, nFrames)
+      System.arraycopy(frameEnd, 0, newEnd, 0, nFrames)
+      System.arraycopy(frameDepth, 0, newDepth, 0, nFrames)
+      frameAlternatives = newAlternatives
+      frameNext = newNext
+      frameEnd = newEnd
+      frameDepth = newDepth
+    }
+  }
+}
+
+object ParallelDFSearch {
+
+  // Time an idle worker waits before requesting work again
+  private final val IdleNanos = 50000L
+
+  /**
+   * Builds a parallel search with `nWorkers` replicas of the model.
+   * @param replica builds the replica of the given id and its branching
+   */
+  def apply(nWorkers: Int)(replica: Int => (DFSearchNode, Branching)): ParallelDFSearch = {
+    val replicas = Array.tabulate(nWorkers)(replica)
+    new ParallelDFSearch(replicas.map(_._1), replicas.map(_._2))
+  }
+}
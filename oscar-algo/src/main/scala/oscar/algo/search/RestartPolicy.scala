@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.search
+
+/**
+ * Limits of the successive runs of a restarted search (see `RestartSearch`).
+ *
+ * @param timeBased true if the limits are in milliseconds, false if they are in failures
+ */
+abstract class RestartPolicy(val timeBased: Boolean) {
+
+  /** Returns the limit of the next run, in failures or in milliseconds */
+  def nextLimit(): Long
+
+  /** Called at the end of each run with the number of solutions found by the run */
+  def runEnded(nSolutions: Int): Unit = {}
+
+  /** Starts the sequence of limits again */
+  def reset(): Unit
+}
+
+/**
+ * Restarts following the universal sequence described in
+ *
+ * ''Optimal speedup of Las Vegas algorithms
+ * Michael Luby, Alistair Sinclair, David Zuckerman, 1993''
+ *
+ * The limit of the i-th run is scale * luby(i) with luby = 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+ */
+class LubyRestarts(scale: Long, timeBased: Boolean = false) extends RestartPolicy(timeBased) {
+
+  require(scale > 0, "the scale must be positive")
+
+  private[this] var run = 0
+
+  override def nextLimit(): Long = {
+    run += 1
+    scale * LubyRestarts.luby(run)
+  }
+
+  override def reset(): Unit = run = 0
+}
+
+object LubyRestarts {
+
+  /** Returns the i-th term of the Luby sequence (i >= 1) */
+  def luby(i: Int): Long = {
+    var index = i.toLong
+    var result = 0L
+    while (result == 0) {
+      // Smallest k such that 2^k - 1 >= index
+      var k = 1
+      while ((1L << k) - 1 < index) k += 1
+      if ((1L << k) - 1 == index) result = 1L << (k - 1)
+      else index = index - (1L << (k - 1)) + 1
+    }
+    result
+  }
+}
+
+/**
+ * Restarts with limits increasing geometrically: the limit of the i-th run
+ * is base * factor^i (i = 0, 1, ...).
+ */
+class GeometricRestarts(base: Long, factor: Double = 1.5, timeBased: Boolean = false) extends RestartPolicy(timeBased) {
+
+  require(base > 0, "the base must be positive")
+  require(factor >= 1, "the factor must be at least 1")
+
+  private[this] var limit = base.toDouble
+
+  override def nextLimit(): Long = {
+    val next = math.min(limit, Long.MaxValue.toDouble).toLong
+    limit *= factor
+    next
+  }
+
+  override def reset(): Unit = limit = base.toDouble
+}
+
+/**
+ * Restarts with limits adapted to the outcome of the runs: the limit increases
+ * geometrically after each run that finds no solution (diversification) and goes
+ * back to base after a run that finds a solution (intensification around the new
+ * solutions, e.g. when the objective has been improved).
+ */
+class DynamicRestarts(base: Long, factor: Double = 1.5, timeBased: Boolean = false) extends RestartPolicy(timeBased) {
+
+  require(base > 0, "the base must be positive")
+  require(factor >= 1, "the factor must be at least 1")
+
+  private[this] var limit = base.toDouble
+
+  override def nextLimit(): Long = math.min(limit, Long.MaxValue.toDouble).toLong
+
+  override def runEnded(nSolutions: Int): Unit = {
+    if (nSolutions > 0) limit = base.toDouble
+    else limit *= factor
+  }
+
+  override def reset(): Unit = limit = base.toDouble
+}
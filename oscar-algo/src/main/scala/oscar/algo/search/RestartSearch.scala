@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.algo.search
+
+import oscar.algo.reversible.ReversibleArrayStack
+
+/**
+ * Depth first search restarted according to a `RestartPolicy`.
+ *
+ * Each run is a `DFSearch` on `branching` interrupted when the limit given by the policy
+ * is reached (number of failures or milliseconds). The search ends as soon as a run is
+ * exhaustive or one of the global limits of `start` is reached. The branching is only
+ * reset before the first run such that the state learned by the heuristics (activities,
+ * conflict orderings, weighted degrees, ...) is kept from one run to the next one, and
+ * `Branching.restart` is called between the runs. The solutions and failures actions of
+ * the node are executed as usual.
+ *
+ * The branch abandoned by each interrupted run can be given to the `onAbandonedBranch`
+ * actions, as the sequence of binary decisions taken from the root, e.g. to record the
+ * nogoods it implies before the next run.
+ */
+class RestartSearch(node: DFSearchNode, branching: Branching, policy: RestartPolicy) {
+
+  // Actions to execute at the root after each interrupted run
+  private[this] var restartActions = List.empty[() => Unit]
+
+  // Actions to execute with the branch abandoned by each interrupted run
+  private[this] var abandonedBranchActions = List.empty[Array[BinaryDecisionAlternative] => Unit]
+
+  // Decisions from the root to the current node, null for the non binary alternatives
+  private[this] val path = new ReversibleArrayStack[BinaryDecisionAlternative](node)
+
+  // Branch abandoned by the current run, null if it is not made of binary decisions
+  private[this] var abandoned: Array[BinaryDecisionAlternative] = null
+
+  private[this] var nbRestarts = 0
+
+  /** Returns the number of restarts of the previous search */
+  final def nRestarts: Int = nbRestarts
+
+  /** Adds an action to execute at the root after each interrupted run, before the next run */
+  final def onRestart(action: => Unit): Unit = restartActions = (() => action) :: restartActions
+
+  /**
+   * Adds an action to execute at the root after each interrupted run with the binary decisions
+   * of the abandoned branch, the decisions being left or right branches. The action is not
+   * executed if the branch contains alternatives that are not binary decisions.
+   */
+  final def onAbandonedBranch(action: Array[BinaryDecisionAlternative] => Unit): Unit = {
+    abandonedBranchActions = action :: abandonedBranchActions
+  }
+
+  // Records the path from the root and forwards the events to the listener of the user
+  private class PathListener(listener: DFSearchListener) extends DFSearchListener {
+    override def onPush(node: DFSearchNode): Unit = if (listener != null) listener.onPush(node)
+    override def onPop(node: DFSearchNode): Unit = if (listener != null) listener.onPop(node)
+    override def onBranch(alternative: Alternative): Unit = {
+      alternative match {
+        case decision: BinaryDecisionAlternative => path.push(decision)
+        case _ => path.push(null)
+      }
+      if (listener != null) listener.onBranch(alternative)
+    }
+  }
+
+  private def snapshot(): Unit = {
+    val size = path.size
+    val branch = new Array[BinaryDecisionAlternative](size)
+    var binary = true
+    var i = 0
+    while (i < size && binary) {
+      branch(i) = path(i)
+      binary = branch(i) != null
+      i += 1
+    }
+    abandoned = if (binary) branch else null
+  }
+
+  def start(nSols: Int = Int.MaxValue, failureLimit: Int = Int.MaxValue, timeLimit: Int = Int.MaxValue, listener: DFSearchListener = null): SearchStatistics = {
+    val t0 = System.currentTimeMillis()
+    val maxTime = if (timeLimit < Int.MaxValue) t0 + timeLimit * 1000L else Long.MaxValue
+    val search = node.searchEngine
+    val recordPath = abandonedBranchActions.nonEmpty
+
+    var totalNodes = 0
+    var totalFails = 0
+    var totalSols = 0
+    var timeInTrail = 0L
+    var maxTrailSize = 0
+    var completed = false
+    var stopped = false
+
+    policy.reset()
+    nbRestarts = 0
+    node.pushState()
+    search.searchListener = if (recordPath) new PathListener(listener) else listener
+
+    while (!completed && !stopped) {
+      val limit = policy.nextLimit()
+      val runStart = System.currentTimeMillis()
+      val runEnd = if (policy.timeBased) math.min(Long.MaxValue - runStart, limit) + runStart else Long.MaxValue
+      var interrupted = false
+      abandoned = null
+
+      val stopCondition = (s: DFSearch) => {
+        val time = if (maxTime < Long.MaxValue || runEnd < Long.MaxValue) System.currentTimeMillis() else 0L
+        stopped = totalSols + s.nSolutions >= nSols || totalFails + s.nBacktracks >= failureLimit || time >= maxTime
+        interrupted = !stopped && (if (policy.timeBased) time >= runEnd else s.nBacktracks >= limit)
+        if (interrupted && recordPath) snapshot()
+        stopped || interrupted
+      }
+
+      search.start(branching, stopCondition, nbRestarts == 0)
+
+      totalNodes += search.nNodes
+      totalFails += search.nBacktracks
+      totalSols += search.nSolutions
+      timeInTrail += node.time
+      maxTrailSize = math.max(maxTrailSize, node.maxSize)
+      completed = search.isCompleted
+      policy.runEnded(search.nSolutions)
+
+      if (interrupted && !completed) {
+        nbRestarts += 1
+        if (abandoned != null) abandonedBranchActions.foreach(_(abandoned))
+        branching.restart()
+        restartActions.foreach(_())
+      }
+    }
+
+    search.searchListener = null
+    node.pop()
+
+    new SearchStatistics(totalNodes, totalFails, System.currentTimeMillis() - t0, completed, timeInTrail, maxTrailSize, totalSols)
+  }
+}
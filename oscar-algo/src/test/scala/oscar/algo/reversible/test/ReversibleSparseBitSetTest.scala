@@ -187,5 +187,69 @@ class ReversibleSparseBitSetTest extends FunSuite {
   }
 
 
-}
+  test("copy, trail and adaptive restoration modes should restore the same states") {
+    val modes = Array(ReversibleSparseBitSet.Copy, ReversibleSparseBitSet.Trail, ReversibleSparseBitSet.Adaptive)
+    val rand = new scala.util.Random(42)
+    val n = 500
+    val removals = Array.fill(50)(Array.fill(20)(rand.nextInt(n)).toSet)
+    val depths = Array.fill(50)(rand.nextInt(3))
+
+    val results = modes.map(mode => {
+      val r = new ReversibleContextImpl()
+      val b = new ReversibleSparseBitSet(r, n, 0 until n)
+      b.restorationMode = mode
+      val all = new b.BitSet(0 until n)
+      val counts = Array.newBuilder[Int]
+      for (i <- removals.indices) {
+        r.pushState()
+        b.clearCollected()
+        b.collect(new b.BitSet(removals(i)))
+        b.removeCollected()
+        counts += b.intersectCount(all)
+        var d = depths(i)
+        while (d > 0 && r.nLevel > 0) {
+          r.pop()
+          counts += b.intersectCount(all)
+          d -= 1
+        }
+      }
+      r.popAll()
+      counts += b.intersectCount(all)
+      counts.result()
+    })
+
+    assert(results(0).last == n)
+    assert(results(0).sameElements(results(1)))
+    assert(results(0).sameElements(results(2)))
+  }
+
+  test("intersections that do not change the set should not be trailed") {
+    val r = new ReversibleContextImpl()
+    val n = 300
+    val b = new ReversibleSparseBitSet(r, n, 0 until n)
+    val all = new b.BitSet(0 until n)
+    val evens = new b.BitSet(0 until n by 2)
+
+    r.pushState()
+    b.clearCollected()
+    b.collect(all)
+    assert(!b.intersectCollected())
+    assert(r.maxSize == 0)
 
+    b.clearCollected()
+    b.collect(evens)
+    assert(b.intersectCollected())
+    assert(b.intersectCount(all) == n / 2)
+    // dense and sparse loops agree once words are removed
+    b.clearCollected()
+    b.collect(new b.BitSet(0 until 64))
+    b.intersectCollected()
+    assert(b.intersectCount(all) == 32)
+    assert(b.intersectCount(all, evens) == 32)
+
+    r.pop()
+    assert(b.intersectCount(all) == n)
+    assert(b.intersectCount(all, evens) == n / 2)
+  }
+
+}
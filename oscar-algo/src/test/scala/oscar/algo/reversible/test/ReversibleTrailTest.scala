@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.algo.reversible.test
+
+import org.scalatest.FunSuite
+import oscar.algo.reversible._
+
+class ReversibleTrailTest extends FunSuite {
+
+  test("primitive reversibles are restored on pop") {
+    val r = new ReversibleContextImpl()
+    val a = new ReversibleInt(r, 0)
+    val d = new ReversibleBoolean(r, false)
+
+    r.pushState()
+    a.setValue(1)
+    a.setValue(2)
+    d.setTrue()
+
+    r.pushState()
+    a.incr()
+    d.setFalse()
+    assert(a.value == 3)
+    assert(!d.value)
+
+    r.pop()
+    assert(a.value == 2)
+    assert(d.value)
+
+    r.pop()
+    assert(a.value == 0)
+    assert(!d.value)
+  }
+
+  test("typed entries, trail entries and closures are restored together") {
+    val r = new ReversibleContextImpl()
+    val a = new ReversibleInt(r, 0)
+    val b = new ReversiblePointer[Int](r, 0)
+    val s = new ReversibleBoolean(r, true)
+    var c = 0
+
+    r.pushState()
+    a := 1
+    b := 1
+    r.trail { c = 0 }
+    c = 1
+
+    r.pushState()
+    a := 2
+    b := 2
+    s.setFalse()
+    r.pushState()
+    a := 3
+
+    r.popAll()
+    assert(a.value == 0)
+    assert(b.value == 0)
+    assert(s.value)
+    assert(c == 0)
+  }
+
+  test("trailed states are restored with their word and int") {
+    val r = new ReversibleContextImpl()
+    var restored = List.empty[(Long, Int)]
+    val state = new TrailedState {
+      override def restoreState(word: Long, int: Int): Unit = restored ::= ((word, int))
+    }
+    r.pushState()
+    r.trailState(state, -1L << 40, -7)
+    r.pop()
+    assert(restored == List((-1L << 40, -7)))
+  }
+
+  test("many changes should grow the trail") {
+    val r = new ReversibleContextImpl()
+    val ints = Array.tabulate(5000)(i => new ReversibleInt(r, i))
+    r.pushState()
+    ints.foreach(_ += 1)
+    assert(ints.zipWithIndex.forall { case (s, i) => s.value == i + 1 })
+    assert(r.maxSize >= 5000)
+    r.pop()
+    assert(ints.zipWithIndex.forall { case (s, i) => s.value == i })
+  }
+
+  test("the concurrent trail restores like the sequential one") {
+    val r = new ReversibleContextImpl()
+    val a = new ReversibleInt(r, 0)
+    r.pushState()
+    a := 1
+    r.concurrent = true
+    assert(r.concurrent)
+    a := 2
+    r.concurrent = false
+    assert(!r.concurrent)
+    r.pushState()
+    a := 3
+    r.pop()
+    assert(a.value == 2)
+    r.pop()
+    assert(a.value == 0)
+  }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.algo.search.test
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import oscar.algo.search._
+import oscar.algo.reversible._
+import oscar.algo.testUtils.TestSuite
+
+class ParallelDFSearchTest extends TestSuite {
+
+  // Binary tree of the given depth, every leaf is a solution
+  private def binaryTree(depth: Int)(id: Int): (DFSearchNode, Branching) = {
+    val node = new DFSearchNode()
+    val i = new ReversibleInt(node, 0)
+    val branching = Branching {
+      if (i.value >= depth) noAlternative
+      else branch { i.incr() } { i.incr() }
+    }
+    (node, branching)
+  }
+
+  // Unbalanced tree: the left branch goes one level down, the right branch two levels
+  // down and fails on some nodes. Each node is identified by the code of its path.
+  private def unbalancedTree(depth: Int)(id: Int): (DFSearchNode, Branching, ReversibleInt) = {
+    val node = new DFSearchNode()
+    val i = new ReversibleInt(node, 0)
+    val code = new ReversibleInt(node, 1)
+    val branching = Branching {
+      if (i.value >= depth) noAlternative
+      else branch {
+        i += 1
+        code.value = code.value * 2
+      } {
+        if (code.value % 7 == 3) node.fail()
+        else {
+          i += 2
+          code.value = code.value * 2 + 1
+        }
+      }
+    }
+    (node, branching, code)
+  }
+
+  test("the solutions should be the ones of a sequential search on an unbalanced tree") {
+    val (seqNode, seqBranching, seqCode) = unbalancedTree(16)(0)
+    val expected = scala.collection.mutable.ArrayBuffer[Int]()
+    val seqSearch = new DFSearch(seqNode)
+    seqSearch.onSolution { expected += seqCode.value }
+    seqSearch.start(seqBranching)
+    assert(expected.size == expected.distinct.size)
+    assert(expected.size > 100)
+
+    for (nWorkers <- Seq(1, 2, 4)) {
+      val replicas = Array.tabulate(nWorkers)(unbalancedTree(16))
+      val search = new ParallelDFSearch(replicas.map(_._1), replicas.map(_._2))
+      val found = new java.util.concurrent.ConcurrentLinkedQueue[Int]()
+      search.onSolution(w => found.add(replicas(w)._3.value))
+      val stats = search.start()
+      assert(stats.completed)
+      assert(stats.nSols == expected.size)
+      assert(found.size == expected.size)
+      assert(found.toArray.toSeq.map(_.asInstanceOf[Int]).sorted == expected.sorted)
+    }
+  }
+
+  test("the statistics should be reset between two searches") {
+    val search = ParallelDFSearch(4)(binaryTree(10))
+    val first = search.start()
+    val second = search.start()
+    assert(first.nSols == 1024 && second.nSols == 1024)
+    assert(second.nNodes == first.nNodes)
+    assert(second.nFails == first.nFails)
+    assert(search.nNodes == second.nNodes)
+  }
+
+  test("all the leaves of the tree should be explored exactly once") {
+    for (nWorkers <- Seq(1, 2, 4)) {
+      val search = ParallelDFSearch(nWorkers)(binaryTree(12))
+      val nbSol = new AtomicInteger(0)
+      search.onSolution(_ => nbSol.incrementAndGet())
+      val stats = search.start()
+      assert(stats.nSols == 4096)
+      assert(nbSol.get == 4096)
+      assert(stats.completed)
+    }
+  }
+
+  test("the search should stop on the solution limit") {
+    val search = ParallelDFSearch(4)(binaryTree(12))
+    val stats = search.start(nSols = 10)
+    assert(stats.nSols >= 10)
+    assert(!stats.completed)
+  }
+
+  test("the replicas should be restored after the search") {
+    val replicas = Array.tabulate(2)(binaryTree(8))
+    val search = new ParallelDFSearch(replicas.map(_._1), replicas.map(_._2))
+    search.start()
+    assert(replicas.forall(_._1.nLevel == 0))
+    assert(search.start().nSols == 256)
+  }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.cp._
+
+/**
+ * Domain updates of a `CPIntVarAdaptable` (`removeValue` and `updateMin`) on a continuous
+ * or on a sparse domain, including the trailing and the restoration of the domain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class DomainBenchmark {
+
+  @Param(Array("64", "1024"))
+  var size: Int = _
+
+  @Param(Array("false", "true"))
+  var sparse: Boolean = _
+
+  private[this] var cp: CPSolver = _
+  private[this] var x: CPIntVar = _
+  private[this] var values: Array[Int] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    cp = CPSolver()
+    // A sparse domain is obtained with a hole in the middle of the values
+    values = if (sparse) (0 to size).filter(_ != size / 2).toArray else (0 until size).toArray
+    x = CPIntVar(values)(cp)
+  }
+
+  @Benchmark
+  def removeValue(): Int = {
+    cp.pushState()
+    // Removes every other value
+    var i = 1
+    while (i < values.length) {
+      x.removeValue(values(i))
+      i += 2
+    }
+    val domSize = x.size
+    cp.pop()
+    domSize
+  }
+
+  @Benchmark
+  def updateMin(): Int = {
+    cp.pushState()
+    var i = 1
+    while (i < values.length) {
+      x.updateMin(values(i))
+      i += 1
+    }
+    val min = x.min
+    cp.pop()
+    min
+  }
+}
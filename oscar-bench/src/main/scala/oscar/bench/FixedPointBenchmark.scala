@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.cp._
+
+/**
+ * Fix point of the n-queens model after the assignment of a queen.
+ * Each invocation assigns the first queen in a new state and restores the root state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class FixedPointBenchmark {
+
+  @Param(Array("16", "64"))
+  var n: Int = _
+
+  @Param(Array("Weak", "Strong"))
+  var strength: String = _
+
+  private[this] var cp: CPSolver = _
+  private[this] var queens: Array[CPIntVar] = _
+  private[this] var value: Int = 0
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    cp = CPSolver()
+    queens = Array.fill(n)(CPIntVar(0 until n)(cp))
+    val level = if (strength == "Strong") Strong else Weak
+    cp.add(allDifferent(queens), level)
+    cp.add(allDifferent(Array.tabulate(n)(i => queens(i) + i)), level)
+    cp.add(allDifferent(Array.tabulate(n)(i => queens(i) - i)), level)
+  }
+
+  @Benchmark
+  def assignQueen(): Boolean = {
+    value = (value + 1) % n
+    cp.pushState()
+    cp.assign(queens(0), value)
+    val failed = cp.isFailed
+    cp.pop()
+    failed
+  }
+}
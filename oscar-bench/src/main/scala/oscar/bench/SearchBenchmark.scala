@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.algo.search.{Branching, DFSearch}
+import oscar.cp._
+
+/**
+ * Exploration of the whole search tree of the n-queens model with `DFSearch.start`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class SearchBenchmark {
+
+  @Param(Array("8", "10"))
+  var n: Int = _
+
+  @Param(Array("static", "firstFail"))
+  var heuristic: String = _
+
+  private[this] var search: DFSearch = _
+  private[this] var branching: Branching = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val cp = CPSolver()
+    val queens = Array.fill(n)(CPIntVar(0 until n)(cp))
+    cp.add(allDifferent(queens))
+    cp.add(allDifferent(Array.tabulate(n)(i => queens(i) + i)))
+    cp.add(allDifferent(Array.tabulate(n)(i => queens(i) - i)))
+    branching = if (heuristic == "firstFail") binaryFirstFail(queens) else binaryStatic(queens)
+    search = new DFSearch(cp)
+  }
+
+  @Benchmark
+  def allSolutions(): Int = {
+    search.start(branching)
+    search.nSolutions
+  }
+}
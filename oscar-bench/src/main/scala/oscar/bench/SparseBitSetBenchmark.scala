@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.algo.reversible.{ReversibleContextImpl, ReversibleSparseBitSet}
+
+import scala.util.Random
+
+/**
+ * Successive intersections of a `ReversibleSparseBitSet` (as done by the propagation of a
+ * table along a branch) for each restoration mode, including the restoration of the set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class SparseBitSetBenchmark {
+
+  @Param(Array("1024", "65536"))
+  var n: Int = _
+
+  @Param(Array("0", "1", "2"))
+  var restorationMode: Int = _
+
+  private[this] var branch: SparseBitSetBenchmark.Branch = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = branch = new SparseBitSetBenchmark.Branch(n, restorationMode, 8)
+
+  @Benchmark
+  def intersectBranch(): Boolean = branch.run()
+}
+
+object SparseBitSetBenchmark {
+
+  /** A branch of `nMasks` nodes, each one intersecting the set with a mask */
+  class Branch(n: Int, restorationMode: Int, nMasks: Int) {
+
+    private[this] val rand = new Random(0)
+    private[this] val context = new ReversibleContextImpl()
+    private[this] val set = new ReversibleSparseBitSet(context, n, 0 until n)
+    set.restorationMode = restorationMode
+
+    // Each mask keeps about 90% of the elements
+    private[this] val masks: Array[set.BitSet] = Array.fill(nMasks)(new set.BitSet((0 until n).filter(_ => rand.nextInt(10) != 0)))
+
+    def run(): Boolean = {
+      var i = 0
+      while (i < nMasks) {
+        context.pushState()
+        set.clearCollected()
+        set.collect(masks(i))
+        set.intersectCollected()
+        i += 1
+      }
+      val empty = set.isEmpty()
+      context.popAll()
+      empty
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.algo.Inconsistency
+import oscar.cp._
+import oscar.cp.constraints.tables.TableCT
+
+import scala.util.Random
+
+/**
+ * Propagation of `TableCT` on a random table after the assignment of a variable.
+ * Each invocation assigns the first variable to the value of a tuple in a new state
+ * and restores the root state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class TableCTBenchmark {
+
+  @Param(Array("1000", "20000"))
+  var nTuples: Int = _
+
+  @Param(Array("4", "8"))
+  var arity: Int = _
+
+  private[this] val domSize = 20
+
+  private[this] var cp: CPSolver = _
+  private[this] var x: Array[CPIntVar] = _
+  private[this] var table: Array[Array[Int]] = _
+  private[this] var tuple: Int = 0
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val rand = new Random(0)
+    cp = CPSolver()
+    x = Array.fill(arity)(CPIntVar(0 until domSize)(cp))
+    table = Array.fill(nTuples, arity)(rand.nextInt(domSize))
+    cp.add(new TableCT(x, table))
+  }
+
+  @Benchmark
+  def assign(): Int = {
+    tuple = (tuple + 1) % nTuples
+    cp.pushState()
+    try cp.assign(x(0), table(tuple)(0))
+    catch {
+      case _: Inconsistency =>
+    }
+    val size = x(arity - 1).size
+    cp.pop()
+    size
+  }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import oscar.algo.reversible.{ReversibleContextImpl, ReversibleInt, ReversiblePointer}
+
+/**
+ * Trailing and restoration (`ReversibleContextImpl.pop`) of `nChanges` reversible integers,
+ * with typed primitive entries (`ReversibleInt`) and with allocated trail entries (`ReversiblePointer`).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class TrailBenchmark {
+
+  @Param(Array("8", "64", "512"))
+  var nChanges: Int = _
+
+  private[this] var context: ReversibleContextImpl = _
+  private[this] var ints: Array[ReversibleInt] = _
+  private[this] var pointers: Array[ReversiblePointer[Int]] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    context = new ReversibleContextImpl()
+    ints = Array.fill(nChanges)(new ReversibleInt(context, 0))
+    pointers = Array.fill(nChanges)(new ReversiblePointer[Int](context, 0))
+  }
+
+  @Benchmark
+  def reversibleInt(): Int = {
+    context.pushState()
+    var i = 0
+    while (i < nChanges) {
+      ints(i).setValue(i + 1)
+      i += 1
+    }
+    context.pop()
+    ints(0).value
+  }
+
+  @Benchmark
+  def reversiblePointer(): Int = {
+    context.pushState()
+    var i = 0
+    while (i < nChanges) {
+      pointers(i).setValue(i + 1)
+      i += 1
+    }
+    context.pop()
+    pointers(0).value
+  }
+}
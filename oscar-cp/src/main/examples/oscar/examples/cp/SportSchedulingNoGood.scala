@@ -2,7 +2,7 @@ package oscar.examples.cp
 
 import oscar.cp._
 import oscar.cp.nogoods.core.Nogood
-import oscar.cp.nogoods.database.NogoodDB
+import oscar.cp.nogoods.database.WatchedNogoodDB
 import oscar.cp.nogoods.searches.{NogoodSearch, NogoodBranching, HeuristicNogoodBranching}
 import oscar.util._
 
@@ -62,7 +62,7 @@ object SportSchedulingNogood extends CPModel with App {
 
   // Search that is able to extract no-goods (Recording and minimizing nogoods from restarts, Lecoutre et al, 2007)
   val ngBranching = new HeuristicNogoodBranching(x, i => x(i).size, i => x(i).randomValue)
-  val ngDB = NogoodDB()
+  val ngDB = new WatchedNogoodDB(solver, x) // propagates the nogoods with watched literals
   val ngSearch = new NogoodSearch(solver,ngDB)
 
 
@@ -78,11 +78,9 @@ object SportSchedulingNogood extends CPModel with App {
   val t = time {
     do {
       ngSearch.start(ngBranching,ng => ng.nBacktracks > 5000 || ng.nSolutions > 1)
-      // convert each no good computed on last restart and add them to the model
-      solver.add(ngDB.allNogoods.map(ng => ng.toConstraint))
+      // the nogoods computed on last restart are already propagated, keep the data base small
+      ngDB.reduceIfNeeded()
       println("#noGoods:"+ngDB.size)
-      // remove all nogoods to avoid adding them twice
-      ngDB.clear()
       restart += 1
     } while (!solFound)
   }
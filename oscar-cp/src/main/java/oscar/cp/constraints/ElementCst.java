@@ -21,6 +21,7 @@ import oscar.cp.core.CPPropagStrength;
 import oscar.cp.core.variables.CPIntVar;
 import oscar.cp.core.Constraint;
 import oscar.cp.core.variables.CPVar;
+import oscar.cp.nogoods.explanations.ExplanationEngine;
 import scala.collection.Iterable;
 import scala.collection.JavaConversions;
 
@@ -41,6 +42,8 @@ public class ElementCst extends Constraint {
 	
 	private Hashtable<Integer,ReversibleInt> counters;
 
+	private ExplanationEngine engine; // null if the store does not explain the propagation
+
 
     /**
      * @param y
@@ -67,7 +70,12 @@ public class ElementCst extends Constraint {
 		minIndSupp.setValue(0);
 		maxIndSupp = new ReversibleInt(s(), 0);
 		maxIndSupp.setValue(y.length-1);
-		
+
+		engine = s().explanationEngine();
+		if (engine != null) {
+			engine.index(x);
+			engine.index(z);
+		}
 	}
 
 	@Override
@@ -108,6 +116,10 @@ public class ElementCst extends Constraint {
 	
 	@Override
 	public void valRemove(CPIntVar var, int val) {
+		if (engine != null) {
+			valRemoveExplained(var, val);
+			return;
+		}
 		if (var == z) {
 			for (int i = 0; i < y.length; i++) {
 				if (y[i] == val) {
@@ -124,8 +136,35 @@ public class ElementCst extends Constraint {
 		}
 	}
 
+	// x != i because z != y[i], z != y[x] because x is none of the indices of the value
+	private void valRemoveExplained(CPIntVar var, int val) {
+		if (var == z) {
+			for (int i = 0; i < y.length; i++) {
+				if (y[i] == val) {
+					engine.beginReason();
+					engine.becauseNeq(z, val);
+					engine.removeValue(x, i);
+				}
+			}
+		} else {
+			ReversibleInt counter = counters.get(y[val]);
+			counter.decr();
+			if (counter.getValue() == 0) {
+				engine.beginReason();
+				for (int i = 0; i < y.length; i++) {
+					if (y[i] == y[val]) engine.becauseAbsent(x, i);
+				}
+				engine.removeValue(z, y[val]);
+			}
+		}
+	}
+
 	@Override
 	public void propagate() {
+		if (engine != null) {
+			propagateExplained();
+			return;
+		}
 		// z = y[x] 
 		int i = minIndSupp.getValue();
 		while (i<y.length && (y[sortedPerm[i]] < z.getMin() || !x.hasValue(sortedPerm[i]))) {
@@ -145,10 +184,57 @@ public class ElementCst extends Constraint {
 		
 		z.updateMax(y[sortedPerm[i]]);
 	}
+	// Same filtering, the indices are removed because of the bounds of z and
+	// the bounds of z are explained by the indices that are not in x
+	private void propagateExplained() {
+		int i = minIndSupp.getValue();
+		while (i < y.length && (y[sortedPerm[i]] < z.getMin() || !x.hasValue(sortedPerm[i]))) {
+			if (x.hasValue(sortedPerm[i])) {
+				engine.beginReason();
+				engine.becauseGeq(z, y[sortedPerm[i]] + 1);
+				engine.removeValue(x, sortedPerm[i]);
+			}
+			i++;
+		}
+		minIndSupp.setValue(i);
+
+		if (y[sortedPerm[i]] > z.getMin()) {
+			engine.beginReason();
+			for (int k = 0; k < i; k++) {
+				engine.becauseAbsent(x, sortedPerm[k]);
+			}
+			engine.updateMin(z, y[sortedPerm[i]]);
+		}
+
+		i = maxIndSupp.getValue();
+		while (i >= 0 && (y[sortedPerm[i]] > z.getMax() || !x.hasValue(sortedPerm[i]))) {
+			if (x.hasValue(sortedPerm[i])) {
+				engine.beginReason();
+				engine.becauseLeq(z, y[sortedPerm[i]] - 1);
+				engine.removeValue(x, sortedPerm[i]);
+			}
+			i--;
+		}
+		maxIndSupp.setValue(i);
+
+		if (y[sortedPerm[i]] < z.getMax()) {
+			engine.beginReason();
+			for (int k = y.length - 1; k > i; k--) {
+				engine.becauseAbsent(x, sortedPerm[k]);
+			}
+			engine.updateMax(z, y[sortedPerm[i]]);
+		}
+	}
+
 	@Override
 	public void valBind(CPIntVar x) {
 		// x is bound
-		z.assign(y[x.min()]);
+		if (engine != null) {
+			engine.beginReason();
+			engine.becauseBounds(x);
+			engine.assign(z, y[x.min()]);
+		}
+		else z.assign(y[x.min()]);
 		deactivate();
 	}
 
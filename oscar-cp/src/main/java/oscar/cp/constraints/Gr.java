@@ -59,6 +59,8 @@ public class Gr extends Constraint {
 	@Override
 	public void setup(CPPropagStrength l) throws Inconsistency {
 		priorityL2_$eq(CPStore.MAXPRIORL2());
+		// the bounds are consistent after a single call, unless x and y are views of the same variable
+		idempotent_$eq(GrEq.root(x) != GrEq.root(y));
 		propagate();
 		if(isActive()){
 			if (!y.isBound()) y.callPropagateWhenBoundsChange(this);
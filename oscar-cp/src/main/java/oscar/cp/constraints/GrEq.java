@@ -17,9 +17,14 @@ package oscar.cp.constraints;
 import oscar.algo.Inconsistency;
 import oscar.cp.core.CPPropagStrength;
 import oscar.cp.core.CPStore;
+import oscar.cp.core.variables.CPBoolVarNot;
 import oscar.cp.core.variables.CPIntVar;
+import oscar.cp.core.variables.CPIntVarViewMinus;
+import oscar.cp.core.variables.CPIntVarViewOffset;
+import oscar.cp.core.variables.CPIntVarViewTimes;
 import oscar.cp.core.Constraint;
 import oscar.cp.core.variables.CPVar;
+import oscar.cp.nogoods.explanations.ExplanationEngine;
 import scala.collection.Iterable;
 import scala.collection.JavaConversions;
 
@@ -34,6 +39,7 @@ import java.util.List;
 public class GrEq extends Constraint {
 
 	CPIntVar x, y;
+	ExplanationEngine engine; // null if the store does not explain the propagation
 
     /**
      * Constraint x >= y
@@ -46,6 +52,11 @@ public class GrEq extends Constraint {
 		super(x.store(),"GrEq");
 		this.x = x;
 		this.y = y;
+		this.engine = x.store().explanationEngine();
+		if (engine != null) {
+			engine.index(x);
+			engine.index(y);
+		}
 	}
 	
 	public GrEq(CPIntVar x, int v) {
@@ -61,6 +72,8 @@ public class GrEq extends Constraint {
 	@Override
 	public void setup(CPPropagStrength l) throws Inconsistency {
 		priorityL2_$eq(CPStore.MAXPRIORL2());
+		// the bounds are consistent after a single call, unless x and y are views of the same variable
+		idempotent_$eq(root(x) != root(y));
 		propagate();
 		if(isActive()){
 			if (!y.isBound()) y.callPropagateWhenBoundsChange(this);
@@ -68,14 +81,43 @@ public class GrEq extends Constraint {
 		}
 	}
 	
+	// Variable on which the view is defined (also used by Gr)
+	static CPIntVar root(CPIntVar v) {
+		while (true) {
+			if (v instanceof CPIntVarViewOffset) v = ((CPIntVarViewOffset) v).underlying();
+			else if (v instanceof CPIntVarViewMinus) v = ((CPIntVarViewMinus) v).underlying();
+			else if (v instanceof CPIntVarViewTimes) v = ((CPIntVarViewTimes) v).underlying();
+			else if (v instanceof CPBoolVarNot) v = ((CPBoolVarNot) v).not();
+			else return v;
+		}
+	}
+
 	@Override
 	public void propagate() {
 		if (x.getMin() >= y.getMax()) {
 			deactivate();
 			return;
 		}
+		if (engine != null) {
+			propagateExplained();
+			return;
+		}
 		x.updateMin(y.getMin());
 		y.updateMax(x.getMax());
 	}
 
+	// x >= y.min because y >= y.min, y <= x.max because x <= x.max
+	private void propagateExplained() {
+		if (y.getMin() > x.getMin()) {
+			engine.beginReason();
+			engine.becauseGeq(y, y.getMin());
+			engine.updateMin(x, y.getMin());
+		}
+		if (x.getMax() < y.getMax()) {
+			engine.beginReason();
+			engine.becauseLeq(x, x.getMax());
+			engine.updateMax(y, x.getMax());
+		}
+	}
+
 }
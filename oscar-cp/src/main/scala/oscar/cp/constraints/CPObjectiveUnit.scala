@@ -18,6 +18,7 @@ package oscar.cp.constraints
 import oscar.algo.search.isInconsistent
 import oscar.cp.TightenType
 import oscar.cp.TightenType._
+import oscar.cp.core.SharedObjectiveBound
 import oscar.cp.core.variables.CPIntVar
 import oscar.algo.search.Objective
 
@@ -34,7 +35,24 @@ abstract class CPObjectiveUnit(val objVar: CPIntVar, val n: String = "") extends
   // Tightening mode of the objective
   protected var tightenType = StrongTighten
   // Best so far value of the objective (the one recorded on the last tighten)
-  var best = 0
+  private[this] var bestValue = 0
+  // Bound shared with other solvers optimizing the same objective (null if not shared)
+  private[this] var sharedBound: SharedObjectiveBound = null
+  // True if the best so far value has been set or relaxed locally and is worse than the shared bound
+  private[this] var locallyRelaxed = false
+
+  /** Returns the best so far value of the objective */
+  def best: Int = bestValue
+
+  /**
+   * Sets the best so far value of the objective. The shared bound (if any) is not
+   * imported anymore until a solution at least as good as the shared bound is found,
+   * such that a search can deliberately restart from a worse value.
+   */
+  def best_=(value: Int): Unit = {
+    bestValue = value
+    locallyRelaxed = true
+  }
   
   /** Returns the best value in the current domain of the objective */
   def domBest: Int
@@ -60,6 +78,16 @@ abstract class CPObjectiveUnit(val objVar: CPIntVar, val n: String = "") extends
   
   /** Returns the tightening mode of the objective */
   def tightenMode = tightenType
+
+  /** Shares the best so far value of the objective with the other solvers using the same bound */
+  def shareBound(bound: SharedObjectiveBound): Unit = {
+    require(bound == null || bound.isMin == isMin, "the shared bound and the objective must have the same direction")
+    sharedBound = bound
+    locallyRelaxed = false
+  }
+
+  /** Returns the bound shared with other solvers, null if the objective is not shared */
+  def sharedObjectiveBound: SharedObjectiveBound = sharedBound
   
   /** Tightens the objective according to its tightening mode */
   def tighten(): Unit = {
@@ -67,7 +95,12 @@ abstract class CPObjectiveUnit(val objVar: CPIntVar, val n: String = "") extends
       if (tightenType != NoTighten) throw new RuntimeException("objective"+n+" not bound:" + objVar)
     }
     else {
-      best = objVar.min // Sets new best value
+      bestValue = objVar.min // Sets new best value
+      if (sharedBound != null) {
+        sharedBound.offer(bestValue)
+        // Follows the shared bound again once the local search has caught up with it
+        if (!sharedBound.isBetter(sharedBound.value, bestValue)) locallyRelaxed = false
+      }
       if (!objVar.store.silent && tightenType != NoTighten) {
         println("objective"+n+" tightened to " + best + " lb:"+  lb)
       }
@@ -89,6 +122,10 @@ abstract class CPObjectiveUnit(val objVar: CPIntVar, val n: String = "") extends
    *  tightening mode */
   def ensureBest(): Unit = {
     if (tightenType != NoTighten) {
+      if (sharedBound != null && !locallyRelaxed) {
+        val shared = sharedBound.value
+        if (sharedBound.isBetter(shared, bestValue)) bestValue = shared
+      }
       val delta = if (tightenType == StrongTighten) 1 else 0
       updateWorstBound(best, delta)
     }
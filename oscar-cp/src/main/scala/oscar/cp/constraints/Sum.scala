@@ -41,6 +41,13 @@ class Sum(x: Array[CPIntVar], constant: Int, sum: CPIntVar) extends Constraint(s
   private[this] val fixedValue = new ReversibleInt(s, constant)
   private[this] val nFixed = new ReversibleInt(s, 0)
 
+  // Null if the store does not explain the propagation
+  private[this] val engine = s.explanationEngine
+  if (engine != null) {
+    variables.foreach(engine.index)
+    engine.index(sum)
+  }
+
   idempotent = true
   priorityL2 = CPStore.MaxPriorityL2 - 1
 
@@ -58,6 +65,10 @@ class Sum(x: Array[CPIntVar], constant: Int, sum: CPIntVar) extends Constraint(s
 
   // Invariant: fixedValue is the sum of bound term variables.
   override def propagate(): Unit = {
+    if (engine != null) {
+      propagateExplained()
+      return
+    }
 
     var sumxmin = 0
     var sumxmax = 0
@@ -142,4 +153,89 @@ class Sum(x: Array[CPIntVar], constant: Int, sum: CPIntVar) extends Constraint(s
     nFixed.value = n
     fixedValue.value = value
   }
+
+  // Same filtering, each bound is explained by the bounds it is computed from.
+  // The bound variables are not removed such that they appear in the explanations.
+  private def propagateExplained(): Unit = {
+    var reduce = true
+    while (reduce) {
+      reduce = false
+      var sumxmin = constant
+      var sumxmax = constant
+      var i = 0
+      while (i < nVariables) {
+        sumxmin += variables(i).min
+        sumxmax += variables(i).max
+        i += 1
+      }
+
+      // from x to y
+      if (sumxmax < sum.max) {
+        engine.beginReason()
+        i = 0
+        while (i < nVariables) {
+          engine.becauseLeq(variables(i), variables(i).max)
+          i += 1
+        }
+        engine.updateMax(sum, sumxmax)
+      }
+      if (sumxmin > sum.min) {
+        engine.beginReason()
+        i = 0
+        while (i < nVariables) {
+          engine.becauseGeq(variables(i), variables(i).min)
+          i += 1
+        }
+        engine.updateMin(sum, sumxmin)
+      }
+
+      val ymax = sum.max
+      val ymin = sum.min
+
+      // from y to x: xi <= ymax - sum of the other minimums
+      i = 0
+      while (i < nVariables) {
+        val variable = variables(i)
+        val oldximax = variable.max
+        val ximax = ymax - (sumxmin - variable.min)
+        if (ximax < oldximax) {
+          engine.beginReason()
+          engine.becauseLeq(sum, ymax)
+          explainOthers(i, true)
+          engine.updateMax(variable, ximax)
+          sumxmax += variable.max - oldximax
+          reduce |= variable.max != ximax
+        }
+        i += 1
+      }
+
+      // xi >= ymin - sum of the other maximums
+      i = 0
+      while (i < nVariables) {
+        val variable = variables(i)
+        val ximin = ymin - (sumxmax - variable.max)
+        if (ximin > variable.min) {
+          engine.beginReason()
+          engine.becauseGeq(sum, ymin)
+          explainOthers(i, false)
+          engine.updateMin(variable, ximin)
+          reduce |= variable.min != ximin
+        }
+        i += 1
+      }
+    }
+  }
+
+  // Adds the minimums (or maximums) of all the variables but the i-th to the reason
+  @inline private def explainOthers(i: Int, minimums: Boolean): Unit = {
+    var j = 0
+    while (j < nVariables) {
+      if (j != i) {
+        val variable = variables(j)
+        if (minimums) engine.becauseGeq(variable, variable.min)
+        else engine.becauseLeq(variable, variable.max)
+      }
+      j += 1
+    }
+  }
 }
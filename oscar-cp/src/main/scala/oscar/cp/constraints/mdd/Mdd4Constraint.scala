@@ -18,6 +18,7 @@
 package oscar.cp.constraints.mdd
 import java.util
 
+import oscar.algo.array.ArrayMapLongInt
 import oscar.algo.reversible.{ReversibleContext, ReversibleSharedSparseSet, ReversibleSparseSet}
 import oscar.cp._
 import oscar.cp.core.CPPropagStrength
@@ -44,8 +45,8 @@ class Mdd4Constraint(variables : Array[CPIntVar], mdd : StaticMdd, reversibleCon
 
   private[this] val nodes: Array[ReversibleMddNode] = Array.ofDim(nNodes)
   private[this] val edges: Array[ReversibleMddEdge] = Array.ofDim(nEdges)
-  private[this] val nodesMapping: util.HashMap[Long, Int] = mdd.mapNodes(nodes, reversibleContext)
-  private[this] val edgesMapping: util.HashMap[Long, Int] = mdd.mapEdgesAndLink(edges, nodes, nodesMapping)
+  private[this] val nodesMapping: ArrayMapLongInt = mdd.mapNodes(nodes, reversibleContext)
+  private[this] val edgesMapping: ArrayMapLongInt = mdd.mapEdgesAndLink(edges, nodes, nodesMapping)
   // first dimension is for the layers, second for the sparse set containing edges in that layer
   private[this] val supports: Array[Array[ReversibleSparseSet]] = setSupports()
 
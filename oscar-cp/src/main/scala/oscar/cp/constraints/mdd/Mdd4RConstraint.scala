@@ -19,6 +19,7 @@ package oscar.cp.constraints.mdd
 import java.util
 
 import oscar.algo.Inconsistency
+import oscar.algo.array.ArrayMapLongInt
 import oscar.algo.reversible.{ReversibleContext, ReversibleInt, ReversibleSharedSparseSet}
 import oscar.cp._
 import oscar.cp.core.variables.CPVar
@@ -38,8 +39,8 @@ class Mdd4RConstraint(variables: Array[CPIntVar], mdd: StaticMdd, reversibleCont
 
   private[this] val nodes: Array[ReversibleMddNode] = Array.ofDim(nNodes)
   private[this] val edges: Array[ReversibleMddEdge] = Array.ofDim(nEdges)
-  private[this] val nodesMapping: util.HashMap[Long, Int] = mdd.mapNodes(nodes, reversibleContext)
-  private[this] val edgesMapping: util.HashMap[Long, Int] = mdd.mapEdgesAndLink(edges, nodes, nodesMapping)
+  private[this] val nodesMapping: ArrayMapLongInt = mdd.mapNodes(nodes, reversibleContext)
+  private[this] val edgesMapping: ArrayMapLongInt = mdd.mapEdgesAndLink(edges, nodes, nodesMapping)
   private[this] val supports: Array[Array[ReversibleSharedSparseSet]] = setSupports()
 
   /**
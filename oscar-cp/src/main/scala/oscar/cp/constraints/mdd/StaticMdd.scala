@@ -4,8 +4,10 @@ package oscar.cp.constraints.mdd
 import java.util
 
 import oscar.algo.Inconsistency
+import oscar.algo.array.ArrayMapLongInt
 import oscar.algo.reversible.ReversibleContext
 import oscar.cp.constraints.Automaton
+import oscar.cp.constraints.tables.TableCache
 
 
 /**
@@ -89,7 +91,7 @@ abstract class StaticMdd {
     * @param reversibleContext
     * @return nodesMapping
     */
-  def mapNodes(nodes: Array[ReversibleMddNode], reversibleContext: ReversibleContext): util.HashMap[Long, Int]
+  def mapNodes(nodes: Array[ReversibleMddNode], reversibleContext: ReversibleContext): ArrayMapLongInt
 
   /**
     * Map the static edges to a new numbering of the id's inside the reversible MDD. If the number of edges is n, the
@@ -99,7 +101,7 @@ abstract class StaticMdd {
     * @param nodesMapping
     * @return edgesMapping
     */
-  def mapEdgesAndLink(edges: Array[ReversibleMddEdge], nodes: Array[ReversibleMddNode], nodesMapping: util.HashMap[Long, Int]): util.HashMap[Long, Int]
+  def mapEdgesAndLink(edges: Array[ReversibleMddEdge], nodes: Array[ReversibleMddNode], nodesMapping: ArrayMapLongInt): ArrayMapLongInt
 
   /**
     * @return : The arity of the considered mdd (number of layer of edges)
@@ -110,6 +112,22 @@ abstract class StaticMdd {
 
 object StaticMdd {
 
+  /* Key of the compiled tables, identified by content */
+  /* Compiled mdds keyed by table content and arity */
+  private[this] val compiledTables = new TableCache[Int, StaticMddImpl]()
+
+  /**
+    * Returns the mdd of the table, compiled once per table content (see buildMddFromTableRegin) and shared by all
+    * the callers. The returned mdd must not be modified (no tuple addition/removal, no refinement), it can be used
+    * by any number of Mdd4Constraint/Mdd4RConstraint.
+    * @param table : Table constraint
+    * @param arity : Arity of the table constraint (and depth of the mdd)
+    * @return
+    */
+  def compiledMddFromTable(table: Array[Array[Int]], arity: Int): StaticMddImpl = {
+    compiledTables.getOrElseUpdate(table, arity)(buildMddFromTableRegin(table, arity))
+  }
+
   /**
     * Builds an mdd based on a table constraint by using the method presented by Cheng and Yap in
     * MDD-based generalized arc consistencyalgorithm for positive and negative table constraints and some global constraints
@@ -340,7 +358,11 @@ object StaticMdd {
     if(mdd1.getArity() == mdd2.getArity()){
       val arity = mdd1.getArity()
 
-      val nodeMap = new util.HashMap[String,StaticMddNode]()
+      // Nodes of the intersection, identified by the pair of dense indices of their nodes in mdd1 and mdd2
+      val index1 = new ArrayMapLongInt()
+      val index2 = new ArrayMapLongInt()
+      val nodeMap = new ArrayMapLongInt()
+      val intersectionNodes = new util.ArrayList[StaticMddNode]()
       val mapNode1 = new util.HashMap[StaticMddNode,StaticMddNode]()
       val mapNode2 = new util.HashMap[StaticMddNode,StaticMddNode]()
       mapNode1.put(intersection.root,mdd1.root)
@@ -366,10 +388,14 @@ object StaticMdd {
             if(u2Out != null){
               val v1 = u1Out.bottomNode
               val v2 = u2Out.bottomNode
-              val v1Id = v1.getId()
-              val v2Id = v2.getId()
-
-              var v : StaticMddNode = nodeMap.get(v1Id+"#"+v2Id)
+              val v1Index = index1.getOrElse(v1.getId(), index1.size)
+              if(v1Index == index1.size) index1.put(v1.getId(), v1Index)
+              val v2Index = index2.getOrElse(v2.getId(), index2.size)
+              if(v2Index == index2.size) index2.put(v2.getId(), v2Index)
+              val pair = (v1Index.toLong << 32) | v2Index
+
+              val vIndex = nodeMap.getOrElse(pair, -1)
+              var v : StaticMddNode = if(vIndex >= 0) intersectionNodes.get(vIndex) else null
               if(v == null){
                 if(i == arity-1){
                   v = intersection.end
@@ -378,7 +404,8 @@ object StaticMdd {
                   v = new StaticMddNode(i+1)
                   intersection.layers(i+1).add(v)
                 }
-                nodeMap.put(v1Id+"#"+v2Id,v)
+                nodeMap.put(pair,intersectionNodes.size())
+                intersectionNodes.add(v)
                 mapNode1.put(v,v1)
                 mapNode2.put(v,v2)
 
@@ -42,10 +42,8 @@ class StaticMddEdge(val topNode: StaticMddNode, val bottomNode: StaticMddNode, v
 
 
 object StaticMddEdge {
-  private[this] var edgeId: Long = 0
+  // Mdds may be built concurrently (e.g. by the replicas of a portfolio)
+  private[this] val edgeId = new java.util.concurrent.atomic.AtomicLong(0)
 
-  private def getId: Long = {
-    edgeId += 1
-    edgeId
-  }
+  private def getId: Long = edgeId.incrementAndGet()
 }
@@ -21,6 +21,7 @@ import java.math.BigInteger
 import java.util
 import java.util.{Collections, Comparator}
 
+import oscar.algo.array.ArrayMapLongInt
 import oscar.algo.reversible.ReversibleContext
 
 
@@ -51,11 +52,12 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
   layers(arity).add(end)
 
   /**
-    * tableHashes is used for the reduction (and therefore incremental addition/deletion of tuples)
+    * uniqueTables hash-cons the nodes of each layer by signature, it is used for the reduction (and therefore
+    * incremental addition/deletion of tuples)
     * constraints : List of all the static constraints added to this MDD
     * splittedHeuristic : list of the closures used to sort the splitted nodes of a layer and decide greedily which one should be splitted first
     */
-  private[this] val tableHashes = Array.fill[java.util.TreeMap[String, StaticMddNode]](arity)(new util.TreeMap[String, StaticMddNode]())
+  private[this] val uniqueTables = Array.fill(arity + 1)(new StaticMddUniqueTable())
   private[this] val constraints = new util.ArrayList[StaticMddConstraint]()
   private[this] var splittedHeuristic = scala.collection.mutable.ArrayBuffer[(Int, (StaticMddSplittedNode, StaticMddSplittedNode) => Int)]()
   // Add basic heuristic : -10000 uses the ID (very poor), 0 used the number of outEdges (less outEdges first), and you can add your own heuristic
@@ -357,7 +359,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     if(!reduced) reduce()
 
     val modifiedNode = Array.fill[util.HashSet[StaticMddNode]](arity+1)(new util.HashSet[StaticMddNode]())
-    val stringHashToRemove = Array.fill[util.ArrayList[String]](arity+1)(new util.ArrayList[String]())
+    val signaturesToRemove = Array.fill[util.ArrayList[Array[Long]]](arity+1)(new util.ArrayList[Array[Long]]())
 
     /**
       * Step 1 : Isolate the tuple
@@ -374,7 +376,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
         }
         else {
           modifiedNode(curNode.layer).add(curNode)
-          stringHashToRemove(curNode.layer).add(curNode.strHash())
+          signaturesToRemove(curNode.layer).add(curNode.signature())
 
           val newNode = new StaticMddNode(i + 1)
           modifiedNode(newNode.layer).add(newNode)
@@ -410,7 +412,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     }
     val lastEdge = new StaticMddEdge(curNode,end,tuple(i))
     /** Step 3 : Incremental reduce **/
-    pReduce(modifiedNode,stringHashToRemove)
+    pReduce(modifiedNode,signaturesToRemove)
 
   }
 
@@ -423,7 +425,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     if(! this.contains(tuple)) return
 
     val modifiedNode = Array.fill[util.HashSet[StaticMddNode]](arity+1)(new util.HashSet[StaticMddNode]())
-    val stringHashToRemove = Array.fill[util.ArrayList[String]](arity+1)(new util.ArrayList[String]())
+    val signaturesToRemove = Array.fill[util.ArrayList[Array[Long]]](arity+1)(new util.ArrayList[Array[Long]]())
 
     // First, check that the hashMap of destination -> node is properly built
     if (!reduced) reduce()
@@ -442,7 +444,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
       else {
         modifiedNode(curNode.layer).add(curNode)
         if(!alreadySplitted) {
-          stringHashToRemove(curNode.layer).add(curNode.strHash())
+          signaturesToRemove(curNode.layer).add(curNode.signature())
         }
         val newNode = new StaticMddNode(i + 1)
         modifiedNode(newNode.layer).add(newNode)
@@ -471,20 +473,20 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
       curNode = inEdge.topNode
     }
     /** Step 3 : The reduction **/
-    pReduce(modifiedNode,stringHashToRemove)
+    pReduce(modifiedNode,signaturesToRemove)
   }
 
   /**
     * Application of the bottom up reduction only on modified nodes (and not on the whole mdd).
     * This method is used for the addition/removal of tuples inside the mdd
     * @param modifiedNode
-    * @param stringHashToRemove
+    * @param signaturesToRemove
     */
-  private def pReduce(modifiedNode : Array[util.HashSet[StaticMddNode]], stringHashToRemove : Array[util.ArrayList[String]]) : Unit = {
-    // First, removeHashes
+  private def pReduce(modifiedNode : Array[util.HashSet[StaticMddNode]], signaturesToRemove : Array[util.ArrayList[Array[Long]]]) : Unit = {
+    // First, remove the old signatures
     for(i <- 0 to arity){
-      for(j <- 0 until stringHashToRemove(i).size()){
-        tableHashes(i).remove(stringHashToRemove(i).get(j))
+      for(j <- 0 until signaturesToRemove(i).size()){
+        uniqueTables(i).remove(signaturesToRemove(i).get(j))
       }
     }
     // Then, bottom up merging
@@ -493,13 +495,14 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
       while(iterator.hasNext){
         val node = iterator.next()
         if(layers(i).contains(node)) {
-          val nodeHash = node.strHash()
-          if (tableHashes(i).containsKey(nodeHash) && tableHashes(i).get(nodeHash).getId() != node.getId()) {
-            tableHashes(i).get(nodeHash).merge(node)
+          val signature = node.signature()
+          val equivalent = uniqueTables(i).get(signature)
+          if (equivalent != null && equivalent.getId() != node.getId()) {
+            equivalent.merge(node)
             layers(i).remove(node)
           }
           else {
-            tableHashes(i).put(nodeHash, node)
+            uniqueTables(i).put(signature, node)
           }
         }
       }
@@ -529,24 +532,25 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     */
   override def reduce(): Unit = {
     reduced = true
-    for (map <- tableHashes) map.clear()
+    for (table <- uniqueTables) table.clear()
 
     /**
       * In a bottom up way, merge the nodes from a similar layer
       */
     for (level <- arity - 1 to 1 by -1) {
-      val levelMap = tableHashes(level)
+      val levelTable = uniqueTables(level)
       val levelLayer = layers(level)
 
       val nodeIterator = levelLayer.iterator()
       while (nodeIterator.hasNext) {
         val curNode = nodeIterator.next()
-        val hash = curNode.strHash()
-        if (!levelMap.containsKey(hash)) {
-          levelMap.put(hash, curNode)
+        val signature = curNode.signature()
+        val equivalent = levelTable.get(signature)
+        if (equivalent == null) {
+          levelTable.put(signature, curNode)
         }
         else {
-          levelMap.get(hash).merge(curNode)
+          equivalent.merge(curNode)
         }
       }
 
@@ -554,8 +558,7 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
         * All the merge have been done, now, clear the layer and put only the remaining nodes
         */
       levelLayer.clear()
-      val valuesIterator = levelMap.values().iterator()
-      while (valuesIterator.hasNext) levelLayer.add(valuesIterator.next())
+      levelTable.foreachNode(levelLayer.add(_))
     }
   }
 
@@ -609,8 +612,8 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     * @param reversibleContext
     * @return nodesMapping
     */
-  override def mapNodes(nodes: Array[ReversibleMddNode], reversibleContext: ReversibleContext): util.HashMap[Long, Int] = {
-    val map = new util.HashMap[Long, Int]()
+  override def mapNodes(nodes: Array[ReversibleMddNode], reversibleContext: ReversibleContext): ArrayMapLongInt = {
+    val map = new ArrayMapLongInt(getNumberOfNodes())
     var i = 0
     val nE = getNumberOfEdges()
     val edgeIdsIn = Array.ofDim[Int](nE)
@@ -635,8 +638,8 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
     * @param nodesMapping
     * @return edgesMapping
     */
-  override def mapEdgesAndLink(edges: Array[ReversibleMddEdge], nodes: Array[ReversibleMddNode], nodesMapping: util.HashMap[Long, Int]): util.HashMap[Long, Int] = {
-    val map = new util.HashMap[Long, Int]()
+  override def mapEdgesAndLink(edges: Array[ReversibleMddEdge], nodes: Array[ReversibleMddNode], nodesMapping: ArrayMapLongInt): ArrayMapLongInt = {
+    val map = new ArrayMapLongInt(edges.length)
     var i = 0
     var layer = 0
     for (set <- layers) {
@@ -647,8 +650,8 @@ class StaticMddImpl(val arity: Int) extends StaticMdd {
         while (edgesIterator.hasNext) {
           val edge = edgesIterator.next()
           map.put(edge.getId, i)
-          val topNodeId = nodesMapping.get(edge.topNode.getId())
-          val botNodeId = nodesMapping.get(edge.bottomNode.getId())
+          val topNodeId = nodesMapping(edge.topNode.getId())
+          val botNodeId = nodesMapping(edge.bottomNode.getId())
           edges(i) = new ReversibleMddEdge(i, layer, edge.value, topNodeId, botNodeId)
           nodes(topNodeId).addOutEdge(i)
           nodes(botNodeId).addInEdge(i)
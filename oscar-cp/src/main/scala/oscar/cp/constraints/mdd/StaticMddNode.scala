@@ -55,6 +55,23 @@ class StaticMddNode(val layer : Int) extends GlobalNode{
     buf.toString
   }
 
+  /**
+    * Signature of the node used to hash-cons the nodes of a layer : the value and the id of the bottom node
+    * of each out edge, by increasing value. Two nodes with the same signature are equivalent.
+    */
+  def signature() : Array[Long] = {
+    val sig = new Array[Long](2 * outEdges.size())
+    val outIterator = outEdges.values().iterator()
+    var i = 0
+    while(outIterator.hasNext){
+      val edge = outIterator.next()
+      sig(i) = edge.value
+      sig(i + 1) = edge.bottomNode.getId
+      i += 2
+    }
+    sig
+  }
+
   def getInSize() : Int = this.inEdges.size()
 
   def getOutSize() : Int = this.outEdges.size()
@@ -110,11 +127,9 @@ class StaticMddNode(val layer : Int) extends GlobalNode{
 
 
 object StaticMddNode {
-  private[this] var id : Long = 0
-  def getId() : Long = {
-    id += 1
-    id
-  }
+  // Mdds may be built concurrently (e.g. by the replicas of a portfolio)
+  private[this] val id = new java.util.concurrent.atomic.AtomicLong(0)
+  def getId() : Long = id.incrementAndGet()
 }
 
 /**
@@ -0,0 +1,136 @@
+/*******************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  ******************************************************************************/
+
+package oscar.cp.constraints.mdd
+
+import java.util.Arrays
+
+/**
+  * Unique table of the nodes of a layer used to hash-cons the nodes of a static mdd : two nodes with the same
+  * signature (same out edges, see StaticMddNode.signature) are equivalent and must be merged.
+  * This is an open addressing hash table (linear probing) keyed by the signatures.
+  */
+class StaticMddUniqueTable {
+
+  private[this] var capacity = 16
+  private[this] var mask = capacity - 1
+  private[this] var keys = new Array[Array[Long]](capacity)
+  private[this] var hashes = new Array[Int](capacity)
+  private[this] var nodes = new Array[StaticMddNode](capacity)
+  private[this] var _size = 0
+
+  def size: Int = _size
+
+  /**
+    * Returns the node with the given signature, null if there is none
+    */
+  def get(signature: Array[Long]): StaticMddNode = {
+    val hash = hashOf(signature)
+    var i = hash & mask
+    while (keys(i) != null) {
+      if (hashes(i) == hash && Arrays.equals(keys(i), signature)) return nodes(i)
+      i = (i + 1) & mask
+    }
+    null
+  }
+
+  /**
+    * Associates the node to the signature (replaces the previous node, if any)
+    */
+  def put(signature: Array[Long], node: StaticMddNode): Unit = {
+    val hash = hashOf(signature)
+    var i = hash & mask
+    while (keys(i) != null) {
+      if (hashes(i) == hash && Arrays.equals(keys(i), signature)) {
+        nodes(i) = node
+        return
+      }
+      i = (i + 1) & mask
+    }
+    keys(i) = signature
+    hashes(i) = hash
+    nodes(i) = node
+    _size += 1
+    if (_size * 2 > capacity) grow()
+  }
+
+  /**
+    * Removes the signature from the table
+    */
+  def remove(signature: Array[Long]): Unit = {
+    val hash = hashOf(signature)
+    var i = hash & mask
+    while (keys(i) != null) {
+      if (hashes(i) == hash && Arrays.equals(keys(i), signature)) {
+        _size -= 1
+        // Backward shift deletion
+        var hole = i
+        var j = (i + 1) & mask
+        while (keys(j) != null) {
+          val home = hashes(j) & mask
+          if (((j - home) & mask) >= ((j - hole) & mask)) {
+            keys(hole) = keys(j)
+            hashes(hole) = hashes(j)
+            nodes(hole) = nodes(j)
+            hole = j
+          }
+          j = (j + 1) & mask
+        }
+        keys(hole) = null
+        nodes(hole) = null
+        return
+      }
+      i = (i + 1) & mask
+    }
+  }
+
+  def clear(): Unit = {
+    Arrays.fill(keys.asInstanceOf[Array[AnyRef]], null)
+    Arrays.fill(nodes.asInstanceOf[Array[AnyRef]], null)
+    _size = 0
+  }
+
+  /**
+    * Iterates on the nodes of the table
+    */
+  def foreachNode(f: StaticMddNode => Unit): Unit = {
+    var i = 0
+    while (i < capacity) {
+      if (keys(i) != null) f(nodes(i))
+      i += 1
+    }
+  }
+
+  private def hashOf(signature: Array[Long]): Int = {
+    val h = Arrays.hashCode(signature) * 0x9E3779B9
+    h ^ (h >>> 16)
+  }
+
+  private def grow(): Unit = {
+    val oldKeys = keys
+    val oldNodes = nodes
+    capacity *= 2
+    mask = capacity - 1
+    keys = new Array[Array[Long]](capacity)
+    hashes = new Array[Int](capacity)
+    nodes = new Array[StaticMddNode](capacity)
+    _size = 0
+    var i = 0
+    while (i < oldKeys.length) {
+      if (oldKeys(i) != null) put(oldKeys(i), oldNodes(i))
+      i += 1
+    }
+  }
+}
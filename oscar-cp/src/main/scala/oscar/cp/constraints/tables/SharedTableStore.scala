@@ -0,0 +1,147 @@
+/** *****************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  * *****************************************************************************/
+package oscar.cp.constraints.tables
+
+import oscar.algo.reversible.BitSetOp
+
+/**
+ * Read-only data of a table restricted to the initial ranges of its variables,
+ * shared by all the table constraints posted on the same relation and ranges.
+ *
+ * Values are relative to the offsets (i.e. value `offsets(i) + v` is at index `v`).
+ * The supports are the words of the bit-sets of tuples (bit t of word w is tuple
+ * 64 * w + t), they must never be modified. A tuple with a value out of the ranges
+ * is in no support.
+ *
+ * @param arity the number of variables of the table
+ * @param nTuples the number of tuples
+ * @param offsets the minimum value of each variable
+ * @param spans the size of the range of each variable
+ * @param supports for each variable and value, the tuples with this value or a star (null if there is none)
+ * @param strictSupports for each variable and value, the tuples with this value only (null if supports is null)
+ */
+final class SharedTable(
+  val arity: Int,
+  val nTuples: Int,
+  val offsets: Array[Int],
+  val spans: Array[Int],
+  val supports: Array[Array[Array[Long]]],
+  val strictSupports: Array[Array[Array[Long]]]
+)
+
+/**
+ * Interning store of the tables shared by the compact table constraints.
+ *
+ * The supports of a table are computed once per relation, offsets and spans, and
+ * shared by all the constraints (and all the solvers, e.g. in a portfolio) posted
+ * on this relation. Only the set of valid tuples is specific to each constraint.
+ * Tables are identified by content (see `TableCache`).
+ */
+object SharedTableStore {
+
+  private final val Star = -1
+
+  /* Tables keyed by content, offsets, spans and star value */
+  private[this] val tables = new TableCache[(List[Int], List[Int], Option[Int]), SharedTable]()
+
+  /**
+   * Returns the shared data of the table restricted to the given ranges.
+   * @param table the tuples of the relation
+   * @param offsets the minimum value of each variable
+   * @param spans the size of the range of each variable
+   * @param star the value representing any value in the tuples, if any
+   */
+  def apply(table: Array[Array[Int]], offsets: Array[Int], spans: Array[Int], star: Option[Int] = None): SharedTable = {
+    tables.getOrElseUpdate(table, (offsets.toList, spans.toList, star))(build(table, offsets, spans, star))
+  }
+
+  /** Returns the number of tables in the store */
+  def size: Int = tables.size
+
+  /** Removes all the tables from the store */
+  def clear(): Unit = tables.clear()
+
+  private def build(table: Array[Array[Int]], offsets: Array[Int], spans: Array[Int], star: Option[Int]): SharedTable = {
+    val arity = offsets.length
+    val isStar = star.isDefined
+    val starValue = star.getOrElse(0)
+
+    /* Keep the tuples in the ranges */
+    val kept = table.filter(t => {
+      var i = 0
+      var inRange = true
+      while (inRange && i < arity) {
+        val v = t(i) - offsets(i)
+        inRange = (v >= 0 && v < spans(i)) || (isStar && t(i) == starValue)
+        i += 1
+      }
+      inRange
+    })
+    val nTuples = kept.length
+    val tuples = Array.tabulate(nTuples, arity)((t, i) => if (isStar && kept(t)(i) == starValue) Star else kept(t)(i) - offsets(i))
+
+    /* Compute the words of the supports */
+    val nWords = BitSetOp.bitLength(nTuples)
+    val strictSupports = Array.tabulate(arity)(i => new Array[Array[Long]](spans(i)))
+    val starSupports = new Array[Array[Long]](arity)
+    var t = 0
+    while (t < nTuples) {
+      var i = 0
+      while (i < arity) {
+        val v = tuples(t)(i)
+        if (v == Star) {
+          if (starSupports(i) == null) starSupports(i) = new Array[Long](nWords)
+          BitSetOp.setBit(starSupports(i), t)
+        } else {
+          if (strictSupports(i)(v) == null) strictSupports(i)(v) = new Array[Long](nWords)
+          BitSetOp.setBit(strictSupports(i)(v), t)
+        }
+        i += 1
+      }
+      t += 1
+    }
+
+    if (!isStar) new SharedTable(arity, nTuples, offsets.clone(), spans.clone(), strictSupports, strictSupports)
+    else {
+      /* Merge the star tuples in the supports of every value */
+      val supports = Array.tabulate(arity)(i => new Array[Array[Long]](spans(i)))
+      var i = 0
+      while (i < arity) {
+        val stars = starSupports(i)
+        val empty = if (stars != null) new Array[Long](nWords) else null
+        var v = 0
+        while (v < spans(i)) {
+          val strict = strictSupports(i)(v)
+          if (stars == null) supports(i)(v) = strict
+          else if (strict == null) {
+            supports(i)(v) = stars
+            strictSupports(i)(v) = empty
+          } else {
+            val words = strict.clone()
+            var w = 0
+            while (w < nWords) {
+              words(w) |= stars(w)
+              w += 1
+            }
+            supports(i)(v) = words
+          }
+          v += 1
+        }
+        i += 1
+      }
+      new SharedTable(arity, nTuples, offsets.clone(), spans.clone(), supports, strictSupports)
+    }
+  }
+}
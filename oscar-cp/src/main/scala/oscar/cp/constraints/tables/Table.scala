@@ -62,12 +62,12 @@ object table {
       case Decomp => decomp(X, table)
       case ShortSTR2 => shortSTR2(X, table)
       case MDDGeneric => {
-        val mddStatic = StaticMdd.buildMddFromTableRegin(table, X.size)
+        val mddStatic = StaticMdd.compiledMddFromTable(table, X.size)
         val cons = new Mdd4Constraint(X, mddStatic, X(0).store)
         cons
       }
       case MDD4RGeneric => {
-        val mddStatic = StaticMdd.buildMddFromTableRegin(table, X.size)
+        val mddStatic = StaticMdd.compiledMddFromTable(table, X.size)
         val cons = new Mdd4RConstraint(X, mddStatic, X(0).store)
         cons
       }
@@ -77,6 +77,8 @@ object table {
 
   def compactTable(X: Array[CPIntVar], table: Array[Array[Int]]): Constraint = new TableCT(X, table)
 
+  def compactTable(X: Array[CPIntVar], table: MappedTable): Constraint = new TableCT(X, table)
+
   def compactTableGAC6(X: Array[CPIntVar], table: Array[Array[Int]]): Constraint = new TableCTAC6(X, table)
 
   def compactTableStar(X: Array[CPIntVar], table: Array[Array[Int]], star: Int = -1): Constraint = new TableCTStar(X, table, star)
@@ -91,6 +93,8 @@ object table {
 
   def mdd4r(X: Array[CPIntVar], table: Array[Array[Int]]): Constraint = new TableMDD4R(X, table)
 
+  def mdd4r(X: Array[CPIntVar], table: MappedTable): Constraint = new TableMDD4R(X, table.toArray)
+
   def str2(X: Array[CPIntVar], table: Array[Array[Int]]): Constraint = new TableSTR2(X, table)
 
   def str3(X: Array[CPIntVar], table: Array[Array[Int]]): Constraint = new TableSTR3(X, table)
@@ -22,16 +22,26 @@ import oscar.cp.core.delta.DeltaIntVar
 import oscar.cp.core.variables.{CPIntVar, CPIntVarViewOffset, CPVar}
 import oscar.cp.core.{CPPropagStrength, CPStore, Constraint}
 
-import scala.collection.mutable.ArrayBuffer
-
 /**
  * Implementation of the Compact Table algorithm (CT) for the table constraint.
  * @param X the variables restricted by the constraint.
- * @param table the list of tuples composing the table.
+ * @param sharedTable the supports of the table for the initial ranges of the variables.
  * @author Pierre Schaus pschaus@gmail.com
  * @author Jordan Demeulenaere j.demeulenaere1@gmail.com
  */
-final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constraint(X(0).store, "TableCT") {
+final class TableCT(X: Array[CPIntVar], sharedTable: SharedTable) extends Constraint(X(0).store, "TableCT") {
+
+  /**
+   * @param X the variables restricted by the constraint.
+   * @param table the list of tuples composing the table.
+   */
+  def this(X: Array[CPIntVar], table: Array[Array[Int]]) = this(X, SharedTableStore(table, X.map(_.min), X.map(x => x.max - x.min + 1)))
+
+  /**
+   * @param X the variables restricted by the constraint.
+   * @param table the table stored in a file, its tuples are not decoded.
+   */
+  def this(X: Array[CPIntVar], table: MappedTable) = this(X, table.shared(X.map(_.min), X.map(x => x.max - x.min + 1)))
 
   override def associatedVars(): Iterable[CPVar] = X
 
@@ -45,10 +55,11 @@ final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constr
   private[this] val spans = Array.tabulate(arity)(i => X(i).max - X(i).min + 1)
 
   private[this] val offsets = Array.tabulate(arity)(i => X(i).min)
-  private[this] val filteredTable = table.filter(t => (0 until arity).forall(i => X(i).hasValue(t(i))))
 
-  private[this] val nbTuples = filteredTable.length
-  private[this] val T = Array.tabulate(nbTuples, arity) { case (t, i) => filteredTable(t)(i) - offsets(i) }
+  assert(sharedTable.arity == arity && offsets.sameElements(sharedTable.offsets) && spans.sameElements(sharedTable.spans),
+    "the shared table does not match the ranges of the variables")
+
+  private[this] val nbTuples = sharedTable.nTuples
   private[this] val x = Array.tabulate(arity)(i => new CPIntVarViewOffset(X(i), -offsets(i)))
 
   private[this] val maxDomain = X.maxBy(_.size).size
@@ -67,19 +78,17 @@ final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constr
     if (nbTuples == 0)
       throw Inconsistency
 
-    /* Retrieve the current valid tuples */
-    val valids = collectValidTuples()
-
-    if (valids.isEmpty)
-      throw Inconsistency
+    /* Retrieve the shared supports of each variable/value pair */
+    computeSupports()
 
     /* Remove non valid tuples */
-    validTuples.collect(new validTuples.BitSet(valids))
-    validTuples.intersectCollected()
+    removeInvalidTuples()
+
+    if (validTuples.isEmpty())
+      throw Inconsistency
 
-    /* Compute Supports = Compute for each for each variable/value pair the supported tuples,
-       Remove values not supported by any tuple */
-    computeSupportsAndInitialFiltering(valids)
+    /* Remove values not supported by any valid tuple */
+    initialFiltering()
 
     /* Call propagate() when domains change */
     var i = 0
@@ -89,13 +98,6 @@ final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constr
     }
   }
 
-  private[this] def showTable(): Unit = {
-    table.foreach { t =>
-      println(t.mkString("\t"))
-    }
-    println("domains:" + X.mkString(","))
-  }
-
   /**
    * Invalidates tuples by handling delta, the set of values removed from D(x) since the last call to this function.
    * @param varIndex the index of x in the array of variables.
@@ -187,13 +189,16 @@ final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constr
         domainArraySize = x(varIndex).fillArray(domainArray)
         var i = 0
         var value = 0
+        var nRemoved = 0
         while (i < domainArraySize) {
           value = domainArray(i)
           if (!validTuples.intersect(variableValueSupports(varIndex)(value))) {
-            x(varIndex).removeValue(value)
+            domainArray(nRemoved) = value // the unsupported values are removed at once
+            nRemoved += 1
           }
           i += 1
         }
+        if (nRemoved > 0) x(varIndex).removeValues(domainArray, nRemoved)
       }
       if (x(varIndex).isBound) {
         /* If the variable is bound, we never need to consider it any more (put them in a sparse-set) */
@@ -209,71 +214,66 @@ final class TableCT(X: Array[CPIntVar], table: Array[Array[Int]]) extends Constr
   /* ----- Functions used during the setup of the constraint ----- */
 
   /**
-   * Retrieve the valid tuples from the table and store their index in validTuplesBuffer.
-   * @return Failure if there is no valid tuples, Suspend otherwise.
+   * Wrap the shared mask of each variable value pair (x,a), null if the value has no support.
    */
-  @inline private def collectValidTuples(): ArrayBuffer[Int] = {
-
-    val validTuplesBuffer = ArrayBuffer[Int]()
-
-    var tupleIndex = 0
-    while (tupleIndex < nbTuples) {
-      if (isTupleValid(tupleIndex)) {
-        validTuplesBuffer += tupleIndex
+  @inline private def computeSupports(): Unit = {
+    val supports = sharedTable.supports
+    var varIndex = 0
+    while (varIndex < arity) {
+      var valueIndex = 0
+      while (valueIndex < spans(varIndex)) {
+        val words = supports(varIndex)(valueIndex)
+        if (words != null) {
+          variableValueSupports(varIndex)(valueIndex) = validTuples.sharedBitSet(words)
+        }
+        valueIndex += 1
       }
-      tupleIndex += 1
+      varIndex += 1
     }
-
-    validTuplesBuffer
   }
 
   /**
-   * Check if a tuple is valid.
-   * @param tupleIndex the index of the tuple in the table.
-   * @return true if the tuple is valid, false otherwise.
+   * Keep the tuples whose values are all in the domains, by intersecting for each variable
+   * the valid tuples with the supports of its values.
    */
-  @inline private def isTupleValid(tupleIndex: Int): Boolean = {
+  @inline private def removeInvalidTuples(): Unit = {
     var varIndex = 0
     while (varIndex < arity) {
-      if (!x(varIndex).hasValue(T(tupleIndex)(varIndex))) {
-        return false
+      validTuples.clearCollected()
+      domainArraySize = x(varIndex).fillArray(domainArray)
+      var i = 0
+      while (i < domainArraySize) {
+        val support = variableValueSupports(varIndex)(domainArray(i))
+        if (support != null) {
+          validTuples.collect(support)
+        }
+        i += 1
       }
+      validTuples.intersectCollected()
       varIndex += 1
     }
-    true
   }
 
   /**
-   * Compute the mask for each variable value pair (x,a).
+   * Remove the values that are not supported by any valid tuple.
    */
-  @inline private def computeSupportsAndInitialFiltering(valids: ArrayBuffer[Int]): Unit = {
-
-    val varValueSupports = Array.tabulate(x.length)(i => Array.tabulate(spans(i))(v => new ArrayBuffer[Int]()))
-
-    /* Collect the supports */
-    var validIndex = 0
-    while (validIndex < valids.length) {
-      val tupleIndex = valids(validIndex)
-      var varIndex = 0
-      while (varIndex < arity) {
-        val value = T(tupleIndex)(varIndex)
-        varValueSupports(varIndex)(value) += tupleIndex
-        varIndex += 1
-      }
-      validIndex += 1
-    }
-
-    /* Create the final support bitSets and remove any value that is not supported */
-    for {
-      varIndex <- variableValueSupports.indices
-      valueIndex <- variableValueSupports(varIndex).indices
-    } {
-      if (varValueSupports(varIndex)(valueIndex).nonEmpty) {
-        variableValueSupports(varIndex)(valueIndex) = new validTuples.BitSet(varValueSupports(varIndex)(valueIndex))
-      } else {
-        /* This variable-value does not have any support, it can be removed */
-        x(varIndex).removeValue(valueIndex)
+  @inline private def initialFiltering(): Unit = {
+    var varIndex = 0
+    while (varIndex < arity) {
+      domainArraySize = x(varIndex).fillArray(domainArray)
+      var i = 0
+      var nRemoved = 0
+      while (i < domainArraySize) {
+        val value = domainArray(i)
+        val support = variableValueSupports(varIndex)(value)
+        if (support == null || !validTuples.intersect(support)) {
+          domainArray(nRemoved) = value
+          nRemoved += 1
+        }
+        i += 1
       }
+      if (nRemoved > 0) x(varIndex).removeValues(domainArray, nRemoved)
+      varIndex += 1
     }
   }
-}
\ No newline at end of file
+}
@@ -22,8 +22,6 @@ import oscar.cp.core.delta.DeltaIntVar
 import oscar.cp.core.variables.{CPIntVar, CPIntVarViewOffset, CPVar}
 import oscar.cp.core.{CPPropagStrength, CPStore, Constraint}
 
-import scala.collection.mutable.ArrayBuffer
-
 /**
  * Implementation of the Compact Table algorithm (CT) for the table constraint
  * including tuples with * values
@@ -40,9 +38,6 @@ final class TableCTStar(X: Array[CPIntVar], table: Array[Array[Int]], star: Int
 
   override def associatedVars(): Iterable[CPVar] = X
 
-  /* Set default star value */
-  private[this] val _star = -1
-
   /* Setting idempotency & lower priority for propagate() */
   idempotent = true
   priorityL2 = CPStore.MaxPriorityL2 - 1
@@ -53,10 +48,11 @@ final class TableCTStar(X: Array[CPIntVar], table: Array[Array[Int]], star: Int
   private[this] val spans = Array.tabulate(arity)(i => X(i).max - X(i).min + 1)
 
   private[this] val offsets = Array.tabulate(arity)(i => X(i).min)
-  private[this] val filteredTable = table.filter(t => (0 until arity).forall(i => X(i).hasValue(t(i)) || t(i) == star))
 
-  private[this] val nbTuples = filteredTable.length
-  private[this] val T = Array.tabulate(nbTuples, arity) { case (t, i) => if (filteredTable(t)(i) == star) _star else filteredTable(t)(i) - offsets(i) }
+  /* Supports shared by all the constraints on the same table */
+  private[this] val sharedTable = SharedTableStore(table, offsets, spans, Some(star))
+
+  private[this] val nbTuples = sharedTable.nTuples
   private[this] val x = Array.tabulate(arity)(i => new CPIntVarViewOffset(X(i), -offsets(i)))
 
   private[this] val maxDomain = X.maxBy(_.size).size
@@ -80,18 +76,16 @@ final class TableCTStar(X: Array[CPIntVar], table: Array[Array[Int]], star: Int
     if (nbTuples == 0)
       throw Inconsistency
 
-    /* Retrieve the current valid tuples */
-    val valids = collectValidTuples()
-    if (valids.isEmpty)
-      throw Inconsistency
+    /* Retrieve the shared supports of each variable/value pair */
+    computeSupports()
 
     /* Remove non valid tuples */
-    validTuples.collect(new validTuples.BitSet(valids))
-    validTuples.intersectCollected()
+    removeInvalidTuples()
+    if (validTuples.isEmpty())
+      throw Inconsistency
 
-    /* Compute Supports = Compute for each for each variable/value pair the supported tuples,
-       Remove values not supported by any tuple */
-    computeSupportsAndInitialFiltering(valids)
+    /* Remove values not supported by any valid tuple */
+    initialFiltering()
 
     /* Call propagate() when domains change */
     var i = 0
@@ -226,75 +220,65 @@ final class TableCTStar(X: Array[CPIntVar], table: Array[Array[Int]], star: Int
   /* ----- Functions used during the setup of the constraint ----- */
 
   /**
-   * Retrieve the valid tuples from the table and store their index in validTuplesBuffer.
-   * @return the ArrayBuffer containing the valid tuples.
+   * Wrap the shared masks of each variable value pair (x,a), null if the value has no support.
    */
-  @inline private def collectValidTuples(): ArrayBuffer[Int] = {
-
-    val validTuplesBuffer = ArrayBuffer[Int]()
-
-    var tupleIndex = 0
-    while (tupleIndex < nbTuples) {
-      if (isTupleValid(tupleIndex)) {
-        validTuplesBuffer += tupleIndex
+  @inline private def computeSupports(): Unit = {
+    val supports = sharedTable.supports
+    val supportsRM = sharedTable.strictSupports
+    var varIndex = 0
+    while (varIndex < arity) {
+      var valueIndex = 0
+      while (valueIndex < spans(varIndex)) {
+        val words = supports(varIndex)(valueIndex)
+        if (words != null) {
+          variableValueSupports(varIndex)(valueIndex) = validTuples.sharedBitSet(words)
+          variableValueSupportsRM(varIndex)(valueIndex) = validTuples.sharedBitSet(supportsRM(varIndex)(valueIndex))
+        }
+        valueIndex += 1
       }
-      tupleIndex += 1
+      varIndex += 1
     }
-
-    validTuplesBuffer
   }
 
   /**
-   * Check if a tuple is valid.
-   * @param tupleIndex the index of the tuple in the table.
-   * @return true if the tuple is valid, false otherwise.
+   * Keep the tuples whose values are all in the domains (or *), by intersecting for each variable
+   * the valid tuples with the supports of its values.
    */
-  @inline private def isTupleValid(tupleIndex: Int): Boolean = {
+  @inline private def removeInvalidTuples(): Unit = {
     var varIndex = 0
     while (varIndex < arity) {
-      if (!x(varIndex).hasValue(T(tupleIndex)(varIndex)) && T(tupleIndex)(varIndex) != _star)
-        return false
+      validTuples.clearCollected()
+      domainArraySize = x(varIndex).fillArray(domainArray)
+      var i = 0
+      while (i < domainArraySize) {
+        val support = variableValueSupports(varIndex)(domainArray(i))
+        if (support != null) {
+          validTuples.collect(support)
+        }
+        i += 1
+      }
+      validTuples.intersectCollected()
       varIndex += 1
     }
-    true
   }
 
   /**
-   * Compute the mask for each variable value pair (x,a).
+   * Remove the values that are not supported by any valid tuple.
    */
-  @inline private def computeSupportsAndInitialFiltering(valids: ArrayBuffer[Int]): Unit = {
-
-    val varValueSupports = Array.tabulate(x.length)(i => Array.tabulate(spans(i))(v => new ArrayBuffer[Int]()))
-    val varValueSupportsStar = Array.fill(x.length)(new ArrayBuffer[Int]())
-
-    /* Collect the supports */
-    var validIndex = 0
-    while (validIndex < valids.length) {
-      val tupleIndex = valids(validIndex)
-      var varIndex = 0
-      while (varIndex < arity) {
-        val value = T(tupleIndex)(varIndex)
-        if (value == _star)
-          varValueSupportsStar(varIndex) += tupleIndex
-        else
-          varValueSupports(varIndex)(value) += tupleIndex
-        varIndex += 1
-      }
-      validIndex += 1
-    }
-
-    /* Create the final support bitSets and remove any value that is not supported */
-    for {
-      varIndex <- variableValueSupports.indices
-      valueIndex <- variableValueSupports(varIndex).indices
-    } {
-      if (varValueSupports(varIndex)(valueIndex).size + varValueSupportsStar(varIndex).size > 0) {
-        variableValueSupports(varIndex)(valueIndex) = new validTuples.BitSet(varValueSupports(varIndex)(valueIndex) ++ varValueSupportsStar(varIndex))
-        variableValueSupportsRM(varIndex)(valueIndex) = new validTuples.BitSet(varValueSupports(varIndex)(valueIndex))
-      } else {
-        /* This variable-value does not have any support, it can be removed */
-        x(varIndex).removeValue(valueIndex)
+  @inline private def initialFiltering(): Unit = {
+    var varIndex = 0
+    while (varIndex < arity) {
+      domainArraySize = x(varIndex).fillArray(domainArray)
+      var i = 0
+      while (i < domainArraySize) {
+        val value = domainArray(i)
+        val support = variableValueSupports(varIndex)(value)
+        if (support == null || !validTuples.intersect(support)) {
+          x(varIndex).removeValue(value)
+        }
+        i += 1
       }
+      varIndex += 1
     }
   }
-}
\ No newline at end of file
+}
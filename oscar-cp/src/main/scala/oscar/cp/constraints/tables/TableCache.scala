@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.constraints.tables
+
+import java.lang.ref.SoftReference
+import java.util.Arrays
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of read-only data computed from the content of a table and of some
+ * parameters (e.g. the ranges of the variables), shared by all the callers.
+ *
+ * Tables are identified by content: the content hash of a table is computed at
+ * each lookup and the contents are only compared when the hashes are equal. The
+ * cache keeps a copy of each table, such that a table array refilled after a
+ * lookup is not mistaken for its previous content. Values are built without
+ * holding any lock, the first value published for a key being shared by all
+ * the callers, and are softly referenced such that they can be reclaimed when
+ * no more constraint uses them.
+ *
+ * @tparam P the parameters of the value, compared with `equals`
+ * @tparam V the type of the cached values
+ */
+final class TableCache[P, V <: AnyRef] {
+
+  private class Key(val table: Array[Array[Int]], val hash: Int, val params: P) {
+
+    override val hashCode: Int = hash * 31 + params.hashCode
+
+    override def equals(other: Any): Boolean = other match {
+      case key: Key =>
+        hash == key.hash && params == key.params &&
+          ((table eq key.table) || Arrays.deepEquals(table.asInstanceOf[Array[AnyRef]], key.table.asInstanceOf[Array[AnyRef]]))
+      case _ => false
+    }
+  }
+
+  private[this] val values = new ConcurrentHashMap[Key, SoftReference[V]]()
+
+  /**
+   * Returns the value of the table and parameters, built with `build` if it is
+   * not in the cache (or has been reclaimed).
+   */
+  def getOrElseUpdate(table: Array[Array[Int]], params: P)(build: => V): V = {
+    val key = new Key(table, TableCache.contentHash(table), params)
+    val cached = valueOf(values.get(key))
+    if (cached != null) cached
+    else {
+      val value = build
+      val reference = new SoftReference(value)
+      val stored = new Key(table.map(_.clone), key.hash, params)
+      var result: V = null.asInstanceOf[V]
+      while (result == null) {
+        val previous = values.putIfAbsent(stored, reference)
+        if (previous == null) result = value
+        else {
+          val published = previous.get
+          if (published != null) result = published // built concurrently by another caller
+          else if (values.replace(stored, previous, reference)) result = value
+        }
+      }
+      purge()
+      result
+    }
+  }
+
+  /** Returns the number of values in the cache */
+  def size: Int = {
+    purge()
+    values.size
+  }
+
+  /** Removes all the values from the cache */
+  def clear(): Unit = values.clear()
+
+  @inline private def valueOf(reference: SoftReference[V]): V = {
+    if (reference == null) null.asInstanceOf[V]
+    else reference.get
+  }
+
+  /* Removes the values that have been reclaimed */
+  private def purge(): Unit = {
+    val entries = values.entrySet.iterator
+    while (entries.hasNext) {
+      if (entries.next().getValue.get == null) entries.remove()
+    }
+  }
+}
+
+object TableCache {
+
+  /** Returns the content hash of the table */
+  def contentHash(table: Array[Array[Int]]): Int = Arrays.deepHashCode(table.asInstanceOf[Array[AnyRef]])
+}
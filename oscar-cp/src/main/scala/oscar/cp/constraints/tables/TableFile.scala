@@ -0,0 +1,274 @@
+/** *****************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  * *****************************************************************************/
+package oscar.cp.constraints.tables
+
+import java.io.{BufferedOutputStream, DataOutputStream, File, FileOutputStream, IOException, RandomAccessFile}
+import java.nio.LongBuffer
+import java.nio.channels.FileChannel
+
+import oscar.algo.reversible.BitSetOp
+
+import scala.collection.mutable
+
+/**
+ * Compact binary format of the tables, loaded by memory mapping.
+ *
+ * The tuples are stored by column, each value being bit-packed as its difference with
+ * the minimum value of its column (frame of reference). The bitmaps of the tuples
+ * supporting each value of each column can be precomputed in the file, such that the
+ * compact table constraints can be set up without decoding the tuples.
+ *
+ * Layout (big endian):
+ *  - header: magic, version, arity, number of tuples, flags (1 if the supports are stored)
+ *  - for each column: minimum value, maximum value, number of bits per value
+ *  - padding to a multiple of 8 bytes
+ *  - for each column: the packed values, in ceil(nTuples * bits / 64) longs
+ *  - for each column and each value from min to max: the support bitmap, in ceil(nTuples / 64) longs
+ */
+object TableFile {
+
+  final val Magic = 0x4F534354 // "OSCT"
+  final val Version = 1
+  final val SupportsFlag = 1
+
+  /**
+   * Writes the table in the compact binary format.
+   * @param file the destination file
+   * @param table the tuples, all of the same arity
+   * @param withSupports true if the support bitmaps of the values must be stored
+   */
+  def write(file: File, table: Array[Array[Int]], withSupports: Boolean = true): Unit = {
+    require(table.length > 0, "the table must contain at least one tuple")
+    val arity = table(0).length
+    val nTuples = table.length
+    require(table.forall(_.length == arity), "all the tuples must have the same arity")
+
+    val mins = Array.tabulate(arity)(i => table.iterator.map(_(i)).min)
+    val maxs = Array.tabulate(arity)(i => table.iterator.map(_(i)).max)
+    require(!withSupports || (0 until arity).forall(i => maxs(i).toLong - mins(i) < Int.MaxValue), "the values are too spread to store their supports")
+    val bits = Array.tabulate(arity)(i => bitsOf(maxs(i).toLong - mins(i)))
+
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+    try {
+      out.writeInt(Magic)
+      out.writeInt(Version)
+      out.writeInt(arity)
+      out.writeInt(nTuples)
+      out.writeInt(if (withSupports) SupportsFlag else 0)
+      var i = 0
+      while (i < arity) {
+        out.writeInt(mins(i))
+        out.writeInt(maxs(i))
+        out.writeInt(bits(i))
+        i += 1
+      }
+      var p = headerSize(arity) - (20 + 12 * arity)
+      while (p > 0) {
+        out.writeByte(0)
+        p -= 1
+      }
+
+      /* Packed columns */
+      i = 0
+      while (i < arity) {
+        val words = new Array[Long](packedLength(nTuples, bits(i)))
+        var t = 0
+        while (t < nTuples) {
+          pack(words, t, bits(i), table(t)(i) - mins(i))
+          t += 1
+        }
+        words.foreach(out.writeLong(_))
+        i += 1
+      }
+
+      /* Support bitmaps */
+      if (withSupports) {
+        val nWords = BitSetOp.bitLength(nTuples)
+        i = 0
+        while (i < arity) {
+          val supports = Array.ofDim[Long](maxs(i) - mins(i) + 1, nWords)
+          var t = 0
+          while (t < nTuples) {
+            BitSetOp.setBit(supports(table(t)(i) - mins(i)), t)
+            t += 1
+          }
+          supports.foreach(_.foreach(out.writeLong(_)))
+          i += 1
+        }
+      }
+    } finally {
+      out.close()
+    }
+  }
+
+  /**
+   * Maps the table stored in the given file.
+   * The tuples stay in the file, they are only decoded on demand.
+   */
+  def load(file: File): MappedTable = {
+    val raf = new RandomAccessFile(file, "r")
+    try {
+      val channel = raf.getChannel
+      val header = channel.map(FileChannel.MapMode.READ_ONLY, 0, math.min(channel.size, 20))
+      if (channel.size < 20 || header.getInt(0) != Magic) throw new IOException(file + " is not a table file")
+      if (header.getInt(4) != Version) throw new IOException("unsupported table file version " + header.getInt(4))
+      val arity = header.getInt(8)
+      val nTuples = header.getInt(12)
+      val withSupports = (header.getInt(16) & SupportsFlag) != 0
+
+      val columns = channel.map(FileChannel.MapMode.READ_ONLY, 20, 12 * arity)
+      val mins = Array.tabulate(arity)(i => columns.getInt(12 * i))
+      val maxs = Array.tabulate(arity)(i => columns.getInt(12 * i + 4))
+      val bits = Array.tabulate(arity)(i => columns.getInt(12 * i + 8))
+
+      var position = headerSize(arity).toLong
+      val packed = Array.tabulate(arity)(i => {
+        val buffer = mapLongs(channel, position, packedLength(nTuples, bits(i)))
+        position += 8L * buffer.capacity
+        buffer
+      })
+      val supports =
+        if (!withSupports) null
+        else Array.tabulate(arity)(i => {
+          val buffer = mapLongs(channel, position, (maxs(i) - mins(i) + 1).toLong * BitSetOp.bitLength(nTuples))
+          position += 8L * buffer.capacity
+          buffer
+        })
+      if (position > channel.size) throw new IOException(file + " is truncated")
+
+      new MappedTable(arity, nTuples, mins, maxs, bits, packed, supports)
+    } finally {
+      raf.close() // the mappings remain valid
+    }
+  }
+
+  /** Returns the number of bits required to store the values in [0, span] */
+  private def bitsOf(span: Long): Int = 64 - java.lang.Long.numberOfLeadingZeros(span)
+
+  private def headerSize(arity: Int): Int = (20 + 12 * arity + 7) & ~7
+
+  private def packedLength(nTuples: Int, bits: Int): Int = ((nTuples.toLong * bits + 63) >>> 6).toInt
+
+  private def pack(words: Array[Long], t: Int, bits: Int, value: Int): Unit = {
+    if (bits > 0) {
+      val pos = t.toLong * bits
+      val word = (pos >>> 6).toInt
+      val shift = (pos & 63).toInt
+      words(word) |= (value.toLong & 0xFFFFFFFFL) << shift
+      if (shift + bits > 64) words(word + 1) |= (value.toLong & 0xFFFFFFFFL) >>> (64 - shift)
+    }
+  }
+
+  private def mapLongs(channel: FileChannel, position: Long, nLongs: Long): LongBuffer = {
+    if (8L * nLongs > Int.MaxValue) throw new IOException("a section of the table file exceeds 2GB")
+    channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * nLongs).asLongBuffer()
+  }
+}
+
+/**
+ * A table stored in a memory mapped file (see `TableFile`).
+ *
+ * The tuples are decoded on demand, the support bitmaps of the values are
+ * copied from the file (or computed from the packed columns if they are not
+ * stored) when the table is shared with the compact table constraints.
+ */
+final class MappedTable private[tables] (
+  val arity: Int,
+  val nTuples: Int,
+  mins: Array[Int],
+  maxs: Array[Int],
+  bits: Array[Int],
+  packed: Array[LongBuffer],
+  supportBitmaps: Array[LongBuffer]
+) {
+
+  private[this] val nWords = BitSetOp.bitLength(nTuples)
+  private[this] val sharedTables = mutable.HashMap[(Seq[Int], Seq[Int]), SharedTable]()
+
+  /** Returns the minimum value of the column i */
+  def min(i: Int): Int = mins(i)
+
+  /** Returns the maximum value of the column i */
+  def max(i: Int): Int = maxs(i)
+
+  /** Returns true if the support bitmaps are stored in the file */
+  def hasSupports: Boolean = supportBitmaps != null
+
+  /** Returns the value of the column i in the tuple t */
+  def value(t: Int, i: Int): Int = {
+    val b = bits(i)
+    if (b == 0) mins(i)
+    else {
+      val pos = t.toLong * b
+      val word = (pos >>> 6).toInt
+      val shift = (pos & 63).toInt
+      var v = packed(i).get(word) >>> shift
+      if (shift + b > 64) v |= packed(i).get(word + 1) << (64 - shift)
+      mins(i) + (v & ((1L << b) - 1)).toInt
+    }
+  }
+
+  /** Returns the tuple t */
+  def tuple(t: Int): Array[Int] = Array.tabulate(arity)(value(t, _))
+
+  /** Decodes all the tuples, e.g. for the table constraints that require them */
+  def toArray: Array[Array[Int]] = Array.tabulate(nTuples)(tuple)
+
+  /**
+   * Returns the words of the bitmap of the tuples with the given value in the column i,
+   * null if there is none.
+   */
+  def supportWords(i: Int, value: Int): Array[Long] = {
+    if (value < mins(i) || value > maxs(i)) null
+    else {
+      val words = new Array[Long](nWords)
+      var empty = true
+      if (supportBitmaps != null) {
+        val buffer = supportBitmaps(i).duplicate()
+        buffer.position((value - mins(i)) * nWords)
+        buffer.get(words)
+        var w = 0
+        while (empty && w < nWords) {
+          empty = words(w) == 0L
+          w += 1
+        }
+      } else {
+        var t = 0
+        while (t < nTuples) {
+          if (this.value(t, i) == value) {
+            BitSetOp.setBit(words, t)
+            empty = false
+          }
+          t += 1
+        }
+      }
+      if (empty) null else words
+    }
+  }
+
+  /**
+   * Returns the data of the table for the compact table constraints on variables with the
+   * given ranges. The data is computed once per ranges and shared by all the constraints.
+   * @param offsets the minimum value of each variable
+   * @param spans the size of the range of each variable
+   */
+  def shared(offsets: Array[Int], spans: Array[Int]): SharedTable = synchronized {
+    require(offsets.length == arity && spans.length == arity, "the ranges must be given for each column")
+    sharedTables.getOrElseUpdate((offsets.toSeq, spans.toSeq), {
+      val supports = Array.tabulate(arity)(i => Array.tabulate(spans(i))(v => supportWords(i, offsets(i) + v)))
+      new SharedTable(arity, nTuples, offsets.clone(), spans.clone(), supports, supports)
+    })
+  }
+}
@@ -101,5 +101,16 @@ class CPOptimizer(propagStrength: CPPropagStrength) extends CPStore(propagStreng
     this
   }
   
+  /**
+   * Shares the bound of the (single) objective with other solvers optimizing the
+   * same objective in parallel. The objective is then pruned by the solutions found
+   * by any of these solvers.
+   */
+  def shareObjective(bound: SharedObjectiveBound): CPOptimizer = {
+    require(objective.objs.size == 1, "only a single objective can be shared")
+    objective.objs.head.shareBound(bound)
+    this
+  }
+
   def update(): Unit = propagate()
 }
\ No newline at end of file
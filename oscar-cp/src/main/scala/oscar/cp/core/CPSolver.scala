@@ -27,6 +27,8 @@ import oscar.util._
 import oscar.cp.multiobjective.ListPareto
 import oscar.cp.multiobjective.Pareto
 import oscar.cp.constraints.ParetoConstraint
+import oscar.cp.searches.{PhaseSaving, WarmStartBranching}
+import oscar.cp.searches.lns.CPIntSol
 import java.util.LinkedList
 import java.util.Collection
 
@@ -106,6 +108,52 @@ class CPSolver(propagStrength: CPPropagStrength) extends CPOptimizer(propagStren
     true
   }
 
+  // Phases created by the warm start on the variables, detached once the warm start is replaced
+  private[this] var warmStartPhases: PhaseSaving = null
+
+  /**
+   * Warm starts the next searches from a previous solution: the branching first follows the
+   * values of the solution (see `WarmStartBranching`), the phases being updated at each new
+   * solution. If `boundObjective` is true, only the solutions better than the objective of the
+   * previous solution are searched for. Must be called after the branching has been set.
+   */
+  def warmStart(phases: PhaseSaving, solution: CPIntSol, boundObjective: Boolean): CPSolver = {
+    require(heuristic != null, "the branching must be set before the warm start")
+    phases.load(solution)
+    if (warmStartPhases != null && (warmStartPhases ne phases)) {
+      warmStartPhases.detach()
+      warmStartPhases = null
+    }
+    val branching = heuristic match {
+      case warmStart: WarmStartBranching => warmStart.branching
+      case b => b
+    }
+    heuristic = WarmStartBranching(phases, branching)
+    if (boundObjective && objective.objs.nonEmpty) {
+      val obj = objective.objs.head
+      obj.relax()
+      obj.best = solution.objective
+    }
+    this
+  }
+
+  /**
+   * Warm starts the next searches from a previous solution on the variables, see `warmStart`.
+   * The phases of the current warm start are reused if they are on the same variables, the
+   * phases created for the previous variables are not saved anymore otherwise.
+   */
+  def warmStart(variables: Array[CPIntVar], solution: CPIntSol, boundObjective: Boolean = false): CPSolver = {
+    heuristic match {
+      case warmStart: WarmStartBranching if warmStart.phases.variables.sameElements(variables) =>
+        this.warmStart(warmStart.phases, solution, boundObjective)
+      case _ =>
+        val phases = new PhaseSaving(variables, variables(_).min)
+        this.warmStart(phases, solution, boundObjective)
+        warmStartPhases = phases
+        this
+    }
+  }
+
   override def minimize(objective: CPIntVar): CPSolver = {
     super.minimize(Seq(objective): _*)
     this
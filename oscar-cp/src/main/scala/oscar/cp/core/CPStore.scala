@@ -19,11 +19,13 @@ import java.util.Collection
 
 import oscar.algo.Inconsistency
 import oscar.algo.array.ArrayQueue
+import oscar.algo.reversible.TrailEntry
 import oscar.algo.search.{DFSearchNode, IntConstrainableContext, SetConstrainableContext}
 import oscar.cp.constraints.EqCons
 import oscar.algo.vars.{IntVarLike, SetVarLike}
 import oscar.cp.core.variables.{CPBoolVar, CPIntVar, CPSetVar}
 import oscar.cp.core.watcher.PropagEventQueueVarSet
+import oscar.cp.nogoods.explanations.ExplanationEngine
 
 import scala.collection.JavaConversions.{asJavaCollection, collectionAsScalaIterable}
 import scala.reflect.ClassTag
@@ -37,12 +39,41 @@ import scala.util.Random
 class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode with IntConstrainableContext with SetConstrainableContext {
 
   def this() = this(CPPropagStrength.Weak)
+
+  // Number of constraints created on this store
+  private[this] var nConstraints = 0
+
+  // Returns the identifier of a new constraint, constraints can be created by the workers of the parallel propagation
+  private[core] def newConstraintId(): Int = synchronized {
+    nConstraints += 1
+    nConstraints - 1
+  }
+
+  /** Returns the number of constraints created on this store, their identifiers are in [0, nConstraintIds[ */
+  def nConstraintIds: Int = synchronized { nConstraints }
+
+  // Number of watchers registered on the variables that are neither the watchers of a constraint
+  // nor observers, the count is restored on backtrack as the registrations
+  private[this] var nWatchers = 0
+
+  private[this] val unregisterWatcher = new TrailEntry {
+    final override def restore(): Unit = CPStore.this.synchronized { nWatchers -= 1 }
+  }
+
+  // Records a watcher registered directly on a variable (see `CPIntVar.awakeOnChanges`)
+  private[core] def registerWatcher(): Unit = {
+    synchronized { nWatchers += 1 }
+    trail(unregisterWatcher)
+  }
+
+  // Returns true if a watcher that is not attached to a constraint is registered on a variable
+  private[core] def hasWatchers: Boolean = synchronized { nWatchers > 0 }
   
   // Random object
   private[this] val rand = new Random(0)
 
   // Propagation queue L1 (AC5)
-  private[this] val propagQueueL1 = Array.fill(CPStore.MaxPriorityL1 + 1)(new ArrayQueue[() => Unit](1000))
+  private[this] val propagQueueL1 = Array.fill(CPStore.MaxPriorityL1 + 1)(new PropagQueueL1(1000))
   private[this] var highestPriorL1 = -1
 
   // Propagation queue L2 (AC3)
@@ -71,7 +102,106 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
   }
   
   def statistics = new SolverStatistics(nCallsL1,nCallsL2,timeInFixedPoint)
-  
+
+  // Profiler of the L2 propagation, null if profiling is disabled
+  private[this] var _profiler: PropagationProfiler = null
+
+  /** Returns the propagation profiler if profiling is enabled */
+  def profiler: Option[PropagationProfiler] = Option(_profiler)
+
+  /**
+   *  Enables the profiling of the calls to the propagate method of the constraints
+   *  (see `PropagationProfiler`). The statistics are kept from one search to another.
+   *
+   *  @return the profiler
+   */
+  def enableProfiling(): PropagationProfiler = {
+    if (_profiler == null) _profiler = new PropagationProfiler()
+    _profiler
+  }
+
+  /** Disables the profiling of the propagation */
+  def disableProfiling(): Unit = _profiler = null
+
+  // Explanation engine of the store, null if the propagation is not explained
+  private[this] var _explanationEngine: ExplanationEngine = null
+
+  /** Returns the explanation engine of the store, null if the propagation is not explained */
+  final def explanationEngine: ExplanationEngine = _explanationEngine
+
+  /**
+   *  Switches the store to the explanation mode (see `ExplanationEngine`): the propagators
+   *  that can explain their domain changes record them in the engine. Must be called before
+   *  posting these propagators, which select their mode when they are created.
+   *
+   *  @return the explanation engine of the store
+   */
+  def enableExplanations(): ExplanationEngine = {
+    if (_explanationEngine == null) _explanationEngine = new ExplanationEngine(this)
+    _explanationEngine
+  }
+
+  // True if the L2 priorities are tuned according to the observed behavior of the constraints
+  private[this] var _adaptiveScheduling = false
+
+  /** Returns true if the adaptive scheduling of the L2 propagation is enabled */
+  def adaptiveScheduling: Boolean = _adaptiveScheduling
+
+  /**
+   *  Enables or disables the adaptive scheduling of the L2 propagation.
+   *
+   *  When enabled, the cost and the pruning effectiveness of each call to the propagate
+   *  method of a constraint are observed and the constraint is enqueued with the priority
+   *  `Constraint.adaptivePriorityL2` (cheap and effective constraints first, expensive or
+   *  ineffective ones last) instead of its static priority. A call is said to be
+   *  effective if it fails or modifies a domain (i.e. notifies a propagation event).
+   */
+  def adaptiveScheduling_=(enabled: Boolean): Unit = _adaptiveScheduling = enabled
+
+  // Parallel propagation, null if disabled
+  private[this] var parallel: ParallelPropagation = null
+
+  // Worker of each thread while the workers propagate, null otherwise
+  private[this] var workerOfThread: ThreadLocal[PropagationWorker] = null
+
+  /** Returns true if the large fixed points are propagated in parallel */
+  def parallelPropagation: Boolean = parallel != null
+
+  /**
+   *  Propagates the independent parts of the model in parallel, on `nThreads` threads.
+   *
+   *  When at least `threshold` events are queued at the beginning of a fixed point, the
+   *  constraints are partitioned in the connected components of the constraint graph and
+   *  the components are propagated concurrently. The fixed point is the same as the
+   *  sequential one but the order in which the constraints are called is not deterministic.
+   *
+   *  Only the constraints posted after this call are partitioned: the propagation remains
+   *  sequential if a constraint of the store was created before this call or was not posted
+   *  (e.g. a constraint registered on the variables by another constraint), or while a watcher
+   *  that is not an observer is registered directly on a variable (see `Watcher.isObserver`),
+   *  since such propagators could link the components. The partition relies on the `associatedVars` of
+   *  the constraints, which must contain all the variables a constraint modifies or watches
+   *  and must not change once the constraint is posted. The parallel propagation is not used
+   *  with explanations, and the profiler and the adaptive scheduling do not observe the
+   *  constraints called by the workers.
+   */
+  def enableParallelPropagation(nThreads: Int, threshold: Int = 1000): Unit = {
+    disableParallelPropagation()
+    parallel = new ParallelPropagation(this, nThreads, threshold)
+  }
+
+  /** Propagates sequentially and stops the threads of the parallel propagation */
+  def disableParallelPropagation(): Unit = {
+    if (parallel != null) {
+      parallel.shutdown()
+      parallel = null
+    }
+  }
+
+  // Number of propagation events (L1 events and L2 wake-ups) notified by the variables,
+  // only updated by the main thread (the workers count their own events)
+  private[this] var nEvents = 0L
+
 
   // Reference to the last constraint called
   private[this] var lastConstraint: Constraint = null
@@ -107,9 +237,15 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
 
   // Adds the constraint in the L2 queue
   @inline final def enqueueL2(c: Constraint): Unit = {
+    if (workerOfThread != null) workerOfThread.get.enqueueL2(c)
+    else enqueueStoreL2(c)
+  }
+
+  @inline private def enqueueStoreL2(c: Constraint): Unit = {
+    nEvents += 1
     if (c.isEnqueuable) {
       c.setEnqueued()
-      val priority = c.priorityL2
+      val priority = if (_adaptiveScheduling) c.adaptivePriorityL2 else c.priorityL2
       propagQueueL2(priority).addLast(c)
       if (priority > highestPriorL2) {
         highestPriorL2 = priority
@@ -117,16 +253,77 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
     }
   }
 
-  // Adds the constraint in the L1 queue
-  @inline final def enqueueL1(c: Constraint, priority: Int, evt: => Unit): Unit = {
-    propagQueueL1(priority).addLast(() => {
-      if (c.isActive) {
-        lastConstraint = c // last constraint called
-        evt
+  // Adds the event in the L1 queue
+  @inline private def enqueueEventL1(priority: Int, kind: Int, c: Constraint, x: AnyRef, idx: Int, value: Int): Unit = {
+    if (workerOfThread != null) workerOfThread.get.enqueueEventL1(priority, kind, c, x, idx, value)
+    else {
+      nEvents += 1
+      propagQueueL1(priority).addLast(kind, c, x, idx, value)
+      if (priority > highestPriorL1) {
+        highestPriorL1 = priority
       }
-    })
-    if (priority > highestPriorL1) {
-      highestPriorL1 = priority
+    }
+  }
+
+  /**
+   *  Adds a generic L1 event in the queue.
+   *
+   *  Note that the event is wrapped in a closure. Prefer the specialized
+   *  `enqueueXXXL1` methods that do not allocate.
+   */
+  @inline final def enqueueL1(c: Constraint, priority: Int, evt: => Unit): Unit = {
+    enqueueEventL1(priority, PropagQueueL1.Closure, c, () => evt, 0, 0)
+  }
+
+  @inline final def enqueueBindL1(c: Constraint, x: CPIntVar): Unit = {
+    enqueueEventL1(c.priorityBindL1, PropagQueueL1.Bind, c, x, 0, 0)
+  }
+
+  @inline final def enqueueBindIdxL1(c: Constraint, x: CPIntVar, idx: Int): Unit = {
+    enqueueEventL1(c.priorityBindL1, PropagQueueL1.BindIdx, c, x, idx, 0)
+  }
+
+  @inline final def enqueueBoundsL1(c: Constraint, x: CPIntVar): Unit = {
+    enqueueEventL1(c.priorityBoundsL1, PropagQueueL1.Bounds, c, x, 0, 0)
+  }
+
+  @inline final def enqueueBoundsIdxL1(c: Constraint, x: CPIntVar, idx: Int): Unit = {
+    enqueueEventL1(c.priorityBoundsL1, PropagQueueL1.BoundsIdx, c, x, idx, 0)
+  }
+
+  @inline final def enqueueRemoveL1(c: Constraint, x: CPIntVar, value: Int): Unit = {
+    enqueueEventL1(c.priorityRemoveL1, PropagQueueL1.Remove, c, x, 0, value)
+  }
+
+  @inline final def enqueueRemoveIdxL1(c: Constraint, x: CPIntVar, idx: Int, value: Int): Unit = {
+    enqueueEventL1(c.priorityRemoveL1, PropagQueueL1.RemoveIdx, c, x, idx, value)
+  }
+
+  // Executes the L1 event last removed from the queue
+  @inline private def processEventL1(queue: PropagQueueL1): Unit = {
+    val c = queue.constraint
+    if (c.isActive) {
+      lastConstraint = c // last constraint called
+      executeEventL1(queue)
+    }
+  }
+
+  // Calls the constraint of the L1 event last removed from the queue
+  @inline private[core] final def executeEventL1(queue: PropagQueueL1): Unit = {
+    val c = queue.constraint
+    val x = queue.variable
+    (queue.kind: @annotation.switch) match {
+      case PropagQueueL1.Closure => x.asInstanceOf[() => Unit].apply()
+      case PropagQueueL1.Bind => c.valBind(x.asInstanceOf[CPIntVar])
+      case PropagQueueL1.BindIdx => c.valBindIdx(x.asInstanceOf[CPIntVar], queue.index)
+      case PropagQueueL1.Bounds => c.updateBounds(x.asInstanceOf[CPIntVar])
+      case PropagQueueL1.BoundsIdx => c.updateBoundsIdx(x.asInstanceOf[CPIntVar], queue.index)
+      case PropagQueueL1.Remove => c.valRemove(x.asInstanceOf[CPIntVar], queue.value)
+      case PropagQueueL1.RemoveIdx => c.valRemoveIdx(x.asInstanceOf[CPIntVar], queue.index, queue.value)
+      case PropagQueueL1.Required => c.valRequired(x.asInstanceOf[CPSetVar], queue.value)
+      case PropagQueueL1.RequiredIdx => c.valRequiredIdx(x.asInstanceOf[CPSetVar], queue.index, queue.value)
+      case PropagQueueL1.Excluded => c.valExcluded(x.asInstanceOf[CPSetVar], queue.value)
+      case PropagQueueL1.ExcludedIdx => c.valExcludedIdx(x.asInstanceOf[CPSetVar], queue.index, queue.value)
     }
   }
 
@@ -139,7 +336,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
       val x = q.x
       val idx = q.idx
       if (c.isActive) {
-        enqueueL1(c, c.priorityBindL1, c.valRequired(x, v))
+        enqueueEventL1(c.priorityBindL1, PropagQueueL1.Required, c, x, 0, v)
       }
       q = q.next
     }
@@ -152,7 +349,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
       val x = q.x
       val idx = q.idx
       if (c.isActive) {
-        enqueueL1(c, c.priorityBindL1, c.valRequiredIdx(x, idx, v))
+        enqueueEventL1(c.priorityBindL1, PropagQueueL1.RequiredIdx, c, x, idx, v)
       }
       q = q.next
     }
@@ -165,7 +362,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
       val x = q.x
       val idx = q.idx
       if (c.isActive) {
-        enqueueL1(c, c.priorityBindL1, c.valExcluded(x, v))
+        enqueueEventL1(c.priorityBindL1, PropagQueueL1.Excluded, c, x, 0, v)
       }
       q = q.next
     }
@@ -178,7 +375,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
       val x = q.x
       val idx = q.idx
       if (c.isActive) {
-        enqueueL1(c, c.priorityBindL1, c.valExcludedIdx(x, idx, v))
+        enqueueEventL1(c.priorityBindL1, PropagQueueL1.ExcludedIdx, c, x, idx, v)
       }
       q = q.next
     }
@@ -234,6 +431,8 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
     // Adds the cut constraints
     cutConstraints.foreach(c => enqueueL2(c))
 
+    if (parallel != null && nQueued >= parallel.threshold) parallelFixedPoint()
+
     while (highestPriorL1 >= 0 || highestPriorL2 >= 0) {
       // Propagate L1
       while (highestPriorL1 >= 0) {
@@ -241,8 +440,8 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
         if (queue.isEmpty) highestPriorL1 -= 1
         else {
           nCallsL1 += 1
-          val event = queue.removeFirst()
-          event()
+          queue.removeFirst()
+          processEventL1(queue)
         }
       }
 
@@ -255,12 +454,116 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
           val constraint = queue.removeFirst()
           constraint.setDequeued()
           lastConstraint = constraint
-          constraint.execute()
+          if (_adaptiveScheduling) executeObserved(constraint)
+          else executeL2(constraint)
         }
       }
     }
   }
 
+  // Number of events in the queues
+  private def nQueued: Int = {
+    var n = 0
+    var p = highestPriorL1
+    while (p >= 0) {
+      n += propagQueueL1(p).size
+      p -= 1
+    }
+    p = highestPriorL2
+    while (p >= 0) {
+      n += propagQueueL2(p).size
+      p -= 1
+    }
+    n
+  }
+
+  // Moves the queued events to the workers of their component and runs the workers,
+  // does nothing if the components cannot be computed or if a single worker is needed
+  private def parallelFixedPoint(): Unit = {
+    if (_explanationEngine != null) return
+    val workerOf = parallel.assignWorkers()
+    if (workerOf == null) return
+    // Checks that the components of all the queued constraints are known
+    var worker: PropagationWorker = null
+    var several = false
+    var p = highestPriorL1
+    while (p >= 0) {
+      val queue = propagQueueL1(p)
+      var i = queue.size
+      while (i > 0) {
+        i -= 1
+        val w = workerOf.get(queue.constraintAt(i))
+        if (w == null) return
+        if (worker == null) worker = w else if (w ne worker) several = true
+      }
+      p -= 1
+    }
+    var unknown = false
+    p = highestPriorL2
+    while (p >= 0) {
+      propagQueueL2(p).foreach(c => {
+        val w = workerOf.get(c)
+        if (w == null) unknown = true
+        else if (worker == null) worker = w else if (w ne worker) several = true
+      })
+      p -= 1
+    }
+    if (unknown || !several) return
+    // Distributes the events
+    while (highestPriorL1 >= 0) {
+      val queue = propagQueueL1(highestPriorL1)
+      while (!queue.isEmpty) {
+        queue.removeFirst()
+        val c = queue.constraint
+        workerOf.get(c).enqueueEventL1(highestPriorL1, queue.kind, c, queue.variable, queue.index, queue.value)
+      }
+      highestPriorL1 -= 1
+    }
+    while (highestPriorL2 >= 0) {
+      val queue = propagQueueL2(highestPriorL2)
+      while (!queue.isEmpty) {
+        val c = queue.removeFirst()
+        workerOf.get(c).addL2(c, highestPriorL2)
+      }
+      highestPriorL2 -= 1
+    }
+    // Runs the workers, the events they notify are routed to their own queues
+    workerOfThread = parallel.current
+    val failed = try parallel.run() finally workerOfThread = null
+    val workers = parallel.workers
+    var w = 0
+    while (w < workers.length) {
+      nCallsL1 += workers(w).nCallsL1
+      nCallsL2 += workers(w).nCallsL2
+      nEvents += workers(w).nEvents
+      if (workers(w).lastConstraint != null) lastConstraint = workers(w).lastConstraint
+      w += 1
+    }
+    if (failed != null) {
+      lastConstraint = failed.lastConstraint
+      throw Inconsistency
+    }
+  }
+
+  @inline private def executeL2(constraint: Constraint): Unit = {
+    if (_profiler == null) constraint.execute()
+    else _profiler.execute(constraint)
+  }
+
+  // Executes the constraint and records its cost and effect for the adaptive scheduling
+  @inline private def executeObserved(constraint: Constraint): Unit = {
+    val eventsBefore = nEvents
+    val t0 = System.nanoTime()
+    try {
+      executeL2(constraint)
+      constraint.observe(System.nanoTime() - t0, nEvents > eventsBefore)
+    } catch {
+      case i: Inconsistency =>
+        constraint.observe(System.nanoTime() - t0, true)
+        throw i
+    }
+  }
+
   def printQueues(): Unit = {
     println("----------")
     propagQueueL1.foreach(q => println("L1: " + q.size))
@@ -278,6 +581,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
   def post(constraint: Constraint, st: CPPropagStrength): Unit = {
     if (isFailed)
       throw Inconsistency
+    if (parallel != null) parallel.register(constraint)
     try {
       constraint.setup(st)
     }
@@ -331,6 +635,7 @@ class CPStore(final val propagStrength: CPPropagStrength) extends DFSearchNode w
       var i = 0
       while (i < constraints.length) {
         val constraint = constraints(i)
+        if (parallel != null) parallel.register(constraint)
         constraint.setup(st)
         i += 1
       }
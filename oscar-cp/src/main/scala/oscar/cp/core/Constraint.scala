@@ -31,6 +31,9 @@ abstract class Constraint(store: CPStore, val name: String = "cons") extends Tra
 
   implicit val thisConstraint = this
 
+  /** Identifier of the constraint in its store (from 0), -1 if the constraint has no store */
+  final val constraintId: Int = if (store == null) -1 else store.newConstraintId()
+
   private[this] var active: Boolean = true
   private[this] var inQueue: Boolean = false
   private[this] var lastMagicActive = -1L
@@ -132,6 +135,39 @@ abstract class Constraint(store: CPStore, val name: String = "cons") extends Tra
   final def priorityRequireL1_=(priority: Int): Unit = priorRequireL1 = checkL1Prior(priority)
   final def priorityExcludeL1_=(priority: Int): Unit = priorExcludeL1 = checkL1Prior(priority)
 
+  // Observed cost (ns per call) and pruning rate of the propagate method (moving averages)
+  private[this] var _observedCost: Double = 0.0
+  private[this] var _observedPruning: Double = 1.0
+  private[this] var adaptivePriorL2 = -1
+
+  /** Returns the moving average of the time (in nanoseconds) of a call to propagate */
+  final def observedCost: Double = _observedCost
+
+  /** Returns the moving average of the ratio of calls to propagate that pruned a domain or failed */
+  final def observedPruning: Double = _observedPruning
+
+  /**
+   * Returns the L2 priority used by the adaptive scheduling of the store: cheap and effective
+   * constraints are propagated first and expensive or ineffective ones last.
+   * The static priority is used until the constraint has been observed.
+   */
+  @inline final def adaptivePriorityL2: Int = if (adaptivePriorL2 < 0) priorL2 else adaptivePriorL2
+
+  /** Records the cost and the effect of a call to propagate (see `CPStore.adaptiveScheduling`) */
+  private[cp] final def observe(time: Long, pruned: Boolean): Unit = {
+    if (adaptivePriorL2 < 0) {
+      _observedCost = time
+      _observedPruning = if (pruned) 1.0 else 0.0
+    } else {
+      _observedCost += Constraint.ObservationDecay * (time - _observedCost)
+      _observedPruning += Constraint.ObservationDecay * ((if (pruned) 1.0 else 0.0) - _observedPruning)
+    }
+    // Expected time to prune, in units of 256ns, with an effectiveness of at least 1/16
+    val score = _observedCost / math.max(_observedPruning, 0.0625) / 256
+    val level = if (score < 1) 0 else math.min(java.lang.Math.getExponent(score), CPStore.MaxPriorityL2)
+    adaptivePriorL2 = CPStore.MaxPriorityL2 - level
+  }
+
   @inline private def checkL1Prior(priority: Int): Int = {
     if (priority > CPStore.MaxPriorityL1) CPStore.MaxPriorityL1
     else if (priority < 0) 0
@@ -310,6 +346,12 @@ abstract class Constraint(store: CPStore, val name: String = "cons") extends Tra
   }
 }
 
+object Constraint {
+
+  /** Weight of the last observation in the moving averages of the adaptive scheduling */
+  private final val ObservationDecay = 0.1
+}
+
 abstract class SubConstraint(store: CPStore, name: String = "cons")
   extends Constraint(store, name) {
 }
\ No newline at end of file
@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.core
+
+import java.util.IdentityHashMap
+import java.util.concurrent.{Callable, ExecutionException, ExecutorService, Executors, Future, ThreadFactory}
+import java.util.concurrent.atomic.AtomicBoolean
+
+import oscar.algo.Inconsistency
+import oscar.algo.array.ArrayQueue
+import oscar.algo.reversible.ReversibleArrayStack
+import oscar.cp.core.variables._
+
+import scala.util.control.NonFatal
+
+/**
+ * Propagation queues of a thread of the parallel propagation. The worker computes
+ * the fixed point of the constraints enqueued on its thread, which belong to
+ * components of the constraint graph that are not shared with the other workers.
+ */
+private[core] final class PropagationWorker(store: CPStore) {
+
+  private[this] val queueL1 = Array.fill(CPStore.MaxPriorityL1 + 1)(new PropagQueueL1(64))
+  private[this] var highestPriorL1 = -1
+
+  private[this] val queueL2 = Array.fill(CPStore.MaxPriorityL2 + 1)(new ArrayQueue[Constraint](16))
+  private[this] var highestPriorL2 = -1
+
+  // Statistics of the last fixed point
+  var nCallsL1: Long = 0L
+  var nCallsL2: Long = 0L
+  var nEvents: Long = 0L
+  var lastConstraint: Constraint = null
+
+  @inline def isEmpty: Boolean = highestPriorL1 < 0 && highestPriorL2 < 0
+
+  @inline def enqueueL2(c: Constraint): Unit = {
+    nEvents += 1
+    if (c.isEnqueuable) {
+      c.setEnqueued()
+      addL2(c, c.priorityL2)
+    }
+  }
+
+  // Adds a constraint that is already marked as enqueued
+  @inline def addL2(c: Constraint, priority: Int): Unit = {
+    queueL2(priority).addLast(c)
+    if (priority > highestPriorL2) highestPriorL2 = priority
+  }
+
+  @inline def enqueueEventL1(priority: Int, kind: Int, c: Constraint, x: AnyRef, idx: Int, value: Int): Unit = {
+    nEvents += 1
+    queueL1(priority).addLast(kind, c, x, idx, value)
+    if (priority > highestPriorL1) highestPriorL1 = priority
+  }
+
+  /** Computes the fixed point of the queued constraints, stops early if another worker failed */
+  def fixedPoint(stop: AtomicBoolean): Unit = {
+    while ((highestPriorL1 >= 0 || highestPriorL2 >= 0) && !stop.get) {
+      while (highestPriorL1 >= 0) {
+        val queue = queueL1(highestPriorL1)
+        if (queue.isEmpty) highestPriorL1 -= 1
+        else {
+          nCallsL1 += 1
+          queue.removeFirst()
+          val c = queue.constraint
+          if (c.isActive) {
+            lastConstraint = c
+            store.executeEventL1(queue)
+          }
+        }
+      }
+      while (highestPriorL1 < 0 && highestPriorL2 >= 0) {
+        val queue = queueL2(highestPriorL2)
+        if (queue.isEmpty) highestPriorL2 -= 1
+        else {
+          nCallsL2 += 1
+          val constraint = queue.removeFirst()
+          constraint.setDequeued()
+          lastConstraint = constraint
+          constraint.execute()
+        }
+      }
+    }
+  }
+
+  def resetStats(): Unit = {
+    nCallsL1 = 0
+    nCallsL2 = 0
+    nEvents = 0
+    lastConstraint = null
+  }
+
+  /** Empties the queues */
+  def clear(): Unit = {
+    while (highestPriorL1 >= 0) {
+      queueL1(highestPriorL1).clear()
+      highestPriorL1 -= 1
+    }
+    while (highestPriorL2 >= 0) {
+      val queue = queueL2(highestPriorL2)
+      while (!queue.isEmpty) queue.removeFirst().setDequeued()
+      highestPriorL2 -= 1
+    }
+  }
+}
+
+/**
+ * Opt-in parallel propagation of a `CPStore`, see `CPStore.enableParallelPropagation`.
+ *
+ * The constraints posted while the parallel propagation is enabled are recorded (reversibly).
+ * When a large fixed point starts, the connected components of the graph linking these
+ * constraints to their variables (as given by `associatedVars`, views being linked to their
+ * underlying variable) are computed and distributed over the workers, largest first. Each
+ * worker then propagates its components on its own thread, with its own queues, the trail
+ * of the store being synchronized in the meantime. The components are kept until a
+ * constraint is posted or removed by a backtrack.
+ *
+ * The components are not computed if a propagator that is not recorded may be attached to
+ * the variables: a constraint of the store that was not posted while the parallel propagation
+ * is enabled, or a watcher registered directly on a variable.
+ */
+private[core] final class ParallelPropagation(store: CPStore, val nThreads: Int, val threshold: Int) {
+
+  require(nThreads > 1, "the parallel propagation requires at least two threads")
+
+  private[this] val executor: ExecutorService = Executors.newFixedThreadPool(nThreads, new ThreadFactory {
+    override def newThread(r: Runnable): Thread = {
+      val thread = new Thread(r, "oscar-propagation")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  val workers: Array[PropagationWorker] = Array.fill(nThreads)(new PropagationWorker(store))
+
+  /** The worker of the current thread, null outside the parallel fixed points */
+  val current = new ThreadLocal[PropagationWorker]
+
+  // Constraints posted since the parallel propagation is enabled
+  private[this] val constraints = new ReversibleArrayStack[Constraint](store, 1024)
+
+  // Identifiers of the constraints posted since the parallel propagation is enabled
+  private[this] val registered = new java.util.BitSet()
+  private[this] var nRegistered = 0
+
+  // Incremented each time a constraint is recorded
+  private[this] var version = 0L
+
+  // Components of the last call to assignWorkers, valid while no constraint is posted or removed
+  private[this] var cached = false
+  private[this] var cachedVersion = 0L
+  private[this] var cachedSize = 0
+  private[this] var cachedWorkers: IdentityHashMap[Constraint, PropagationWorker] = null
+
+  /** Records a posted constraint, can be called by the workers */
+  def register(constraint: Constraint): Unit = synchronized {
+    constraints.push(constraint)
+    version += 1
+    val id = constraint.constraintId
+    if (id >= 0 && !registered.get(id)) {
+      registered.set(id)
+      nRegistered += 1
+    }
+  }
+
+  // Returns true if all the constraints of the store were posted since the parallel
+  // propagation is enabled and if no other watcher is registered on the variables
+  private def allRegistered: Boolean = synchronized {
+    nRegistered == store.nConstraintIds && !store.hasWatchers
+  }
+
+  // Variable on which the variable is defined, views share the components of their variable
+  @inline private def root(variable: CPVar): AnyRef = variable match {
+    case x: CPBoolVarNot => root(x.not)
+    case x: CPIntVarViewOffset => root(x.underlying)
+    case x: CPIntVarViewMinus => root(x.underlying)
+    case x: CPIntVarViewTimes => root(x.underlying)
+    case x => x
+  }
+
+  // Union-find of the variables and constraints
+  private[this] val parents = new IdentityHashMap[AnyRef, AnyRef]()
+
+  @inline private def find(element: AnyRef): AnyRef = {
+    var root = element
+    var parent = parents.get(root)
+    while (parent != null && (parent ne root)) {
+      root = parent
+      parent = parents.get(root)
+    }
+    // Path compression
+    var e = element
+    while (e ne root) {
+      val next = parents.get(e)
+      parents.put(e, root)
+      e = next
+    }
+    root
+  }
+
+  @inline private def union(a: AnyRef, b: AnyRef): Unit = {
+    val rootA = find(a)
+    val rootB = find(b)
+    if (rootA ne rootB) parents.put(rootB, rootA)
+  }
+
+  /**
+   * Returns the worker assigned to each recorded constraint, such that two constraints
+   * sharing a variable are assigned to the same worker. Returns null if the variables of
+   * a constraint are unknown or if a propagator is not recorded.
+   */
+  def assignWorkers(): IdentityHashMap[Constraint, PropagationWorker] = {
+    if (!allRegistered) null
+    else synchronized {
+      val n = constraints.size
+      if (!cached || cachedVersion != version || cachedSize != n) {
+        cachedWorkers = components(n)
+        cachedVersion = version
+        cachedSize = n
+        cached = true
+      }
+      cachedWorkers
+    }
+  }
+
+  // Computes the components of the n first recorded constraints and assigns them to the workers
+  private def components(n: Int): IdentityHashMap[Constraint, PropagationWorker] = {
+    parents.clear()
+    var i = 0
+    while (i < n) {
+      val constraint = constraints(i)
+      parents.put(constraint, constraint)
+      val variables = try constraint.associatedVars() catch { case NonFatal(_) => null }
+      if (variables == null || variables.isEmpty) {
+        parents.clear()
+        return null
+      }
+      variables.foreach(variable => {
+        val r = root(variable)
+        if (!parents.containsKey(r)) parents.put(r, r)
+        union(constraint, r)
+      })
+      i += 1
+    }
+    // Sizes of the components
+    val sizes = new IdentityHashMap[AnyRef, Array[Int]]()
+    i = 0
+    while (i < n) {
+      val component = find(constraints(i))
+      val size = sizes.get(component)
+      if (size == null) sizes.put(component, Array(1)) else size(0) += 1
+      i += 1
+    }
+    // Largest components first, on the least loaded worker
+    val loads = new Array[Int](nThreads)
+    val assignment = new IdentityHashMap[AnyRef, PropagationWorker]()
+    val components = sizes.entrySet().toArray(new Array[java.util.Map.Entry[AnyRef, Array[Int]]](0)).sortBy(-_.getValue()(0))
+    for (component <- components) {
+      var w = 0
+      var best = 0
+      while (w < nThreads) {
+        if (loads(w) < loads(best)) best = w
+        w += 1
+      }
+      loads(best) += component.getValue()(0)
+      assignment.put(component.getKey, workers(best))
+    }
+    val workerOf = new IdentityHashMap[Constraint, PropagationWorker]()
+    i = 0
+    while (i < n) {
+      workerOf.put(constraints(i), assignment.get(find(constraints(i))))
+      i += 1
+    }
+    parents.clear()
+    workerOf
+  }
+
+  /**
+   * Runs the fixed point of the workers that have queued constraints on the threads of the
+   * pool. Returns the failed worker, or null if no worker failed.
+   */
+  def run(): PropagationWorker = {
+    val stop = new AtomicBoolean(false)
+    @volatile var failed: PropagationWorker = null
+    val futures = new Array[Future[Unit]](nThreads)
+    workers.foreach(_.resetStats())
+    store.concurrent = true
+    try {
+      var w = 0
+      while (w < nThreads) {
+        val worker = workers(w)
+        if (!worker.isEmpty) futures(w) = executor.submit(new Callable[Unit] {
+          override def call(): Unit = {
+            current.set(worker)
+            try worker.fixedPoint(stop)
+            catch {
+              case _: Inconsistency =>
+                failed = worker
+                stop.set(true)
+            } finally current.remove()
+          }
+        })
+        w += 1
+      }
+      // Waits for all the workers before giving the trail back to the search
+      var error: Throwable = null
+      w = 0
+      while (w < nThreads) {
+        if (futures(w) != null) {
+          try futures(w).get()
+          catch {
+            case e: ExecutionException =>
+              stop.set(true)
+              if (error == null) error = e.getCause
+          }
+        }
+        w += 1
+      }
+      if (error != null) {
+        workers.foreach(_.clear())
+        throw error
+      }
+      if (failed != null) workers.foreach(_.clear())
+      failed
+    } finally store.concurrent = false
+  }
+
+  def shutdown(): Unit = executor.shutdown()
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.core
+
+/**
+ *  An array-based queue of L1 (AC5) events.
+ *
+ *  Each event is stored in parallel arrays (kind, constraint, variable, index,
+ *  value) such that enqueuing and dequeuing an event does not allocate any
+ *  object. The kind of an event is one of the constants defined in the
+ *  companion object.
+ *
+ *  `removeFirst` removes the first event of the queue and makes its fields
+ *  available through `kind`, `constraint`, ... until the next call to
+ *  `removeFirst`. The slot of the removed event is cleared such that the
+ *  queue does not keep the constraints and variables reachable.
+ */
+final class PropagQueueL1(initialSize: Int = 8) {
+
+  // The length of these arrays must be a power of 2
+  private[this] var kinds: Array[Int] = new Array[Int](computeSize(initialSize))
+  private[this] var constraints: Array[Constraint] = new Array[Constraint](kinds.length)
+  private[this] var variables: Array[AnyRef] = new Array[AnyRef](kinds.length)
+  private[this] var indices: Array[Int] = new Array[Int](kinds.length)
+  private[this] var values: Array[Int] = new Array[Int](kinds.length)
+
+  // Used for fast position testing
+  private[this] var bitMask: Int = kinds.length - 1
+
+  private[this] var head: Int = 0
+  private[this] var tail: Int = 0
+
+  // Fields of the last removed event
+  private[this] var removedKind: Int = 0
+  private[this] var removedConstraint: Constraint = null
+  private[this] var removedVariable: AnyRef = null
+  private[this] var removedIndex: Int = 0
+  private[this] var removedValue: Int = 0
+
+  @inline final def size: Int = (tail - head) & bitMask
+
+  @inline final def isEmpty: Boolean = head == tail
+
+  @inline final def clear(): Unit = {
+    // Drops the references to allow garbage collection
+    while (head != tail) {
+      constraints(head) = null
+      variables(head) = null
+      head = (head + 1) & bitMask
+    }
+    head = 0
+    tail = 0
+    removedConstraint = null
+    removedVariable = null
+  }
+
+  @inline final def addLast(kind: Int, constraint: Constraint, variable: AnyRef, index: Int, value: Int): Unit = {
+    kinds(tail) = kind
+    constraints(tail) = constraint
+    variables(tail) = variable
+    indices(tail) = index
+    values(tail) = value
+    tail = (tail + 1) & bitMask
+    if (head == tail) growQueue() // Increase the size of the queue
+  }
+
+  /** Removes the first event of the queue, its fields are then given by `kind`, `constraint`, ... */
+  @inline final def removeFirst(): Unit = {
+    if (head == tail) sys.error("Queue empty")
+    else {
+      removedKind = kinds(head)
+      removedConstraint = constraints(head)
+      removedVariable = variables(head)
+      removedIndex = indices(head)
+      removedValue = values(head)
+      constraints(head) = null
+      variables(head) = null
+      head = (head + 1) & bitMask
+    }
+  }
+
+  /** Returns the kind of the last removed event */
+  @inline final def kind: Int = removedKind
+
+  /** Returns the constraint of the last removed event */
+  @inline final def constraint: Constraint = removedConstraint
+
+  /** Returns the variable (or closure) of the last removed event */
+  @inline final def variable: AnyRef = removedVariable
+
+  /** Returns the index of the last removed event */
+  @inline final def index: Int = removedIndex
+
+  /** Returns the value of the last removed event */
+  @inline final def value: Int = removedValue
+
+  /** Returns the constraint of the i-th event of the queue without removing it. */
+  @inline final def constraintAt(i: Int): Constraint = constraints((head + i) & bitMask)
+
+  // Double the size of the queue
+  @inline private def growQueue(): Unit = {
+    // This function does not work if this condition does not hold
+    assert(head == tail, "should not resize if head != tail")
+    val size = kinds.length
+    val rest = size - head
+    val newSize = size << 1
+    if (newSize < 0) sys.error("too many elements")
+    else {
+      kinds = grow(kinds, new Array[Int](newSize), rest)
+      constraints = grow(constraints, new Array[Constraint](newSize), rest)
+      variables = grow(variables, new Array[AnyRef](newSize), rest)
+      indices = grow(indices, new Array[Int](newSize), rest)
+      values = grow(values, new Array[Int](newSize), rest)
+      bitMask = newSize - 1
+      head = 0
+      tail = size
+    }
+  }
+
+  @inline private def grow[T](array: Array[T], newArray: Array[T], rest: Int): Array[T] = {
+    System.arraycopy(array, head, newArray, 0, rest)
+    System.arraycopy(array, 0, newArray, rest, head)
+    newArray
+  }
+
+  // Returns the lowest power of 2 that is superior to the initial size
+  @inline private def computeSize(oldSize: Int): Int = {
+    if (oldSize <= 8) 8
+    else {
+      var size = oldSize
+      size |= (size >>> 1)
+      size |= (size >>> 2)
+      size |= (size >>> 4)
+      size |= (size >>> 8)
+      size |= (size >>> 16)
+      size += 1
+      if (size < 0) size >>> 1 // 2^30 elements
+      else size
+    }
+  }
+}
+
+object PropagQueueL1 {
+  final val Closure = 0
+  final val Bind = 1
+  final val BindIdx = 2
+  final val Bounds = 3
+  final val BoundsIdx = 4
+  final val Remove = 5
+  final val RemoveIdx = 6
+  final val Required = 7
+  final val RequiredIdx = 8
+  final val Excluded = 9
+  final val ExcludedIdx = 10
+}
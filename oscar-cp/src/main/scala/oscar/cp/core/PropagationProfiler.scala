@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.core
+
+import java.util.IdentityHashMap
+
+import oscar.algo.Inconsistency
+import oscar.cp.core.variables.{CPIntVar, CPSetVar, CPVar}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+ * Statistics of the calls to the propagate method of a constraint (or of all
+ * the constraints of a class).
+ *
+ * The domain reductions are the number of values removed from the domains of
+ * the variables of the constraint (for a set variable, the number of values
+ * that are required or excluded) by its calls.
+ */
+class PropagationProfile(val name: String) {
+  var nCalls: Long = 0L
+  var time: Long = 0L // nanoseconds
+  var nReductions: Long = 0L
+  var nFailures: Long = 0L
+
+  private[core] def add(profile: PropagationProfile): Unit = {
+    nCalls += profile.nCalls
+    time += profile.time
+    nReductions += profile.nReductions
+    nFailures += profile.nFailures
+  }
+
+  override def toString: String = s"$name: calls $nCalls, time(ns) $time, reductions $nReductions, failures $nFailures"
+}
+
+/**
+ * Opt-in profiler of the L2 propagation loop of a `CPStore`, enabled with
+ * `CPStore.enableProfiling`. Each call to the propagate method of a constraint
+ * is timed and its domain reductions and failure are recorded, per constraint
+ * and per class of constraint.
+ *
+ * Profiling has a cost (the domains of the variables of the constraint are
+ * measured before and after each call) and is intended for diagnosis only.
+ */
+final class PropagationProfiler {
+
+  private[this] val instances = new IdentityHashMap[Constraint, ConstraintProfile]()
+
+  // The profile of a constraint and its variables
+  private class ConstraintProfile(val constraint: Constraint) extends PropagationProfile(constraint.toString) {
+    val variables: Array[CPVar] = constraint.associatedVars().toArray
+    val className: String = {
+      val simpleName = constraint.getClass.getSimpleName
+      if (simpleName.isEmpty) constraint.getClass.getName else simpleName
+    }
+  }
+
+  /** Executes the propagate method of the constraint and records its statistics */
+  @inline private[core] def execute(constraint: Constraint): Unit = {
+    var profile = instances.get(constraint)
+    if (profile == null) {
+      profile = new ConstraintProfile(constraint)
+      instances.put(constraint, profile)
+    }
+    val sizeBefore = domainSize(profile.variables)
+    val t0 = System.nanoTime()
+    try {
+      constraint.execute()
+    } catch {
+      case i: Inconsistency =>
+        profile.nFailures += 1
+        throw i
+    } finally {
+      profile.time += System.nanoTime() - t0
+      profile.nCalls += 1
+      profile.nReductions += sizeBefore - domainSize(profile.variables)
+    }
+  }
+
+  @inline private def domainSize(variables: Array[CPVar]): Long = {
+    var size = 0L
+    var i = variables.length
+    while (i > 0) {
+      i -= 1
+      variables(i) match {
+        case x: CPIntVar => size += x.size
+        case x: CPSetVar => size += x.possibleSize - x.requiredSize
+        case _ =>
+      }
+    }
+    size
+  }
+
+  /** Clears all the statistics */
+  def reset(): Unit = instances.clear()
+
+  /** Returns the statistics of each constraint, by decreasing time */
+  def instanceProfiles: Seq[PropagationProfile] = {
+    instances.values.asScala.toSeq.sortBy(-_.time)
+  }
+
+  /** Returns the statistics of each class of constraint, by decreasing time */
+  def classProfiles: Seq[PropagationProfile] = {
+    val classes = mutable.LinkedHashMap[String, PropagationProfile]()
+    instances.values.asScala.foreach(profile => {
+      classes.getOrElseUpdate(profile.className, new PropagationProfile(profile.className)).add(profile)
+    })
+    classes.values.toSeq.sortBy(-_.time)
+  }
+
+  /** Returns the statistics of each class of constraint as a table */
+  def classTable: String = table(classProfiles)
+
+  /** Returns the statistics of each constraint as a table */
+  def instanceTable: String = table(instanceProfiles)
+
+  /** Returns the statistics of each class of constraint in the CSV format */
+  def classCSV: String = csv(classProfiles)
+
+  /** Returns the statistics of each constraint in the CSV format */
+  def instanceCSV: String = csv(instanceProfiles)
+
+  private def table(profiles: Seq[PropagationProfile]): String = {
+    val totalTime = math.max(1L, profiles.map(_.time).sum)
+    val width = (profiles.map(_.name.length) :+ 10).max
+    val builder = new StringBuilder
+    builder.append(s"%-${width}s %12s %14s %7s %12s %10s\n".format("constraint", "calls", "time(ns)", "time%", "reductions", "failures"))
+    profiles.foreach(p => {
+      val ratio = 100.0 * p.time / totalTime
+      builder.append(s"%-${width}s %12d %14d %6.2f%% %12d %10d\n".format(p.name, p.nCalls, p.time, ratio, p.nReductions, p.nFailures))
+    })
+    builder.toString
+  }
+
+  private def csv(profiles: Seq[PropagationProfile]): String = {
+    val builder = new StringBuilder("constraint,calls,time_ns,reductions,failures\n")
+    profiles.foreach(p => {
+      val name = "\"" + p.name.replace("\"", "\"\"") + "\""
+      builder.append(s"$name,${p.nCalls},${p.time},${p.nReductions},${p.nFailures}\n")
+    })
+    builder.toString
+  }
+
+  override def toString: String = classTable
+}
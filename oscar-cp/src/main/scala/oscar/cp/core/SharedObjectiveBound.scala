@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.core
+
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Lock-free incumbent bound shared by several solvers optimizing the same
+ * objective in parallel (in the same process).
+ *
+ * Each solver attaches the bound to its objective (see `CPObjectiveUnit.shareBound`
+ * or `CPOptimizer.shareObjective`). The objective publishes the value of each new
+ * solution and reads the shared bound at each fix point, such that a solution found
+ * by any solver immediately prunes the search of all the others.
+ *
+ * @param isMin true if the objective is minimized, false if it is maximized
+ */
+final class SharedObjectiveBound(val isMin: Boolean) {
+
+  private[this] val bound = new AtomicInteger(if (isMin) Int.MaxValue else Int.MinValue)
+
+  /** Returns the best value published so far */
+  @inline def value: Int = bound.get
+
+  /** Returns true if at least one value has been published */
+  def hasValue: Boolean = bound.get != (if (isMin) Int.MaxValue else Int.MinValue)
+
+  /** Returns true if `v` is strictly better than `ref` */
+  @inline def isBetter(v: Int, ref: Int): Boolean = if (isMin) v < ref else v > ref
+
+  /**
+   * Publishes a new value.
+   * @return true if the value improves the shared bound, false otherwise
+   */
+  def offer(v: Int): Boolean = {
+    var current = bound.get
+    while (isBetter(v, current)) {
+      if (bound.compareAndSet(current, v)) return true
+      current = bound.get
+    }
+    false
+  }
+}
@@ -256,6 +256,8 @@ class CPBoolVarImpl private(final override val store: CPStore, initDomain: Int,
     onBindL2.register(watcher)
   }
 
+  def watchChanges(watcher: Watcher): Unit = onBindL2.register(watcher)
+
   final override def callValBindWhenBind(c: Constraint) {
     callValBindWhenBind(c, this)
   }
@@ -87,6 +87,8 @@ class CPBoolVarNot(final override val not: CPBoolVar) extends CPBoolVar {
   final override def callPropagateOnChangesWithDelta(c: Constraint, cond: => Boolean): DeltaIntVar = not.callPropagateOnChangesWithDelta(c, cond)
   
   final override def awakeOnChanges(watcher: Watcher): Unit = not.awakeOnChanges(watcher)
+
+  final override def watchChanges(watcher: Watcher): Unit = not.watchChanges(watcher)
   
   final override def callValBindWhenBind(c: Constraint): Unit = not.callValBindWhenBind(c, this) 
   
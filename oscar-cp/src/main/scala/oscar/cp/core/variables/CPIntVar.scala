@@ -219,6 +219,13 @@ abstract class CPIntVar extends CPVar with IntVarLike {
   
   def awakeOnChanges(watcher: Watcher): Unit
 
+  /**
+   * Asks that the watcher is awaken whenever the domain changes. Unlike `awakeOnChanges`,
+   * the watcher is not considered as a constraint: the degree of the variable is unchanged
+   * (e.g. for the search heuristics following the domains).
+   */
+  def watchChanges(watcher: Watcher): Unit
+
 
   def callOnChanges(propagate: DeltaIntVar => Boolean, idempotent: Boolean = true)(implicit constraint: Constraint): PropagatorIntVar = {
     val propagator = new PropagatorIntVar(this, 0, propagate)
@@ -317,6 +324,11 @@ abstract class CPIntVar extends CPVar with IntVarLike {
    */
   def removeValue(value: Int): Unit
   
+  /**
+   * Remove the `nValues` first values of `values` from the domain. The values do not need
+   * to be in the domain. Implementations should trail and notify once for all the values.
+   * @throws Inconsistency if all the values of the domain are removed
+   */
   def removeValues(values: Array[Int], nValues: Int): Unit = {
     var i = nValues
     while (i > 0) {
@@ -332,6 +344,53 @@ abstract class CPIntVar extends CPVar with IntVarLike {
    *  Observe that the restricted new domain must be a subset of the actual domain of the variable.
    */
   def restrict(newDomain: Array[Int], newSize: Int): Unit
+
+  /**
+   * Restrict the domain to the values v such that the bit v - offset is set in the words
+   * (bit i is the bit i % 64 of the word i / 64). The values outside the words are removed.
+   * @throws Inconsistency if all the values of the domain are removed
+   */
+  def restrictTo(words: Array[Long], offset: Int): Unit = {
+    val domain = new Array[Int](size)
+    val n = fillArray(domain)
+    var nKept = 0
+    var i = 0
+    while (i < n) {
+      val value = domain(i)
+      val bit = value.toLong - offset
+      if (bit >= 0 && bit < (words.length.toLong << 6) && (words((bit >>> 6).toInt) & (1L << bit)) != 0) {
+        domain(nKept) = value
+        nKept += 1
+      }
+      i += 1
+    }
+    if (nKept == 0) throw Inconsistency
+    else if (nKept < n) restrict(domain, nKept)
+  }
+
+  /**
+   * Restrict the domain to the values contained in the `nValues` first values of `values`,
+   * which must be sorted in increasing order.
+   * @throws Inconsistency if all the values of the domain are removed
+   */
+  def intersectWith(values: Array[Int], nValues: Int): Unit = {
+    val domain = new Array[Int](size)
+    val n = fillArray(domain)
+    var nKept = 0
+    var i = 0
+    while (i < n) {
+      val value = domain(i)
+      if (java.util.Arrays.binarySearch(values, 0, nValues, value) >= 0) {
+        domain(nKept) = value
+        nKept += 1
+      }
+      i += 1
+    }
+    if (nKept == 0) throw Inconsistency
+    else if (nKept < n) restrict(domain, nKept)
+  }
+
+  final def intersectWith(values: Array[Int]): Unit = intersectWith(values, values.length)
   
   def delta(oldMin: Int, oldMax: Int, oldSize: Int): Iterator[Int]
   
@@ -577,6 +636,33 @@ object CPIntVar {
 
   def sparse(minValue: Int, maxValue: Int)(implicit store: CPStore): CPIntVar = sparse(minValue, maxValue, "")(store)
 
+  /**
+   * Creates a new CP Integer Variable whose domain is represented by at most four machine words
+   * @param values the iterable defining the possible values for the variable, with max - min < 256
+   * @param name the name of the variable
+   * @param store the CPStore in which the variable is created
+   * @return a fresh CPIntVar defined in the CPStore store with values as initial domain.
+   */
+  def bitSet(values: Iterable[Int], name: String)(implicit store: CPStore): CPIntVar = {
+    val min = values.min
+    val max = values.max
+    val variable = new CPIntVarBitSet(store, min, max, name)
+    val set = values.toSet
+    if (max - min + 1 > set.size) {
+      val missing = (min + 1 until max).filterNot(set.contains).toArray
+      variable.removeValues(missing)
+    }
+    variable
+  }
+
+  def bitSet(values: Iterable[Int])(implicit store: CPStore): CPIntVar = bitSet(values, "")(store)
+
+  def bitSet(minValue: Int, maxValue: Int, name: String)(implicit store: CPStore): CPIntVar = {
+    new CPIntVarBitSet(store, minValue, maxValue, name)
+  }
+
+  def bitSet(minValue: Int, maxValue: Int)(implicit store: CPStore): CPIntVar = bitSet(minValue, maxValue, "")(store)
+
   /**
    * Creates a new CP Integer Variable with an iterable as initial domain
    * @param values the iterable defining the possible values for the variable
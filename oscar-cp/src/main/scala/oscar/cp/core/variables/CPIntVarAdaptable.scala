@@ -21,7 +21,7 @@ import scala.util.Random
 import oscar.algo.reversible.ReversibleBoolean
 import oscar.algo.reversible.ReversibleInt
 import oscar.algo.reversible.ReversiblePointer
-import oscar.algo.reversible.TrailEntry
+import oscar.algo.reversible.TrailedState
 import oscar.cp.core.CPStore
 import oscar.cp.core.Constraint
 import oscar.cp.core.watcher.WatcherListL2
@@ -36,15 +36,7 @@ import scala.collection.mutable
  *  @author Pierre Schaus pschaus@gmail.com
  */
 
-class CPIntVarAdaptableDomainContinuous(variable: CPIntVarAdaptable, min: Int, max: Int, size: Int) extends TrailEntry {
-  final override def restore(): Unit = variable.restoreContinuous(min, max, size)
-}
-
-class CPIntVarAdaptableDomainSparse(variable: CPIntVarAdaptable, min: Int, max: Int, size: Int) extends TrailEntry {
-  final override def restore(): Unit = variable.restoreSparse(min, max, size)
-}
-
-final class CPIntVarAdaptable( final override val store: CPStore, minValue: Int, maxValue: Int, continuous: Boolean, final override val name: String = "") extends CPIntVar {
+final class CPIntVarAdaptable( final override val store: CPStore, minValue: Int, maxValue: Int, continuous: Boolean, final override val name: String = "") extends CPIntVar with TrailedState {
 
   final override val context = store
 
@@ -79,11 +71,20 @@ final class CPIntVarAdaptable( final override val store: CPStore, minValue: Int,
     val contextMagic = store.magic
     if (lastMagic != contextMagic) {
       lastMagic = contextMagic
-      if (_continuous) store.trail(new CPIntVarAdaptableDomainContinuous(this, _min, _max, _size))
-      else store.trail(new CPIntVarAdaptableDomainSparse(this, _min, _max, _size))
+      // The bounds are packed in a long, the size is complemented for a sparse domain
+      val bounds = (_min.toLong << 32) | (_max & 0xFFFFFFFFL)
+      store.trailState(this, bounds, if (_continuous) _size else ~_size)
     }
   }
 
+  // Restores the trailed domain
+  final override def restoreState(bounds: Long, size: Int): Unit = {
+    val oldMin = (bounds >> 32).toInt
+    val oldMax = bounds.toInt
+    if (size >= 0) restoreContinuous(oldMin, oldMax, size)
+    else restoreSparse(oldMin, oldMax, ~size)
+  }
+
   // Restore the domain to continuous domain
   @inline final def restoreContinuous(oldMin: Int, oldMax: Int, oldSize: Int): Unit = {
     _min = oldMin; _max = oldMax; _size = oldSize
@@ -572,6 +573,8 @@ final class CPIntVarAdaptable( final override val store: CPStore, minValue: Int,
     onDomainL2.register(watcher)
   }
 
+  final override def watchChanges(watcher: Watcher): Unit = onDomainL2.register(watcher)
+
   /**
    * Level 1 registration: ask that the updateBounds(CPIntVar) method of the constraint c is called whenever
    * the minimum or maximum value of the domain changes.
@@ -689,53 +692,165 @@ final class CPIntVarAdaptable( final override val store: CPStore, minValue: Int,
     }
 
     // Notify the constraints
-    if (_size != oldSize) {
+    if (_size != oldSize) notifySparseRemovals(oldSize)
+  }
 
-      // Notify on change events
-      onDomainL2.enqueue()
+  // Updates the bounds and notifies the constraints after the removal of the values
+  // in [_size, oldSize[ from the sparse domain
+  @inline private def notifySparseRemovals(oldSize: Int): Unit = {
 
-      // Notify on bind events
-      if (_size == 1) {
-        onBindL1.enqueueBind()
-        onBindL2.enqueue()
+    // Notify on change events
+    onDomainL2.enqueue()
+
+    // Notify on bind events
+    if (_size == 1) {
+      onBindL1.enqueueBind()
+      onBindL2.enqueue()
+      onBoundsL1.enqueueBounds()
+      onBoundsL2.enqueue()
+      _min = values(0)
+      _max = _min
+    } else {
+      // Notify on bound events
+      val minOffset = _min - offset
+      val maxOffset = _max - offset
+      val minChanged = positions(minOffset) >= _size
+      val maxChanged = positions(maxOffset) >= _size
+      // Update min
+      if (minChanged) {
+        var i = minOffset + 1
+        while (positions(i) >= _size) i += 1
+        _min = i + offset
+      }
+      // Update max
+      if (maxChanged) {
+        var i = maxOffset - 1
+        while (positions(i) >= _size) i -= 1
+        _max = i + offset
+      }
+      if (minChanged || maxChanged) {
         onBoundsL1.enqueueBounds()
         onBoundsL2.enqueue()
-        _min = values(0)
-        _max = _min
-      } else {
-        // Notify on bound events
-        val minOffset = _min - offset
-        val maxOffset = _max - offset
-        val minChanged = positions(minOffset) >= _size
-        val maxChanged = positions(maxOffset) >= _size
-        // Update min
-        if (minChanged) {
-          var i = minOffset + 1
-          while (positions(i) >= _size) i += 1
-          _min = i + offset
-        }
-        // Update max
-        if (maxChanged) {
-          var i = maxOffset - 1
-          while (positions(i) >= _size) i -= 1
-          _max = i + offset
-        }
-        if (minChanged || maxChanged) {
-          onBoundsL1.enqueueBounds()
-          onBoundsL2.enqueue()
+      }
+    }
+
+    // Notify on remove events
+    if (!onDomainL1.isEmpty) {
+      var i = _size
+      while (i < oldSize) {
+        val value = values(i)
+        onDomainL1.enqueueRemove(value)
+        i += 1
+      }
+    }
+  }
+
+  // Moves the value at position pos1 after the sparse domain
+  @inline private def removeSparseAt(pos1: Int): Unit = {
+    _size -= 1
+    val val1 = values(pos1)
+    val val2 = values(_size)
+    values(pos1) = val2
+    values(_size) = val1
+    positions(val1 - offset) = _size
+    positions(val2 - offset) = pos1
+  }
+
+  /**
+   * Remove the `nRemoved` first values of `removed` from the domain. The domain is trailed
+   * and the constraints are notified once for all the values.
+   */
+  final override def removeValues(removed: Array[Int], nRemoved: Int): Unit = {
+    if (_continuous) {
+      // Removing bounds only keeps the domain continuous
+      var i = nRemoved
+      var interior = false
+      var removesMin = false
+      var removesMax = false
+      while (i > 0 && !interior) {
+        i -= 1
+        val value = removed(i)
+        if (value == _min) removesMin = true
+        else if (value == _max) removesMax = true
+        else interior = value > _min && value < _max
+      }
+      if (interior) buildSparse()
+      else {
+        val newMin = if (removesMin) _min + 1 else _min
+        val newMax = if (removesMax) _max - 1 else _max
+        if (newMin > newMax) throw Inconsistency
+        else if (newMin == newMax) assignContinuous(newMin)
+        else {
+          if (removesMin) updateMinContinuous(newMin)
+          if (removesMax) updateMaxContinuous(newMax)
         }
       }
+    }
+    if (!_continuous) removeSparseValues(removed, nRemoved)
+  }
 
-      // Notify on remove events
-      if (!onDomainL1.isEmpty) {
-        var i = _size
-        while (i < oldSize) {
-          val value = values(i)
-          onDomainL1.enqueueRemove(value)
-          i += 1
+  @inline private def removeSparseValues(removed: Array[Int], nRemoved: Int): Unit = {
+    val oldSize = _size
+    var i = nRemoved
+    while (i > 0) {
+      i -= 1
+      val value = removed(i)
+      if (value >= _min && value <= _max) {
+        val pos = positions(value - offset)
+        if (pos < _size) {
+          trail()
+          removeSparseAt(pos)
         }
       }
     }
+    if (_size == 0) {
+      _size = oldSize // the values have only been permuted
+      throw Inconsistency
+    } else if (_size != oldSize) notifySparseRemovals(oldSize)
+  }
+
+  /**
+   * Restrict the domain to the values v such that the bit v - base is set in the words.
+   * The domain is trailed and the constraints are notified once for all the values.
+   */
+  final override def restrictTo(words: Array[Long], base: Int): Unit = {
+    if (_continuous) buildSparse()
+    val oldSize = _size
+    val nBits = words.length.toLong << 6
+    var i = _size
+    while (i > 0) {
+      i -= 1
+      val bit = values(i).toLong - base
+      if (bit < 0 || bit >= nBits || (words((bit >>> 6).toInt) & (1L << bit)) == 0) {
+        trail()
+        removeSparseAt(i) // the value moved at position i has already been kept
+      }
+    }
+    if (_size == 0) {
+      _size = oldSize // the values have only been permuted
+      throw Inconsistency
+    } else if (_size != oldSize) notifySparseRemovals(oldSize)
+  }
+
+  /**
+   * Restrict the domain to the values contained in the `nValues` first values of the sorted
+   * array. The domain is trailed and the constraints are notified once for all the values.
+   */
+  final override def intersectWith(sorted: Array[Int], nValues: Int): Unit = {
+    if (_continuous) buildSparse()
+    val oldSize = _size
+    var i = _size
+    while (i > 0) {
+      i -= 1
+      if (java.util.Arrays.binarySearch(sorted, 0, nValues, values(i)) < 0) {
+        trail()
+        removeSparseAt(i) // the value moved at position i has already been kept
+      }
+    }
+    if (_size == 0) {
+      _size = oldSize // the values have only been permuted
+      throw Inconsistency
+    } else if (_size != oldSize) notifySparseRemovals(oldSize)
   }
 
   final override def isEmpty: Boolean = _size == 0
@@ -0,0 +1,633 @@
+/*******************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  *******************************************************************************/
+
+package oscar.cp.core.variables
+
+import java.lang.Long.{bitCount, numberOfLeadingZeros, numberOfTrailingZeros}
+
+import oscar.algo.Inconsistency
+import oscar.algo.reversible.ReversibleInt
+import oscar.algo.reversible.TrailEntry
+import oscar.cp.core.CPStore
+import oscar.cp.core.Constraint
+import oscar.cp.core.delta.DeltaIntVar
+import oscar.cp.core.watcher.Watcher
+import oscar.cp.core.watcher.WatcherListL1
+import oscar.cp.core.watcher.WatcherListL2
+
+import scala.util.Random
+
+class CPIntVarBitSetDomain(variable: CPIntVarBitSet, w0: Long, w1: Long, w2: Long, w3: Long, min: Int, max: Int, size: Int) extends TrailEntry {
+  final override def restore(): Unit = variable.restore(w0, w1, w2, w3, min, max, size)
+}
+
+object CPIntVarBitSet {
+  /** Maximum number of values in the initial domain of the variable (four words). */
+  final val MaxSize: Int = 256
+}
+
+/**
+ * Integer variable whose domain is a set of at most 256 consecutive values represented
+ * by one to four machine words. The words are trailed at most once per search node,
+ * together with the bounds and the size of the domain.
+ *
+ * The domain operations work on whole words: the new bounds are found by counting the
+ * leading and trailing zeros of the words and the removed values are pushed on a stack,
+ * such that the values removed since a given size are copied in a single call.
+ */
+final class CPIntVarBitSet(final override val store: CPStore, minValue: Int, maxValue: Int, final override val name: String = "") extends CPIntVar {
+
+  require(maxValue >= minValue, "the domain must not be empty")
+  require(maxValue.toLong - minValue + 1 <= CPIntVarBitSet.MaxSize, s"the domain must contain at most ${CPIntVarBitSet.MaxSize} values")
+
+  final override val context = store
+
+  // Registered constraints
+  private[this] val onBindL2 = new WatcherListL2(store)
+  private[this] val onBoundsL2 = new WatcherListL2(store)
+  private[this] val onDomainL2 = new WatcherListL2(store)
+
+  private[this] val onBindL1 = new WatcherListL1(store)
+  private[this] val onBoundsL1 = new WatcherListL1(store)
+  private[this] val onDomainL1 = new WatcherListL1(store)
+
+  // Number of constraints registered on the variable
+  private[this] val degree = new ReversibleInt(store, 0) // should not change often
+
+  // Domain representation
+  private[this] val offset = minValue
+  private[this] val nValues = maxValue - minValue + 1
+  private[this] val nWords = (nValues + 63) >>> 6
+  private[this] val words = Array.fill(nWords)(-1L)
+  private[this] var _min = minValue
+  private[this] var _max = maxValue
+  private[this] var _size = nValues
+
+  // The last word only contains the values of the initial domain
+  words(nWords - 1) = -1L >>> (64 - nValues + ((nWords - 1) << 6))
+
+  // Removed values, the values removed since size s are in [nValues - s, nValues - size[
+  private[this] val removed = new Array[Int](nValues)
+
+  // Words of the values to keep or to remove in bulk operations
+  private[this] val mask = new Array[Long](nWords)
+
+  // Used to trail changes in the domain
+  private[this] var lastMagic: Long = -1L
+
+  @inline private def trail(): Unit = {
+    val contextMagic = store.magic
+    if (lastMagic != contextMagic) {
+      lastMagic = contextMagic
+      store.trail(new CPIntVarBitSetDomain(this, words(0), word(1), word(2), word(3), _min, _max, _size))
+    }
+  }
+
+  @inline private def word(i: Int): Long = if (i < nWords) words(i) else 0L
+
+  @inline final def restore(w0: Long, w1: Long, w2: Long, w3: Long, oldMin: Int, oldMax: Int, oldSize: Int): Unit = {
+    words(0) = w0
+    if (nWords > 1) {
+      words(1) = w1
+      if (nWords > 2) {
+        words(2) = w2
+        if (nWords > 3) words(3) = w3
+      }
+    }
+    _min = oldMin; _max = oldMax; _size = oldSize
+  }
+
+  @inline final override def size: Int = _size
+
+  @inline final override def min: Int = _min
+
+  @inline final override def max: Int = _max
+
+  @inline final override def isContinuous: Boolean = _size == _max - _min + 1
+
+  @inline final override def isBound: Boolean = _size == 1
+
+  final override def isBoundTo(value: Int): Boolean = _size == 1 && _min == value
+
+  @inline final override def hasValue(value: Int): Boolean = {
+    if (value < _min || value > _max) false
+    else {
+      val i = value - offset
+      (words(i >>> 6) & (1L << i)) != 0
+    }
+  }
+
+  final override def isEmpty: Boolean = _size == 0
+
+  final override def transform(v: Int): Int = v
+
+  final override def constraintDegree: Int = degree.value
+
+  // Returns the smallest value in the domain that is greater or equal to the value of index i
+  @inline private def nextValue(i: Int): Int = {
+    var w = i >>> 6
+    var bits = words(w) & (-1L << i)
+    while (bits == 0) {
+      w += 1
+      bits = words(w)
+    }
+    (w << 6) + numberOfTrailingZeros(bits) + offset
+  }
+
+  // Returns the largest value in the domain that is lower or equal to the value of index i
+  @inline private def previousValue(i: Int): Int = {
+    var w = i >>> 6
+    var bits = words(w) & (-1L >>> (63 - (i & 63)))
+    while (bits == 0) {
+      w -= 1
+      bits = words(w)
+    }
+    (w << 6) + 63 - numberOfLeadingZeros(bits) + offset
+  }
+
+  final override def valueAfter(value: Int): Int = {
+    if (value >= _max) value
+    else if (value < _min) _min
+    else nextValue(value - offset + 1)
+  }
+
+  final override def valueBefore(value: Int): Int = {
+    if (value <= _min) value
+    else if (value > _max) _max
+    else previousValue(value - offset - 1)
+  }
+
+  final override def randomValue(rand: Random): Int = {
+    var r = rand.nextInt(_size)
+    var w = 0
+    var count = bitCount(words(0))
+    while (r >= count) {
+      r -= count
+      w += 1
+      count = bitCount(words(w))
+    }
+    var bits = words(w)
+    while (r > 0) {
+      bits &= bits - 1 // removes the lowest value
+      r -= 1
+    }
+    (w << 6) + numberOfTrailingZeros(bits) + offset
+  }
+
+  final override def iterator: Iterator[Int] = new Iterator[Int] {
+    private[this] val array = new Array[Int](_size)
+    private[this] var i = 0
+    copyDomain(array)
+    final override def next(): Int = { i += 1; array(i - 1) }
+    final override def hasNext: Boolean = i < array.length
+  }
+
+  /**
+   *  @return an array containing all the values in the domain.
+   *          The result array is sorted.
+   */
+  final override def toArray: Array[Int] = {
+    val array = new Array[Int](_size)
+    copyDomain(array)
+    array
+  }
+
+  /**
+   *  @param array.length >= this.size
+   *  @return Fills the array with the values contained in the domain and
+   *          returns the number of values (this.size).
+   *          The array is sorted.
+   */
+  final override def fillArray(array: Array[Int]): Int = copyDomain(array)
+
+  // Copy the domain in the array in increasing order and return the size of the domain
+  @inline private def copyDomain(array: Array[Int]): Int = {
+    var i = 0
+    var w = (_min - offset) >>> 6
+    val last = (_max - offset) >>> 6
+    while (w <= last) {
+      var bits = words(w)
+      val base = (w << 6) + offset
+      while (bits != 0) {
+        array(i) = base + numberOfTrailingZeros(bits)
+        bits &= bits - 1
+        i += 1
+      }
+      w += 1
+    }
+    i
+  }
+
+  // Removes the values of the bits from word w, the domain must be trailed before
+  @inline private def removeBits(w: Int, bits: Long): Unit = {
+    if (bits != 0) {
+      words(w) &= ~bits
+      var b = bits
+      val base = (w << 6) + offset
+      while (b != 0) {
+        removed(nValues - _size) = base + numberOfTrailingZeros(b)
+        _size -= 1
+        b &= b - 1
+      }
+    }
+  }
+
+  // Notifies the watchers of the changes since the given domain
+  @inline private def notifyChanges(oldMin: Int, oldMax: Int, oldSize: Int): Unit = {
+    if (_size != oldSize) {
+      // Notify bind events
+      if (_size == 1) {
+        onBindL1.enqueueBind()
+        onBindL2.enqueue()
+      }
+      // Notify bounds events
+      if (_min != oldMin || _max != oldMax) {
+        onBoundsL1.enqueueBounds()
+        onBoundsL2.enqueue()
+      }
+      // Notify remove events
+      if (!onDomainL1.isEmpty) {
+        var i = nValues - oldSize
+        val end = nValues - _size
+        while (i < end) {
+          onDomainL1.enqueueRemove(removed(i))
+          i += 1
+        }
+      }
+      // at the end because of watchers
+      onDomainL2.enqueue()
+    }
+  }
+
+  /**
+   * Reduce the domain to the singleton {value}, and notify appropriately all the propagators registered to this variable
+   * @param value
+   * @return  Suspend if val was in the domain, Failure otherwise
+   */
+  final override def assign(value: Int): Unit = {
+    if (!hasValue(value)) throw Inconsistency
+    else if (_size > 1) {
+      trail()
+      val oldMin = _min
+      val oldMax = _max
+      val oldSize = _size
+      val i = value - offset
+      val vw = i >>> 6
+      var w = (_min - offset) >>> 6
+      val last = (_max - offset) >>> 6
+      while (w <= last) {
+        if (w == vw) removeBits(w, words(w) & ~(1L << i))
+        else removeBits(w, words(w))
+        w += 1
+      }
+      _min = value
+      _max = value
+      notifyChanges(oldMin, oldMax, oldSize)
+    }
+  }
+
+  /**
+   * Remove val from the domain, and notify appropriately all the propagators registered to this variable
+   * @param value
+   * @return  Suspend if the domain is not equal to the singleton {val}, Failure otherwise
+   */
+  final override def removeValue(value: Int): Unit = {
+    if (!hasValue(value)) {}
+    else if (_size == 1) throw Inconsistency
+    else {
+      trail()
+      val oldMin = _min
+      val oldMax = _max
+      val oldSize = _size
+      val i = value - offset
+      removeBits(i >>> 6, 1L << i)
+      if (value == _min) _min = nextValue(i + 1)
+      else if (value == _max) _max = previousValue(i - 1)
+      notifyChanges(oldMin, oldMax, oldSize)
+    }
+  }
+
+  /**
+   * Remove the first n values of the array from the domain. The domain is trailed
+   * and the watchers are notified once for all the values.
+   */
+  final override def removeValues(values: Array[Int], n: Int): Unit = {
+    // Words of the values to remove
+    var w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = 0L
+    }
+    var k = n
+    while (k > 0) {
+      k -= 1
+      val value = values(k)
+      if (value >= _min && value <= _max) {
+        val i = value - offset
+        mask(i >>> 6) |= 1L << i
+      }
+    }
+    // Number of values to remove
+    var nRemoved = 0
+    w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) &= words(w)
+      nRemoved += bitCount(mask(w))
+    }
+    if (nRemoved == _size) throw Inconsistency
+    else if (nRemoved > 0) removeMask()
+  }
+
+  // Removes the values of the mask, which are in the domain but not all of them
+  @inline private def removeMask(): Unit = {
+    trail()
+    val oldMin = _min
+    val oldMax = _max
+    val oldSize = _size
+    var w = 0
+    while (w < nWords) {
+      removeBits(w, mask(w))
+      w += 1
+    }
+    if (!hasValue(_min)) _min = nextValue(_min - offset + 1)
+    if (!hasValue(_max)) _max = previousValue(_max - offset - 1)
+    notifyChanges(oldMin, oldMax, oldSize)
+  }
+
+  /**
+   * Remove from the domain all values < val, and notify appropriately all the propagators registered to this variable
+   * @param value
+   * @return  Suspend if there is at least one value >= val in the domain, Failure otherwise
+   */
+  final override def updateMin(value: Int): Unit = {
+    if (value <= _min) {}
+    else if (value > _max) throw Inconsistency
+    else {
+      trail()
+      val oldMin = _min
+      val oldSize = _size
+      val i = value - offset
+      val vw = i >>> 6
+      var w = (_min - offset) >>> 6
+      while (w < vw) {
+        removeBits(w, words(w))
+        w += 1
+      }
+      removeBits(vw, words(vw) & ~(-1L << i))
+      _min = nextValue(i)
+      notifyChanges(oldMin, _max, oldSize)
+    }
+  }
+
+  /**
+   * Remove from the domain all values > val, and notify appropriately all the propagators registered to this variable
+   * @param value
+   * @return  Suspend if there is at least one value <= val in the domain, Failure otherwise
+   */
+  final override def updateMax(value: Int): Unit = {
+    if (value >= _max) {}
+    else if (value < _min) throw Inconsistency
+    else {
+      trail()
+      val oldMax = _max
+      val oldSize = _size
+      val i = value - offset
+      val vw = i >>> 6
+      var w = (_max - offset) >>> 6
+      while (w > vw) {
+        removeBits(w, words(w))
+        w -= 1
+      }
+      removeBits(vw, words(vw) & (-2L << i)) // values strictly greater than value
+      _max = previousValue(i)
+      notifyChanges(_min, oldMax, oldSize)
+    }
+  }
+
+  final def restrict(newDomain: Array[Int], newSize: Int): Unit = {
+    assert(newSize > 0 && newSize <= size)
+    // Words of the values to keep
+    var w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = 0L
+    }
+    var k = newSize
+    while (k > 0) {
+      k -= 1
+      val value = newDomain(k)
+      assert(hasValue(value), "newDomain must be a subset of the actual domain.")
+      val i = value - offset
+      mask(i >>> 6) |= 1L << i
+    }
+    // Words of the values to remove
+    var nRemoved = 0
+    w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = words(w) & ~mask(w)
+      nRemoved += bitCount(mask(w))
+    }
+    if (nRemoved > 0) removeMask()
+  }
+
+  /**
+   * Restrict the domain to the values v such that the bit v - base is set in the words.
+   * The words are intersected with the words of the domain.
+   */
+  final override def restrictTo(bits: Array[Long], base: Int): Unit = {
+    // Words of the values to remove
+    val shift = offset.toLong - base
+    var nRemoved = 0
+    var w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = words(w) & ~wordAt(bits, shift + (w << 6))
+      nRemoved += bitCount(mask(w))
+    }
+    if (nRemoved == _size) throw Inconsistency
+    else if (nRemoved > 0) removeMask()
+  }
+
+  // Returns the 64 bits of the words starting at the given bit
+  @inline private def wordAt(bits: Array[Long], from: Long): Long = {
+    val w = from >> 6
+    val r = (from & 63).toInt
+    val low = if (w < 0 || w >= bits.length) 0L else bits(w.toInt) >>> r
+    if (r == 0) low
+    else {
+      val high = if (w + 1 < 0 || w + 1 >= bits.length) 0L else bits(w.toInt + 1) << (64 - r)
+      low | high
+    }
+  }
+
+  /**
+   * Restrict the domain to the values contained in the `nValues` first values of the sorted
+   * array. The words of the values to keep are intersected with the words of the domain.
+   */
+  final override def intersectWith(sorted: Array[Int], nValues: Int): Unit = {
+    // Words of the values to keep
+    var w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = 0L
+    }
+    var k = nValues
+    while (k > 0) {
+      k -= 1
+      val value = sorted(k)
+      if (value >= _min && value <= _max) {
+        val i = value - offset
+        mask(i >>> 6) |= 1L << i
+      }
+    }
+    // Words of the values to remove
+    var nRemoved = 0
+    w = nWords
+    while (w > 0) {
+      w -= 1
+      mask(w) = words(w) & ~mask(w)
+      nRemoved += bitCount(mask(w))
+    }
+    if (nRemoved == _size) throw Inconsistency
+    else if (nRemoved > 0) removeMask()
+  }
+
+  @inline final def delta(oldMin: Int, oldMax: Int, oldSize: Int): Iterator[Int] = {
+    val newarray = new Array[Int](oldSize - _size)
+    fillDeltaArray(oldMin, oldMax, oldSize, newarray)
+    newarray.iterator
+  }
+
+  @inline final override def fillDeltaArray(oldMin: Int, oldMax: Int, oldSize: Int, arr: Array[Int]): Int = {
+    val n = oldSize - _size
+    System.arraycopy(removed, nValues - oldSize, arr, 0, n)
+    n
+  }
+
+  final override def toString(): String = {
+    val buffer = new StringBuffer
+    if (name.length > 0) buffer.append(s"$name ")
+    if (_size == 1) buffer.append(_min)
+    else if (isContinuous) buffer.append(s"[${_min}, ${_max}]")
+    else {
+      buffer.append("{")
+      buffer.append(toArray.mkString(", "))
+      buffer.append("}")
+    }
+    buffer.toString
+  }
+
+  final override def callPropagateWhenBind(c: Constraint) {
+    degree.incr()
+    onBindL2.register(c)
+  }
+
+  final override def callPropagateWhenBoundsChange(c: Constraint) {
+    degree.incr()
+    onBoundsL2.register(c)
+  }
+
+  final override def callPropagateWhenBoundsChange(c: Constraint, cond: => Boolean) {
+    degree.incr()
+    onBoundsL2.register(c, cond)
+  }
+
+  final override def callPropagateWhenDomainChanges(c: Constraint): Unit = {
+    degree.incr()
+    onDomainL2.register(c)
+  }
+
+  final override def callPropagateWhenDomainChanges(c: Constraint, cond: => Boolean) {
+    degree.incr()
+    onDomainL2.register(c, cond)
+  }
+
+  final override def callPropagateOnChangesWithDelta(c: Constraint): DeltaIntVar = {
+    val snap = delta(c)
+    degree.incr()
+    onDomainL2.register(c)
+    snap
+  }
+
+  final override def callPropagateOnChangesWithDelta(c: Constraint, cond: => Boolean): DeltaIntVar = {
+    val snap = delta(c)
+    degree.incr()
+    onDomainL2.register(c, cond)
+    snap
+  }
+
+  final override def awakeOnChanges(watcher: Watcher): Unit = {
+    degree.incr()
+    onDomainL2.register(watcher)
+  }
+
+  final override def watchChanges(watcher: Watcher): Unit = onDomainL2.register(watcher)
+
+  final override def callUpdateBoundsWhenBoundsChange(c: Constraint) {
+    callUpdateBoundsWhenBoundsChange(c, this)
+  }
+
+  final override def callUpdateBoundsWhenBoundsChange(c: Constraint, variable: CPIntVar) {
+    degree.incr()
+    onBoundsL1.register(c, variable)
+  }
+
+  final override def callValRemoveWhenValueIsRemoved(c: Constraint) {
+    callValRemoveWhenValueIsRemoved(c, this)
+  }
+
+  final override def callValRemoveWhenValueIsRemoved(c: Constraint, variable: CPIntVar) {
+    degree.incr()
+    onDomainL1.register(c, variable)
+  }
+
+  final override def callValBindWhenBind(c: Constraint) {
+    callValBindWhenBind(c, this)
+  }
+
+  final override def callValBindWhenBind(c: Constraint, variable: CPIntVar) {
+    degree.incr()
+    onBindL1.register(c, variable)
+  }
+
+  final override def callValRemoveIdxWhenValueIsRemoved(c: Constraint, idx: Int) {
+    callValRemoveIdxWhenValueIsRemoved(c, this, idx)
+  }
+
+  final override def callValRemoveIdxWhenValueIsRemoved(c: Constraint, variable: CPIntVar, idx: Int) {
+    degree.incr()
+    onDomainL1.register(c, variable, idx)
+  }
+
+  final override def callUpdateBoundsIdxWhenBoundsChange(c: Constraint, idx: Int) {
+    callUpdateBoundsIdxWhenBoundsChange(c, this, idx)
+  }
+
+  final override def callUpdateBoundsIdxWhenBoundsChange(c: Constraint, variable: CPIntVar, idx: Int) {
+    degree.incr()
+    onBoundsL1.register(c, variable, idx)
+  }
+
+  final override def callValBindIdxWhenBind(c: Constraint, idx: Int) {
+    callValBindIdxWhenBind(c, this, idx)
+  }
+
+  final override def callValBindIdxWhenBind(c: Constraint, variable: CPIntVar, idx: Int) {
+    degree.incr()
+    onBindL1.register(c, variable, idx)
+  }
+}
@@ -194,6 +194,8 @@ final class CPIntVarSingleton(final override val store: CPStore, initValue: Int,
   
   final override def awakeOnChanges(watcher: Watcher): Unit = degree.incr()
 
+  final override def watchChanges(watcher: Watcher): Unit = {}
+
 
   /**
    * Level 1 registration: ask that the valBind(CPIntVar) method of the constraint c is called whenever
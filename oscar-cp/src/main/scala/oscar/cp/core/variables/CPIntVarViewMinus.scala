@@ -14,6 +14,8 @@
  ******************************************************************************/
 package oscar.cp.core.variables
 
+import oscar.algo.Inconsistency
+
 import scala.util.Random
 import oscar.cp.core.CPStore
 import oscar.cp.core.Constraint
@@ -30,6 +32,9 @@ final class CPIntVarViewMinus(v: CPIntVar) extends CPIntVar {
 	final override val context = store
 
   final override val name: String = s"-${v.name}"
+
+  /** Returns the variable on which the view is defined */
+  final def underlying: CPIntVar = v
     
   def transform(v: Int) = -this.v.transform(v)    
 	
@@ -78,6 +83,53 @@ final class CPIntVarViewMinus(v: CPIntVar) extends CPIntVar {
     v.restrict(mapped, newSize)
   }
 	
+  // Values mapped on the underlying variable by the bulk operations
+  private[this] var mapped: Array[Int] = new Array[Int](0)
+
+  @inline private def mappedArray(n: Int): Array[Int] = {
+    if (mapped.length < n) mapped = new Array[Int](n)
+    mapped
+  }
+
+  final override def removeValues(values: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var i = nValues
+    while (i > 0) {
+      i -= 1
+      array(i) = -values(i)
+    }
+    v.removeValues(array, nValues)
+  }
+
+  final override def restrictTo(words: Array[Long], base: Int): Unit = {
+    val array = mappedArray(v.size)
+    val n = v.fillArray(array)
+    val nBits = words.length.toLong << 6
+    var nKept = 0
+    var i = 0
+    while (i < n) {
+      val value = array(i)
+      val bit = -value.toLong - base
+      if (bit >= 0 && bit < nBits && (words((bit >>> 6).toInt) & (1L << bit)) != 0) {
+        array(nKept) = value
+        nKept += 1
+      }
+      i += 1
+    }
+    if (nKept == 0) throw Inconsistency
+    else if (nKept < n) v.restrict(array, nKept)
+  }
+
+  final override def intersectWith(sorted: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var i = nValues
+    while (i > 0) {
+      i -= 1
+      array(nValues - 1 - i) = -sorted(i) // keeps the values sorted
+    }
+    v.intersectWith(array, nValues)
+  }
+	
 	override def toString() = "-("+v+")"
 		
 	def callPropagateWhenBind(c: Constraint) = v.callPropagateWhenBind(c)
@@ -92,6 +144,8 @@ final class CPIntVarViewMinus(v: CPIntVar) extends CPIntVar {
   
   final override def awakeOnChanges(watcher: Watcher): Unit = v.awakeOnChanges(watcher)
 
+  final override def watchChanges(watcher: Watcher): Unit = v.watchChanges(watcher)
+
   def callPropagateOnChangesWithDelta(c: Constraint): DeltaIntVar = {
     val snap = delta(c)
     v.callPropagateWhenDomainChanges(c)
@@ -30,6 +30,9 @@ class CPIntVarViewOffset(v: CPIntVar, offset: Int) extends CPIntVar {
   final override val context = store
 
   override val name: String = s"${v.name} + $offset"
+
+  /** Returns the variable on which the view is defined */
+  final def underlying: CPIntVar = v
     
   final override def transform(v: Int) = offset + this.v.transform(v)    
 	
@@ -78,6 +81,36 @@ class CPIntVarViewOffset(v: CPIntVar, offset: Int) extends CPIntVar {
     v.restrict(mapped, newSize)
   }
   
+  // Values mapped on the underlying variable by the bulk operations
+  private[this] var mapped: Array[Int] = new Array[Int](0)
+
+  @inline private def mappedArray(n: Int): Array[Int] = {
+    if (mapped.length < n) mapped = new Array[Int](n)
+    mapped
+  }
+
+  final override def removeValues(values: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var i = nValues
+    while (i > 0) {
+      i -= 1
+      array(i) = values(i) - offset
+    }
+    v.removeValues(array, nValues)
+  }
+
+  final override def restrictTo(words: Array[Long], base: Int): Unit = v.restrictTo(words, base - offset)
+
+  final override def intersectWith(sorted: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var i = nValues
+    while (i > 0) {
+      i -= 1
+      array(i) = sorted(i) - offset
+    }
+    v.intersectWith(array, nValues)
+  }
+
   final override def fillArray(array: Array[Int]): Int = {
     val m = v.fillArray(array)
     var i = 0
@@ -120,6 +153,8 @@ class CPIntVarViewOffset(v: CPIntVar, offset: Int) extends CPIntVar {
   }
   
   final override def awakeOnChanges(watcher: Watcher): Unit = v.awakeOnChanges(watcher)
+
+  final override def watchChanges(watcher: Watcher): Unit = v.watchChanges(watcher)
 	
 	// this method is useful when you have a view final override defined on a view
 	final override def callValBindWhenBind(c: Constraint, variable: CPIntVar) = v.callValBindWhenBind(c, variable)
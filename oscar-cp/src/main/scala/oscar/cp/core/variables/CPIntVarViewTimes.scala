@@ -40,6 +40,9 @@ final class CPIntVarViewTimes(v: CPIntVar, a: Int) extends CPIntVar {
 
   final override val name: String = s"${v.name} * $a"
 
+  /** Returns the variable on which the view is defined */
+  final def underlying: CPIntVar = v
+
   final override def transform(v: Int) = a * this.v.transform(v)
 
   final override def isBound = v.isBound
@@ -82,6 +85,63 @@ final class CPIntVarViewTimes(v: CPIntVar, a: Int) extends CPIntVar {
     v.restrict(mapped, newSize)
   }
 
+  // Values mapped on the underlying variable by the bulk operations
+  private[this] var mapped: Array[Int] = new Array[Int](0)
+
+  @inline private def mappedArray(n: Int): Array[Int] = {
+    if (mapped.length < n) mapped = new Array[Int](n)
+    mapped
+  }
+
+  final override def removeValues(values: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var n = 0
+    var i = nValues
+    while (i > 0) {
+      i -= 1
+      val value = values(i)
+      if (value % a == 0) {
+        array(n) = value / a
+        n += 1
+      }
+    }
+    v.removeValues(array, n)
+  }
+
+  final override def restrictTo(words: Array[Long], base: Int): Unit = {
+    val array = mappedArray(v.size)
+    val n = v.fillArray(array)
+    val nBits = words.length.toLong << 6
+    var nKept = 0
+    var i = 0
+    while (i < n) {
+      val value = array(i)
+      val bit = a.toLong * value - base
+      if (bit >= 0 && bit < nBits && (words((bit >>> 6).toInt) & (1L << bit)) != 0) {
+        array(nKept) = value
+        nKept += 1
+      }
+      i += 1
+    }
+    if (nKept == 0) throw Inconsistency
+    else if (nKept < n) v.restrict(array, nKept)
+  }
+
+  final override def intersectWith(sorted: Array[Int], nValues: Int): Unit = {
+    val array = mappedArray(nValues)
+    var n = 0
+    var i = 0
+    while (i < nValues) {
+      val value = if (a > 0) sorted(i) else sorted(nValues - 1 - i) // keeps the values sorted
+      if (value % a == 0) {
+        array(n) = value / a
+        n += 1
+      }
+      i += 1
+    }
+    v.intersectWith(array, n)
+  }
+
   override final def valueAfter(value: Int): Int = v.valueAfter(floor_div(value, a)) * a
 
   override final def valueBefore(value: Int): Int = v.valueBefore(ceiling_div(value, a)) * a
@@ -128,6 +188,8 @@ final class CPIntVarViewTimes(v: CPIntVar, a: Int) extends CPIntVar {
   
   final override def awakeOnChanges(watcher: Watcher): Unit = v.awakeOnChanges(watcher)
 
+  final override def watchChanges(watcher: Watcher): Unit = v.watchChanges(watcher)
+
   // this method is useful when you have a view defined on a view
   override final def callValBindWhenBind(c: Constraint, variable: CPIntVar) = v.callValBindWhenBind(c, variable)
 
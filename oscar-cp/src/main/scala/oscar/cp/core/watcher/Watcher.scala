@@ -3,7 +3,18 @@ package oscar.cp.core.watcher
 import oscar.cp.core.Constraint
 import oscar.cp.core.variables.CPIntVar
 
-abstract class Watcher { def awake(): Unit }
+abstract class Watcher {
+
+  def awake(): Unit
+
+  /**
+   * Returns true if the watcher only records that the domain has changed: it neither modifies
+   * the domains nor wakes constraints up, and it supports being awaken concurrently by the
+   * workers of the parallel propagation (see `CPStore.concurrent`). The parallel propagation
+   * is not used while another watcher is registered on a variable.
+   */
+  def isObserver: Boolean = false
+}
 
 final class WatcherL2Garded(constraint: Constraint, gard: => Boolean) extends Watcher {
   private[this] val store = constraint.s
@@ -18,13 +29,13 @@ final class WatcherL2(constraint: Constraint) extends Watcher {
 final class WatcherL1BindId(constraint: Constraint, variable: CPIntVar, id: Int) extends Watcher {
   private[this] val store = constraint.s
   final override def awake(): Unit = {
-    store.enqueueL1(constraint, constraint.priorityBindL1, constraint.valBindIdx(variable, id))
+    store.enqueueBindIdxL1(constraint, variable, id)
   }
 }
 
 final class WatcherL1Bind(constraint: Constraint, variable: CPIntVar) extends Watcher {
   private[this] val store = constraint.s
   final override def awake(): Unit = {
-    store.enqueueL1(constraint, constraint.priorityBindL1, constraint.valBind(variable))
+    store.enqueueBindL1(constraint, variable)
   }
 }
\ No newline at end of file
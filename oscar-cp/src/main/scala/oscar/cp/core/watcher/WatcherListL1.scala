@@ -67,8 +67,8 @@ class WatcherListL1(store: CPStore) {
       if (constraint.isActive) {
         val variable = variablesStack(i)
         val id = indexStack(i)
-        if (id == RESERVED_INDEX) store.enqueueL1(constraint, constraint.priorityBindL1, constraint.valBind(variable))
-        else store.enqueueL1(constraint, constraint.priorityBindL1, constraint.valBindIdx(variable, id))
+        if (id == RESERVED_INDEX) store.enqueueBindL1(constraint, variable)
+        else store.enqueueBindIdxL1(constraint, variable, id)
       }
     }
   }
@@ -81,8 +81,8 @@ class WatcherListL1(store: CPStore) {
       if (constraint.isActive) {
         val variable = variablesStack(i)
         val id = indexStack(i)
-        if (id == RESERVED_INDEX) store.enqueueL1(constraint, constraint.priorityBoundsL1, constraint.updateBounds(variable))
-        else store.enqueueL1(constraint, constraint.priorityBoundsL1, constraint.updateBoundsIdx(variable, id))
+        if (id == RESERVED_INDEX) store.enqueueBoundsL1(constraint, variable)
+        else store.enqueueBoundsIdxL1(constraint, variable, id)
       }
     }
   }
@@ -96,8 +96,8 @@ class WatcherListL1(store: CPStore) {
         val variable = variablesStack(i)
         val id = indexStack(i)
         val transformed = variable.transform(value)
-        if (id == RESERVED_INDEX) store.enqueueL1(constraint, constraint.priorityRemoveL1, constraint.valRemove(variable, transformed))
-        else store.enqueueL1(constraint, constraint.priorityRemoveL1, constraint.valRemoveIdx(variable, id, transformed))
+        if (id == RESERVED_INDEX) store.enqueueRemoveL1(constraint, variable, transformed)
+        else store.enqueueRemoveIdxL1(constraint, variable, id, transformed)
       }
     }
   }
@@ -31,6 +31,7 @@ class WatcherListL2(store: CPStore) {
   }
   
   final def register(watcher: Watcher): Unit = {
+    if (!watcher.isObserver) store.registerWatcher() // not partitioned by the parallel propagation
     if (index == watchers.length) growStack()
     watchers(index) = watcher
     trail()
@@ -23,7 +23,7 @@ import oscar.cp.core.variables.CPIntVar
 import oscar.cp.core.variables.CPSetVar
 import oscar.algo.vars.{IntVarLike, SetVarLike}
 import oscar.cp._
-import oscar.cp.searches.WeightedDegreeHelper
+import oscar.cp.searches.{BinaryActivityBranching, BinaryHeapBranching, ConflictHistory, ConflictScoreBranching, HeapConflictOrderingSearch, PhaseSaving, VariableHeap, WarmStartBranching, WeightedDegree}
 
 /**
   * @author Pierre Schaus pschaus@gmail.com
@@ -100,6 +100,27 @@ trait Branchings extends BranchingUtils {
     binaryIdx(vars, (i: Int) => varHeuris(vars(i)), (i: Int) => valHeuris(vars(i)))
   }
 
+  /**
+    * Binary search with custom variable/value heuristic (see binary), the unbound variables being kept
+    * in a heap updated from the domain changes instead of being scanned at each node.
+    *
+    * @example {{{search(binaryIndexed(x, _.size, _.min))}}}
+    *
+    * @param variables Decision variables to branch on
+    * @param varHeuris Given a variable in variables, returns a value (such as the domain size) such that
+    *                  the unbound variable with the smallest one is selected first.
+    *                  It must only depend on the domain of the variable: the value of a variable
+    *                  is only recomputed when its domain changes (use binary otherwise)
+    * @param valHeuris Given the selected variable,
+    *                  returns the value in domain of variables(i) to be tried on the left branch,
+    *                  this value is removed on the right branch
+    * @return The variable-value heuristic specified by the parameters
+    */
+  def binaryIndexed(variables: Traversable[CPIntVar], varHeuris: (CPIntVar => Int), valHeuris: (CPIntVar => Int)): Branching = {
+    val vars = variables.toArray
+    new BinaryHeapBranching(new VariableHeap(vars, i => varHeuris(vars(i))), i => valHeuris(vars(i)))
+  }
+
   /**
     * Variable Heuristic described in
     *
@@ -260,6 +281,21 @@ trait Branchings extends BranchingUtils {
     new ConflictOrderingSearch(variables.asInstanceOf[Array[IntVarLike]], varHeuristic, valHeuristic, orderer)
   }
 
+  /**
+    * Conflict Ordering Search (see above) with first fail (min dom size) as fallback heuristic.
+    * The variables are kept in a heap updated from the domain changes instead of being scanned at each node.
+    *
+    * @param variables    Decision variables to branch on
+    * @param valHeuristic given an index i in variables,
+    *                     returns the value in domain of variables(i) to be tried on the left branch,
+    *                     this value is removed on the right branch
+    * @return The conflict Ordering Search (COS) variable heuristic,
+    *         with first fail fallback var heuristic and custom value value heuristic.
+    */
+  def conflictOrderingSearch(variables: Array[CPIntVar], valHeuristic: (Int) => Int): Branching = {
+    new HeapConflictOrderingSearch(variables, variables(_).size, valHeuristic)
+  }
+
 
   /**
     * Binary Search on the decision variables vars with fixed static ordering.
@@ -294,7 +330,8 @@ trait Branchings extends BranchingUtils {
     */
   def binaryFirstFailIdx(variables: Seq[CPIntVar], valHeuris: (Int => Int)): Branching = {
     val vars = variables.toArray
-    binaryIdx(vars, i => (vars(i).size, i), valHeuris)
+    if (vars.length < VariableHeap.MinSize) new BinaryFirstFailBranching(vars, valHeuris)
+    else new BinaryHeapBranching(new VariableHeap(vars, vars(_).size), valHeuris)
   }
 
   /**
@@ -353,10 +390,8 @@ trait Branchings extends BranchingUtils {
     */
   def binaryMaxWeightedDegree(variables: Seq[CPIntVar], valHeuris: (CPIntVar => Int), decayRatio: Double): Branching = {
     val vars = variables.toArray
-    val helper = new WeightedDegreeHelper(vars.head.store, vars, decayRatio)
-
-    //TODO find a better way to convert the double to an Int
-    binaryIdx(vars, i => -(helper.getWeightedDegree(vars(i)) * 1000).round.toInt, i => valHeuris(vars(i)))
+    val weightedDegree = new WeightedDegree(vars.head.store, vars, decayRatio)
+    new ConflictScoreBranching(weightedDegree, i => valHeuris(vars(i)), false)
   }
 
   /**
@@ -398,10 +433,8 @@ trait Branchings extends BranchingUtils {
     */
   def binaryMinDomOnWeightedDegree(variables: Seq[CPIntVar], valHeuris: (CPIntVar => Int), decayRatio: Double): Branching = {
     val vars = variables.toArray
-    val helper = new WeightedDegreeHelper(vars.head.store, vars, decayRatio)
-
-    //TODO find a better way to convert the double to an Int
-    binaryIdx(vars, i => (helper.getDomOnWeightedDegree(vars(i)) * 1000).round.toInt, i => valHeuris(vars(i)))
+    val weightedDegree = new WeightedDegree(vars.head.store, vars, decayRatio)
+    new ConflictScoreBranching(weightedDegree, i => valHeuris(vars(i)), true)
   }
 
 
@@ -424,6 +457,64 @@ trait Branchings extends BranchingUtils {
     binaryMinDomOnWeightedDegree(variables, x => x.min, decayRatio)
   }
 
+  /**
+    * Heuristic Decribed in:
+    *
+    * ''Conflict history based search for constraint satisfaction problem
+    * Djamal Habet, Cyril Terrioux, 2019''
+    *
+    * Binary Search based on the conflict history of each constraint,
+    * the unbound variable with the greatest ratio (score/domain-size) selected first.
+    * The score of a constraint is a moving average of rewards that are larger
+    * for the constraints involved in recent failures.
+    *
+    * @param variables  Decision variables to branch on
+    * @param valHeuris  Given an variable in variables, returns the value v to try
+    *                   on left branch for the chosen variable, this value is removed on the right branch
+    * @return A conflict-history variable heuristic with a custom value heuristic
+    */
+  def binaryConflictHistory(variables: Seq[CPIntVar], valHeuris: (CPIntVar => Int)): Branching = {
+    val vars = variables.toArray
+    val history = new ConflictHistory(vars.head.store, vars)
+    new ConflictScoreBranching(history, i => valHeuris(vars(i)), true)
+  }
+
+  /**
+    * Conflict history search (see above) with a min value in domain value heuristic
+    */
+  def binaryConflictHistory(variables: Seq[CPIntVar]): Branching = {
+    binaryConflictHistory(variables, x => x.min)
+  }
+
+  /**
+    * Heuristic Decribed in:
+    *
+    * ''Activity-based search for black-box constraint programming solvers
+    * Laurent Michel, Pascal Van Hentenryck, 2012''
+    *
+    * Binary Search based on the activity of each variable,
+    * the unbound variable with the greatest activity selected first.
+    * The activity of a variable is increased at each node where its domain is reduced
+    * and decays otherwise (no initial probing).
+    *
+    * @param variables Decision variables to branch on
+    * @param valHeuris Given an variable in variables, returns the value v to try
+    *                  on left branch for the chosen variable, this value is removed on the right branch
+    * @param decay     is applied to the activity of each variable at each node
+    * @return An activity variable heuristic with a custom value heuristic
+    */
+  def binaryActivity(variables: Seq[CPIntVar], valHeuris: (CPIntVar => Int), decay: Double): Branching = {
+    val vars = variables.toArray
+    new BinaryActivityBranching(vars, i => valHeuris(vars(i)), decay)
+  }
+
+  /**
+    * Activity based search (see above) with a min value in domain value heuristic
+    */
+  def binaryActivity(variables: Seq[CPIntVar], decay: Double = 0.999): Branching = {
+    binaryActivity(variables, x => x.min, decay)
+  }
+
   /**
     * Binary search on the decision variables vars, splitting the domain of the selected variable on the
     * median of the values (left : <= median, right : > median)
@@ -730,4 +821,25 @@ trait Branchings extends BranchingUtils {
   def learnValueHeuristic(variables: Array[CPIntVar], fallBackValHeuristic: (Int => Int)): (Int => Int) = {
     new ValueHeuristicLearner(variables, fallBackValHeuristic).valueHeuristic
   }
+
+  /**
+    * Value heuristic trying first the value of the variable in the last solution found
+    *
+    * @example {{{val phases = phaseSaving(x, i => x(i).min); search(binaryFirstFailIdx(x, phases.valueHeuristic))}}}
+    *
+    * @param variables            the variables on which the value heuristic is applied
+    * @param fallBackValHeuristic i => v where i is the variable index, v the value in the domain of x(i)
+    * @return the phases of the variables, of which `valueHeuristic` is the value heuristic
+    */
+  def phaseSaving(variables: Array[CPIntVar], fallBackValHeuristic: (Int => Int)): PhaseSaving = {
+    new PhaseSaving(variables, fallBackValHeuristic)
+  }
+
+  /**
+    * Branching following the phases of the variables as long as they are not refuted, then branching
+    *
+    * @param phases    the phases to follow, e.g. loaded from a previous solution
+    * @param branching the branching used once the phases are not followed anymore
+    */
+  def warmStart(phases: PhaseSaving, branching: Branching): Branching = WarmStartBranching(phases, branching)
 }
@@ -24,7 +24,7 @@ import oscar.cp.constraints.tables.NegativeShortTableAlgo.NegativeShortTableAlgo
 import oscar.cp.constraints.tables.NegativeTableAlgo._
 import oscar.cp.constraints.tables.ShortTableAlgo._
 import oscar.cp.constraints.tables.TableAlgo._
-import oscar.cp.constraints.tables.{BasicSmartElement, BasicSmartTableAlgo, NegativeShortTableAlgo, ShortTableAlgo}
+import oscar.cp.constraints.tables.{BasicSmartElement, BasicSmartTableAlgo, MappedTable, NegativeShortTableAlgo, ShortTableAlgo}
 import oscar.cp.core.variables.{CPIntVarViewMinus, CPIntVarViewOffset, CPIntVarViewTimes}
 import oscar.cp.core.{CPPropagStrength, Constraint}
 import oscar.cp.scheduling.constraints.{DisjunctiveWithTransitionTimes, UnaryResource, _}
@@ -714,6 +714,17 @@ trait Constraints {
     oscar.cp.constraints.tables.table(x,possibleTuples,algo)
   }
 
+  /**
+   * Table Constraint on a table stored in a file (see TableFile), filtered with compact table
+   *
+   * @param x non empty array of variables on which the table constraint apply
+   * @param possibleTuples the possible tuples for variables in x, memory mapped from their file
+   * @return a constraint enforcing that x is one of the tuples of the file
+   */
+  def table(x: Array[CPIntVar], possibleTuples: MappedTable): Constraint = {
+    oscar.cp.constraints.tables.table.compactTable(x, possibleTuples)
+  }
+
   /**
    * Table Constraint for couples (constraint given in extension by enumerating valid assignments)
     *
@@ -9,6 +9,9 @@ class Nogood(val decisions: Array[Decision]) {
   
   def isEntailed: Boolean = decisions.forall(_.isTrue)
   
+  /** Returns true if one of the decisions is true, i.e. the nogood can not be violated anymore */
+  def isSatisfied: Boolean = decisions.exists(_.isTrue)
+  
   def toConstraint: Constraint = {
     if (decisions.isEmpty) new Unfeasible(null)
     else or(decisions.map(_.toLiteral))
@@ -44,10 +44,28 @@ class NogoodDBImpl extends NogoodDB {
   private[this] var nogoods: Array[Nogood] = new Array(100)
   private[this] var nNogoods: Int = 0
   
+  private[this] val rand = new scala.util.Random(0)
+  
   /** Remove entailed nogoods from the data base. */
-  def reduceEntailed(): Unit = ()
+  def reduceEntailed(): Unit = {
+    var i = 0
+    var j = 0
+    while (i < nNogoods) {
+      val n = nogoods(i)
+      if (!n.isSatisfied) {
+        nogoods(j) = n
+        j += 1
+      }
+      i += 1
+    }
+    java.util.Arrays.fill(nogoods.asInstanceOf[Array[AnyRef]], j, nNogoods, null)
+    nNogoods = j
+  }
 
-  def clear() = nNogoods = 0
+  def clear() = {
+    java.util.Arrays.fill(nogoods.asInstanceOf[Array[AnyRef]], 0, nNogoods, null)
+    nNogoods = 0
+  }
 
 
 
@@ -65,10 +83,19 @@ class NogoodDBImpl extends NogoodDB {
   }
   
   /** Add several new nogoods to the data base. */
-  def add(nogoods: Array[Nogood]): Unit = ???
+  def add(nogoods: Array[Nogood]): Unit = {
+    var i = 0
+    while (i < nogoods.length) {
+      add(nogoods(i))
+      i += 1
+    }
+  }
   
   /** Returns a random nogood from the data base. */
-  def randomNogood: Nogood = ???
+  def randomNogood: Nogood = {
+    if (nNogoods == 0) null
+    else nogoods(rand.nextInt(nNogoods))
+  }
   
   def remove(nogood: Nogood): Unit = {
     var i = 0
@@ -81,6 +108,7 @@ class NogoodDBImpl extends NogoodDB {
       }
       i += 1
     }
+    java.util.Arrays.fill(nogoods.asInstanceOf[Array[AnyRef]], j, nNogoods, null)
     nNogoods = j
   }
   
@@ -0,0 +1,125 @@
+package oscar.cp.nogoods.database
+
+import oscar.cp.core.CPStore
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.isInconsistent
+import oscar.cp.nogoods.core.Nogood
+import oscar.cp.nogoods.explanations.{ClauseStore, ExplanationEngine, Literal}
+
+/**
+ * Data base of nogoods that also propagates them, with two watched literals.
+ *
+ * The nogoods are stored as clauses in a clause store posted as a cut when the data base
+ * is created, which must be done at the root. The nogoods can be added at any time, they
+ * are propagated from the next propagation on: there is no need to post them as constraints.
+ * The size of the data base is managed by the clause store (activity and LBD based
+ * reduction), which must be done at the root, for instance between two restarts:
+ *
+ * {{{
+ * val nogoods = new WatchedNogoodDB(solver, variables)
+ * do {
+ *   search.start(branching, _.nBacktracks > limit)
+ *   nogoods.reduceIfNeeded()
+ * } while (...)
+ * }}}
+ *
+ * The nogoods can contain decisions on any variable, the variables that are not given are
+ * watched from the first propagation after they appear in a nogood. The data base does not
+ * switch the store to the explanation mode (see `CPStore.enableExplanations`) but uses
+ * its explanation engine if it has one, such that its propagation is then explained.
+ */
+class WatchedNogoodDB(store: CPStore, variables: Array[CPIntVar]) extends NogoodDB {
+
+  // Indexes the literals, without switching the store to the explanation mode
+  private[this] val engine = {
+    val explanations = store.explanationEngine
+    if (explanations != null) explanations else new ExplanationEngine(store)
+  }
+  variables.foreach(engine.index)
+
+  /** The clause store that propagates the nogoods */
+  val clauses = new ClauseStore(engine)
+  isInconsistent(store.postCut(clauses))
+
+  private[this] val rand = new scala.util.Random(0)
+
+  /** Remove the nogoods that are satisfied at the root, and propagate the remaining ones. */
+  def reduceEntailed(): Unit = {
+    clauses.removeSatisfied()
+    propagate()
+  }
+
+  /**
+   * Reduces the data base if it is too large, and propagates the nogoods such that the new
+   * ones are watched from the root. Must be called at the root. Returns true if it was reduced.
+   */
+  def reduceIfNeeded(): Boolean = {
+    val reduced = clauses.reduceIfNeeded()
+    propagate()
+    reduced
+  }
+
+  /** Reduces the data base and propagates the remaining nogoods. Must be called at the root. */
+  def reduce(): Unit = {
+    clauses.reduce()
+    propagate()
+  }
+
+  // Watches the clauses again
+  @inline private def propagate(): Unit = if (!store.isFailed) isInconsistent(store.propagate(clauses))
+
+  def allNogoods(): Array[Nogood] = {
+    val nogoods = new Array[Nogood](size)
+    var i = 0
+    foreach(nogood => { nogoods(i) = nogood; i += 1 })
+    nogoods
+  }
+
+  def clear(): Unit = clauses.clear()
+
+  def add(nogood: Nogood): Unit = clauses.addClause(toClause(nogood))
+
+  def add(nogoods: Array[Nogood]): Unit = {
+    var i = 0
+    while (i < nogoods.length) {
+      add(nogoods(i))
+      i += 1
+    }
+  }
+
+  def randomNogood: Nogood = {
+    val n = size
+    if (n == 0) null
+    else {
+      val target = rand.nextInt(n)
+      var i = 0
+      var nogood: Nogood = null
+      clauses.foreach(clause => {
+        if (i == target) nogood = engine.toNogood(clause)
+        i += 1
+      })
+      nogood
+    }
+  }
+
+  def largestNogood: Nogood = {
+    var largest: Array[Long] = null
+    clauses.foreach(clause => if (largest == null || clause.length > largest.length) largest = clause)
+    if (largest == null) null else engine.toNogood(largest)
+  }
+
+  def foreach[U](f: Nogood => U): Unit = clauses.foreach(clause => f(engine.toNogood(clause)))
+
+  def size: Int = clauses.size
+
+  def addEmpty(): Unit = clauses.addClause(Array.empty[Long])
+
+  /** Removes the nogoods made of the same decisions, must be called at the root */
+  def remove(nogood: Nogood): Unit = clauses.remove(toClause(nogood))
+
+  @inline private def toClause(nogood: Nogood): Array[Long] = {
+    nogood.decisions.map(decision => Literal.ofDecision(engine.index(decision.variable), decision))
+  }
+
+  override def toString: String = s"size: $size, maxClauses: ${clauses.maxClauses}, reductions: ${clauses.reductions}"
+}
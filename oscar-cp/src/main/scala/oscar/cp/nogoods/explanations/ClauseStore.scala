@@ -0,0 +1,481 @@
+package oscar.cp.nogoods.explanations
+
+import oscar.algo.Inconsistency
+import oscar.algo.reversible.ReversibleInt
+import oscar.cp.core.{CPPropagStrength, Constraint}
+import oscar.cp.core.variables.CPVar
+import oscar.cp.core.watcher.Watcher
+
+/**
+ * Learned clauses, propagated with two watched literals.
+ *
+ * The first two literals of each clause are watched and the clause is only visited when
+ * the domain of the variable of a watched literal changes. The propagation of a clause
+ * is explained by the negation of its other literals, such that learned clauses take
+ * part in the analysis of the next conflicts.
+ *
+ * The store watches all the variables registered in the engine, including the ones that
+ * are registered after its setup (e.g. by a nogood added during the search): their watcher
+ * is registered at the next propagation, which happens at each fixed point since the store
+ * must be posted as a cut at the root of the search. The watchers do not count in the degree
+ * of the variables (see `CPIntVar.watchChanges`), such that the learned clauses do not bias
+ * the heuristics based on the degrees.
+ *
+ * The propagation is explained if the engine is the explanation engine of the store (see
+ * `ExplanationEngine`), otherwise the engine only indexes the literals.
+ *
+ * The size of the store is managed as in SAT solvers. Each clause has an activity, bumped
+ * each time the clause propagates or fails and decayed at each new clause, and a literal block
+ * distance (LBD), the number of distinct decision levels of its literals when it is added.
+ * `reduce` removes the satisfied clauses and the least active half of the clauses that are
+ * not glue clauses (LBD <= 2). It compacts the store such that it must be called at the
+ * root of the search, typically before a restart, and the store must then be propagated
+ * to watch the remaining clauses again.
+ */
+final class ClauseStore(engine: ExplanationEngine) extends Constraint(engine.store, "ClauseStore") {
+
+  import Literal._
+
+  // Number of variables with a watch list
+  private[this] var nWatched = 0
+
+  // Number of variables whose watcher is registered in the current state
+  private[this] val nAwakeRev = new ReversibleInt(s, 0)
+  private[this] var watchers = new Array[ClauseWatcher](0)
+
+  // Clauses, the watched literals are at position 0 and 1
+  private[this] var clauses = new Array[Array[Long]](64)
+  private[this] var nClauses = 0
+
+  // Clauses to watch at the next propagation
+  private[this] var nInitialized = 0
+
+  // Activity and literal block distance of the clauses
+  private[this] var activities = new Array[Double](64)
+  private[this] var lbds = new Array[Int](64)
+  private[this] var activityIncrement = 1.0
+  private[this] var _activityDecay = 0.999
+
+  // Number of clauses over which reduceIfNeeded reduces the store, grows after each reduction
+  private[this] var _maxClauses = 2000
+  private[this] var _maxClausesGrowth = 1.1
+  private[this] var nReductions = 0
+
+  // Unit clauses, enforced at each propagation
+  private[this] var units = new Array[Long](16)
+  private[this] var nUnits = 0
+
+  private[this] var unsatisfiable = false
+
+  // Watch lists of the variables
+  private[this] var watches = new Array[Array[Int]](0)
+  private[this] var nWatches = new Array[Int](0)
+
+  // Variables whose domain changed since their last visit
+  private[this] var dirty = new Array[Int](0)
+  private[this] var isDirty = new Array[Boolean](0)
+  private[this] var nDirty = 0
+
+  /** Number of clauses in the store, including the empty clause */
+  def size: Int = nClauses + nUnits + (if (unsatisfiable) 1 else 0)
+
+  /** True if the empty clause was added */
+  def isUnsatisfiable: Boolean = unsatisfiable
+
+  /** Number of reductions of the store */
+  def reductions: Int = nReductions
+
+  def activityDecay: Double = _activityDecay
+
+  /** The activities are multiplied by the decay at each conflict, in ]0 ; 1] */
+  def activityDecay_=(decay: Double): Unit = {
+    require(decay > 0 && decay <= 1, "the decay must be in ]0 ; 1]")
+    _activityDecay = decay
+  }
+
+  def maxClauses: Int = _maxClauses
+
+  def maxClauses_=(n: Int): Unit = _maxClauses = n
+
+  def maxClausesGrowth: Double = _maxClausesGrowth
+
+  def maxClausesGrowth_=(growth: Double): Unit = {
+    require(growth >= 1, "the growth must be at least 1")
+    _maxClausesGrowth = growth
+  }
+
+  /** Activity of the i-th clause */
+  def activity(i: Int): Double = activities(i)
+
+  /** Literal block distance of the i-th clause */
+  def lbd(i: Int): Int = lbds(i)
+
+  override def associatedVars(): Iterable[CPVar] = Array.tabulate(nWatched)(engine.variable)
+
+  override def setup(l: CPPropagStrength): Unit = propagate()
+
+  private class ClauseWatcher(variable: Int) extends Watcher {
+    final override def awake(): Unit = {
+      markDirty(variable)
+      s.enqueueL2(ClauseStore.this)
+    }
+  }
+
+  @inline private def markDirty(variable: Int): Unit = {
+    if (!isDirty(variable)) {
+      isDirty(variable) = true
+      dirty(nDirty) = variable
+      nDirty += 1
+    }
+  }
+
+  // Registers the watchers of the variables registered in the engine since the last call,
+  // or whose watcher was removed by a backtrack. Their clauses are visited as they may have
+  // changed without being watched.
+  private def watchNewVariables(): Unit = {
+    val n = engine.nVariables
+    if (n > nWatched) {
+      watches = java.util.Arrays.copyOf(watches, n)
+      nWatches = java.util.Arrays.copyOf(nWatches, n)
+      dirty = java.util.Arrays.copyOf(dirty, n)
+      isDirty = java.util.Arrays.copyOf(isDirty, n)
+      watchers = java.util.Arrays.copyOf(watchers, n)
+      var i = nWatched
+      while (i < n) {
+        watches(i) = new Array[Int](4)
+        watchers(i) = new ClauseWatcher(i)
+        i += 1
+      }
+      nWatched = n
+    }
+    var i = nAwakeRev.value
+    while (i < n) {
+      engine.variable(i).watchChanges(watchers(i))
+      markDirty(i)
+      i += 1
+    }
+    nAwakeRev.value = n
+  }
+
+  /** Adds the clause, a disjunction of literals, to the store. The clause is watched at the next propagation. */
+  def addClause(clause: Array[Long]): Unit = {
+    activityIncrement /= _activityDecay // decays the activities of the previous clauses
+    if (clause.length == 0) unsatisfiable = true
+    else if (clause.length == 1) {
+      if (nUnits == units.length) units = java.util.Arrays.copyOf(units, nUnits * 2)
+      units(nUnits) = clause(0)
+      nUnits += 1
+    } else {
+      if (nClauses == clauses.length) {
+        clauses = java.util.Arrays.copyOf(clauses, nClauses * 2)
+        activities = java.util.Arrays.copyOf(activities, nClauses * 2)
+        lbds = java.util.Arrays.copyOf(lbds, nClauses * 2)
+      }
+      clauses(nClauses) = clause.clone()
+      activities(nClauses) = activityIncrement
+      lbds(nClauses) = literalBlockDistance(clause)
+      nClauses += 1
+    }
+  }
+
+  /** Applies the function to every clause of the store, the arrays must not be modified */
+  def foreach[U](f: Array[Long] => U): Unit = {
+    if (unsatisfiable) f(Array.empty[Long])
+    var i = 0
+    while (i < nUnits) {
+      f(Array(units(i)))
+      i += 1
+    }
+    i = 0
+    while (i < nClauses) {
+      f(clauses(i))
+      i += 1
+    }
+  }
+
+  /** Removes the clauses with the same literals as the given clause, the store must be at the root */
+  def remove(clause: Array[Long]): Unit = {
+    if (clause.length == 0) unsatisfiable = false
+    val sorted = clause.sorted
+    var j = 0
+    var i = 0
+    while (i < nUnits) {
+      if (clause.length != 1 || units(i) != clause(0)) {
+        units(j) = units(i)
+        j += 1
+      }
+      i += 1
+    }
+    nUnits = j
+    compact(c => clauses(c).length != clause.length || !java.util.Arrays.equals(clauses(c).sorted, sorted))
+  }
+
+  /** Removes all the clauses, the store must be at the root */
+  def clear(): Unit = {
+    nUnits = 0
+    unsatisfiable = false
+    compact(_ => false)
+  }
+
+  /** Removes the clauses that are satisfied, the store must be at the root */
+  def removeSatisfied(): Unit = compact(c => !isSatisfied(clauses(c)))
+
+  /** Reduces the store if it contains more than maxClauses clauses. Returns true if it was reduced. */
+  def reduceIfNeeded(): Boolean = {
+    if (nClauses <= _maxClauses) false
+    else {
+      reduce()
+      _maxClauses = math.max(_maxClauses + 1, (_maxClauses * _maxClausesGrowth).toInt)
+      true
+    }
+  }
+
+  /**
+   * Removes the satisfied clauses and the least active half of the clauses that are not glue
+   * clauses (LBD <= 2) nor binary clauses. The store must be at the root.
+   */
+  def reduce(): Unit = {
+    nReductions += 1
+    // Candidates, the least active first
+    var nCandidates = 0
+    val candidates = new Array[Int](nClauses)
+    var c = 0
+    while (c < nClauses) {
+      if (lbds(c) > 2 && clauses(c).length > 2) {
+        candidates(nCandidates) = c
+        nCandidates += 1
+      }
+      c += 1
+    }
+    val sorted = candidates.take(nCandidates).sortBy(activities(_))
+    val removed = new Array[Boolean](nClauses)
+    var i = 0
+    while (i < nCandidates / 2) {
+      removed(sorted(i)) = true
+      i += 1
+    }
+    compact(c => !removed(c) && !isSatisfied(clauses(c)))
+  }
+
+  // Keeps the clauses that satisfy the predicate, all of them are watched again at the next propagation
+  private def compact(keep: Int => Boolean): Unit = {
+    var j = 0
+    var c = 0
+    while (c < nClauses) {
+      if (keep(c)) {
+        clauses(j) = clauses(c)
+        activities(j) = activities(c)
+        lbds(j) = lbds(c)
+        j += 1
+      }
+      c += 1
+    }
+    java.util.Arrays.fill(clauses.asInstanceOf[Array[AnyRef]], j, nClauses, null)
+    nClauses = j
+    nInitialized = 0
+    java.util.Arrays.fill(nWatches, 0)
+  }
+
+  @inline private def isSatisfied(clause: Array[Long]): Boolean = {
+    var i = 0
+    while (i < clause.length && !engine.isTrue(clause(i))) i += 1
+    i < clause.length
+  }
+
+  // Number of distinct levels of the false literals, plus the number of literals that are
+  // not false yet (e.g. nogoods added at the root), which can still be assigned at any level
+  private def literalBlockDistance(clause: Array[Long]): Int = {
+    val levels = new Array[Int](clause.length)
+    var nLevels = 0
+    var n = 0
+    var i = 0
+    while (i < clause.length) {
+      if (!engine.isFalse(clause(i))) n += 1
+      else {
+        levels(nLevels) = engine.levelOf(negation(clause(i)))
+        nLevels += 1
+      }
+      i += 1
+    }
+    java.util.Arrays.sort(levels, 0, nLevels)
+    i = 0
+    while (i < nLevels) {
+      if (i == 0 || levels(i) != levels(i - 1)) n += 1
+      i += 1
+    }
+    n
+  }
+
+  @inline private def bump(c: Int): Unit = {
+    activities(c) += activityIncrement
+    if (activities(c) > 1e100) {
+      // Rescales the activities
+      var i = 0
+      while (i < nClauses) {
+        activities(i) *= 1e-100
+        i += 1
+      }
+      activityIncrement *= 1e-100
+    }
+  }
+
+  override def propagate(): Unit = {
+    if (unsatisfiable) throw Inconsistency
+
+    if (nAwakeRev.value < engine.nVariables) watchNewVariables()
+
+    // Unit clauses are always true
+    var i = 0
+    while (i < nUnits) {
+      engine.beginReason()
+      engine.enforce(units(i))
+      i += 1
+    }
+
+    // New clauses
+    while (nInitialized < nClauses) {
+      val clause = clauses(nInitialized)
+      nInitialized += 1
+      initialize(nInitialized - 1, clause)
+    }
+
+    // Clauses whose watched literals may have become false
+    while (nDirty > 0) {
+      nDirty -= 1
+      val variable = dirty(nDirty)
+      isDirty(variable) = false // the unit propagation may change it again
+      visit(variable)
+    }
+  }
+
+  // Chooses the watched literals of a new clause and propagates it
+  private def initialize(c: Int, clause: Array[Long]): Unit = {
+    // Literals that are not false first
+    var nNotFalse = 0
+    var i = 0
+    while (i < clause.length) {
+      if (!engine.isFalse(clause(i))) {
+        swap(clause, i, nNotFalse)
+        nNotFalse += 1
+      }
+      i += 1
+    }
+    // The other watches are the literals that became false last
+    if (nNotFalse == 0) latestFalse(clause, 0)
+    if (nNotFalse < 2) latestFalse(clause, 1)
+    watch(c, Literal.variable(clause(0)))
+    if (Literal.variable(clause(1)) != Literal.variable(clause(0))) watch(c, Literal.variable(clause(1)))
+    if (nNotFalse == 0) conflict(c, clause)
+    else if (nNotFalse == 1) unit(c, clause)
+  }
+
+  // Visits the clauses watched by the variable
+  private def visit(variable: Int): Unit = {
+    val list = watches(variable)
+    val n = nWatches(variable)
+    var i = 0 // read
+    var j = 0 // write
+    try {
+      while (i < n) {
+        val c = list(i)
+        i += 1
+        if (update(c, clauses(c), variable)) {
+          list(j) = c
+          j += 1
+        }
+      }
+    } finally {
+      // Keeps the clauses that were not visited
+      while (i < n) {
+        list(j) = list(i)
+        i += 1
+        j += 1
+      }
+      nWatches(variable) = j
+    }
+  }
+
+  // Updates the watched literals of the clause after a change of the variable.
+  // Returns true if the clause is still watched by the variable.
+  private def update(c: Int, clause: Array[Long], variable: Int): Boolean = {
+    var stillWatched = true
+    var again = true
+    while (again) {
+      again = false
+      if (Literal.variable(clause(0)) == variable && engine.isFalse(clause(0))) swap(clause, 0, 1)
+      val watched = clause(1)
+      if (Literal.variable(watched) == variable && engine.isFalse(watched) && !engine.isTrue(clause(0))) {
+        // Looks for a new literal to watch
+        var k = 2
+        while (k < clause.length && engine.isFalse(clause(k))) k += 1
+        if (k < clause.length) {
+          swap(clause, 1, k)
+          val newVariable = Literal.variable(clause(1))
+          val otherVariable = Literal.variable(clause(0))
+          if (newVariable != variable) {
+            if (newVariable != otherVariable) watch(c, newVariable)
+            if (otherVariable != variable) stillWatched = false
+            else again = true // the other watch is on the same variable
+          }
+          else again = true
+        }
+        else if (engine.isFalse(clause(0))) conflict(c, clause)
+        else unit(c, clause)
+      }
+    }
+    stillWatched
+  }
+
+  // Enforces the first literal, all the other ones are false
+  @inline private def unit(c: Int, clause: Array[Long]): Unit = {
+    bump(c)
+    engine.beginReason()
+    var i = 1
+    while (i < clause.length) {
+      engine.because(negation(clause(i)))
+      i += 1
+    }
+    engine.enforce(clause(0))
+  }
+
+  // All the literals are false
+  @inline private def conflict(c: Int, clause: Array[Long]): Unit = {
+    bump(c)
+    engine.beginReason()
+    var i = 0
+    while (i < clause.length) {
+      engine.because(negation(clause(i)))
+      i += 1
+    }
+    engine.fail()
+  }
+
+  // Moves the literal that became false last, among the positions from i, to position i
+  private def latestFalse(clause: Array[Long], i: Int): Unit = {
+    var best = i
+    var bestLevel = -1
+    var k = i
+    while (k < clause.length) {
+      val level = engine.levelOf(negation(clause(k)))
+      if (level > bestLevel) {
+        best = k
+        bestLevel = level
+      }
+      k += 1
+    }
+    swap(clause, best, i)
+  }
+
+  @inline private def watch(c: Int, variable: Int): Unit = {
+    val n = nWatches(variable)
+    if (n == watches(variable).length) watches(variable) = java.util.Arrays.copyOf(watches(variable), n * 2)
+    watches(variable)(n) = c
+    nWatches(variable) = n + 1
+  }
+
+  @inline private def swap(clause: Array[Long], i: Int, j: Int): Unit = {
+    val tmp = clause(i)
+    clause(i) = clause(j)
+    clause(j) = tmp
+  }
+}
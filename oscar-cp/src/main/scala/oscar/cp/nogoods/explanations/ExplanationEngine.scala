@@ -0,0 +1,395 @@
+package oscar.cp.nogoods.explanations
+
+import java.util.IdentityHashMap
+
+import oscar.algo.Inconsistency
+import oscar.algo.reversible.ReversibleInt
+import oscar.cp.core.CPStore
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.nogoods.core.Nogood
+import oscar.cp.nogoods.decisions.Decision
+
+/**
+ * Records why the domains of the variables changed, in the style of lazy clause generation.
+ *
+ * The propagators in explanation mode build the reason of each domain change (a set of
+ * literals that are true and imply the change) and apply the change through the engine,
+ * which records the implied literal on a reversible trail together with its reason and
+ * its decision level. The search records its decisions as literals without reason.
+ * When a propagator fails, it records the literals that are in conflict.
+ *
+ * On failure, `analyze` computes a first unique implication point (1-UIP) clause by
+ * resolving the conflict with the reasons of the literals of the current level.
+ * Domain changes made by the propagators that do not explain themselves are not on the
+ * trail: the literals they imply are kept as they are in the learned clause, which
+ * remains valid but is more specific. If the failure is not explained at all, the
+ * learned clause is the negation of the decisions of the branch.
+ *
+ * The engine of a store is created by `CPStore.enableExplanations`, before posting the
+ * propagators, which look it up with `CPStore.explanationEngine` to switch to the
+ * explanation mode. An engine created directly on a store that is not in explanation mode
+ * (e.g. by a `WatchedNogoodDB`) only indexes the literals and applies the domain changes,
+ * without recording them.
+ */
+final class ExplanationEngine(val store: CPStore) {
+
+  import Literal._
+
+  // Variables
+  private[this] val indices = new IdentityHashMap[CPIntVar, Integer]()
+  private[this] var variables = new Array[CPIntVar](16)
+  private[this] var lastEntries = new Array[ReversibleInt](16) // last entry of each variable
+  private[this] var rootMins = new Array[Int](16) // bounds at the root level
+  private[this] var rootMaxs = new Array[Int](16)
+  private[this] var _nVariables = 0
+
+  // Trail of the literals
+  private[this] var entryLiterals = new Array[Long](256)
+  private[this] var entryLevels = new Array[Int](256)
+  private[this] var entryReasonStarts = new Array[Int](256) // -1 for decisions
+  private[this] var entryReasonEnds = new Array[Int](256)
+  private[this] var entryPrevious = new Array[Int](256) // previous entry of the same variable
+  private[this] val nEntriesRev = new ReversibleInt(store, 0)
+
+  // Reasons of the entries
+  private[this] var reasons = new Array[Long](1024)
+  private[this] val nReasonsRev = new ReversibleInt(store, 0)
+
+  // Reason under construction
+  private[this] var reason = new Array[Long](16)
+  private[this] var reasonSize = 0
+
+  // Last conflict
+  private[this] var conflict = new Array[Long](16)
+  private[this] var conflictSize = -1 // -1 if the last failure is not explained
+
+  // Entries up to this level are always true (e.g. the root of the search)
+  private[this] var _rootLevel = 0
+
+  // Analysis
+  private[this] var seen = new Array[Int](256)
+  private[this] var seenMagic = 0
+  private[this] var learned = new Array[Long](16)
+  private[this] var learnedSize = 0
+
+  /** Returns true if the engine records the domain changes, i.e. if it is the explanation engine of its store */
+  @inline final def isRecording: Boolean = store.explanationEngine eq this
+
+  /** Level of the current node */
+  @inline final def level: Int = store.nLevel
+
+  final def rootLevel: Int = _rootLevel
+
+  /**
+   * The literals implied at a level lower or equal to the root level are considered as always true.
+   * The bounds of the variables are recorded as the root bounds.
+   */
+  final def rootLevel_=(level: Int): Unit = {
+    _rootLevel = level
+    var i = 0
+    while (i < _nVariables) {
+      rootMins(i) = variables(i).min
+      rootMaxs(i) = variables(i).max
+      i += 1
+    }
+  }
+
+  /** Number of literals on the trail */
+  final def trailSize: Int = nEntriesRev.value
+
+  /** Returns the index of the variable in the engine */
+  final def index(x: CPIntVar): Int = {
+    val i = indices.get(x)
+    if (i != null) i.intValue
+    else {
+      if (_nVariables == variables.length) {
+        variables = java.util.Arrays.copyOf(variables, _nVariables * 2)
+        lastEntries = java.util.Arrays.copyOf(lastEntries, _nVariables * 2)
+        rootMins = java.util.Arrays.copyOf(rootMins, _nVariables * 2)
+        rootMaxs = java.util.Arrays.copyOf(rootMaxs, _nVariables * 2)
+      }
+      variables(_nVariables) = x
+      rootMins(_nVariables) = Int.MinValue // unknown until the root level is set
+      rootMaxs(_nVariables) = Int.MaxValue
+      lastEntries(_nVariables) = new ReversibleInt(store, -1)
+      indices.put(x, _nVariables)
+      _nVariables += 1
+      _nVariables - 1
+    }
+  }
+
+  /** Number of variables registered in the engine */
+  final def nVariables: Int = _nVariables
+
+  final def variable(index: Int): CPIntVar = variables(index)
+
+  /** Returns the variable of the literal */
+  @inline final def variableOf(literal: Long): CPIntVar = variables(Literal.variable(literal))
+
+  final def isTrue(literal: Long): Boolean = Literal.isTrue(variableOf(literal), literal)
+
+  final def isFalse(literal: Long): Boolean = Literal.isFalse(variableOf(literal), literal)
+
+  /** Starts a new reason */
+  @inline final def beginReason(): Unit = reasonSize = 0
+
+  /** Adds the literal to the reason under construction, it must be true */
+  final def because(literal: Long): Unit = {
+    if (reasonSize == reason.length) reason = java.util.Arrays.copyOf(reason, reasonSize * 2)
+    reason(reasonSize) = literal
+    reasonSize += 1
+  }
+
+  final def becauseGeq(x: CPIntVar, value: Int): Unit = because(Literal(index(x), Geq, value))
+
+  final def becauseLeq(x: CPIntVar, value: Int): Unit = because(Literal(index(x), Leq, value))
+
+  final def becauseNeq(x: CPIntVar, value: Int): Unit = because(Literal(index(x), Neq, value))
+
+  /** Adds the current bounds of x to the reason */
+  final def becauseBounds(x: CPIntVar): Unit = {
+    becauseGeq(x, x.min)
+    becauseLeq(x, x.max)
+  }
+
+  /** Adds the literal that excludes the value from the domain of x to the reason */
+  final def becauseAbsent(x: CPIntVar, value: Int): Unit = {
+    if (value < x.min) becauseGeq(x, x.min)
+    else if (value > x.max) becauseLeq(x, x.max)
+    else becauseNeq(x, value)
+  }
+
+  /** Enforces x >= value because of the reason under construction */
+  final def updateMin(x: CPIntVar, value: Int): Unit = {
+    if (value > x.min) {
+      if (value > x.max) {
+        becauseLeq(x, x.max)
+        fail()
+      }
+      record(Literal(index(x), Geq, value))
+      x.updateMin(value)
+    }
+  }
+
+  /** Enforces x <= value because of the reason under construction */
+  final def updateMax(x: CPIntVar, value: Int): Unit = {
+    if (value < x.max) {
+      if (value < x.min) {
+        becauseGeq(x, x.min)
+        fail()
+      }
+      record(Literal(index(x), Leq, value))
+      x.updateMax(value)
+    }
+  }
+
+  /** Enforces x != value because of the reason under construction */
+  final def removeValue(x: CPIntVar, value: Int): Unit = {
+    if (x.hasValue(value)) {
+      if (x.isBound) {
+        becauseBounds(x)
+        fail()
+      }
+      record(Literal(index(x), Neq, value))
+      x.removeValue(value)
+    }
+  }
+
+  /** Enforces x == value because of the reason under construction */
+  final def assign(x: CPIntVar, value: Int): Unit = {
+    if (!x.isBoundTo(value)) {
+      if (!x.hasValue(value)) {
+        becauseAbsent(x, value)
+        fail()
+      }
+      record(Literal(index(x), Eq, value))
+      x.assign(value)
+    }
+  }
+
+  /** Enforces the literal because of the reason under construction */
+  final def enforce(literal: Long): Unit = {
+    val x = variableOf(literal)
+    val v = Literal.value(literal)
+    kind(literal) match {
+      case Geq => updateMin(x, v)
+      case Leq => updateMax(x, v)
+      case Neq => removeValue(x, v)
+      case _ => assign(x, v)
+    }
+  }
+
+  /** Records the reason under construction as the conflict and fails */
+  final def fail(): Nothing = {
+    if (conflict.length < reasonSize) conflict = new Array[Long](reasonSize)
+    System.arraycopy(reason, 0, conflict, 0, reasonSize)
+    conflictSize = reasonSize
+    throw Inconsistency
+  }
+
+  /** Forgets the last conflict, to be called before each decision */
+  final def clearConflict(): Unit = conflictSize = -1
+
+  /** Records the decision, to be called in the node of the decision before applying it */
+  final def decide(decision: Decision): Unit = {
+    reasonSize = 0
+    val literal = ofDecision(index(decision.variable), decision)
+    push(literal, -1, -1)
+  }
+
+  /** Records the literal implied by the reason under construction */
+  @inline private def record(literal: Long): Unit = if (isRecording) {
+    val start = nReasonsRev.value
+    val end = start + reasonSize
+    if (end > reasons.length) reasons = java.util.Arrays.copyOf(reasons, math.max(end, reasons.length * 2))
+    System.arraycopy(reason, 0, reasons, start, reasonSize)
+    nReasonsRev.value = end
+    push(literal, start, end)
+  }
+
+  @inline private def push(literal: Long, reasonStart: Int, reasonEnd: Int): Unit = {
+    val entry = nEntriesRev.value
+    if (entry == entryLiterals.length) growEntries()
+    val lastEntry = lastEntries(Literal.variable(literal))
+    entryLiterals(entry) = literal
+    entryLevels(entry) = level
+    entryReasonStarts(entry) = reasonStart
+    entryReasonEnds(entry) = reasonEnd
+    entryPrevious(entry) = lastEntry.value
+    lastEntry.value = entry
+    nEntriesRev.value = entry + 1
+  }
+
+  /** Returns the first entry of the trail that implies the literal, -1 if there is none */
+  final def entryOf(literal: Long): Int = {
+    var best = -1
+    var entry = lastEntries(Literal.variable(literal)).value
+    while (entry >= 0) {
+      if (implies(entryLiterals(entry), literal)) best = entry
+      entry = entryPrevious(entry)
+    }
+    best
+  }
+
+  /** Returns the level at which the literal became true, the current level if it is unknown */
+  final def levelOf(literal: Long): Int = {
+    val entry = entryOf(literal)
+    if (entry >= 0) entryLevels(entry) else level
+  }
+
+  /**
+   * Computes the 1-UIP clause of the last failure, i.e. a disjunction of literals that
+   * is implied by the constraints and that would have prevented the failure.
+   * Returns an empty array if the failure does not depend on the decisions.
+   */
+  final def analyze(): Array[Long] = {
+    val nEntries = nEntriesRev.value
+    if (seen.length < nEntries) seen = new Array[Int](math.max(nEntries, seen.length * 2))
+    seenMagic += 1
+    learnedSize = 0
+    val currentLevel = level
+
+    // Literals of the current level that remain to resolve
+    var pending = 0
+
+    def addLiteral(literal: Long): Unit = {
+      if (kind(literal) == Eq) {
+        // x == v is x >= v and x <= v
+        val x = Literal.variable(literal)
+        val v = Literal.value(literal)
+        addLiteral(Literal(x, Geq, v))
+        addLiteral(Literal(x, Leq, v))
+      } else {
+        val entry = entryOf(literal)
+        if (entry < 0) {
+          if (!isRootTrue(literal)) addLearned(literal) // not explained
+        }
+        else if (entryLevels(entry) > _rootLevel && seen(entry) != seenMagic) {
+          seen(entry) = seenMagic
+          if (entryLevels(entry) >= currentLevel) pending += 1
+          else addLearned(entryLiterals(entry))
+        }
+      }
+    }
+
+    if (conflictSize >= 0) {
+      var i = 0
+      while (i < conflictSize) {
+        addLiteral(conflict(i))
+        i += 1
+      }
+    } else {
+      // The failure is not explained: the decisions of the branch are in conflict
+      var entry = 0
+      while (entry < nEntries) {
+        if (entryReasonStarts(entry) < 0) addLiteral(entryLiterals(entry))
+        entry += 1
+      }
+    }
+
+    // Resolves the literals of the current level, from the most recent one
+    var entry = nEntries - 1
+    while (pending > 0) {
+      while (seen(entry) != seenMagic || entryLevels(entry) < currentLevel) entry -= 1
+      pending -= 1
+      val start = entryReasonStarts(entry)
+      if (pending == 0 || start < 0) addLearned(entryLiterals(entry)) // UIP or decision
+      else {
+        var i = start
+        val end = entryReasonEnds(entry)
+        while (i < end) {
+          addLiteral(reasons(i))
+          i += 1
+        }
+      }
+      entry -= 1
+    }
+
+    // The clause is the negation of the conjunction of the literals
+    val clause = new Array[Long](learnedSize)
+    var i = 0
+    while (i < learnedSize) {
+      clause(i) = negation(learned(i))
+      i += 1
+    }
+    clause
+  }
+
+  // Returns true if the literal is entailed by the root bounds of its variable
+  @inline private def isRootTrue(literal: Long): Boolean = {
+    val x = Literal.variable(literal)
+    val v = Literal.value(literal)
+    kind(literal) match {
+      case Geq => rootMins(x) >= v
+      case Leq => rootMaxs(x) <= v
+      case _ => v < rootMins(x) || v > rootMaxs(x) // Neq
+    }
+  }
+
+  @inline private def addLearned(literal: Long): Unit = {
+    var i = learnedSize
+    while (i > 0) { // clauses are short
+      i -= 1
+      if (learned(i) == literal) return
+    }
+    if (learnedSize == learned.length) learned = java.util.Arrays.copyOf(learned, learnedSize * 2)
+    learned(learnedSize) = literal
+    learnedSize += 1
+  }
+
+  /** Returns the clause as a nogood of the decisions package (a disjunction of decisions) */
+  final def toNogood(clause: Array[Long]): Nogood = {
+    new Nogood(clause.map(literal => Literal.toDecision(variableOf(literal), literal)))
+  }
+
+  final def toString(literal: Long): String = Literal.toString(variableOf(literal), literal)
+
+  private def growEntries(): Unit = {
+    val n = entryLiterals.length * 2
+    entryLiterals = java.util.Arrays.copyOf(entryLiterals, n)
+    entryLevels = java.util.Arrays.copyOf(entryLevels, n)
+    entryReasonStarts = java.util.Arrays.copyOf(entryReasonStarts, n)
+    entryReasonEnds = java.util.Arrays.copyOf(entryReasonEnds, n)
+    entryPrevious = java.util.Arrays.copyOf(entryPrevious, n)
+  }
+}
@@ -0,0 +1,113 @@
+package oscar.cp.nogoods.explanations
+
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.nogoods.decisions.{Assign, Decision, Greater, LowerEq, Remove}
+
+/**
+ * Literals on the domain of the integer variables, encoded in a long:
+ * the index of the variable in the explanation engine, the kind of the
+ * literal and its value.
+ */
+object Literal {
+
+  final val Geq = 0 // x >= v
+  final val Leq = 1 // x <= v
+  final val Neq = 2 // x != v
+  final val Eq = 3 // x == v
+
+  @inline final def apply(variable: Int, kind: Int, value: Int): Long = {
+    (variable.toLong << 34) | (kind.toLong << 32) | (value & 0xFFFFFFFFL)
+  }
+
+  @inline final def variable(literal: Long): Int = (literal >>> 34).toInt
+
+  @inline final def kind(literal: Long): Int = ((literal >>> 32) & 3).toInt
+
+  @inline final def value(literal: Long): Int = literal.toInt
+
+  /** Returns the literal that is true iff the literal is false */
+  final def negation(literal: Long): Long = {
+    val x = variable(literal)
+    val v = value(literal)
+    kind(literal) match {
+      case Geq => Literal(x, Leq, v - 1)
+      case Leq => Literal(x, Geq, v + 1)
+      case Neq => Literal(x, Eq, v)
+      case _ => Literal(x, Neq, v)
+    }
+  }
+
+  /** Returns true if l1 implies l2, both literals being on the same variable */
+  final def implies(l1: Long, l2: Long): Boolean = {
+    val v1 = value(l1)
+    val v2 = value(l2)
+    kind(l2) match {
+      case Geq => kind(l1) match {
+        case Geq | Eq => v1 >= v2
+        case _ => false
+      }
+      case Leq => kind(l1) match {
+        case Leq | Eq => v1 <= v2
+        case _ => false
+      }
+      case Neq => kind(l1) match {
+        case Geq => v1 > v2
+        case Leq => v1 < v2
+        case Neq => v1 == v2
+        case _ => v1 != v2
+      }
+      case _ => kind(l1) == Eq && v1 == v2
+    }
+  }
+
+  /** Returns true if the literal is entailed by the domain of x */
+  final def isTrue(x: CPIntVar, literal: Long): Boolean = {
+    val v = value(literal)
+    kind(literal) match {
+      case Geq => x.min >= v
+      case Leq => x.max <= v
+      case Neq => !x.hasValue(v)
+      case _ => x.isBoundTo(v)
+    }
+  }
+
+  /** Returns true if the literal is disentailed by the domain of x */
+  final def isFalse(x: CPIntVar, literal: Long): Boolean = {
+    val v = value(literal)
+    kind(literal) match {
+      case Geq => x.max < v
+      case Leq => x.min > v
+      case Neq => x.isBoundTo(v)
+      case _ => !x.hasValue(v)
+    }
+  }
+
+  /** Returns the decision that enforces the literal on x */
+  final def toDecision(x: CPIntVar, literal: Long): Decision = {
+    val v = value(literal)
+    kind(literal) match {
+      case Geq => new Greater(x, v - 1)
+      case Leq => new LowerEq(x, v)
+      case Neq => new Remove(x, v)
+      case _ => new Assign(x, v)
+    }
+  }
+
+  /** Returns the kind and the value of the literal enforced by the decision */
+  final def ofDecision(variable: Int, decision: Decision): Long = decision match {
+    case d: Greater => Literal(variable, Geq, d.value + 1)
+    case d: LowerEq => Literal(variable, Leq, d.value)
+    case d: Remove => Literal(variable, Neq, d.value)
+    case d => Literal(variable, Eq, d.value)
+  }
+
+  final def toString(x: CPIntVar, literal: Long): String = {
+    val op = kind(literal) match {
+      case Geq => ">="
+      case Leq => "<="
+      case Neq => "!="
+      case _ => "=="
+    }
+    s"[${x.name} $op ${value(literal)}]"
+  }
+}
@@ -0,0 +1,115 @@
+package oscar.cp.nogoods.searches
+
+import oscar.algo.search.{Alternative, Branching, DFSearch}
+import oscar.cp.core.CPStore
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.isInconsistent
+import oscar.cp.nogoods.decisions.Decision
+import oscar.cp.nogoods.explanations.{ClauseStore, ExplanationEngine}
+
+/**
+ * Binary depth first search that learns a clause from each failure.
+ *
+ * The tree is explored by a `DFSearch`: each decision is recorded in the explanation
+ * engine of the store before being applied and the 1-UIP clause of each failed node is
+ * added, by a failure action, to a clause store posted as a cut at the root of the search.
+ * The search backtracks chronologically: the learned clauses prune the rest of the search
+ * tree but the search does not backjump, such that it explores the same tree as
+ * NogoodSearch, minus the nodes that the clauses remove.
+ *
+ * The store must be in explanation mode (see `CPStore.enableExplanations`) before posting
+ * the constraints, to enable their explanation mode.
+ */
+class ExplanationSearch(store: CPStore, engine: ExplanationEngine, variables: Array[CPIntVar]) {
+
+  def this(store: CPStore, variables: Array[CPIntVar]) = this(store, store.enableExplanations(), variables)
+
+  // The decision variables must be registered before posting the clause store to be watched
+  variables.foreach(engine.index)
+
+  private[this] var clauseStore: ClauseStore = null
+  private[this] var posted = false
+
+  private[this] val search = new DFSearch(store)
+  search.onFailure(learn())
+
+  // Number of clauses learned in the previous search
+  private[this] var nbLearned: Int = 0
+
+  /** Returns the number of backtracks in the previous search */
+  final def nBacktracks: Int = search.nBacktracks
+
+  /** Returns the number of solutions found in the previous search */
+  final def nSolutions: Int = search.nSolutions
+
+  /** Returns the number nodes explored in the previous search */
+  final def nNodes: Int = search.nNodes
+
+  /** Returns the number of clauses learned in the previous search */
+  final def nLearned: Int = nbLearned
+
+  /** Returns true if the previous search was exhaustive */
+  final def isCompleted: Boolean = search.isCompleted
+
+  /** Returns the store of the learned clauses, null before the first search */
+  final def clauses: ClauseStore = clauseStore
+
+  /** Adds an action to execute when a failed node is found, before the clause is learned */
+  final def onFailure(action: => Unit): Unit = search.onFailure(action)
+
+  /** Adds an action to execute when a solution node is found */
+  final def onSolution(action: => Unit): Unit = search.onSolution(action)
+
+  /** Clear all actions executed when a solution node is found */
+  final def clearOnSolution(): Unit = search.clearOnSolution()
+
+  /** Clear all actions executed when a failed node is found */
+  final def clearOnFailure(): Unit = {
+    search.clearOnFailure()
+    search.onFailure(learn())
+  }
+
+  // Learns the clause of the failed node, before backtracking
+  @inline private def learn(): Unit = {
+    val clause = engine.analyze()
+    clauseStore.addClause(clause)
+    nbLearned += 1
+  }
+
+  // Records the decision in the engine, in the node of the decision, before applying it
+  @inline private def explained(decision: Decision): Alternative = () => {
+    engine.clearConflict()
+    engine.decide(decision)
+    decision()
+  }
+
+  // Branches on the decision and on its opposite
+  private class ExplainedBranching(branching: NogoodBranching) extends Branching {
+    override def reset(): Unit = branching.reset()
+    override def alternatives(): Seq[Alternative] = {
+      val decision = branching.nextDecision
+      if (decision == null) Seq()
+      else Seq(explained(decision), explained(!decision))
+    }
+  }
+
+  final def start(branching: NogoodBranching, stopCondition: ExplanationSearch => Boolean): Unit = {
+    nbLearned = 0
+
+    // The clause store is created at the first search, such that the clauses can always be
+    // learned, and posted once, at the root, to keep its watchers
+    if (clauseStore == null) clauseStore = new ClauseStore(engine)
+    if (!posted) {
+      if (!store.isFailed) {
+        posted = true
+        isInconsistent(store.postCut(clauseStore))
+      }
+    } else if (clauseStore.reduceIfNeeded() && !store.isFailed) {
+      isInconsistent(store.propagate(clauseStore)) // watches the remaining clauses at the root
+    }
+
+    // The decisions are above the root state pushed by the search
+    engine.rootLevel = store.nLevel + 1
+    search.start(new ExplainedBranching(branching), _ => stopCondition(this))
+  }
+}
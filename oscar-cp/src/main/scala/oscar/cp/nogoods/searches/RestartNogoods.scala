@@ -0,0 +1,55 @@
+package oscar.cp.nogoods.searches
+
+import oscar.algo.search.{BinaryDecisionAlternative, RestartSearch}
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.nogoods.core.Nogood
+import oscar.cp.nogoods.database.WatchedNogoodDB
+import oscar.cp.nogoods.decisions.{Decision, Greater, Remove}
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Reduced nld-nogoods of the branches abandoned by a restarted search, as described in
+ *
+ * ''Recording and Minimizing Nogoods from Restarts
+ * Christophe Lecoutre, Lakhdar Sais, Sebastien Tabary, Vincent Vidal, 2007''
+ *
+ * Each right branch of an abandoned branch has been taken because the left branch, under
+ * the left branches above it, was fully explored. The negations of these left branches
+ * and the right branch thus form a nogood.
+ *
+ * The nogoods are relative to the constraints posted when the branch was explored: with
+ * an objective, they only remain valid as long as the bound of the objective is not relaxed.
+ */
+object RestartNogoods {
+
+  /** Returns the reduced nld-nogoods of the branch, the decisions being on `CPIntVar` */
+  def apply(branch: Array[BinaryDecisionAlternative]): Array[Nogood] = {
+    val nogoods = ArrayBuffer[Nogood]()
+    val negatedLefts = ArrayBuffer[Decision]()
+    var i = 0
+    while (i < branch.length) {
+      val decision = branch(i)
+      val variable = decision.variable.asInstanceOf[CPIntVar]
+      // The right branch is the negation of the left branch
+      val right =
+        if (decision.branching.splitsDomain) new Greater(variable, decision.value)
+        else new Remove(variable, decision.value)
+      if (decision.left) negatedLefts += right
+      else nogoods += new Nogood((negatedLefts :+ right).toArray)
+      i += 1
+    }
+    nogoods.toArray
+  }
+
+  /**
+   * Adds the nogoods of each branch abandoned by the search to the data base, which
+   * propagates them from the root of the next run.
+   */
+  def record(search: RestartSearch, nogoods: WatchedNogoodDB): Unit = {
+    search.onAbandonedBranch(branch => {
+      nogoods.add(apply(branch))
+      nogoods.reduceIfNeeded()
+    })
+  }
+}
@@ -190,7 +190,7 @@ extends Constraint(capacity.store, name) {
         eMax(taskId) = eMaxTask     
         sMax(taskId) = startVar.max 
         eMin(taskId) = endVar.min       
-        if (sMinTask + dMinTask == eMaxTask) tToUpdate.exclude(taskId)
+        if (startVar.isBound && endVar.isBound) tToUpdate.exclude(taskId)  // sMax and eMin are final only once s and e are bound
       }
     }
   }
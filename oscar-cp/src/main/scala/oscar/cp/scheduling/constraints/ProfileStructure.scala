@@ -9,7 +9,7 @@ import oscar.cp.core.CPStore
 import oscar.algo.array.ArrayStack
 
 // Expected usage: update smin/smax...
-// Then rebuild profile
+// Then rebuild profile, or load the shared profile of the resource
 // Finally sweep all relevant activities
 
 final class ProfileStructure(
@@ -24,13 +24,16 @@ final class ProfileStructure(
 
   private[this] val nTasks = smax.length
 
-  private[this] val pointTimes = Array.ofDim[Int](nTasks * 2 + 2)  // one point for origin of times, one for ending
-  private[this] val pointHeights = Array.ofDim[Int](nTasks * 2 + 2)
+  // own points, the points of a shared profile are used instead after load
+  private[this] val ownPointTimes = Array.ofDim[Int](nTasks * 2 + 2)  // one point for origin of times, one for ending
+  private[this] val ownPointHeights = Array.ofDim[Int](nTasks * 2 + 2)
+  private[this] var pointTimes = ownPointTimes
+  private[this] var pointHeights = ownPointHeights
   private[this] var nPoints = 1
 
   // Initial point
-  pointTimes(0) = Int.MinValue
-  pointHeights(0) = 0
+  ownPointTimes(0) = Int.MinValue
+  ownPointHeights(0) = 0
 
   // for mergeSort
   private[this] val temp1 = Array.ofDim[Int](nTasks + 1)
@@ -56,12 +59,26 @@ final class ProfileStructure(
   private[this] val eminMaxToConsider = new ReversibleInt(store, nTasks)
   
   
+  /*
+   * Uses the compulsory profile of the resource, shared with the other propagators of the resource.
+   * It contains the compulsory parts of all the tasks of the resource, not only of the tasks to consider,
+   * which is still a valid profile for the sweeps. The profile is only recomputed if it changed.
+   */
+  def load(resourceProfile: ResourceProfile): Unit = {
+    resourceProfile.update()
+    pointTimes = resourceProfile.pointTimes
+    pointHeights = resourceProfile.pointHeights
+    nPoints = resourceProfile.size
+  }
+  
   def rebuild(toConsider: OpenSparseSet): Unit = {
     /*
      *  Filter tasks by toConsider + has mandatory part, sort, then generate events
      */
     
     // Reset
+    pointTimes = ownPointTimes
+    pointHeights = ownPointHeights
     nPoints = 1
     nSorted = 0
     
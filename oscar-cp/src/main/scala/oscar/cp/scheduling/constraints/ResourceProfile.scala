@@ -0,0 +1,203 @@
+package oscar.cp.scheduling.constraints
+
+import java.lang.ref.WeakReference
+
+import oscar.cp.core.CPStore
+import oscar.cp.core.variables.CPIntVar
+import oscar.cp.scheduling.util.OpenSparseSet
+
+/*
+ * Compulsory profile of a resource, shared by all the time-table propagators of this resource.
+ *
+ * The compulsory part of every task is read directly from the variables, and the profile is
+ * recomputed only when the compulsory part of some task changed since the last update.
+ * The event orders are kept from one update to the next, such that they can be sorted
+ * by insertion in almost linear time.
+ * Tasks whose compulsory part can not change anymore (fixed, or not on the resource)
+ * are removed from the reversible set of tasks to update, so the profile is restored
+ * on backtrack by updating again the tasks that are back in that set.
+ *
+ * The compulsory part of a task is computed as in CumulativeTemplate, such that the
+ * propagators can sweep their tasks against the profile with their own caches.
+ */
+
+final class ResourceProfile(starts: Array[CPIntVar], durations: Array[CPIntVar], ends: Array[CPIntVar], heights: Array[CPIntVar], resources: Array[CPIntVar], id: Int)(implicit store: CPStore) {
+
+  private[this] val nTasks = starts.length
+
+  // compulsory part [partStart ; partEnd) of every task at the last update, height 0 if none
+  private[this] val partStart = Array.fill(nTasks)(Int.MaxValue)
+  private[this] val partEnd = Array.fill(nTasks)(Int.MaxValue)
+  private[this] val partHeight = new Array[Int](nTasks)
+  private[this] var nParts = 0
+
+  // tasks whose compulsory part may still change
+  private[this] val toUpdate = new OpenSparseSet(nTasks)
+  private[this] val toUpdateByStatus = toUpdate.sortedByStatus
+
+  // events, tasks without compulsory part are last
+  private[this] val sortedByStart = Array.tabulate(nTasks)(i => i)
+  private[this] val sortedByEnd = Array.tabulate(nTasks)(i => i)
+
+  // one point for origin of times, one for ending
+  private[this] val times = new Array[Int](nTasks * 2 + 2)
+  private[this] val heightsAt = new Array[Int](nTasks * 2 + 2)
+  private[this] var nPoints = 2
+
+  times(0) = Int.MinValue
+  times(1) = Int.MaxValue
+
+  private[this] var nRebuilds = 0L
+
+  /** Times of the points of the profile, the profile has height pointHeights(i) on [pointTimes(i) ; pointTimes(i + 1)) */
+  def pointTimes: Array[Int] = times
+
+  def pointHeights: Array[Int] = heightsAt
+
+  def size: Int = nPoints
+
+  /** Number of times the profile was recomputed */
+  def rebuilds: Long = nRebuilds
+
+  private def matches(otherDurations: Array[CPIntVar], otherEnds: Array[CPIntVar], otherHeights: Array[CPIntVar], otherResources: Array[CPIntVar], otherId: Int): Boolean = {
+    (durations eq otherDurations) && (ends eq otherEnds) && (heights eq otherHeights) && (resources eq otherResources) && id == otherId
+  }
+
+  /**
+   * Updates the compulsory parts of the tasks, then the profile if some part changed.
+   * Returns true if the profile was recomputed.
+   */
+  def update(): Boolean = {
+    var changed = false
+    var p = toUpdate.limit.value
+    while (p > 0) {
+      p -= 1
+      val a = toUpdateByStatus(p)
+      val resource = resources(a)
+      var s = Int.MaxValue
+      var e = Int.MaxValue
+      var h = 0
+
+      if (resource.hasValue(id)) {
+        val dMin = durations(a).min
+        val sMax = if (dMin == durations(a).max) ends(a).max - dMin else starts(a).max
+        val eMin = if (dMin == durations(a).max) starts(a).min + dMin else ends(a).min
+        val hMin = heights(a).min
+        if (resource.isBound && sMax < eMin && hMin > 0) {
+          s = sMax
+          e = eMin
+          h = hMin
+        }
+        if (resource.isBound && heights(a).isBound && durations(a).isBound && starts(a).isBound && ends(a).isBound) toUpdate.exclude(a)
+      }
+      else toUpdate.exclude(a)
+
+      if (s != partStart(a) || e != partEnd(a) || h != partHeight(a)) {
+        if (partHeight(a) == 0) nParts += 1
+        if (h == 0) nParts -= 1
+        partStart(a) = s
+        partEnd(a) = e
+        partHeight(a) = h
+        changed = true
+      }
+    }
+
+    if (changed) rebuild()
+    changed
+  }
+
+  private def rebuild(): Unit = {
+    nRebuilds += 1
+    insertionSort(sortedByStart, partStart)
+    insertionSort(sortedByEnd, partEnd)
+
+    nPoints = 1
+    var s = 0 // next start
+    var e = 0 // next end
+    var h = 0 // height
+
+    // tasks without compulsory part have their events at Int.MaxValue, they are never swept
+    while (e < nTasks && partEnd(sortedByEnd(e)) < Int.MaxValue) {
+      val prevH = h
+
+      // find next event
+      var t = partEnd(sortedByEnd(e))
+      if (s < nParts && partStart(sortedByStart(s)) < t) t = partStart(sortedByStart(s))
+
+      // add all tasks at their start
+      while (s < nParts && partStart(sortedByStart(s)) == t) {
+        h += partHeight(sortedByStart(s))
+        s += 1
+      }
+
+      // remove all tasks at their end
+      while (e < nTasks && partEnd(sortedByEnd(e)) == t) {
+        h -= partHeight(sortedByEnd(e))
+        e += 1
+      }
+
+      // if the profile has changed, register new profile point
+      if (h != prevH) {
+        times(nPoints) = t
+        heightsAt(nPoints) = h
+        nPoints += 1
+      }
+    }
+
+    // parts ending at Int.MaxValue
+    while (s < nParts) {
+      val t = partStart(sortedByStart(s))
+      val prevH = h
+      while (s < nParts && partStart(sortedByStart(s)) == t) {
+        h += partHeight(sortedByStart(s))
+        s += 1
+      }
+      if (h != prevH) {
+        times(nPoints) = t
+        heightsAt(nPoints) = h
+        nPoints += 1
+      }
+    }
+
+    // add end of time
+    times(nPoints) = Int.MaxValue
+    heightsAt(nPoints) = 0
+    nPoints += 1
+  }
+
+  // the orders are almost sorted from one update to the next
+  @inline private def insertionSort(sorted: Array[Int], keys: Array[Int]): Unit = {
+    var i = 1
+    while (i < nTasks) {
+      val task = sorted(i)
+      val key = keys(task)
+      var j = i - 1
+      while (j >= 0 && keys(sorted(j)) > key) {
+        sorted(j + 1) = sorted(j)
+        j -= 1
+      }
+      sorted(j + 1) = task
+      i += 1
+    }
+  }
+}
+
+object ResourceProfile {
+
+  private[this] val profiles = new java.util.WeakHashMap[Array[CPIntVar], List[WeakReference[ResourceProfile]]]()
+
+  /**
+   * Returns the profile of the resource id, the same profile is returned to all the
+   * propagators posted on the same arrays of variables.
+   */
+  def apply(starts: Array[CPIntVar], durations: Array[CPIntVar], ends: Array[CPIntVar], heights: Array[CPIntVar], resources: Array[CPIntVar], id: Int)(implicit store: CPStore): ResourceProfile = profiles.synchronized {
+    val registered = Option(profiles.get(starts)).getOrElse(Nil).filter(_.get != null)
+    registered.map(_.get).find(profile => profile != null && profile.matches(durations, ends, heights, resources, id)) match {
+      case Some(profile) => profile
+      case None =>
+        val profile = new ResourceProfile(starts, durations, ends, heights, resources, id)
+        profiles.put(starts, new WeakReference(profile) :: registered)
+        profile
+    }
+  }
+}
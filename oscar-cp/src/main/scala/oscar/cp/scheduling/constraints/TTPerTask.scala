@@ -44,6 +44,7 @@ extends CumulativeTemplate(starts, durations, ends, heights, resources, capacity
   
   // Profile
   private[this] val profile = new ProfileStructure(sMin, sMax, dMin, eMin, eMax, hMin, requiredTasks, possibleTasks)
+  private[this] val resourceProfile = ResourceProfile(starts, durations, ends, heights, resources, id)
 
   override def associatedVars(): Iterable[CPVar] = starts ++ durations ++ ends ++ heights ++ resources ++ Array(capacity)
 
@@ -65,7 +66,7 @@ extends CumulativeTemplate(starts, durations, ends, heights, resources, capacity
   }
   
   @inline private def oneSweep(): Boolean = {
-    profile.rebuild(toConsider)
+    profile.load(resourceProfile)
     val maxHeight = profile.maxHeight()
     if (maxHeight > C) true // Check overload 
     else pushAll(maxHeight)
@@ -53,6 +53,7 @@ extends CumulativeTemplate(starts, durations, ends, heights, resources, capacity
   private[this] var hminmax = 0
 
   private[this] val profile = new ProfileStructure(smin, smax, dmin, emin, emax, hmin, required, possible)
+  private[this] val resourceProfile = ResourceProfile(starts, durations, ends, heights, resources, id)
 
   override def associatedVars(): Iterable[CPVar] = starts ++ durations ++ ends ++ heights ++ resources ++ Array(capacity)
 
@@ -172,7 +173,7 @@ extends CumulativeTemplate(starts, durations, ends, heights, resources, capacity
 
     // TODO: building the profile is expensive, redo prefiltering to opt out when there are 0 pushers
     // This happens when moi of tasks are all larger than durations, i.e. often near the root.
-    profile.rebuild(toConsider)    
+    profile.load(resourceProfile)
     
     val limit = toConsider.limit.value
     
@@ -0,0 +1,73 @@
+package oscar.cp.searches
+
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+import oscar.cp.CPIntVar
+
+/**
+ * Binary branching on the unbound variable with the largest activity (ties being broken by
+ * smallest domain), `valHeuris` being tried on the left branch and removed on the right branch.
+ *
+ * As in ''Activity-based search for black-box constraint programming solvers, L Michel,
+ * P Van Hentenryck, 2012'' (see `oscar.algo.branchings.BinaryABS`), the activity of a variable
+ * is increased by one at each node where its domain has been reduced and multiplied by `decay`
+ * otherwise. The activities are not initialized by probing and they are updated from the
+ * domain events: the decay is applied lazily by increasing the increment of the activities
+ * (the activity of the bound variables thus decays as well).
+ */
+class BinaryActivityBranching(variables: Array[CPIntVar], valHeuris: Int => Int, decay: Double = 0.999) extends BinaryDecisionBranching {
+
+  require(decay > 0 && decay <= 1, "the decay must be in ]0, 1]")
+
+  private[this] val Rescale = 1e100
+
+  private[this] val nVariables = variables.length
+
+  // Activity of each variable (in the unit of the increment)
+  private[this] val activities = new Array[Double](nVariables)
+  private[this] var increment = 1.0
+
+  // Domain size of each variable when its activity has been updated
+  private[this] val sizes = Array.tabulate(nVariables)(variables(_).size)
+
+  private[this] val heap = new VariableHeap(variables, i => -activities(i), variables(_).size) {
+    override protected def onChange(i: Int): Unit = {
+      val size = variables(i).size
+      if (size < sizes(i)) activities(i) = activities(i) / decay + increment
+      sizes(i) = size
+    }
+  }
+
+  // Selected decision
+  private[this] var selected = -1
+  private[this] var value = 0
+
+  /** Returns the activity of `variables(i)` */
+  final def activity(i: Int): Double = activities(i) / increment
+
+  final override def select(): Boolean = {
+    increment /= decay
+    if (increment > Rescale) rescale()
+    selected = heap.best()
+    if (selected == -1) false
+    else {
+      value = valHeuris(selected)
+      true
+    }
+  }
+
+  final override def selectedVariable: IntVarLike = variables(selected)
+
+  final override def selectedValue: Int = value
+
+  private def rescale(): Unit = {
+    val factor = 1.0 / Rescale
+    var i = 0
+    while (i < nVariables) {
+      activities(i) *= factor
+      i += 1
+    }
+    increment *= factor
+    heap.updateAll()
+  }
+}
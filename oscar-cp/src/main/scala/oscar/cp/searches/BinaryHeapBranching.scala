@@ -0,0 +1,30 @@
+package oscar.cp.searches
+
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+
+/**
+ * Binary branching on the unbound variable with the smallest keys in the heap,
+ * `valHeuris` being tried on the left branch and removed on the right branch.
+ */
+class BinaryHeapBranching(heap: VariableHeap, valHeuris: Int => Int) extends BinaryDecisionBranching {
+
+  private[this] val variables = heap.variables
+
+  // Selected decision
+  private[this] var selected = -1
+  private[this] var value = 0
+
+  final override def select(): Boolean = {
+    selected = heap.best()
+    if (selected == -1) false
+    else {
+      value = valHeuris(selected)
+      true
+    }
+  }
+
+  final override def selectedVariable: IntVarLike = variables(selected)
+
+  final override def selectedValue: Int = value
+}
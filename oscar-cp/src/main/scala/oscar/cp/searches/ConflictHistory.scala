@@ -0,0 +1,66 @@
+package oscar.cp.searches
+
+import oscar.cp.{CPIntVar, CPStore}
+import oscar.cp.core.Constraint
+
+/**
+ * Conflict-history scores described in
+ *
+ * ''Conflict history based search for constraint satisfaction problem
+ * Djamal Habet, Cyril Terrioux, 2019''
+ *
+ * The score q(c) of a constraint is an exponential moving average of the rewards
+ * 1 / (#conflicts - last conflict of c + 1) obtained each time c causes a failure. The
+ * step size of the average decreases from 0.1 to 0.06 with the number of conflicts. The
+ * score of a variable is the sum of the scores of its constraints.
+ */
+class ConflictHistory(store: CPStore, variables: Array[CPIntVar], initialStep: Double = 0.1, minStep: Double = 0.06, stepDecrement: Double = 1e-6) extends ConflictScores(store, variables) {
+
+  // Score of each constraint
+  private[this] var constraintScores = new Array[Double](math.max(16, store.nConstraintIds))
+
+  // Conflict at which each constraint caused its last failure
+  private[this] var lastConflicts = new Array[Long](constraintScores.length)
+
+  // Step size of the moving average
+  private[this] var step = initialStep
+
+  override def constraintScore(constraint: Constraint): Double = {
+    val id = constraint.constraintId
+    if (id < 0 || id >= constraintScores.length) 0.0 else constraintScores(id)
+  }
+
+  override protected def constraintScoreById(constraintId: Int): Double = constraintScores(constraintId)
+
+  override protected def ensureCapacity(constraintId: Int): Unit = {
+    if (constraintId >= constraintScores.length) {
+      val newLength = math.max(constraintId + 1, constraintScores.length * 2)
+      constraintScores = java.util.Arrays.copyOf(constraintScores, newLength)
+      lastConflicts = java.util.Arrays.copyOf(lastConflicts, newLength)
+    }
+  }
+
+  override protected def conflict(constraintId: Int, scope: Array[Int]): Unit = {
+    val reward = 1.0 / (nConflicts - lastConflicts(constraintId) + 1)
+    val delta = step * (reward - constraintScores(constraintId))
+    constraintScores(constraintId) += delta
+    lastConflicts(constraintId) = nConflicts
+    addToScores(scope, delta)
+    if (step > minStep) step = math.max(minStep, step - stepDecrement)
+  }
+
+  override def restarted(): Unit = smooth()
+
+  /**
+   * Smooths the scores of the constraints according to the time since their last conflict,
+   * q(c) = q(c) * decay^(#conflicts - last conflict of c). Meant to be called on restarts.
+   */
+  def smooth(decay: Double = 0.995): Unit = {
+    var id = 0
+    while (id < constraintScores.length) {
+      if (constraintScores(id) != 0.0) constraintScores(id) *= math.pow(decay, nConflicts - lastConflicts(id))
+      id += 1
+    }
+    recomputeScores()
+  }
+}
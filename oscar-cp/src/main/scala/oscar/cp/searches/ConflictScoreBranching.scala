@@ -0,0 +1,55 @@
+package oscar.cp.searches
+
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+import oscar.cp.CPIntVar
+
+/**
+ * Binary branching on the variables with the best conflict scores (see `ConflictScores`),
+ * `valHeuris` being tried on the left branch and removed on the right branch.
+ *
+ * If `divideByDomain` is false, the unbound variable with the largest score is selected
+ * (e.g. max weighted degree). If `divideByDomain` is true, the unbound variable with the
+ * largest ratio score/domain-size is selected (e.g. min dom/wdeg, CHS), ties being broken
+ * by smallest domain. The unbound variables are kept in a `VariableHeap` updated when
+ * their domain or their score changes.
+ *
+ * The branching takes the scores over: they are updated on the failures of a search from
+ * the reset of the branching until the next search resets its branching.
+ */
+class ConflictScoreBranching(scores: ConflictScores, valHeuris: Int => Int, divideByDomain: Boolean) extends BinaryDecisionBranching {
+
+  private[this] val variables: Array[CPIntVar] = scores.variables
+
+  private[this] val heap: VariableHeap = {
+    if (divideByDomain) new VariableHeap(variables, i => -scores.score(i) / variables(i).size, variables(_).size)
+    else new VariableHeap(variables, i => -scores.score(i))
+  }
+
+  scores.register(heap)
+  scores.detach()
+
+  // Selected decision
+  private[this] var selected = -1
+  private[this] var value = 0
+
+  final override def select(): Boolean = {
+    selected = heap.best()
+    if (selected == -1) false
+    else {
+      value = valHeuris(selected)
+      true
+    }
+  }
+
+  final override def selectedVariable: IntVarLike = variables(selected)
+
+  final override def selectedValue: Int = value
+
+  final override def reset(): Unit = {
+    scores.attach()
+    scores.store.searchEngine.onNextReset(scores.detach())
+  }
+
+  final override def restart(): Unit = scores.restarted()
+}
@@ -0,0 +1,167 @@
+package oscar.cp.searches
+
+import java.util.IdentityHashMap
+
+import oscar.cp.{CPIntVar, CPStore}
+import oscar.cp.core.Constraint
+import oscar.cp.core.variables.CPVar
+
+/**
+ * Scores of decision variables learned from the failures of the search.
+ *
+ * Each failure is attributed to the last constraint called by the propagation. The
+ * scores of the constraints are kept in arrays indexed by `Constraint.constraintId` and
+ * the score of a variable is the sum of the scores of the constraints in which it is
+ * involved, plus its initial score. The scores of the variables are updated incrementally
+ * when the score of a constraint changes, without any pass over all the variables or constraints.
+ *
+ * The scores are updated on the failures of the search of the store from their creation
+ * until `detach` is called. A `ConflictScoreBranching` takes the scores over: they are then
+ * only updated during the searches that reset the branching.
+ */
+abstract class ConflictScores(val store: CPStore, val variables: Array[CPIntVar]) {
+
+  protected[this] val nVariables = variables.length
+
+  // Index of each variable in variables
+  private[this] val indices = new IdentityHashMap[CPVar, Integer]()
+  for (i <- 0 until nVariables) indices.put(variables(i), i)
+
+  // Indices of the variables in the scope of each constraint, null if not computed yet
+  private[this] var scopes = new Array[Array[Int]](math.max(16, store.nConstraintIds))
+
+  // Score of each variable
+  private[this] val variableScores = new Array[Double](nVariables)
+
+  // Initial score of each variable, included in its score
+  private[this] val initialScores = new Array[Double](nVariables)
+
+  // Heaps of which the keys depend on the scores, see `register`
+  private[this] var heaps = List.empty[VariableHeap]
+
+  // Number of failures since the creation of the scores
+  private[this] var _nConflicts = 0L
+
+  // Action notified by the search of the store on each failure, null if detached
+  private[this] var failureAction: () => Unit = null
+
+  attach()
+
+  /** Returns the number of failures since the creation of the scores */
+  final def nConflicts: Long = _nConflicts
+
+  /** Returns the score of the variable `variables(i)` */
+  @inline final def score(i: Int): Double = variableScores(i)
+
+  /** Returns the score of the constraint */
+  def constraintScore(constraint: Constraint): Double
+
+  /** Updates the scores on the failures of the search of the store (done on creation) */
+  final def attach(): Unit = {
+    if (failureAction == null) {
+      failureAction = () => onFailure()
+      store.searchEngine.addOnFailure(failureAction)
+    }
+  }
+
+  /** Stops updating the scores on the failures of the search of the store */
+  final def detach(): Unit = {
+    if (failureAction != null) {
+      store.searchEngine.removeOnFailure(failureAction)
+      failureAction = null
+    }
+  }
+
+  /** Returns true if the scores are updated on the failures of the search of the store */
+  final def isAttached: Boolean = failureAction != null
+
+  /** Called by the branchings when the search restarts */
+  def restarted(): Unit = {}
+
+  /** Registers a heap on the variables of which the keys depend on the scores */
+  final def register(heap: VariableHeap): Unit = {
+    heaps = heap :: heaps
+    heap.updateAll()
+  }
+
+  /** Sets the initial score of the variable `variables(i)` */
+  protected final def setScore(i: Int, score: Double): Unit = {
+    variableScores(i) += score - initialScores(i)
+    initialScores(i) = score
+    updateHeaps(i)
+  }
+
+  /** Called on each failure attributed to the constraint with the indices of its variables */
+  protected def conflict(constraintId: Int, scope: Array[Int]): Unit
+
+  /** Makes the arrays indexed by constraint id large enough for the given id */
+  protected def ensureCapacity(constraintId: Int): Unit
+
+  /** Adds delta to the score of the variables in the scope */
+  protected final def addToScores(scope: Array[Int], delta: Double): Unit = {
+    var i = scope.length
+    while (i > 0) {
+      i -= 1
+      val varId = scope(i)
+      variableScores(varId) += delta
+      updateHeaps(varId)
+    }
+  }
+
+  /** Multiplies the score of all the variables by the positive factor */
+  protected final def scaleScores(factor: Double): Unit = {
+    var i = 0
+    while (i < nVariables) {
+      variableScores(i) *= factor
+      initialScores(i) *= factor
+      i += 1
+    }
+    heaps.foreach(_.updateAll())
+  }
+
+  /** Sets the score of each variable to its initial score plus the scores of its constraints */
+  protected final def recomputeScores(): Unit = {
+    System.arraycopy(initialScores, 0, variableScores, 0, nVariables)
+    var id = 0
+    while (id < scopes.length) {
+      val scope = scopes(id)
+      if (scope != null) {
+        val score = constraintScoreById(id)
+        var i = scope.length
+        while (i > 0) {
+          i -= 1
+          variableScores(scope(i)) += score
+        }
+      }
+      id += 1
+    }
+    heaps.foreach(_.updateAll())
+  }
+
+  /** Returns the score of the constraint with the given id */
+  protected def constraintScoreById(constraintId: Int): Double
+
+  @inline private def updateHeaps(i: Int): Unit = {
+    var hs = heaps
+    while (hs.nonEmpty) {
+      hs.head.update(i)
+      hs = hs.tail
+    }
+  }
+
+  private def onFailure(): Unit = {
+    val constraint = store.lastConstraintCalled
+    if (constraint != null && constraint.constraintId >= 0) {
+      val id = constraint.constraintId
+      if (id >= scopes.length) scopes = java.util.Arrays.copyOf(scopes, math.max(id + 1, scopes.length * 2))
+      ensureCapacity(id)
+      var scope = scopes(id)
+      if (scope == null) {
+        scope = constraint.associatedVars().iterator.map(x => indices.get(x)).filter(_ != null).map(_.intValue).toArray.distinct
+        scopes(id) = scope
+      }
+      conflict(id, scope)
+    }
+    _nConflicts += 1
+  }
+}
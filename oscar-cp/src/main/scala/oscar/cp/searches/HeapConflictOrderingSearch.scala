@@ -0,0 +1,72 @@
+package oscar.cp.searches
+
+import oscar.algo.reversible.ReversibleInt
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+import oscar.cp.CPIntVar
+
+/**
+ * Conflict ordering search (see `oscar.algo.branchings.ConflictOrderingSearch`) with
+ * an integer fallback heuristic. The variables are ordered by latest conflict, then by
+ * smallest `varHeuristic`, then by smallest index, in a `VariableHeap` such that the
+ * unbound variables do not need to be scanned at each node.
+ *
+ * @param varHeuristic fallback heuristic, it must only depend on the domain of variables(i)
+ */
+class HeapConflictOrderingSearch(variables: Array[CPIntVar], varHeuristic: Int => Int, valHeuristic: Int => Int) extends BinaryDecisionBranching {
+
+  require(variables.length > 0)
+
+  private[this] val context = variables(0).store
+
+  private[this] var lastDepth = 0
+  private[this] val depth = new ReversibleInt(context, 0)
+
+  private[this] val priority = Array.ofDim[Long](variables.length)
+  private[this] var timestamp = 1L
+  private[this] var lastVar = -1
+
+  // Latest conflict first
+  private[this] val heap = new VariableHeap(variables, i => -priority(i).toDouble, varHeuristic)
+
+  override def reset(): Unit = {
+    lastDepth = 0
+    java.util.Arrays.fill(priority, 0L)
+    timestamp = 1L
+    heap.updateAll()
+  }
+
+  // Selected variable
+  private[this] var selected = -1
+  private[this] var value = 0
+
+  final override def selectedVariable: IntVarLike = variables(selected)
+
+  final override def selectedValue: Int = value
+
+  final override def select(): Boolean = {
+
+    timestamp += 1
+
+    val d = depth.incr()
+
+    // If the last selected variable has failed, it gets the highest priority
+    if (d <= lastDepth && lastVar != -1) {
+      priority(lastVar) = timestamp
+      heap.update(lastVar)
+      lastVar = -1
+    }
+    lastDepth = d
+
+    selected = heap.best()
+    if (selected == -1) {
+      // all variables are bound, solution!
+      lastVar = -1
+      false
+    } else {
+      lastVar = selected
+      value = valHeuristic(selected)
+      true
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package oscar.cp.searches
+
+import java.lang.ref.WeakReference
+
+import oscar.cp.CPIntVar
+import oscar.cp.searches.lns.CPIntSol
+
+/**
+ * Solution-phase saving: the value heuristic `valueHeuristic` tries first the value the
+ * variable had in the last solution found (its phase), and uses `fallBackValHeuristic`
+ * if the variable has no phase or if its phase is not in its domain anymore.
+ *
+ * The phases are saved at each solution found by the store of the variables, until `detach`
+ * is called or the phases are not referenced anymore. They can be initialized from a previous
+ * solution with `load`, e.g. to warm start the search of a slightly modified model (see
+ * `WarmStartBranching`).
+ */
+class PhaseSaving(val variables: Array[CPIntVar], fallBackValHeuristic: Int => Int) {
+
+  require(variables.length > 0)
+
+  private[this] val nVariables = variables.length
+  private[this] val phases = Array.fill(nVariables)(Int.MinValue)
+
+  // Action of the search of the store saving the phases, null if detached
+  private[this] var saving: () => Unit = PhaseSaving.savingAction(this)
+  variables(0).store.searchEngine.addOnSolution(saving)
+
+  /** Returns the phase of `variables(i)`, Int.MinValue if it has none */
+  @inline final def phase(i: Int): Int = phases(i)
+
+  /** Returns true if the phase of `variables(i)` is in its domain */
+  @inline final def hasPhase(i: Int): Boolean = phases(i) != Int.MinValue && variables(i).hasValue(phases(i))
+
+  /** Returns the phase of `variables(i)` if it is in its domain, the fallback value otherwise */
+  final def valueHeuristic(i: Int): Int = {
+    if (hasPhase(i)) phases(i)
+    else fallBackValHeuristic(i)
+  }
+
+  /** Sets the phases to the values of the bound variables */
+  final def save(): Unit = {
+    var i = 0
+    while (i < nVariables) {
+      val variable = variables(i)
+      if (variable.isBound) phases(i) = variable.min
+      i += 1
+    }
+  }
+
+  /** Sets the phases to the given values, one per variable */
+  final def load(values: Array[Int]): Unit = {
+    require(values.length == nVariables, "one value per variable is expected")
+    System.arraycopy(values, 0, phases, 0, nVariables)
+  }
+
+  /** Sets the phases to the values of a solution on the variables */
+  final def load(solution: CPIntSol): Unit = load(solution.values)
+
+  /** Removes all the phases */
+  final def clear(): Unit = java.util.Arrays.fill(phases, Int.MinValue)
+
+  /** Stops saving the phases at the solutions of the store */
+  final def detach(): Unit = {
+    if (saving != null) {
+      variables(0).store.searchEngine.removeOnSolution(saving)
+      saving = null
+    }
+  }
+
+  /** Returns true if the phases are saved at the solutions of the store */
+  final def isAttached: Boolean = saving != null
+}
+
+object PhaseSaving {
+
+  // Saves the phases at each solution, the action only holds the phases weakly and removes
+  // itself once they have been reclaimed, such that the unused phases do not accumulate
+  private def savingAction(phases: PhaseSaving): () => Unit = {
+    val reference = new WeakReference(phases)
+    val search = phases.variables(0).store.searchEngine
+    new (() => Unit) {
+      override def apply(): Unit = {
+        val saved = reference.get
+        if (saved == null) search.removeOnSolution(this)
+        else saved.save()
+      }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.searches
+
+import oscar.algo.search.{Branching, DFSearch}
+import oscar.cp.{CPIntVar, CPSolver}
+import oscar.cp.core.SharedObjectiveBound
+import oscar.cp.searches.lns.CPIntSol
+import oscar.cp.searches.lns.search.{ALNSConfig, ALNSSearch}
+
+import scala.collection.mutable
+
+/**
+ * A strategy of a portfolio, run on its own replica of the model.
+ */
+abstract class PortfolioStrategy(val name: String) {
+
+  /**
+   * Runs the strategy on the replica until it ends or `portfolio.isStopped` becomes true.
+   * @return true if the strategy explored the whole search space (i.e. the last solution
+   *         is optimal or the problem has no solution), false otherwise
+   */
+  def run(solver: CPSolver, vars: Array[CPIntVar], portfolio: Portfolio): Boolean
+}
+
+object PortfolioStrategy {
+
+  /** A depth first search with the given branching */
+  def dfs(name: String)(branching: Array[CPIntVar] => Branching): PortfolioStrategy = new PortfolioStrategy(name) {
+    override def run(solver: CPSolver, vars: Array[CPIntVar], portfolio: Portfolio): Boolean = {
+      solver.search(branching(vars))
+      val stats = solver.startSubjectTo((_: DFSearch) => portfolio.isStopped, Int.MaxValue, null)()
+      stats.completed
+    }
+  }
+
+  /**
+   * An adaptive large neighbourhood search with the given configuration.
+   * The search starts from the best solution of the portfolio if one is already known.
+   */
+  def alns(name: String)(config: (CPSolver, Array[CPIntVar]) => ALNSConfig): PortfolioStrategy = new PortfolioStrategy(name) {
+    override def run(solver: CPSolver, vars: Array[CPIntVar], portfolio: Portfolio): Boolean = {
+      val search = ALNSSearch(solver, vars, config(solver, vars))
+      portfolio.onStop(search.interrupt())
+      val results = portfolio.bestSolution match {
+        case Some(sol) => search.searchFrom(sol)
+        case None => search.search()
+      }
+      results.optimumFound || results.unsat
+    }
+  }
+}
+
+/**
+ * The results of a portfolio.
+ * @param solutions the improving solutions found by the strategies, the best one last
+ * @param completed true if the search space has been explored (i.e. the last solution is optimal
+ *                  or there is no solution)
+ * @param winner the name of the strategy that completed the search, if any
+ */
+class PortfolioResults(val solutions: Array[CPIntSol], val completed: Boolean, val winner: Option[String]) {
+
+  def bestSolution: Option[CPIntSol] = solutions.lastOption
+
+  override def toString: String = {
+    "solutions: " + solutions.length +
+      "\ncompleted: " + completed +
+      "\nwinner: " + winner.getOrElse("none") +
+      bestSolution.map(sol => "\nbest objective: " + sol.objective).getOrElse("")
+  }
+}
+
+/**
+ * Runs several strategies in parallel, each on its own replica of the model.
+ *
+ * The replicas of an optimization problem share their incumbent through a
+ * `SharedObjectiveBound` such that a solution found by a strategy immediately
+ * prunes the search of all the others. The improving solutions of all the
+ * strategies are collected by the portfolio. All the strategies are stopped
+ * as soon as one of them proves optimality (or finds a solution for a
+ * satisfaction problem), or when the time limit is reached.
+ *
+ * @param model builds the replica of the given id: the solver and its decision variables
+ * @param strategies the strategies, one per replica
+ */
+class Portfolio(model: Int => (CPSolver, Array[CPIntVar]), strategies: Array[PortfolioStrategy]) {
+
+  require(strategies.length > 0, "at least one strategy is required")
+
+  @volatile private[this] var stopped = false
+  private[this] var stopActions = List.empty[() => Unit]
+
+  private[this] var startTime = 0L
+  private[this] val solutions = mutable.ArrayBuffer[CPIntSol]()
+  private[this] var isMin = true
+  private[this] var hasObjective = false
+  private[this] var winner: Option[String] = None
+
+  /** Returns true if the strategies have to stop */
+  final def isStopped: Boolean = stopped
+
+  /** Returns the best solution found so far, if any */
+  final def bestSolution: Option[CPIntSol] = this.synchronized {
+    solutions.lastOption
+  }
+
+  /** Adds an action to execute when the portfolio stops the strategies */
+  final def onStop(action: => Unit): Unit = this.synchronized {
+    if (stopped) action
+    else stopActions = (() => action) :: stopActions
+  }
+
+  /** Stops all the strategies as soon as possible */
+  final def stop(): Unit = this.synchronized {
+    if (!stopped) {
+      stopped = true
+      stopActions.foreach(_())
+      stopActions = Nil
+    }
+  }
+
+  /**
+   * Runs all the strategies in parallel.
+   * @param timeLimit the time limit in seconds
+   */
+  def start(timeLimit: Int = Int.MaxValue): PortfolioResults = {
+    stopped = false
+    stopActions = Nil
+    solutions.clear()
+    winner = None
+    startTime = System.nanoTime()
+
+    val replicas = Array.tabulate(strategies.length)(model)
+    val objectives = replicas.head._1.objective.objs
+    hasObjective = objectives.nonEmpty
+    isMin = hasObjective && !objectives.head.isMax
+
+    if (hasObjective) {
+      val bound = new SharedObjectiveBound(isMin)
+      replicas.foreach(_._1.shareObjective(bound))
+    }
+
+    var error: Throwable = null
+
+    val threads = Array.tabulate(strategies.length)(i => {
+      val (solver, vars) = replicas(i)
+      val strategy = strategies(i)
+      solver.silent = true
+      solver.onSolution(solutionFound(strategy, solver, vars))
+      new Thread(new Runnable {
+        override def run(): Unit = {
+          try {
+            val completed = strategy.run(solver, vars, Portfolio.this)
+            // A strategy interrupted by the portfolio may consider itself completed
+            if (completed) Portfolio.this.synchronized {
+              if (!stopped) {
+                winner = Some(strategy.name)
+                stop()
+              }
+            }
+          } catch {
+            case e: Throwable => Portfolio.this.synchronized {
+              if (error == null) error = e
+              stop()
+            }
+          }
+        }
+      }, "Portfolio-" + strategy.name)
+    })
+
+    threads.foreach(_.start())
+    if (timeLimit < Int.MaxValue) {
+      val deadline = startTime + timeLimit * 1000000000L
+      threads.foreach(thread => {
+        val remaining = (deadline - System.nanoTime()) / 1000000
+        if (remaining > 0) thread.join(remaining)
+      })
+      stop()
+    }
+    threads.foreach(_.join())
+
+    if (error != null) throw error
+
+    this.synchronized {
+      new PortfolioResults(solutions.toArray, winner.isDefined, winner)
+    }
+  }
+
+  private def solutionFound(strategy: PortfolioStrategy, solver: CPSolver, vars: Array[CPIntVar]): Unit = {
+    val objective = if (hasObjective) solver.objective.objs.head.best else 0
+    val values = vars.map(_.value)
+    this.synchronized {
+      if (solutions.isEmpty || (hasObjective && (if (isMin) objective < solutions.last.objective else objective > solutions.last.objective))) {
+        solutions += new CPIntSol(values, objective, System.nanoTime() - startTime)
+      }
+      // No point in searching another solution of a satisfaction problem
+      if (!hasObjective && !stopped) {
+        winner = Some(strategy.name)
+        stop()
+      }
+    }
+  }
+}
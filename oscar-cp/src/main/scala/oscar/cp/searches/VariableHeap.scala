@@ -0,0 +1,107 @@
+package oscar.cp.searches
+
+import oscar.algo.array.IndexedHeapDouble
+import oscar.algo.reversible.{ReversibleBoolean, TrailEntry}
+import oscar.cp.CPIntVar
+import oscar.cp.core.watcher.Watcher
+
+/**
+ * Indexed heap on the unbound variables of an array, ordered by keys computed from the
+ * variables: smallest `key` first, then smallest `tieKey`, then smallest index.
+ *
+ * The keys are maintained incrementally. The domains are watched during the search and
+ * the key of a variable is only recomputed, at the next call to `best`, if its domain has
+ * changed, if its domain has been restored on backtrack or if `update` has been called
+ * (e.g. because a score used in the key has changed). The bound variables leave the heap
+ * and come back on backtrack. Selecting the best variable thus costs O(k log n) with k the
+ * number of variables changed since the previous selection instead of a scan of the n
+ * variables.
+ *
+ * The keys must only depend on the domain of the variables and on the states notified
+ * with `update`.
+ */
+class VariableHeap(val variables: Array[CPIntVar], key: Int => Double, tieKey: Int => Int) {
+
+  def this(variables: Array[CPIntVar], key: Int => Double) = this(variables, key, _ => 0)
+
+  require(variables.length > 0)
+
+  private[this] val nVariables = variables.length
+  private[this] val store = variables(0).store
+  private[this] val heap = new IndexedHeapDouble(nVariables)
+
+  // Variables of which the key may have changed since the last selection
+  private[this] val changed = new Array[Boolean](nVariables)
+  private[this] val changedStack = new Array[Int](nVariables)
+  private[this] var nChanged = 0
+
+  // The watchers are registered in the first state of each search and removed with it
+  private[this] val watching = new ReversibleBoolean(store, false)
+  private[this] val watchers: Array[Watcher] = Array.tabulate(nVariables)(i => new Watcher {
+    final override def awake(): Unit = update(i)
+    final override def isObserver: Boolean = true
+  })
+
+  // Entries marking the variables as changed when their domain is restored
+  private[this] val restorers: Array[TrailEntry] = Array.tabulate(nVariables)(i => new TrailEntry {
+    final override def restore(): Unit = markChanged(i)
+  })
+
+  /** Notifies that the key of `variables(i)` may have changed */
+  final def update(i: Int): Unit = {
+    // The domain events of the parallel propagation come from several threads
+    if (store.concurrent) synchronized { markChanged(i) }
+    else markChanged(i)
+  }
+
+  /** Notifies that the key of all the variables may have changed */
+  final def updateAll(): Unit = {
+    var i = 0
+    while (i < nVariables) {
+      markChanged(i)
+      i += 1
+    }
+  }
+
+  /** Called before the key of `variables(i)` is recomputed */
+  protected def onChange(i: Int): Unit = {}
+
+  /** Returns the index of the unbound variable with the smallest keys, -1 if all the variables are bound */
+  final def best(): Int = {
+    if (!watching.value) watch()
+    while (nChanged > 0) {
+      nChanged -= 1
+      val i = changedStack(nChanged)
+      changed(i) = false
+      onChange(i)
+      if (variables(i).isBound) heap.remove(i)
+      else heap.enqueue(i, key(i), tieKey(i))
+      store.trail(restorers(i))
+    }
+    if (heap.isEmpty) -1 else heap.min
+  }
+
+  @inline private def markChanged(i: Int): Unit = {
+    if (!changed(i)) {
+      changed(i) = true
+      changedStack(nChanged) = i
+      nChanged += 1
+    }
+  }
+
+  private def watch(): Unit = {
+    watching.setTrue()
+    var i = 0
+    while (i < nVariables) {
+      variables(i).watchChanges(watchers(i))
+      i += 1
+    }
+    updateAll()
+  }
+}
+
+object VariableHeap {
+
+  /** Number of variables below which the branchings scan the variables instead of using a heap */
+  val MinSize = 64
+}
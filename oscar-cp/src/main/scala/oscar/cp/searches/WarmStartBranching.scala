@@ -0,0 +1,131 @@
+package oscar.cp.searches
+
+import oscar.algo.reversible.ReversibleBoolean
+import oscar.algo.search.{Alternative, BinaryDecisionBranching, Branching}
+import oscar.algo.vars.IntVarLike
+
+/**
+ * Branching following the phases of the variables (e.g. a previous solution) before
+ * `branching`.
+ *
+ * As long as no hint has been refuted on the current branch, the first unbound variable
+ * of which the phase is in its domain is branched on with x == phase on the left and
+ * x != phase on the right. Once a right branch has been taken, or if no variable has its
+ * phase in its domain, the decisions are delegated to `branching`. The first dive thus
+ * goes straight to the hinted solution if it is still feasible, or as close to it as
+ * possible, and the rest of the tree is explored by `branching`: the search remains
+ * complete.
+ *
+ * The branching built by `WarmStartBranching(phases, branching)` takes binary decisions
+ * (see `BinaryDecisionBranching`) if `branching` does, such that `DFSearch` drives it
+ * without allocating alternatives.
+ */
+trait WarmStartBranching extends Branching {
+
+  /** The phases followed before `branching` */
+  def phases: PhaseSaving
+
+  /** The branching taking the decisions once the hints are exhausted */
+  def branching: Branching
+}
+
+object WarmStartBranching {
+
+  def apply(phases: PhaseSaving, branching: Branching): WarmStartBranching = branching match {
+    case binary: BinaryDecisionBranching if !binary.splitsDomain => new BinaryWarmStartBranching(phases, binary)
+    case _ => new AlternativeWarmStartBranching(phases, branching)
+  }
+
+  // Index of the first unbound variable of which the phase is in its domain, -1 if none
+  private[searches] def firstHint(phases: PhaseSaving): Int = {
+    val variables = phases.variables
+    var i = 0
+    while (i < variables.length && (variables(i).isBound || !phases.hasPhase(i))) i += 1
+    if (i < variables.length) i else -1
+  }
+}
+
+/**
+ * Warm start of a binary decision branching (see `WarmStartBranching`).
+ *
+ * The hints are a prefix of each branch: it ends with the first refuted hint or with the
+ * first decision of `branching`, since a variable that has no hint in a node has no hint in
+ * its descendants either. A reversible flag marks this prefix such that each decision is
+ * applied by the branching that took it.
+ */
+final class BinaryWarmStartBranching(val phases: PhaseSaving, val branching: BinaryDecisionBranching) extends BinaryDecisionBranching with WarmStartBranching {
+
+  private[this] val variables = phases.variables
+
+  // True if the decisions of the current branch are hints
+  private[this] val hinting = new ReversibleBoolean(variables(0).store, true)
+
+  // Variable of the selected hint
+  private[this] var hint = -1
+
+  override def select(): Boolean = {
+    if (hinting.value) {
+      hint = WarmStartBranching.firstHint(phases)
+      if (hint == -1) hinting.setFalse()
+    }
+    hinting.value || branching.select()
+  }
+
+  override def selectedVariable: IntVarLike = if (hinting.value) variables(hint) else branching.selectedVariable
+
+  override def selectedValue: Int = if (hinting.value) phases.phase(hint) else branching.selectedValue
+
+  override def selectedTag: Int = if (hinting.value) 0 else branching.selectedTag
+
+  override def applyLeft(variable: IntVarLike, value: Int, tag: Int): Unit = {
+    if (hinting.value) super.applyLeft(variable, value, tag)
+    else branching.applyLeft(variable, value, tag)
+  }
+
+  override def applyRight(variable: IntVarLike, value: Int, tag: Int): Unit = {
+    if (hinting.value) {
+      hinting.setFalse()
+      super.applyRight(variable, value, tag)
+    }
+    else branching.applyRight(variable, value, tag)
+  }
+
+  override def reset(): Unit = branching.reset()
+
+  override def restart(): Unit = branching.restart()
+}
+
+/**
+ * Warm start of a branching building alternatives (see `WarmStartBranching`).
+ */
+final class AlternativeWarmStartBranching(val phases: PhaseSaving, val branching: Branching) extends WarmStartBranching {
+
+  private[this] val variables = phases.variables
+
+  // True if no hint has been refuted on the current branch
+  private[this] val following = new ReversibleBoolean(variables(0).store, true)
+
+  private[this] val hint = new BinaryDecisionBranching {
+    private[this] var selected = -1
+    override def select(): Boolean = {
+      selected = WarmStartBranching.firstHint(phases)
+      selected != -1
+    }
+    override def selectedVariable: IntVarLike = variables(selected)
+    override def selectedValue: Int = phases.phase(selected)
+    override def applyRight(variable: IntVarLike, value: Int, tag: Int): Unit = {
+      following.setFalse()
+      super.applyRight(variable, value, tag)
+    }
+  }
+
+  override def reset(): Unit = branching.reset()
+
+  override def restart(): Unit = branching.restart()
+
+  override def alternatives(): Seq[Alternative] = {
+    val hinted = if (following.value) hint.alternatives() else Nil
+    if (hinted.nonEmpty) hinted
+    else branching.alternatives()
+  }
+}
@@ -0,0 +1,61 @@
+package oscar.cp.searches
+
+import oscar.cp.{CPIntVar, CPStore}
+import oscar.cp.core.Constraint
+
+/**
+ * Weighted degree of the variables described in
+ *
+ * ''Boosting systematic search by weighting constraints
+ * Frédéric Boussemart, Fred Hemery, Christophe Lecoutre, Lakhdar Sais, 2004''
+ *
+ * The weight of a constraint is the number of failures it caused and the weighted degree
+ * of a variable is its degree plus the weights of its constraints. With a decay ratio r < 1,
+ * all the weights are multiplied by r at each failure. The decay is applied lazily: the
+ * increment of the weights is divided by r instead, and all the weights are rescaled once
+ * the increment becomes too large (the ratio between two weights is unchanged).
+ */
+class WeightedDegree(store: CPStore, variables: Array[CPIntVar], decayRatio: Double = 1.0) extends ConflictScores(store, variables) {
+
+  require(decayRatio > 0 && decayRatio <= 1, "the decay ratio must be in ]0, 1]")
+
+  private[this] val Rescale = 1e100
+
+  // Weight of each constraint
+  private[this] var weights = new Array[Double](math.max(16, store.nConstraintIds))
+
+  // Current weight of a failure
+  private[this] var increment = 1.0
+
+  for (i <- 0 until nVariables) setScore(i, variables(i).constraintDegree)
+
+  /** Returns the weighted degree of the variable `variables(i)` (in the unit of the current increment) */
+  final def weightedDegree(i: Int): Double = score(i) / increment
+
+  override def constraintScore(constraint: Constraint): Double = {
+    val id = constraint.constraintId
+    if (id < 0 || id >= weights.length) 0.0 else weights(id) / increment
+  }
+
+  override protected def constraintScoreById(constraintId: Int): Double = weights(constraintId)
+
+  override protected def ensureCapacity(constraintId: Int): Unit = {
+    if (constraintId >= weights.length) weights = java.util.Arrays.copyOf(weights, math.max(constraintId + 1, weights.length * 2))
+  }
+
+  override protected def conflict(constraintId: Int, scope: Array[Int]): Unit = {
+    increment /= decayRatio
+    weights(constraintId) += increment
+    addToScores(scope, increment)
+    if (increment > Rescale) {
+      val factor = 1.0 / Rescale
+      var i = 0
+      while (i < weights.length) {
+        weights(i) *= factor
+        i += 1
+      }
+      scaleScores(factor)
+      increment *= factor
+    }
+  }
+}
@@ -9,30 +9,22 @@ import scala.collection.mutable
  * Helps to compute the weighted degree of each CPIntVar given.
  * The weight of a constraint is the number of times it has been involved in a failure.
  * The weighted degree of a variable is the sum of the weights of all the constraints associated with this variable
+ * (see `WeightedDegree`, on which this helper relies)
  */
 class WeightedDegreeHelper(cpSolver: CPStore, vars: Array[CPIntVar], decreaseRatio: Double) {
-  val degree: mutable.HashMap[CPVar, Double] = new mutable.HashMap[CPVar, Double]()
-  for(v <- vars)
-    degree(v) = v.constraintDegree
 
-  //Add our callback to the solver
-  cpSolver.onFailure(onFailure())
+  val weightedDegree = new WeightedDegree(cpSolver, vars, decreaseRatio)
+
+  private[this] val indices = mutable.HashMap[CPVar, Int]()
+  for (i <- vars.indices) indices(vars(i)) = i
 
   /**
    * Get the domain of the variable on the weighted degree of the variable.
    */
-  def getDomOnWeightedDegree(v: CPIntVar): Double = v.size.toDouble / degree(v)
+  def getDomOnWeightedDegree(v: CPIntVar): Double = v.size.toDouble / getWeightedDegree(v)
 
   /**
    * Get the weighted degree of a variable
    */
-  def getWeightedDegree(v: CPIntVar): Double = degree(v)
-
-  def onFailure(): Unit = {
-    degree.transform((v, d) => d*decreaseRatio)
-    if(cpSolver.lastConstraintCalled != null)
-      for(v <- cpSolver.lastConstraintCalled.associatedVars())
-        if(degree.contains(v))
-          degree(v) += 1.0
-  }
+  def getWeightedDegree(v: CPIntVar): Double = weightedDegree.weightedDegree(indices(v))
 }
@@ -70,6 +70,20 @@ abstract class ALNSElement(val failThreshold: Int = 0){
     }
   }
 
+  /**
+    * Adds the statistics of the executions of another element (e.g. the copy of this element used by another
+    * worker of a parallel search) to the statistics of this element.
+    */
+  def addStats(other: ALNSElement): Unit = {
+    other.stats.foreach(s => stats += new ExecStats(s.tStart, s.tEnd, s.objStart, s.objEnd, s.nSols, s.searchCompleted, s.nFails, s.iter))
+    successfulRuns += other.successfulRuns
+    sols += other.sols
+    time += other.time
+    improvement += other.improvement
+    lastSuccessIter = math.max(lastSuccessIter, other.lastSuccessIter)
+    nFails += other.nFails
+  }
+
   def lastExecStats: Option[ExecStats] = stats.lastOption
 
   def execs: Int = stats.length
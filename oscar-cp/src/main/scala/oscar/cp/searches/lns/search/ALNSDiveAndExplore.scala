@@ -73,7 +73,7 @@ class ALNSDiveAndExplore(solver: CPSolver, vars: Array[CPIntVar], config: ALNSCo
 
     //Diving:
 
-    while(System.nanoTime() < endTime && relaxPriority.nonActiveEmpty && searchPriority.nonActiveEmpty && !optimumFound){
+    while(System.nanoTime() < endTime && relaxPriority.nonActiveEmpty && searchPriority.nonActiveEmpty && !optimumFound && !interrupted){
       val relax = relaxPriority.select()
       val search = searchPriority.select()
       lnsIter(relax, search)
@@ -110,7 +110,7 @@ class ALNSDiveAndExplore(solver: CPSolver, vars: Array[CPIntVar], config: ALNSCo
       history += ((t, searchOps(index).name, score))
     }
 
-    while(System.nanoTime() < endTime && relaxRWheel.nonActiveEmpty && searchRWheel.nonActiveEmpty && !optimumFound){
+    while(System.nanoTime() < endTime && relaxRWheel.nonActiveEmpty && searchRWheel.nonActiveEmpty && !optimumFound && !interrupted){
       val relax = relaxRWheel.select()
       val search = searchRWheel.select()
       lnsIter(relax, search)
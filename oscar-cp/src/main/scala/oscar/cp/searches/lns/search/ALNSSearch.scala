@@ -29,4 +29,10 @@ abstract class ALNSSearch(solver: CPSolver, vars: Array[CPIntVar], config: ALNSC
     * @return an ALNSSearchResult object containing the solutions found along with some statistics on the search.
     */
   def search(): ALNSSearchResults
+
+  /**
+    * Stops the search as soon as possible. Can be called from another thread (e.g. when the
+    * optimum has been proven by another search of a portfolio).
+    */
+  def interrupt(): Unit
 }
@@ -26,10 +26,11 @@ class ALNSSearchImpl(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig
   var nSols = 0
   var nFailures = 0
   var stopSearch = false
+  @volatile var interrupted = false //True if the search has been interrupted from outside
   val opDeactivation: Boolean = config.metaParameters.getOrElse('opDeactivation, false).asInstanceOf[Boolean]
 
   val stopCondition: (DFSearch) => Boolean = (s: DFSearch) => {
-    var stop = optimumFound
+    var stop = optimumFound || interrupted
     stop |= nSols != 0 && s.nSolutions >= nSols
     stop |= nFailures != 0 && s.nBacktracks >= nFailures
     stop |= System.nanoTime() >= endTime
@@ -108,6 +109,8 @@ class ALNSSearchImpl(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig
     if(solsFound.nonEmpty) solsFound(0)  = new CPIntSol(solsFound.head.values, solsFound.head.objective, 0L)
   }
 
+  override def interrupt(): Unit = interrupted = true
+
   override def searchFrom(sol: CPIntSol): ALNSSearchResults = {
     if(maximizeObjective.isDefined) {
       solver.objective.objs.head.relax()
@@ -129,7 +132,7 @@ class ALNSSearchImpl(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig
       searchFirstSol()
     }
 
-    while(System.nanoTime() < endTime && !optimumFound && !stopSearch){
+    while(System.nanoTime() < endTime && !optimumFound && !stopSearch && !interrupted){
 
       //learning phase:
       if (config.metaParameters.getOrElse('learning, false).asInstanceOf[Boolean]) {
@@ -181,7 +184,8 @@ class ALNSSearchImpl(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig
       relaxStore.nonActiveEmpty &&
       searchStore.nonActiveEmpty &&
       !optimumFound &&
-      !stopSearch
+      !stopSearch &&
+      !interrupted
     ){
       lnsIter(relaxStore.select(), searchStore.select())
       if(stagnationThreshold > 0 && stagnation >= stagnationThreshold) stopSearch = true
@@ -52,7 +52,8 @@ class MetaOpLaborie(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig)
       System.nanoTime() < endTime &&
         relaxStore.nonActiveEmpty &&
         searchStore.nonActiveEmpty &&
-        !optimumFound
+        !optimumFound &&
+        !interrupted
     ) {
       val relax = relaxStore.select()
       val search = searchStore.select()
@@ -0,0 +1,187 @@
+package oscar.cp.searches.lns.search
+
+import oscar.cp.{CPIntVar, CPSolver}
+import oscar.cp.searches.lns.CPIntSol
+import oscar.cp.searches.lns.operators.{ALNSNoParamOperator, ALNSOperator}
+
+import scala.collection.mutable
+
+object ParallelALNSSearch{
+
+  /**
+    * Builds a parallel alns search with nWorkers replicas of the model.
+    * @param replica builds the replica of the given id: its solver, its decision variables and its configuration.
+    *                The configurations of all the replicas should contain the same operators (identified by name),
+    *                in their own stores.
+    */
+  def apply(nWorkers: Int)(replica: Int => (CPSolver, Array[CPIntVar], ALNSConfig)): ParallelALNSSearch = {
+    val replicas = Array.tabulate(nWorkers)(replica)
+    new ParallelALNSSearch(replicas.map(_._1), replicas.map(_._2), replicas.map(_._3))
+  }
+}
+
+/**
+  * Parallel adaptive large neighbourhood search.
+  *
+  * Each worker runs lns iterations on its own replica of the model, with operators selected in the adaptive
+  * stores of its own configuration, which are only adapted with the metrics of its own operators: the workers
+  * never wait for each other to select an operator and do not all select the same one. After each iteration,
+  * a worker reports its best solution and restarts from the best solution found by all the workers.
+  *
+  * The results report, for each operator, the statistics aggregated over all the workers (the operators are
+  * matched by name). The strategy of the configurations is ignored: all the workers run the default alns loop.
+  */
+class ParallelALNSSearch(solvers: Array[CPSolver], vars: Array[Array[CPIntVar]], configs: Array[ALNSConfig])
+  extends ALNSSearch(solvers(0), vars(0), configs(0)){
+
+  require(solvers.length == vars.length && solvers.length == configs.length, "one configuration is required per solver")
+
+  private val nWorkers = solvers.length
+
+  private val maximizeObjective: Option[Boolean] =
+    if(solvers(0).objective.objs.nonEmpty) Some(solvers(0).objective.objs.head.isMax) else None
+
+  private val workers = Array.tabulate(nWorkers)(i =>
+    new ParallelALNSWorker(this, solvers(i), vars(i), configs(i))
+  )
+
+  private var startTime: Long = System.nanoTime()
+  private val solsFound = new mutable.ArrayBuffer[CPIntSol]()
+  @volatile private var best: Option[CPIntSol] = None
+
+  /**
+    * Returns the best solution found so far by the workers.
+    */
+  def bestSolution: Option[CPIntSol] = best
+
+  /**
+    * Returns true if the solution a is strictly better than the solution b.
+    */
+  def isBetter(a: CPIntSol, b: CPIntSol): Boolean = maximizeObjective match{
+    case Some(true) => a.objective > b.objective
+    case Some(false) => a.objective < b.objective
+    case None => false
+  }
+
+  /**
+    * Reports a solution found by a worker, which becomes the best solution if it improves it.
+    */
+  def report(sol: CPIntSol): Unit = synchronized{
+    if(best.isEmpty || isBetter(sol, best.get)){
+      val newBest = new CPIntSol(sol.values, sol.objective, System.nanoTime() - startTime)
+      solsFound += newBest
+      best = Some(newBest)
+    }
+  }
+
+  override def searchFrom(sol: CPIntSol): ALNSSearchResults = run(sol, worker => worker.searchFrom(sol))
+
+  override def search(): ALNSSearchResults = run(null, worker => worker.search())
+
+  override def interrupt(): Unit = workers.foreach(_.interrupt())
+
+  private def run(initSol: CPIntSol, body: ParallelALNSWorker => ALNSSearchResults): ALNSSearchResults = {
+    startTime = System.nanoTime()
+    solsFound.clear()
+    best = None
+    if(initSol != null) report(initSol)
+
+    val results = new Array[ALNSSearchResults](nWorkers)
+    var error: Throwable = null
+
+    val threads = Array.tabulate(nWorkers)(i => new Thread(new Runnable{
+      override def run(): Unit = {
+        try{
+          results(i) = body(workers(i))
+          if(workers(i).optimumFound) interrupt() //The whole search space has been explored or the optimum is found
+        }
+        catch{
+          case e: Throwable =>
+            ParallelALNSSearch.this.synchronized{
+              if(error == null) error = e
+            }
+            interrupt()
+        }
+      }
+    }, "ParallelALNSSearch-worker-" + i))
+
+    threads.foreach(_.start())
+    threads.foreach(_.join())
+
+    if(error != null) throw error
+
+    synchronized{
+      new ALNSSearchResults(
+        solsFound.toArray,
+        aggregatedOperators(_.relaxOps).filter(_.name != "dummy"),
+        aggregatedOperators(_.searchOps),
+        results.exists(_.optimumFound),
+        solsFound.isEmpty && results.exists(_.unsat),
+        results(0).scoreHistory
+      )
+    }
+  }
+
+  /**
+    * Returns, for each operator of the first worker, an operator holding the statistics of all the operators
+    * with the same name of the workers.
+    */
+  private def aggregatedOperators(ops: ParallelALNSWorker => Array[ALNSOperator]): Array[ALNSOperator] = {
+    ops(workers(0)).map(op => {
+      val copies = workers.flatMap(ops(_).find(_.name == op.name))
+      val aggregated = new ALNSNoParamOperator(op.name, 0, () => op.getFunction)
+      copies.foreach(aggregated.addStats)
+      aggregated.setActive(copies.exists(_.isActive))
+      aggregated: ALNSOperator
+    })
+  }
+}
+
+/**
+  * A worker of the parallel alns: selects and adapts its operators in the stores of its own configuration and
+  * applies them on its replica.
+  */
+private class ParallelALNSWorker(
+                                  parallel: ParallelALNSSearch,
+                                  solver: CPSolver,
+                                  vars: Array[CPIntVar],
+                                  config: ALNSConfig
+                                ) extends ALNSSearchImpl(solver, vars, config){
+
+  override protected def alnsLoop(): Unit = {
+    if (!solver.silent) println("\nStarting parallel adaptive LNS...")
+
+    synchronizeBest()
+    stagnation = 0
+    while(
+      System.nanoTime() < endTime &&
+      currentSol.isDefined &&
+      relaxStore.nonActiveEmpty &&
+      searchStore.nonActiveEmpty &&
+      !optimumFound &&
+      !stopSearch &&
+      !interrupted
+    ){
+      lnsIter(relaxStore.select(), searchStore.select())
+      synchronizeBest()
+      if(stagnationThreshold > 0 && stagnation >= stagnationThreshold) stopSearch = true
+    }
+  }
+
+  /**
+    * Reports the best solution of the worker and restarts from the best solution of all the workers.
+    */
+  private def synchronizeBest(): Unit = {
+    if(bestSol.isDefined) parallel.report(bestSol.get)
+    val globalBest = parallel.bestSolution
+    if(globalBest.isDefined && (bestSol.isEmpty || parallel.isBetter(globalBest.get, bestSol.get))){
+      previousBest = bestSol
+      bestSol = globalBest
+      currentSol = globalBest
+      if(maximizeObjective.isDefined){
+        solver.objective.objs.head.relax()
+        solver.objective.objs.head.best = globalBest.get.objective
+      }
+    }
+  }
+}
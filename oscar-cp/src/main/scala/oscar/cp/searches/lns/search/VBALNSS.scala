@@ -45,7 +45,7 @@ class VBALNSS(solver: CPSolver, vars: Array[CPIntVar], config: ALNSConfig) exten
       println("n operators: " + nOpCombinations)
     }
 
-    while(cumulatedTime < config.timeout && !optimumFound){
+    while(cumulatedTime < config.timeout && !optimumFound && !interrupted){
       val startSol = bestSol.get
       var tUsed = Long.MaxValue
       var bestPerf = 0.0
@@ -50,7 +50,8 @@ class EvalWindowLaborie(solver: CPSolver, vars: Array[CPIntVar], config: ALNSCon
       System.nanoTime() < endTime &&
         relaxStore.nonActiveEmpty &&
         searchStore.nonActiveEmpty &&
-        !optimumFound
+        !optimumFound &&
+        !interrupted
     ) {
       val relax = relaxStore.select()
       val search = searchStore.select()
@@ -0,0 +1,104 @@
+package oscar.cp.core
+
+import oscar.cp._
+import oscar.cp.core.variables.CPVar
+import oscar.cp.testUtils.TestSuite
+
+class PropagQueueL1Suite extends TestSuite {
+
+  test("events are removed in FIFO order with their fields") {
+    val queue = new PropagQueueL1()
+    for (i <- 0 until 100) queue.addLast(i % 11, null, "x" + i, i, -i)
+    queue.size shouldBe 100
+    for (i <- 0 until 100) {
+      queue.removeFirst()
+      queue.kind shouldBe i % 11
+      queue.variable shouldBe "x" + i
+      queue.index shouldBe i
+      queue.value shouldBe -i
+    }
+    queue.isEmpty shouldBe true
+  }
+
+  test("the order is kept when the queue grows while events are pending") {
+    val queue = new PropagQueueL1()
+    var next = 0
+    var expected = 0
+    for (_ <- 0 until 50) {
+      for (_ <- 0 until 3) {
+        queue.addLast(PropagQueueL1.Bind, null, null, next, 0)
+        next += 1
+      }
+      queue.removeFirst()
+      queue.index shouldBe expected
+      expected += 1
+    }
+    while (!queue.isEmpty) {
+      queue.removeFirst()
+      queue.index shouldBe expected
+      expected += 1
+    }
+    expected shouldBe next
+  }
+
+  test("removed and cleared events are not referenced anymore") {
+    val queue = new PropagQueueL1()
+    queue.addLast(PropagQueueL1.Closure, null, "a", 0, 0)
+    queue.addLast(PropagQueueL1.Closure, null, "b", 0, 0)
+    queue.addLast(PropagQueueL1.Closure, null, "c", 0, 0)
+    queue.removeFirst()
+    queue.variable shouldBe "a"
+    queue.removeFirst()
+    queue.variable shouldBe "b"
+    queue.clear()
+    queue.isEmpty shouldBe true
+    queue.variable shouldBe null
+    // The queue can be reused after being cleared
+    queue.addLast(PropagQueueL1.Closure, null, "d", 0, 0)
+    queue.size shouldBe 1
+    queue.removeFirst()
+    queue.variable shouldBe "d"
+  }
+
+  test("the events of each priority are processed in FIFO order") {
+    implicit val cp = CPSolver()
+    val x = CPIntVar(0 to 9)
+    val trace = scala.collection.mutable.ArrayBuffer[(Int, Int)]()
+    // Two constraints listening to the removals with different priorities
+    for (priority <- Seq(CPStore.MaxPriorityL1 - 1, CPStore.MaxPriorityL1)) {
+      val c = new Constraint(cp, "trace" + priority) {
+        priorityRemoveL1 = priority
+        override def associatedVars(): Iterable[CPVar] = Array(x)
+        override def setup(l: CPPropagStrength): Unit = x.callValRemoveWhenValueIsRemoved(this)
+        override def valRemove(y: CPIntVar, value: Int): Unit = trace += ((priority, value))
+      }
+      cp.post(c)
+    }
+    cp.post(new Constraint(cp, "remover") {
+      override def associatedVars(): Iterable[CPVar] = Array(x)
+      override def setup(l: CPPropagStrength): Unit = {
+        x.removeValue(3)
+        x.removeValue(1)
+        x.removeValue(7)
+      }
+    })
+    val high = trace.filter(_._1 == CPStore.MaxPriorityL1).map(_._2)
+    val low = trace.filter(_._1 == CPStore.MaxPriorityL1 - 1).map(_._2)
+    high shouldBe Seq(3, 1, 7)
+    low shouldBe high
+    // The higher priority is always processed first
+    trace.takeWhile(_._1 == CPStore.MaxPriorityL1).size shouldBe 3
+  }
+
+  test("the queues are empty and reusable after a failure") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(4)(CPIntVar(0 to 2))
+    add(allDifferent(x), Weak)
+    val nSols = start().nSols
+    cp.pushState()
+    isInconsistent(cp.post(x(0) === x(1))) shouldBe true
+    cp.pop()
+    start().nSols shouldBe nSols
+  }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.constraints.{Gr, GrEq}
+import oscar.cp.core.{CPPropagStrength, CPStore}
+import oscar.cp.core.variables.CPVar
+import oscar.cp.testUtils.TestSuite
+
+import scala.util.Random
+
+class TestAdaptiveScheduling extends TestSuite {
+
+  // Random model mixing cheap and global constraints
+  private def model(seed: Int, adaptive: Boolean): (CPSolver, Array[CPIntVar], Array[Constraint]) = {
+    val rand = new Random(seed)
+    val cp = CPSolver()
+    cp.adaptiveScheduling = adaptive
+    val x = Array.fill(6)(CPIntVar(0 to 7)(cp))
+    val constraints = Array[Constraint](
+      allDifferent(x.take(4)),
+      new GrEq(x(4), x(0)),
+      new GrEq(x(5), x(1)),
+      sum(x) <= 25,
+      gcc(x.drop(2), 0 to 7, 0, 2)
+    )
+    constraints.foreach(c => cp.add(c, if (rand.nextBoolean()) Strong else Weak))
+    (cp, x, constraints)
+  }
+
+  // Constraint that takes time at each call but never prunes
+  private class Costly(x: Array[CPIntVar]) extends Constraint(x(0).store, "Costly") {
+    override def associatedVars(): Iterable[CPVar] = x
+    override def setup(l: CPPropagStrength): Unit = {
+      priorityL2 = CPStore.MaxPriorityL2
+      x.foreach(_.callPropagateWhenBoundsChange(this))
+    }
+    override def propagate(): Unit = {
+      val end = System.nanoTime() + 100000
+      while (System.nanoTime() < end) {}
+    }
+  }
+
+  test("Adaptive scheduling finds the same solutions") {
+    for (seed <- 0 until 10) {
+      val (cp1, x1, _) = model(seed, adaptive = false)
+      val (cp2, x2, _) = model(seed, adaptive = true)
+      val sols1 = scala.collection.mutable.Set[List[Int]]()
+      val sols2 = scala.collection.mutable.Set[List[Int]]()
+      cp1.onSolution(sols1 += x1.map(_.value).toList)
+      cp2.onSolution(sols2 += x2.map(_.value).toList)
+      cp1.search(binaryFirstFail(x1))
+      cp2.search(binaryFirstFail(x2))
+      val stats1 = cp1.start()
+      val stats2 = cp2.start()
+      stats2.nSols should be(stats1.nSols)
+      sols2 should be(sols1)
+    }
+  }
+
+  test("Adaptive priorities are observed") {
+    val (cp, x, constraints) = model(0, adaptive = true)
+    cp.search(binaryFirstFail(x))
+    cp.start(nSols = 10)
+    constraints.foreach(c => {
+      c.adaptivePriorityL2 should be >= CPStore.MinPriorityL2
+      c.adaptivePriorityL2 should be <= CPStore.MaxPriorityL2
+      c.observedPruning should be >= 0.0
+      c.observedPruning should be <= 1.0
+    })
+  }
+
+  test("Cheap pruning constraints get a higher priority than costly ineffective ones") {
+    val cp = CPSolver()
+    val x = Array.fill(2)(CPIntVar(0 to 7)(cp))
+    val cheap = new GrEq(x(0), x(1))
+    val costly = new Costly(x)
+    for (i <- 0 until 20) {
+      cheap.observe(500, i % 2 == 0)
+      costly.observe(100000, false)
+    }
+    cheap.adaptivePriorityL2 should be > costly.adaptivePriorityL2
+    costly.adaptivePriorityL2 should be(CPStore.MinPriorityL2)
+  }
+
+  test("Costly constraints that never prune are propagated last") {
+    val cp = CPSolver()
+    cp.adaptiveScheduling = true
+    val x = Array.fill(4)(CPIntVar(0 to 5)(cp))
+    val cheap = new GrEq(x(0), x(1))
+    val costly = new Costly(x)
+    cp.add(cheap)
+    cp.add(costly)
+    cp.search(binaryFirstFail(x))
+    cp.start(nSols = 20)
+    costly.observedPruning should be(0.0)
+    costly.adaptivePriorityL2 should be(CPStore.MinPriorityL2)
+    cheap.observedPruning should be > 0.0
+  }
+
+  test("GrEq is idempotent") {
+    val cp = CPSolver()
+    val x = CPIntVar(0 to 10)(cp)
+    val y = CPIntVar(0 to 10)(cp)
+    val c = new GrEq(x, y)
+    cp.add(c)
+    c.idempotent should be(true)
+    cp.add(y >= 5)
+    x.min should be(5)
+  }
+
+  test("GrEq and Gr are not idempotent on views of the same variable") {
+    val cp = CPSolver()
+    val x = CPIntVar(-5 to 5)(cp)
+    val c1 = new GrEq(x, -x)
+    val c2 = new Gr(x + 2, x)
+    cp.add(c1)
+    cp.add(c2)
+    c1.idempotent should be(false)
+    c2.idempotent should be(false)
+  }
+}
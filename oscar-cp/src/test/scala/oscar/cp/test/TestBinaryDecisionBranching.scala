@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.algo.branchings.{BinaryBranching, BinaryDomainSplitBranching}
+import oscar.algo.search.{Alternative, BinaryDecisionAlternative, BinaryDecisionBranching, Branching, DefaultDFSearchListener}
+import oscar.algo.vars.IntVarLike
+import oscar.cp._
+import oscar.cp.testUtils.TestSuite
+
+class TestBinaryDecisionBranching extends TestSuite {
+
+  // Random model with many failures
+  private def model(seed: Int)(implicit cp: CPSolver): Array[CPIntVar] = {
+    val rand = new scala.util.Random(seed)
+    val x = Array.fill(7)(CPIntVar(0 to 6))
+    add(allDifferent(x))
+    add(sum(x.take(4)) <= 10 + rand.nextInt(6))
+    add(x(rand.nextInt(7)) !== rand.nextInt(7))
+    x
+  }
+
+  private val branchings: Seq[(String, Array[CPIntVar] => Branching)] = Seq(
+    ("binaryFirstFail", x => binaryFirstFail(x)),
+    ("binaryStatic", x => binaryStatic(x)),
+    ("binaryLastConflict", x => binaryLastConflict(x)),
+    ("conflictOrderingSearch", x => conflictOrderingSearch(x, x(_).size, x(_).min)),
+    ("binaryIdx", x => binaryIdx(x, x(_).max, x(_).max)),
+    ("binarySplit", x => new BinaryDomainSplitBranching[Int](x.asInstanceOf[Array[IntVarLike]], x(_).size, i => i))
+  )
+
+  test("The ported branchings are driven without alternatives") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 3))
+    for ((name, branching) <- branchings) {
+      withClue(name) {
+        branching(x).isInstanceOf[BinaryDecisionBranching] should be(true)
+      }
+    }
+  }
+
+  test("Driving the decisions explores the same tree as the alternatives") {
+    for (seed <- 0 until 10; (name, branching) <- branchings) {
+      def solve(wrapped: Boolean): (Int, Int, Int) = {
+        implicit val cp = CPSolver()
+        cp.deactivateNoSolExceptions()
+        val x = model(seed)
+        val b = branching(x)
+        // The combinator hides the protocol such that the alternatives are used
+        search(if (wrapped) b ++ Branching(Seq.empty[Alternative]) else b)
+        val stats = start()
+        (stats.nSols, stats.nFails, stats.nNodes)
+      }
+      withClue(name) {
+        solve(false) should be(solve(true))
+      }
+    }
+  }
+
+  test("The search listeners are notified of the decisions") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 1))
+    var branches = List.empty[Alternative]
+    val listener = new DefaultDFSearchListener {
+      override def onBranch(alternative: Alternative): Unit = branches ::= alternative
+    }
+    search(new BinaryBranching[Int](x.asInstanceOf[Array[IntVarLike]], x(_).size, x(_).min, i => i))
+    start(searchListener = listener).nSols should be(8)
+    val decisions = branches.collect { case d: BinaryDecisionAlternative => d }
+    decisions.size should be(14)
+    decisions.count(_.left) should be(7)
+    decisions.forall(d => x.contains(d.variable) && d.value == 0) should be(true)
+  }
+}
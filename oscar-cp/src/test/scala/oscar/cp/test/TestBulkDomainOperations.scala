@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.core.CPPropagStrength
+import oscar.cp.core.variables._
+import oscar.cp.testUtils.TestSuite
+
+class TestBulkDomainOperations extends TestSuite {
+
+  // Variables with the domain {-5, ..., 30} of all the implementations
+  private def variables(implicit cp: CPSolver): Array[CPIntVar] = Array(
+    CPIntVar(-5 to 30),
+    CPIntVar.sparse(-5, 30),
+    CPIntVar.bitSet(-5, 30),
+    new CPIntVarViewOffset(CPIntVar(-8 to 27), 3),
+    new CPIntVarViewMinus(CPIntVar(-30 to 5)),
+    new CPIntVarViewMinus(CPIntVar.bitSet(-30, 5)),
+    new CPIntVarViewTimes(CPIntVar(-5 to 30), 1),
+    new CPIntVarViewTimes(new CPIntVarViewMinus(CPIntVar(-30 to 5)), -1)
+  )
+
+  private def toWords(values: Set[Int], base: Int): Array[Long] = {
+    val words = new Array[Long](2)
+    values.foreach(v => if (v - base >= 0 && v - base < 128) words((v - base) / 64) |= 1L << (v - base))
+    words
+  }
+
+  test("Bulk operations have the same effect as removing the values one by one") {
+    for (seed <- 0 until 30) {
+      val rand = new scala.util.Random(seed)
+      implicit val cp = CPSolver()
+      val xs = variables
+      var domain = (-5 to 30).toSet
+      for (_ <- 0 until 6) {
+        val values = Array.fill(1 + rand.nextInt(12))(rand.nextInt(50) - 10)
+        val base = rand.nextInt(20) - 15
+        val operation = rand.nextInt(3)
+        val newDomain = operation match {
+          case 0 => domain -- values
+          case 1 => domain.filter(v => values.contains(v) && v - base >= 0 && v - base < 128)
+          case 2 => domain.intersect(values.toSet)
+        }
+        for (x <- xs) {
+          val failed = isInconsistent(operation match {
+            case 0 => x.removeValues(values)
+            case 1 => x.restrictTo(toWords(values.toSet, base), base)
+            case 2 => x.intersectWith(values.sorted)
+          })
+          failed should be(newDomain.isEmpty)
+          if (!failed) {
+            x.toSet should be(newDomain)
+            x.min should be(newDomain.min)
+            x.max should be(newDomain.max)
+          }
+        }
+        if (newDomain.nonEmpty) domain = newDomain
+      }
+    }
+  }
+
+  test("The domain is restored after a bulk operation") {
+    implicit val cp = CPSolver()
+    for (x <- variables) {
+      cp.pushState()
+      x.removeValues(Array(-5, 3, 4, 30, 40))
+      x.intersectWith(Array(-4, 0, 3, 5, 29))
+      x.toSet should be(Set(-4, 0, 5, 29))
+      cp.pop()
+      x.toSet should be((-5 to 30).toSet)
+    }
+  }
+
+  test("The removed values are notified once") {
+    implicit val cp = CPSolver()
+    for (x <- variables) {
+      var removed = List.empty[Int]
+      var nPropagate = 0
+      class Watch extends Constraint(cp, "Watch") {
+        override def setup(l: CPPropagStrength): Unit = {
+          x.callValRemoveWhenValueIsRemoved(this)
+          x.callPropagateWhenDomainChanges(this)
+        }
+        override def valRemove(y: CPIntVar, value: Int): Unit = removed ::= value
+        override def propagate(): Unit = nPropagate += 1
+        override def associatedVars(): Iterable[CPVar] = Iterable(x)
+      }
+      class Removal extends Constraint(cp, "Removal") {
+        override def setup(l: CPPropagStrength): Unit = x.removeValues(Array(1, 2, 2, 10, -5, 100))
+        override def associatedVars(): Iterable[CPVar] = Iterable(x)
+      }
+      cp.pushState()
+      add(new Watch)
+      add(new Removal)
+      removed.sorted should be(List(-5, 1, 2, 10))
+      nPropagate should be(1)
+      x.min should be(-4)
+      cp.pop()
+    }
+  }
+}
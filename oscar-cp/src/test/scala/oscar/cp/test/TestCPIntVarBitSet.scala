@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.core.CPPropagStrength
+import oscar.cp.core.delta.DeltaIntVar
+import oscar.cp.core.variables.{CPIntVarBitSet, CPVar}
+import oscar.cp.testUtils.TestSuite
+
+class TestCPIntVarBitSet extends TestSuite {
+
+  test("Bounds are updated across the words") {
+    implicit val cp = CPSolver()
+    val x = CPIntVar.bitSet(-10, 190)
+    x.size should be(201)
+    x.updateMin(60)
+    x.min should be(60)
+    x.removeValue(60)
+    x.removeValue(61)
+    x.min should be(62)
+    x.updateMax(127)
+    x.max should be(127)
+    x.removeValues((64 to 126).toArray)
+    x.toArray should be(Array(62, 63, 127))
+    x.valueAfter(63) should be(127)
+    x.valueBefore(127) should be(63)
+    x.isContinuous should be(false)
+    x.assign(127)
+    x.isBoundTo(127) should be(true)
+  }
+
+  test("The domain is restored on backtrack") {
+    implicit val cp = CPSolver()
+    val x = CPIntVar.bitSet(Set(0, 3, 64, 65, 200))
+    x.toArray should be(Array(0, 3, 64, 65, 200))
+    cp.pushState()
+    x.removeValue(64)
+    x.updateMin(1)
+    x.restrict(Array(200, 65), 2)
+    x.toArray should be(Array(65, 200))
+    cp.pushState()
+    x.assign(200)
+    cp.pop()
+    x.toArray should be(Array(65, 200))
+    cp.pop()
+    x.toArray should be(Array(0, 3, 64, 65, 200))
+    x.min should be(0)
+    x.max should be(200)
+  }
+
+  test("Removing the last values fails") {
+    implicit val cp = CPSolver()
+    val x = CPIntVar.bitSet(0, 5)
+    isInconsistent(x.removeValues(Array(0, 1, 2, 3, 4, 5))) should be(true)
+    isInconsistent(x.assign(6)) should be(true)
+    isInconsistent(x.updateMin(6)) should be(true)
+  }
+
+  test("The operations have the same effect as on the adaptable domain") {
+    for (seed <- 0 until 50) {
+      val rand = new scala.util.Random(seed)
+      implicit val cp = CPSolver()
+      val n = 1 + rand.nextInt(CPIntVarBitSet.MaxSize)
+      val x = CPIntVar.bitSet(0, n - 1)
+      val y = CPIntVar.sparse(0, n - 1)
+      var level = 0
+      var steps = 0
+      while (level >= 0 && steps < 1000) {
+        steps += 1
+        x.toArray should be(y.toArray.sorted)
+        x.min should be(y.min)
+        x.max should be(y.max)
+        val v = rand.nextInt(n + 2) - 1
+        if (rand.nextInt(4) == 0 || y.isBound) {
+          if (level > 0) cp.pop()
+          level -= 1
+        } else {
+          cp.pushState()
+          level += 1
+          rand.nextInt(5) match {
+            case 0 => x.removeValue(v); y.removeValue(v)
+            case 1 => x.updateMin(math.min(v, y.max)); y.updateMin(math.min(v, y.max))
+            case 2 => x.updateMax(math.max(v, y.min)); y.updateMax(math.max(v, y.min))
+            case 3 =>
+              val values = Array.fill(3)(rand.nextInt(n))
+              val kept = y.toArray.filterNot(values.contains)
+              if (kept.nonEmpty) { x.removeValues(values); y.removeValues(values) }
+            case 4 =>
+              val values = y.toArray.filter(_ => rand.nextBoolean())
+              if (values.nonEmpty) { x.restrict(values, values.length); y.restrict(values, values.length) }
+          }
+        }
+      }
+    }
+  }
+
+  test("The delta contains the removed values") {
+    var propagated = false
+    class MyCons(val x: CPIntVar) extends Constraint(x.store, "TestDelta") {
+      var snapshot: DeltaIntVar = null
+      override def setup(l: CPPropagStrength): Unit = snapshot = x.callPropagateOnChangesWithDelta(this)
+      override def propagate(): Unit = {
+        snapshot.size should be(3)
+        snapshot.values.toSet should be(Set(1, 70, 100))
+        val array = new Array[Int](3)
+        snapshot.fillArray(array) should be(3)
+        array.toSet should be(Set(1, 70, 100))
+        snapshot.minChanged should be(false)
+        snapshot.maxChanged should be(true)
+        propagated = true
+      }
+      override def associatedVars(): Iterable[CPVar] = Iterable(x)
+    }
+    class Removal(val x: CPIntVar) extends Constraint(x.store, "Removal") {
+      override def setup(l: CPPropagStrength): Unit = {
+        x.removeValues(Array(1, 70))
+        x.updateMax(99)
+      }
+      override def associatedVars(): Iterable[CPVar] = Iterable(x)
+    }
+
+    implicit val cp = CPSolver()
+    val x = CPIntVar.bitSet(Set(0, 1, 64, 70, 100))
+    add(new MyCons(x))
+    add(new Removal(x))
+    propagated should be(true)
+    x.toArray should be(Array(0, 64))
+  }
+
+  test("A model has the same solutions with bitset domains") {
+    for (seed <- 0 until 10) {
+      def solve(bitSet: Boolean): Int = {
+        val rand = new scala.util.Random(seed)
+        implicit val cp = CPSolver()
+        val x = Array.fill(5)(if (bitSet) CPIntVar.bitSet(0, 6) else CPIntVar(0 to 6))
+        add(allDifferent(x), Strong)
+        add(sum(x) <= 15 + rand.nextInt(5))
+        add(x(rand.nextInt(5)) !== rand.nextInt(7))
+        search(binaryFirstFail(x))
+        start().nSols
+      }
+      solve(true) should be(solve(false))
+    }
+  }
+}
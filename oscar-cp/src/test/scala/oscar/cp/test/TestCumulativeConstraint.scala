@@ -145,3 +145,12 @@ class TestTTEF extends TestCumulativeConstraint("TTEF") {
     )
   }
 }
+
+class TestTTSharedProfile extends TestCumulativeConstraint("TT+TTDR") {
+  override def cumulative(starts: Array[CPIntVar], durations: Array[CPIntVar], ends: Array[CPIntVar], demands: Array[CPIntVar], resources: Array[CPIntVar], capacity: CPIntVar, id: Int): Array[Constraint] = {
+    Array(
+        TTPerTask(starts, durations, ends, demands, resources, capacity, id),
+        TimeTableDisjunctiveReasoning(starts, durations, ends, demands, resources, capacity, id)
+    )
+  }
+}
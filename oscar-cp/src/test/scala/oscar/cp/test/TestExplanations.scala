@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.constraints.{ElementCst, GrEq, Sum}
+import oscar.cp.nogoods.decisions.{Greater, LowerEq}
+import oscar.cp.nogoods.explanations.Literal
+import oscar.cp.nogoods.searches.{ExplanationSearch, StaticNogoodBranching}
+import oscar.cp.testUtils.TestSuite
+
+class TestExplanations extends TestSuite {
+
+  test("The learned clause is the first unique implication point") {
+    implicit val cp = CPSolver()
+    val engine = cp.enableExplanations()
+    val a = CPIntVar(0 to 5, "a")
+    val b = CPIntVar(0 to 5, "b")
+    val c = CPIntVar(0 to 10, "c")
+    val d = CPIntVar(0 to 5, "d")
+    add(new GrEq(b, a))
+    add(new Sum(Array(a, b), c))
+    add(new GrEq(d, c))
+    cp.pushState()
+    engine.rootLevel = cp.nLevel
+    cp.pushState()
+    val d1 = new LowerEq(d, 3)
+    engine.decide(d1)
+    isInconsistent(d1()) should be(false)
+    cp.pushState()
+    val d2 = new Greater(a, 1)
+    engine.clearConflict()
+    engine.decide(d2)
+    isInconsistent(d2()) should be(true)
+    // a >= 2 implies b >= 2, then a + b >= 4 is in conflict with c <= 3
+    engine.analyze().map(engine.toString).sorted should be(Array("[a <= 1]", "[c >= 4]"))
+    cp.pop()
+    cp.pop()
+    cp.pop()
+  }
+
+  test("Unexplained failures are explained by the decisions") {
+    implicit val cp = CPSolver()
+    val engine = cp.enableExplanations()
+    val a = CPIntVar(0 to 5, "a")
+    val b = CPIntVar(0 to 5, "b")
+    add(a !== b) // not explained
+    cp.pushState()
+    engine.rootLevel = cp.nLevel
+    cp.pushState()
+    val d1 = new Greater(a, 3)
+    engine.decide(d1)
+    isInconsistent(d1()) should be(false)
+    cp.pushState()
+    val d2 = new Greater(b, 4)
+    engine.decide(d2)
+    isInconsistent(d2()) should be(false)
+    cp.pushState()
+    engine.clearConflict()
+    isInconsistent(cp.post(a === b)) should be(true)
+    engine.analyze().map(engine.toString).sorted should be(Array("[a <= 3]", "[b <= 4]"))
+    cp.pop()
+    cp.pop()
+    cp.pop()
+    cp.pop()
+  }
+
+  test("The explanation mode is a mode of the store") {
+    val cp = CPSolver()
+    cp.explanationEngine should be(null)
+    val engine = cp.enableExplanations()
+    System.gc()
+    (cp.explanationEngine eq engine) should be(true)
+    (cp.enableExplanations() eq engine) should be(true)
+    CPSolver().explanationEngine should be(null)
+  }
+
+  test("The literals are negated and implied correctly") {
+    val geq = Literal(3, Literal.Geq, -2)
+    Literal.variable(geq) should be(3)
+    Literal.value(geq) should be(-2)
+    Literal.negation(geq) should be(Literal(3, Literal.Leq, -3))
+    Literal.negation(Literal.negation(geq)) should be(geq)
+    Literal.implies(Literal(3, Literal.Eq, 1), geq) should be(true)
+    Literal.implies(Literal(3, Literal.Geq, -1), Literal(3, Literal.Neq, -2)) should be(true)
+    Literal.implies(Literal(3, Literal.Leq, 0), geq) should be(false)
+  }
+
+  // Random models made of explained sum, element and inequality constraints
+  private def model(seed: Int, explained: Boolean): (CPSolver, Array[CPIntVar]) = {
+    val rand = new scala.util.Random(seed)
+    implicit val cp = CPSolver()
+    if (explained) cp.enableExplanations()
+    val x = Array.fill(6)(CPIntVar(0 to 3))
+    val total = CPIntVar(0 to 18)
+    add(new Sum(x, total))
+    add(new GrEq(total, CPIntVar(4 + rand.nextInt(4))))
+    add(new GrEq(CPIntVar(8 + rand.nextInt(4)), total))
+    val z = CPIntVar(0 to 9)
+    add(new ElementCst(Array.fill(4)(rand.nextInt(10)), x(0), z), Strong)
+    add(new GrEq(z, x(1)))
+    for (_ <- 0 until 3) {
+      val i = rand.nextInt(x.length)
+      val j = rand.nextInt(x.length)
+      if (i != j) add(new GrEq(x(i), x(j)))
+    }
+    (cp, x)
+  }
+
+  test("The search with explanations finds all the solutions") {
+    for (seed <- 0 until 50) {
+      val (cp1, x1) = model(seed, false)
+      cp1.search(binaryStatic(x1))
+      val expected = cp1.start().nSols
+
+      val (cp2, x2) = model(seed, true)
+      val search = new ExplanationSearch(cp2, x2)
+      search.start(new StaticNogoodBranching(x2, _.min), _ => false)
+      search.isCompleted should be(true)
+      search.nSolutions should be(expected)
+    }
+  }
+
+  test("A clause is learned from each failure") {
+    var learned = 0
+    for (seed <- 0 until 20) {
+      val (cp, x) = model(seed, true)
+      val search = new ExplanationSearch(cp, x)
+      search.start(new StaticNogoodBranching(x, _.max), _ => false)
+      learned += search.nLearned
+      if (search.clauses != null) search.clauses.size should be <= search.nLearned
+    }
+    learned should be > 0
+  }
+
+  test("The clause store is created when the store has already failed") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(2)(CPIntVar(0 to 3))
+    val search = new ExplanationSearch(cp, x)
+    add(x(0) >= 4)
+    cp.isFailed should be(true)
+    search.start(new StaticNogoodBranching(x, _.min), _ => false)
+    search.nSolutions should be(0)
+    search.clauses should not be (null)
+    search.clauses.size should be(0)
+  }
+}
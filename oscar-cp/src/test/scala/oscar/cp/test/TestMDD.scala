@@ -155,4 +155,31 @@ class TestMDD extends TestSuite {
 
   }
 
+  test("Compiled mdds are shared by table content and reduced") {
+    val table = Array(Array(1, 1, 1), Array(1, 2, 1), Array(2, 1, 1), Array(2, 2, 1), Array(3, 3, 3))
+    val mdd1 = StaticMdd.compiledMddFromTable(table, 3)
+    val mdd2 = StaticMdd.compiledMddFromTable(table.map(_.clone()), 3)
+    (mdd1 eq mdd2) should be(true)
+    mdd1.numPaths().toString().toInt should equal(table.length)
+    // root, {1,2} and {3} nodes, {1} and {3} nodes, end
+    mdd1.getNumberOfNodes() should equal(6)
+
+    val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 4)(cp))
+    cp.add(new Mdd4RConstraint(x, mdd1, cp))
+    cp.add(new Mdd4RConstraint(Array(x(1), x(0), x(2)), mdd2, cp))
+    cp.search(binary(x))
+    cp.start().nSols should equal(table.length)
+  }
+
+  test("Tuples added incrementally give the same relation") {
+    val rand = new scala.util.Random(12)
+    val table = Array.fill(200, 5)(rand.nextInt(4)).map(_.toSeq).distinct.map(_.toArray)
+    val mdd = StaticMdd.buildMddFromTableRegin(table.take(100), 5)
+    table.drop(100).foreach(mdd.addTuple(_))
+    val reference = StaticMdd.buildMddFromTableRegin(table, 5)
+    mdd.numPaths() should equal(reference.numPaths())
+    table.foreach(tuple => mdd.contains(tuple) should be(true))
+  }
+
 }
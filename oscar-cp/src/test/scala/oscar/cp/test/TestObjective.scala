@@ -201,4 +201,45 @@ class TestObjective extends TestSuite {
   }   
  
 
+  test("Shared bound") {
+    val bound = new oscar.cp.core.SharedObjectiveBound(true)
+    def model(): (CPSolver, Array[CPIntVar]) = {
+      val cp = CPSolver()
+      cp.silent = true
+      val x = Array.fill(3)(CPIntVar(0 to 5)(cp))
+      cp.minimize(sum(x))
+      cp.shareObjective(bound)
+      cp.search(binaryStaticIdx(x, i => x(i).max))
+      (cp, x)
+    }
+    val (cp1, _) = model()
+    val stat1 = cp1.start()
+    bound.value should be(0)
+    // the second solver only looks for solutions strictly better than the shared bound
+    val (cp2, _) = model()
+    cp2.start().nSols should be(0)
+    stat1.nSols should be > 1
+  }
+
+  test("Shared bound is not imported after a local relaxation") {
+    val bound = new oscar.cp.core.SharedObjectiveBound(true)
+    bound.offer(3)
+    val cp = CPSolver()
+    cp.silent = true
+    val x = Array.fill(3)(CPIntVar(0 to 5)(cp))
+    val obj = sum(x)
+    cp.minimize(obj)
+    cp.shareObjective(bound)
+    cp.search(binaryStaticIdx(x, i => x(i).max))
+    val values = scala.collection.mutable.ArrayBuffer[Int]()
+    cp.onSolution { values += obj.value }
+    // deliberate restart from a value worse than the shared bound
+    cp.objective.objs.head.relax()
+    cp.objective.objs.head.best = 12
+    cp.start()
+    values.head should be(11)
+    values.last should be(0)
+    bound.value should be(0)
+  }
+
 }
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.searches.lns.CPIntSol
+import oscar.cp.searches.lns.operators.{ALNSNoParamOperator, ALNSOperator, RelaxationFunctions, SearchFunctions}
+import oscar.cp.searches.lns.search.{ALNSConfig, ParallelALNSSearch}
+import oscar.cp.searches.lns.selection.{Metrics, PriorityStore, RandomStore}
+import oscar.cp.testUtils.TestSuite
+
+class TestParallelALNSSearch extends TestSuite {
+
+  // The optimum assigns the smallest values to the largest weights: 5*0 + 4*1 + 3*2 + 2*3 + 1*4
+  private val weights = Array(5, 4, 3, 2, 1)
+  private val optimum = 20
+
+  private def replica(target: Option[Int], timeout: Long)(id: Int): (CPSolver, Array[CPIntVar], ALNSConfig) = {
+    val cp = CPSolver()
+    cp.silent = true
+    val x = Array.fill(weights.length)(CPIntVar(0 to 9)(cp))
+    cp.add(allDifferent(x))
+    cp.minimize(sum(x.indices)(i => x(i) * weights(i)))
+
+    val relaxOps = Array[ALNSOperator](
+      new ALNSNoParamOperator("random", 0, () => ((sol: CPIntSol) => RelaxationFunctions.randomRelax(cp, x, sol, 2), None, None)),
+      new ALNSNoParamOperator("successive", 0, () => ((sol: CPIntSol) => RelaxationFunctions.successiveRelax(cp, x, sol, 2), None, None))
+    )
+    val searchOps = Array[ALNSOperator](
+      new ALNSNoParamOperator("first-fail", 0, () => ((_: CPIntSol) => cp.search(SearchFunctions.firstFail(x, "Min", valLearn = false)), None, None)),
+      new ALNSNoParamOperator("conflict", 0, () => ((_: CPIntSol) => cp.search(SearchFunctions.conflictOrdering(x, "Min", valLearn = false)), None, None))
+    )
+    val config = new ALNSConfig(
+      new RandomStore[ALNSOperator](relaxOps),
+      new PriorityStore[ALNSOperator](searchOps, 0.4, false, Metrics.averageImprovement),
+      timeout,
+      target
+    )
+    (cp, x, config)
+  }
+
+  test("Parallel ALNS finds the known optimum") {
+    val search = ParallelALNSSearch(4)(replica(Some(optimum), 20000000000L))
+    val results = search.search()
+    results.solutions.last.objective should be(optimum)
+    search.bestSolution.get.objective should be(optimum)
+    results.optimumFound should be(true)
+    // solutions are strictly improving
+    results.solutions.map(_.objective).sliding(2).foreach(s => if (s.length == 2) s(1) should be < s(0))
+    // the metrics of the operators are aggregated over the workers
+    results.searchOperators.map(_.name).toSet should be(Set("first-fail", "conflict"))
+    results.relaxOperators.map(_.execs).sum should be >= results.searchOperators.map(_.execs).sum
+  }
+
+  test("Parallel ALNS stops when interrupted") {
+    val search = ParallelALNSSearch(3)(replica(None, 600000000000L))
+    val interrupter = new Thread(new Runnable {
+      override def run(): Unit = {
+        Thread.sleep(300)
+        search.interrupt()
+      }
+    })
+    val t0 = System.currentTimeMillis()
+    interrupter.start()
+    val results = search.search()
+    interrupter.join()
+    (System.currentTimeMillis() - t0) should be < 30000L
+    results.solutions.nonEmpty should be(true)
+    results.solutions.last.objective should be >= optimum
+  }
+}
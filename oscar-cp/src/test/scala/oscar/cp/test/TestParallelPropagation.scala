@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.core.CPPropagStrength
+import oscar.cp.core.variables.CPVar
+import oscar.cp.core.watcher.Watcher
+import oscar.cp.testUtils.TestSuite
+
+class TestParallelPropagation extends TestSuite {
+
+  // Independent groups of variables linked by an all different and a sum
+  private def groups(nGroups: Int, seed: Int)(implicit cp: CPSolver): Array[Array[CPIntVar]] = {
+    val rand = new scala.util.Random(seed)
+    Array.fill(nGroups) {
+      val x = Array.fill(6)(CPIntVar(0 to 9))
+      add(allDifferent(x), Strong)
+      add(sum(x) <= 20 + rand.nextInt(15))
+      add(x(0) + x(1) === x(2) + rand.nextInt(3))
+      x
+    }
+  }
+
+  // Restricts the first variables of each group at once
+  private def restrictions(x: Array[Array[CPIntVar]], seed: Int): Array[Constraint] = {
+    val rand = new scala.util.Random(seed)
+    x.flatMap(group => Array[Constraint](group(0) >= rand.nextInt(6), group(3) <= 3 + rand.nextInt(6)))
+  }
+
+  // Records the names of the threads on which it is propagated
+  private class ThreadRecorder(x: CPIntVar, threads: java.util.Set[String]) extends Constraint(x.store, "ThreadRecorder") {
+    override def associatedVars(): Iterable[CPVar] = Array(x)
+    override def setup(l: CPPropagStrength): Unit = x.callPropagateWhenDomainChanges(this)
+    override def propagate(): Unit = threads.add(Thread.currentThread.getName)
+  }
+
+  // Names of the threads that propagated the first variable of each group during the restrictions
+  private def propagationThreads(cp: CPSolver, x: Array[Array[CPIntVar]]): Set[String] = {
+    val threads = java.util.Collections.synchronizedSet(new java.util.HashSet[String]())
+    x.foreach(group => cp.add(new ThreadRecorder(group(0), threads)))
+    threads.clear()
+    cp.add(restrictions(x, 0))
+    threads.toArray(new Array[String](0)).toSet
+  }
+
+  test("Independent components reach the same fixed point as the sequential propagation") {
+    for (seed <- 0 until 10) {
+      def domains(parallel: Boolean): (Boolean, Seq[Set[Int]]) = {
+        implicit val cp = CPSolver()
+        if (parallel) cp.enableParallelPropagation(4, 1)
+        val x = groups(8, seed)
+        val failed = isInconsistent(add(restrictions(x, seed)))
+        cp.disableParallelPropagation()
+        (failed, if (failed) Seq.empty else x.flatten.map(_.toSet).toSeq)
+      }
+      domains(true) should be(domains(false))
+    }
+  }
+
+  test("A failure in one component fails the store and is restored on backtrack") {
+    implicit val cp = CPSolver()
+    cp.enableParallelPropagation(3, 1)
+    val x = groups(6, 0)
+    val before = x.flatten.map(_.toSet)
+    cp.pushState()
+    isInconsistent(add(Array[Constraint](x(0)(0) >= 4, x(2)(1) === 3, x(4)(0) === 3, x(4)(1) === 3))) should be(true)
+    cp.isFailed should be(true)
+    cp.pop()
+    x.flatten.map(_.toSet) should be(before)
+    add(Array[Constraint](x(1)(0) === 2, x(3)(0) === 2))
+    x(1)(0).isBoundTo(2) should be(true)
+    x(3)(1).hasValue(2) should be(false)
+    cp.disableParallelPropagation()
+  }
+
+  test("A search has the same solutions with the parallel propagation") {
+    for (seed <- 0 until 5) {
+      def solve(parallel: Boolean): Int = {
+        implicit val cp = CPSolver()
+        if (parallel) cp.enableParallelPropagation(2, 1)
+        val x = groups(2, seed).map(_.take(4))
+        search(binaryFirstFail(x.flatten))
+        val nSols = start(nSols = 2000).nSols
+        cp.disableParallelPropagation()
+        nSols
+      }
+      solve(true) should be(solve(false))
+    }
+  }
+
+  test("The components are propagated by the workers") {
+    implicit val cp = CPSolver()
+    cp.enableParallelPropagation(4, 1)
+    val threads = propagationThreads(cp, groups(8, 0))
+    threads should contain("oscar-propagation")
+    threads should not contain(Thread.currentThread.getName)
+    cp.disableParallelPropagation()
+  }
+
+  test("A constraint posted before enabling the parallel propagation keeps it sequential") {
+    implicit val cp = CPSolver()
+    val y = CPIntVar(0 to 9)
+    add(y >= 2)
+    cp.enableParallelPropagation(4, 1)
+    propagationThreads(cp, groups(8, 0)) should be(Set(Thread.currentThread.getName))
+    cp.disableParallelPropagation()
+  }
+
+  test("A watcher registered on a variable keeps the parallel propagation sequential") {
+    implicit val cp = CPSolver()
+    cp.enableParallelPropagation(4, 1)
+    val x = groups(8, 0)
+    x(0)(1).awakeOnChanges(new Watcher { override def awake(): Unit = () })
+    propagationThreads(cp, x) should be(Set(Thread.currentThread.getName))
+    cp.disableParallelPropagation()
+  }
+
+  test("A search on a heap of variables keeps the parallel propagation") {
+    implicit val cp = CPSolver()
+    cp.enableParallelPropagation(4, 1)
+    val x = groups(11, 0)
+    x.flatten.length should be >= oscar.cp.searches.VariableHeap.MinSize
+    // The domains are observed by a heap during the search, the observers are removed with it
+    search(binaryFirstFail(x.flatten))
+    start(nSols = 1).nSols should be(1)
+    propagationThreads(cp, x) should contain("oscar-propagation")
+    cp.disableParallelPropagation()
+  }
+}
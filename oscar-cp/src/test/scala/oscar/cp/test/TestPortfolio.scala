@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.searches.{Portfolio, PortfolioStrategy}
+import oscar.cp.testUtils.TestSuite
+
+class TestPortfolio extends TestSuite {
+
+  private def model(minimize: Boolean)(id: Int): (CPSolver, Array[CPIntVar]) = {
+    val cp = CPSolver()
+    val x = Array.fill(5)(CPIntVar(0 to 6)(cp))
+    cp.add(allDifferent(x))
+    if (minimize) cp.minimize(sum(x))
+    (cp, x)
+  }
+
+  private val strategies = Array(
+    PortfolioStrategy.dfs("static")(x => binaryStaticIdx(x, i => x(i).max)),
+    PortfolioStrategy.dfs("first-fail")(x => binaryFirstFail(x)),
+    PortfolioStrategy.dfs("conflict-ordering")(x => conflictOrderingSearch(x, i => x(i).size, i => x(i).min))
+  )
+
+  test("Portfolio proves optimality") {
+    val results = new Portfolio(model(minimize = true), strategies).start()
+    results.completed should be(true)
+    results.winner.isDefined should be(true)
+    results.bestSolution.get.objective should be(0 + 1 + 2 + 3 + 4)
+    // solutions are strictly improving
+    results.solutions.map(_.objective).sliding(2).foreach(s => if (s.length == 2) s(1) should be < s(0))
+  }
+
+  test("Portfolio stops on the first solution of a satisfaction problem") {
+    val results = new Portfolio(model(minimize = false), strategies).start()
+    results.completed should be(true)
+    results.solutions.length should be(1)
+    results.bestSolution.get.values.distinct.length should be(5)
+  }
+}
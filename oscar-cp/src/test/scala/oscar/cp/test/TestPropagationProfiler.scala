@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.testUtils.TestSuite
+
+class TestPropagationProfiler extends TestSuite {
+
+  private def queens(cp: CPSolver, n: Int): Array[CPIntVar] = {
+    val q = Array.fill(n)(CPIntVar(0 until n)(cp))
+    cp.add(allDifferent(q), Strong)
+    cp.add(allDifferent(Array.tabulate(n)(i => q(i) + i)), Strong)
+    cp.add(allDifferent(Array.tabulate(n)(i => q(i) - i)), Strong)
+    q
+  }
+
+  test("Profiling is disabled by default") {
+    val cp = CPSolver()
+    queens(cp, 6)
+    cp.profiler.isDefined should be(false)
+  }
+
+  test("Profiler records calls, reductions and failures") {
+    val cp = CPSolver()
+    val profiler = cp.enableProfiling()
+    val q = queens(cp, 8)
+    cp.search(binaryFirstFail(q))
+    val stats = cp.start()
+    stats.nSols should be(92)
+
+    val classes = profiler.classProfiles
+    classes.nonEmpty should be(true)
+    classes.map(_.nCalls).sum should be(profiler.instanceProfiles.map(_.nCalls).sum)
+    classes.map(_.nCalls).sum should be > 0L
+    classes.map(_.nReductions).sum should be > 0L
+    classes.map(_.nFailures).sum should be > 0L
+    classes.foreach(p => p.nReductions should be >= 0L)
+
+    val csv = profiler.classCSV.split("\n")
+    csv.head should be("constraint,calls,time_ns,reductions,failures")
+    csv.length should be(classes.length + 1)
+  }
+
+  test("Profiling can be disabled") {
+    val cp = CPSolver()
+    val profiler = cp.enableProfiling()
+    cp.disableProfiling()
+    val q = queens(cp, 6)
+    cp.search(binaryFirstFail(q))
+    cp.start()
+    profiler.instanceProfiles.isEmpty should be(true)
+  }
+}
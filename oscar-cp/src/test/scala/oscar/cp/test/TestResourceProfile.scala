@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.scheduling.constraints.ResourceProfile
+import oscar.cp.testUtils.TestSuite
+
+class TestResourceProfile extends TestSuite {
+
+  class Tasks(startDomains: Array[Range], durs: Array[Int], hs: Array[Int]) {
+    implicit val solver = CPSolver()
+    val starts = Array.tabulate(startDomains.length)(i => CPIntVar(startDomains(i)))
+    val durations = durs.map(d => CPIntVar(d))
+    val ends = Array.tabulate(starts.length)(i => starts(i) + durs(i))
+    val heights = hs.map(h => CPIntVar(h))
+    val resources = Array.fill(starts.length)(CPIntVar(0))
+  }
+
+  private def points(profile: ResourceProfile): List[(Int, Int)] = {
+    List.tabulate(profile.size)(i => (profile.pointTimes(i), profile.pointHeights(i)))
+  }
+
+  test("The profile is made of the compulsory parts") {
+    val tasks = new Tasks(Array(0 to 0, 2 to 2, 0 to 10), Array(3, 3, 2), Array(2, 1, 5))
+    import tasks._
+    val profile = ResourceProfile(starts, durations, ends, heights, resources, 0)
+    profile.update() should be(true)
+    points(profile) should be(List((Int.MinValue, 0), (0, 2), (2, 3), (3, 1), (5, 0), (Int.MaxValue, 0)))
+  }
+
+  test("The profile is shared by the propagators of the same resource") {
+    val tasks = new Tasks(Array(0 to 5, 0 to 5), Array(3, 3), Array(1, 1))
+    import tasks._
+    val profile = ResourceProfile(starts, durations, ends, heights, resources, 0)
+    (ResourceProfile(starts, durations, ends, heights, resources, 0) eq profile) should be(true)
+    (ResourceProfile(starts, durations, ends, heights, resources, 1) eq profile) should be(false)
+  }
+
+  test("The profile is only recomputed when a compulsory part changes") {
+    val tasks = new Tasks(Array(0 to 4, 0 to 4), Array(3, 3), Array(1, 1))
+    import tasks._
+    val profile = ResourceProfile(starts, durations, ends, heights, resources, 0)
+    profile.update() should be(false) // no compulsory part yet
+    starts(0).updateMin(1) // [1 ; 7) ; compulsory part [4 ; 4) still empty
+    profile.update() should be(false)
+    starts(0).updateMin(2)
+    profile.update() should be(true)
+    points(profile) should be(List((Int.MinValue, 0), (4, 1), (5, 0), (Int.MaxValue, 0)))
+    profile.rebuilds should be(1)
+    profile.update() should be(false)
+  }
+
+  test("The profile is restored on backtrack") {
+    val tasks = new Tasks(Array(0 to 4, 0 to 4, 3 to 3), Array(3, 3, 1), Array(1, 2, 1))
+    import tasks._
+    val profile = ResourceProfile(starts, durations, ends, heights, resources, 0)
+    profile.update()
+    val initial = points(profile)
+    solver.pushState()
+    starts(0).assign(2)
+    starts(1).assign(4)
+    profile.update() should be(true)
+    points(profile) should be(List((Int.MinValue, 0), (2, 1), (3, 2), (4, 3), (5, 2), (7, 0), (Int.MaxValue, 0)))
+    solver.pop()
+    profile.update() should be(true)
+    points(profile) should be(initial)
+  }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.algo.branchings.{BinaryDomainSplitBranching, BinaryFirstFailBranching}
+import oscar.algo.search._
+import oscar.algo.vars.IntVarLike
+import oscar.cp._
+import oscar.cp.nogoods.database.WatchedNogoodDB
+import oscar.cp.nogoods.searches.RestartNogoods
+import oscar.cp.testUtils.TestSuite
+
+class TestRestartSearch extends TestSuite {
+
+  // Random model with many failures
+  private def model(seed: Int)(implicit cp: CPSolver): Array[CPIntVar] = {
+    val rand = new scala.util.Random(seed)
+    val x = Array.fill(8)(CPIntVar(0 to 7))
+    add(allDifferent(x), Weak)
+    add(sum(x.take(4)) <= 8 + rand.nextInt(6))
+    add(sum(x.drop(4)) >= 18 + rand.nextInt(6))
+    for (_ <- 0 until 4) add(x(rand.nextInt(8)) !== x(rand.nextInt(8)) + 1)
+    x
+  }
+
+  // Returns the optimum (Int.MaxValue if none), the statistics, the number of restarts and of recorded nogoods
+  private def optimum(seed: Int, restarts: Option[RestartPolicy], nogoods: Boolean)(branching: Array[CPIntVar] => Branching): (Int, SearchStatistics, Int, Int) = {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(seed)
+    val objective = sum(x.indices.map(i => x(i) * (i + 1)))
+    minimize(objective)
+    var best = Int.MaxValue
+    onSolution { best = objective.value }
+    search(branching(x))
+    restarts match {
+      case None => (best, start(), 0, 0)
+      case Some(policy) =>
+        val restartSearch = cp.restartSearch(policy)
+        var nNogoods = 0
+        if (nogoods) {
+          RestartNogoods.record(restartSearch, new WatchedNogoodDB(cp, x))
+          restartSearch.onAbandonedBranch(branch => nNogoods += RestartNogoods(branch).length)
+        }
+        val stats = restartSearch.start()
+        (best, stats, restartSearch.nRestarts, nNogoods)
+    }
+  }
+
+  test("The Luby sequence") {
+    (1 to 15).map(LubyRestarts.luby) should be(Seq(1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8))
+    val luby = new LubyRestarts(10)
+    Seq.fill(7)(luby.nextLimit()) should be(Seq(10, 10, 20, 10, 10, 20, 40))
+    luby.reset()
+    luby.nextLimit() should be(10)
+  }
+
+  test("The geometric and dynamic limits") {
+    val geometric = new GeometricRestarts(10, 2.0)
+    Seq.fill(4)(geometric.nextLimit()) should be(Seq(10, 20, 40, 80))
+    val dynamic = new DynamicRestarts(10, 2.0)
+    dynamic.nextLimit() should be(10)
+    dynamic.runEnded(0)
+    dynamic.runEnded(0)
+    dynamic.nextLimit() should be(40)
+    dynamic.runEnded(1)
+    dynamic.nextLimit() should be(10)
+  }
+
+  test("The restarted searches find the optimum") {
+    val policies: Seq[() => RestartPolicy] = Seq(() => new LubyRestarts(2), () => new GeometricRestarts(2, 1.2), () => new DynamicRestarts(2, 1.2))
+    var nRestarts = 0
+    var nNogoods = 0
+    for (seed <- 0 until 5) {
+      val expected = optimum(seed, None, false)(x => binaryFirstFail(x))._1
+      for (policy <- policies; nogoods <- Seq(false, true)) {
+        val (best, stats, restarts, recorded) = optimum(seed, Some(policy()), nogoods)(x => binaryFirstFail(x))
+        withClue(s"seed $seed, nogoods $nogoods") {
+          best should be(expected)
+          stats.completed should be(true)
+        }
+        nRestarts += restarts
+        nNogoods += recorded
+      }
+    }
+    nRestarts should be > 0
+    nNogoods should be > 0
+  }
+
+  test("The restarted searches keep the state of the conflict-based heuristics") {
+    for (seed <- 0 until 5) {
+      val expected = optimum(seed, None, false)(x => binaryFirstFail(x))._1
+      optimum(seed, Some(new LubyRestarts(2)), true)(x => binaryConflictHistory(x))._1 should be(expected)
+      optimum(seed, Some(new LubyRestarts(2)), true)(x => binaryMinDomOnWeightedDegree(x))._1 should be(expected)
+      optimum(seed, Some(new LubyRestarts(2)), true)(x => conflictOrderingSearch(x, x(_).min))._1 should be(expected)
+    }
+  }
+
+  test("The nogoods of a branch") {
+    implicit val cp = CPSolver()
+    val x = Array.tabulate(3)(i => CPIntVar(0 to 3, "x" + i))
+    val branching = new BinaryFirstFailBranching(x.asInstanceOf[Array[IntVarLike]], x(_).min)
+    val branch = Array(
+      new BinaryDecisionAlternative(branching, x(0), 1, 0, true),
+      new BinaryDecisionAlternative(branching, x(1), 2, 0, false),
+      new BinaryDecisionAlternative(branching, x(2), 0, 0, true),
+      new BinaryDecisionAlternative(branching, x(2), 3, 0, false)
+    )
+    RestartNogoods(branch).map(_.toString).toSeq should be(Seq(
+      "[x0 != 1], [x1 != 2]",
+      "[x0 != 1], [x2 != 0], [x2 != 3]"
+    ))
+    val split = new BinaryDomainSplitBranching[Int](x.asInstanceOf[Array[IntVarLike]], x(_).size, i => i)
+    val splitBranch = Array(
+      new BinaryDecisionAlternative(split, x(0), 1, 0, true),
+      new BinaryDecisionAlternative(split, x(1), 2, 0, false)
+    )
+    RestartNogoods(splitBranch).map(_.toString).toSeq should be(Seq("[x0 > 1], [x1 > 2]"))
+  }
+
+  test("The state of the branching is kept between the runs") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(0)
+    var nResets = 0
+    var nRestarts = 0
+    val branching = new Branching {
+      private[this] val heuristic = binaryFirstFail(x)
+      override def reset(): Unit = nResets += 1
+      override def restart(): Unit = nRestarts += 1
+      override def alternatives(): Seq[Alternative] = heuristic.alternatives()
+    }
+    search(branching)
+    val restartSearch = cp.restartSearch(new LubyRestarts(1))
+    var nRestartActions = 0
+    restartSearch.onRestart { nRestartActions += 1 }
+    restartSearch.start()
+    restartSearch.nRestarts should be > 0
+    nResets should be(1)
+    nRestarts should be(restartSearch.nRestarts)
+    nRestartActions should be(restartSearch.nRestarts)
+  }
+}
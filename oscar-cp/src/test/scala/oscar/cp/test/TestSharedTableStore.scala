@@ -0,0 +1,100 @@
+/** *****************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  * *****************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.constraints.tables.{SharedTableStore, TableCache, ShortTableAlgo, TableCT, TableCTStar, TableDecomp}
+import oscar.cp.testUtils._
+
+class TestSharedTableStore extends TestSuite {
+
+  private val rand = new scala.util.Random(42)
+
+  private def randomTuples(n: Int, star: Int) = Array.fill(n, 3)(if (rand.nextInt(100) < 5) star else rand.nextInt(6))
+
+  test("Tables with the same content and ranges are shared") {
+    val table = randomTuples(50, 0)
+    val a = SharedTableStore(table, Array(0, 0, 0), Array(6, 6, 6))
+    val b = SharedTableStore(table.map(_.clone()), Array(0, 0, 0), Array(6, 6, 6))
+    val c = SharedTableStore(table, Array(1, 0, 0), Array(5, 6, 6))
+    (a eq b) should be(true)
+    (a eq c) should be(false)
+  }
+
+  test("The content hash of a table identifies it in all the caches") {
+    val table = randomTuples(30, 0)
+    val copy = table.map(_.clone())
+    TableCache.contentHash(table) should be(TableCache.contentHash(copy))
+    // a table and its compiled mdd are cached separately, keyed by the same content
+    val shared = SharedTableStore(table, Array(0, 0, 0), Array(6, 6, 6))
+    val mdd = oscar.cp.constraints.mdd.StaticMdd.compiledMddFromTable(table, 3)
+    (SharedTableStore(copy, Array(0, 0, 0), Array(6, 6, 6)) eq shared) should be(true)
+    (oscar.cp.constraints.mdd.StaticMdd.compiledMddFromTable(copy, 3) eq mdd) should be(true)
+  }
+
+  test("A table array refilled after a lookup is identified by its new content") {
+    val table = randomTuples(30, 0)
+    val before = table.map(_.clone())
+    val shared = SharedTableStore(table, Array(0, 0, 0), Array(6, 6, 6))
+    val mdd = oscar.cp.constraints.mdd.StaticMdd.compiledMddFromTable(table, 3)
+    for (t <- table.indices) table(t) = Array(t % 6, (t + 1) % 6, (t + 2) % 6)
+    val refilled = SharedTableStore(table, Array(0, 0, 0), Array(6, 6, 6))
+    (refilled eq shared) should be(false)
+    refilled.nTuples should be(30)
+    for (t <- 0 until 30; i <- 0 until 3) (refilled.strictSupports(i)(table(t)(i))(t >>> 6) & (1L << t)) should not be(0L)
+    (oscar.cp.constraints.mdd.StaticMdd.compiledMddFromTable(table, 3) eq mdd) should be(false)
+    // The previous content is still cached
+    (SharedTableStore(before, Array(0, 0, 0), Array(6, 6, 6)) eq shared) should be(true)
+  }
+
+  test("Shared supports contain the tuples of each value") {
+    val star = -1
+    val table = randomTuples(100, star)
+    val shared = SharedTableStore(table, Array(0, 0, 0), Array(6, 6, 6), Some(star))
+    shared.nTuples should be(100)
+    for (t <- 0 until shared.nTuples; i <- 0 until 3; v <- 0 until 6) {
+      val inStrict = shared.strictSupports(i)(v) != null && (shared.strictSupports(i)(v)(t >>> 6) & (1L << t)) != 0
+      val inSupports = shared.supports(i)(v) != null && (shared.supports(i)(v)(t >>> 6) & (1L << t)) != 0
+      inStrict should be(table(t)(i) == v)
+      inSupports should be(table(t)(i) == v || table(t)(i) == star)
+    }
+  }
+
+  test("Constraints sharing a table have the same solutions as the reference algorithms") {
+    val table = randomTuples(40, -1).filter(_.forall(_ >= 0))
+    val star = randomTuples(40, -1)
+
+    def nSolutions(post: (Array[CPIntVar], Array[Array[Int]], Array[Array[Int]]) => Seq[Constraint]): Int = {
+      implicit val solver = CPSolver()
+      val x = Array.fill(5)(CPIntVar(0 to 5))
+      solver.add(x(0) !== 3)
+      post(x, table, star).foreach(c => solver.add(c))
+      solver.search(binaryFirstFail(x))
+      solver.start().nSols
+    }
+
+    val ref = nSolutions((x, t, s) => Seq(
+      new TableDecomp(Array(x(0), x(1), x(2)), t),
+      new TableDecomp(Array(x(2), x(3), x(4)), t),
+      shortTable(Array(x(0), x(2), x(4)), s, -1, ShortTableAlgo.ShortSTR2)
+    ))
+    val ct = nSolutions((x, t, s) => Seq(
+      new TableCT(Array(x(0), x(1), x(2)), t),
+      new TableCT(Array(x(2), x(3), x(4)), t),
+      new TableCTStar(Array(x(0), x(2), x(4)), s)
+    ))
+    ct should be(ref)
+  }
+}
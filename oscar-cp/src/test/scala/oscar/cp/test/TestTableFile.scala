@@ -0,0 +1,83 @@
+/** *****************************************************************************
+  * OscaR is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU Lesser General Public License as published by
+  * the Free Software Foundation, either version 2.1 of the License, or
+  * (at your option) any later version.
+  *
+  * OscaR is distributed in the hope that it will be useful,
+  * but WITHOUT ANY WARRANTY; without even the implied warranty of
+  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  * GNU Lesser General Public License  for more details.
+  *
+  * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+  * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+  * *****************************************************************************/
+package oscar.cp.test
+
+import java.io.File
+
+import oscar.cp._
+import oscar.cp.constraints.tables.{TableAlgo, TableFile}
+import oscar.cp.testUtils._
+
+class TestTableFile extends TestSuite {
+
+  private val rand = new scala.util.Random(7)
+
+  private def withFile(body: File => Unit): Unit = {
+    val file = File.createTempFile("oscar-table", ".bin")
+    try body(file)
+    finally file.delete()
+  }
+
+  test("Tuples are decoded as written") {
+    for (withSupports <- Seq(true, false)) withFile { file =>
+      val table = Array.fill(300, 4)(0)
+      for (t <- table.indices) {
+        table(t)(0) = rand.nextInt(3)
+        table(t)(1) = rand.nextInt(1000) - 500
+        table(t)(2) = 42
+        table(t)(3) = if (rand.nextBoolean()) -1000 else 1000
+      }
+      TableFile.write(file, table, withSupports)
+      val mapped = TableFile.load(file)
+      mapped.arity should be(4)
+      mapped.nTuples should be(300)
+      mapped.hasSupports should be(withSupports)
+      mapped.toArray.map(_.toSeq).toSeq should be(table.map(_.toSeq).toSeq)
+      mapped.supportWords(2, 41) should be(null)
+      mapped.supportWords(2, 42).map(java.lang.Long.bitCount).sum should be(300)
+    }
+  }
+
+  test("Table constraints on a mapped table have the same solutions") {
+    withFile { file =>
+      val tuples = Array.fill(60, 3)(rand.nextInt(6))
+      TableFile.write(file, tuples)
+      val mapped = TableFile.load(file)
+
+      def nSolutions(post: Array[CPIntVar] => Seq[Constraint]): Int = {
+        implicit val solver = CPSolver()
+        val x = Array.fill(5)(CPIntVar(1 to 5))
+        solver.add(x(1) !== 2)
+        post(x).foreach(c => solver.add(c))
+        solver.search(binaryFirstFail(x))
+        solver.start().nSols
+      }
+
+      val ref = nSolutions(x => Seq(
+        table(Array(x(0), x(1), x(2)), tuples, TableAlgo.Decomp),
+        table(Array(x(2), x(3), x(4)), tuples, TableAlgo.Decomp)
+      ))
+      ref should be > 0
+      nSolutions(x => Seq(
+        table(Array(x(0), x(1), x(2)), mapped),
+        table(Array(x(2), x(3), x(4)), mapped)
+      )) should be(ref)
+      nSolutions(x => Seq(
+        oscar.cp.constraints.tables.table.mdd4r(Array(x(0), x(1), x(2)), mapped),
+        oscar.cp.constraints.tables.table.mdd4r(Array(x(2), x(3), x(4)), mapped)
+      )) should be(ref)
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.algo.branchings.BinaryFirstFailBranching
+import oscar.algo.search.Branching
+import oscar.algo.vars.IntVarLike
+import oscar.cp._
+import oscar.cp.searches.{BinaryActivityBranching, BinaryHeapBranching, HeapConflictOrderingSearch, VariableHeap}
+import oscar.cp.testUtils.TestSuite
+
+class TestVariableHeap extends TestSuite {
+
+  // Random model, with many failures if small
+  private def model(seed: Int, n: Int)(implicit cp: CPSolver): Array[CPIntVar] = {
+    val rand = new scala.util.Random(seed)
+    val x = Array.fill(n)(CPIntVar(0 to n - 1 + rand.nextInt(3)))
+    add(allDifferent(x), Weak)
+    if (n < 10) add(sum(x.take(n / 2)) <= (n / 2) * (n / 2 - 1) / 2 + rand.nextInt(6))
+    for (_ <- 0 until n / 2) add(x(rand.nextInt(n)) !== x(rand.nextInt(n)) + 1)
+    x
+  }
+
+  private def solve(seed: Int, n: Int, nSols: Int)(branching: Array[CPIntVar] => Branching): (Int, Int, Int) = {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(seed, n)
+    search(branching(x))
+    val stats = start(nSols = nSols)
+    (stats.nSols, stats.nFails, stats.nNodes)
+  }
+
+  test("The heap explores the same tree as the first fail scan") {
+    for (seed <- 0 until 10) {
+      val scan = solve(seed, 7, Int.MaxValue)(x => new BinaryFirstFailBranching(x.asInstanceOf[Array[IntVarLike]], x(_).min))
+      val heap = solve(seed, 7, Int.MaxValue)(x => new BinaryHeapBranching(new VariableHeap(x, x(_).size), x(_).min))
+      heap should be(scan)
+    }
+  }
+
+  test("The heap explores the same tree as the scan of a domain heuristic") {
+    for (seed <- 0 until 10) {
+      val scan = solve(seed, 7, Int.MaxValue)(x => binaryIdx(x, -x(_).max, x(_).max))
+      val heap = solve(seed, 7, Int.MaxValue)(x => new BinaryHeapBranching(new VariableHeap(x, -x(_).max), x(_).max))
+      heap should be(scan)
+    }
+  }
+
+  test("The heap is used on large arrays") {
+    for (seed <- 0 until 3) {
+      val scan = solve(seed, VariableHeap.MinSize + 6, 1)(x => new BinaryFirstFailBranching(x.asInstanceOf[Array[IntVarLike]], x(_).min))
+      val heap = solve(seed, VariableHeap.MinSize + 6, 1)(x => binaryFirstFail(x))
+      heap should be(scan)
+      val binaryScan = solve(seed, VariableHeap.MinSize + 6, 1)(x => binaryIdx(x, x(_).size, x(_).max))
+      val binaryHeap = solve(seed, VariableHeap.MinSize + 6, 1)(x => binaryIndexed(x, _.size, _.max))
+      binaryHeap should be(binaryScan)
+    }
+  }
+
+  test("The generic binary search keeps scanning a heuristic depending on other states") {
+    // The order of the variables depends on a counter incremented at each selection
+    var nCalls = 0
+    def rotating(x: Array[CPIntVar]): Branching = binary(x, (y: CPIntVar) => { nCalls += 1; (x.indexOf(y) + nCalls / x.length) % x.length }, _.min)
+    for (seed <- 0 until 3) {
+      nCalls = 0
+      val generic = solve(seed, VariableHeap.MinSize + 6, 1)(rotating)
+      nCalls = 0
+      val scan = solve(seed, VariableHeap.MinSize + 6, 1)(x => binaryIdx(x, (i: Int) => { nCalls += 1; (i + nCalls / x.length) % x.length }, x(_).min))
+      generic should be(scan)
+    }
+  }
+
+  test("The heap is rebuilt for each search without changing the degrees") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(0, 7)
+    val degrees = x.map(_.constraintDegree)
+    search(new BinaryHeapBranching(new VariableHeap(x, x(_).size), x(_).min))
+    val stats1 = start()
+    val stats2 = start()
+    (stats2.nSols, stats2.nFails, stats2.nNodes) should be((stats1.nSols, stats1.nFails, stats1.nNodes))
+    x.map(_.constraintDegree) should be(degrees)
+  }
+
+  test("The conflict ordering search on a heap finds all the solutions") {
+    for (seed <- 0 until 10) {
+      val expected = solve(seed, 7, Int.MaxValue)(x => binaryFirstFail(x))._1
+      solve(seed, 7, Int.MaxValue)(x => conflictOrderingSearch(x, x(_).min))._1 should be(expected)
+      solve(seed, 7, Int.MaxValue)(x => new HeapConflictOrderingSearch(x, -x(_).max, x(_).max))._1 should be(expected)
+    }
+  }
+
+  test("The activity based search finds all the solutions") {
+    for (seed <- 0 until 10; decay <- Seq(1.0, 0.9)) {
+      val expected = solve(seed, 7, Int.MaxValue)(x => binaryFirstFail(x))._1
+      solve(seed, 7, Int.MaxValue)(x => binaryActivity(x, decay))._1 should be(expected)
+    }
+  }
+
+  test("The activity counts the nodes reducing the domains") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(3)(CPIntVar(0 to 2))
+    val y = CPIntVar(0 to 2)
+    add(allDifferent(x), Weak)
+    val branching = new BinaryActivityBranching(x :+ y, i => (x :+ y)(i).min, 1.0)
+    search(branching)
+    start().nSols should be(18)
+    for (i <- 0 until 3) branching.activity(i) should be > 0.0
+  }
+}
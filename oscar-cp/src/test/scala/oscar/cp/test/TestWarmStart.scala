@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.algo.search.{BinaryDecisionBranching, Branching}
+import oscar.cp._
+import oscar.cp.searches.WarmStartBranching
+import oscar.cp.searches.lns.CPIntSol
+import oscar.cp.testUtils.TestSuite
+
+class TestWarmStart extends TestSuite {
+
+  // Random model with many failures
+  private def model(seed: Int)(implicit cp: CPSolver): (Array[CPIntVar], CPIntVar) = {
+    val rand = new scala.util.Random(seed)
+    val x = Array.fill(8)(CPIntVar(0 to 7))
+    add(allDifferent(x), Weak)
+    add(sum(x.take(4)) <= 8 + rand.nextInt(6))
+    add(sum(x.drop(4)) >= 18 + rand.nextInt(6))
+    for (_ <- 0 until 4) add(x(rand.nextInt(8)) !== x(rand.nextInt(8)) + 1)
+    (x, sum(x.indices.map(i => x(i) * (i + 1))))
+  }
+
+  // Returns the solutions found by the search, in order, with their objective
+  private def solve(seed: Int, hint: Option[CPIntSol], boundObjective: Boolean = false, nSols: Int = Int.MaxValue): Seq[CPIntSol] = {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val (x, objective) = model(seed)
+    minimize(objective)
+    val solutions = scala.collection.mutable.ArrayBuffer[CPIntSol]()
+    onSolution { solutions += new CPIntSol(x.map(_.value), objective.value, 0L) }
+    search(binaryFirstFail(x))
+    hint.foreach(cp.warmStart(x, _, boundObjective))
+    start(nSols = nSols)
+    solutions
+  }
+
+  test("The warm start finds the optimum first") {
+    for (seed <- 0 until 5) {
+      val solutions = solve(seed, None)
+      val optimum = solutions.last
+      val warm = solve(seed, Some(optimum), nSols = 1)
+      warm.head.values.toSeq should be(optimum.values.toSeq)
+      warm.head.objective should be(optimum.objective)
+    }
+  }
+
+  test("The warm start from any hint keeps the search complete") {
+    for (seed <- 0 until 5) {
+      val optimum = solve(seed, None).last.objective
+      val rand = new scala.util.Random(seed)
+      val hint = new CPIntSol(Array.fill(8)(rand.nextInt(8)), Int.MaxValue, 0L)
+      solve(seed, Some(hint)).last.objective should be(optimum)
+    }
+  }
+
+  test("The objective bound of the warm start only accepts better solutions") {
+    for (seed <- 0 until 5) {
+      val solutions = solve(seed, None)
+      val first = solutions.head
+      val warm = solve(seed, Some(first), boundObjective = true)
+      warm.forall(_.objective < first.objective) should be(true)
+      if (solutions.size > 1) warm.last.objective should be(solutions.last.objective)
+      else warm should be(empty)
+    }
+  }
+
+  test("The phases are the values of the last solution") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(3)(CPIntVar(0 to 2))
+    add(allDifferent(x), Weak)
+    val phases = phaseSaving(x, i => x(i).max)
+    for (i <- x.indices) phases.hasPhase(i) should be(false)
+    search(binaryStaticIdx(x, phases.valueHeuristic))
+    var last = Seq.empty[Int]
+    onSolution { last = x.map(_.value).toSeq }
+    start(nSols = 1).nSols should be(1)
+    // Without phases, the largest values are tried first
+    last should be(Seq(2, 1, 0))
+    x.indices.map(phases.phase) should be(last)
+    phases.load(Array(0, 1, 2))
+    start(nSols = 1)
+    last should be(Seq(0, 1, 2))
+  }
+
+  test("The warm start of a binary decision branching takes binary decisions") {
+    for (seed <- 0 until 5) {
+      val optimum = solve(seed, None).last
+      def hinted(binary: Boolean): Seq[Seq[Int]] = {
+        implicit val cp = CPSolver()
+        cp.deactivateNoSolExceptions()
+        val (x, objective) = model(seed)
+        minimize(objective)
+        val phases = phaseSaving(x, x(_).min)
+        phases.load(optimum)
+        val branching = if (binary) binaryFirstFail(x) else binaryFirstFail(x) ++ Branching(Seq())
+        val warmStart = WarmStartBranching(phases, branching)
+        warmStart.isInstanceOf[BinaryDecisionBranching] should be(binary)
+        val solutions = scala.collection.mutable.ArrayBuffer[Seq[Int]]()
+        onSolution { solutions += x.map(_.value).toSeq }
+        search(warmStart)
+        start()
+        solutions
+      }
+      val binary = hinted(true)
+      binary.head should be(optimum.values.toSeq)
+      binary should be(hinted(false))
+    }
+  }
+
+  test("The warm start on the same variables reuses the phases") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val (x, objective) = model(0)
+    minimize(objective)
+    search(binaryFirstFail(x))
+    val phases = phaseSaving(x, x(_).min)
+    cp.warmStart(phases, new CPIntSol(Array.fill(8)(0), Int.MaxValue, 0L), false)
+    cp.warmStart(x, new CPIntSol(Array.tabulate(8)(i => i), Int.MaxValue, 0L))
+    x.indices.map(phases.phase) should be(x.indices)
+  }
+
+  test("Detached phases are not saved anymore") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(3)(CPIntVar(0 to 2))
+    add(allDifferent(x), Weak)
+    val phases = phaseSaving(x, i => x(i).max)
+    phases.isAttached should be(true)
+    phases.detach()
+    phases.isAttached should be(false)
+    search(binaryStaticIdx(x, phases.valueHeuristic))
+    start(nSols = 1).nSols should be(1)
+    for (i <- x.indices) phases.hasPhase(i) should be(false)
+  }
+}
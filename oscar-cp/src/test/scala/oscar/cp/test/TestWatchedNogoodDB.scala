@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.cp._
+import oscar.cp.nogoods.core.Nogood
+import oscar.cp.nogoods.database.{NogoodDB, WatchedNogoodDB}
+import oscar.cp.nogoods.decisions.{Assign, Decision, Greater, LowerEq, Remove}
+import oscar.cp.testUtils.TestSuite
+
+class TestWatchedNogoodDB extends TestSuite {
+
+  private def nogood(decisions: Decision*): Nogood = new Nogood(decisions.toArray)
+
+  test("Nogoods are propagated") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 3))
+    val db = new WatchedNogoodDB(cp, x)
+    db.add(nogood(new Remove(x(0), 1), new Remove(x(1), 2), new LowerEq(x(2), 1)))
+    db.reduceIfNeeded()
+    cp.pushState()
+    add(x(0) === 1)
+    x(1).hasValue(2) should be(true)
+    add(x(2) >= 2)
+    x(1).hasValue(2) should be(false)
+    cp.pop()
+    x(1).hasValue(2) should be(true)
+  }
+
+  test("The data base does not switch the store to the explanation mode") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(2)(CPIntVar(0 to 3))
+    new WatchedNogoodDB(cp, x)
+    cp.explanationEngine should be(null)
+  }
+
+  test("Nogoods on variables added after the setup are watched") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(2)(CPIntVar(0 to 3))
+    val y = CPIntVar(0 to 3)
+    val db = new WatchedNogoodDB(cp, x)
+    cp.pushState()
+    // y is registered during the search, its watcher is removed on backtrack
+    db.add(nogood(new Remove(x(0), 1), new Remove(y, 2)))
+    add(x(0) === 1)
+    y.hasValue(2) should be(false)
+    cp.pop()
+    cp.pushState()
+    add(y === 2)
+    x(0).hasValue(1) should be(false)
+    cp.pop()
+    cp.pushState()
+    add(x(1) === 0)
+    add(y === 2)
+    x(0).hasValue(1) should be(false)
+    cp.pop()
+  }
+
+  test("Watching the nogoods does not change the degree of the variables") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 3))
+    add(x(0) !== x(1))
+    val degrees = x.map(_.constraintDegree)
+    val db = new WatchedNogoodDB(cp, x)
+    db.add(nogood(new Remove(x(0), 1), new Remove(x(1), 2), new LowerEq(x(2), 1)))
+    db.reduceIfNeeded()
+    cp.pushState()
+    add(x(0) === 1)
+    x.map(_.constraintDegree) should be(degrees)
+    cp.pop()
+    x.map(_.constraintDegree) should be(degrees)
+  }
+
+  test("Violated nogoods fail") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(2)(CPIntVar(0 to 3))
+    val db = new WatchedNogoodDB(cp, x)
+    db.add(nogood(new Greater(x(0), 1), new Greater(x(1), 1)))
+    db.reduceIfNeeded()
+    cp.pushState()
+    add(x(0) <= 1)
+    x(1).min should be(2)
+    isInconsistent(cp.post(x(1) <= 1)) should be(true)
+    cp.pop()
+  }
+
+  test("Satisfied nogoods are removed at the root") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(3)(CPIntVar(0 to 3))
+    val db = new WatchedNogoodDB(cp, x)
+    db.add(Array(
+      nogood(new Remove(x(0), 1), new Remove(x(1), 1)),
+      nogood(new Remove(x(1), 1), new Remove(x(2), 1))
+    ))
+    add(x(0) !== 1)
+    db.reduceEntailed()
+    db.size should be(1)
+    db.allNogoods().head.decisions.map(_.variable).toSet should be(Set(x(1), x(2)))
+  }
+
+  test("Reductions keep the short and glue nogoods") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(8)(CPIntVar(0 to 3))
+    val db = new WatchedNogoodDB(cp, x)
+    db.clauses.maxClauses = 10
+    val rand = new scala.util.Random(0)
+    for (_ <- 0 until 30) {
+      db.add(nogood(Array.tabulate(4)(i => new Assign(x(rand.nextInt(8)), rand.nextInt(4)): Decision): _*))
+    }
+    db.add(nogood(new Remove(x(0), 0), new Remove(x(1), 0)))
+    db.reduceIfNeeded() should be(true)
+    db.size should be < 31
+    db.allNogoods().exists(_.size == 2) should be(true)
+    db.clauses.maxClauses should be > 10
+  }
+
+  test("Nogoods and constraints have the same solutions") {
+    for (seed <- 0 until 20) {
+      val rand = new scala.util.Random(seed)
+      val nogoods = Array.fill(10)(Array.fill(3)((rand.nextInt(4), rand.nextInt(3))))
+      def solve(watched: Boolean): Int = {
+        implicit val cp = CPSolver()
+        cp.deactivateNoSolExceptions()
+        val x = Array.fill(4)(CPIntVar(0 to 2))
+        val toNogood = (n: Array[(Int, Int)]) => nogood(n.map { case (i, v) => new Remove(x(i), v): Decision }: _*)
+        if (watched) new WatchedNogoodDB(cp, x).add(nogoods.map(toNogood))
+        else nogoods.foreach(n => add(toNogood(n).toConstraint))
+        search(binaryStatic(x))
+        start().nSols
+      }
+      solve(true) should be(solve(false))
+    }
+  }
+
+  test("The flat data base returns random nogoods and removes satisfied ones") {
+    implicit val cp = CPSolver()
+    val x = Array.fill(2)(CPIntVar(0 to 3))
+    val db = NogoodDB()
+    db.randomNogood should be(null)
+    db.add(Array(nogood(new Remove(x(0), 1)), nogood(new Remove(x(1), 1))))
+    db.size should be(2)
+    db.randomNogood should not be (null)
+    add(x(0) !== 1)
+    db.reduceEntailed()
+    db.size should be(1)
+  }
+}
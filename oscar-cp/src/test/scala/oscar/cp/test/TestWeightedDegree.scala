@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * OscaR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * OscaR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with OscaR.
+ * If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ ******************************************************************************/
+package oscar.cp.test
+
+import oscar.algo.search.BinaryDecisionBranching
+import oscar.algo.vars.IntVarLike
+import oscar.cp._
+import oscar.cp.searches.{ConflictHistory, ConflictScoreBranching, ConflictScores, WeightedDegree}
+import oscar.cp.testUtils.TestSuite
+
+class TestWeightedDegree extends TestSuite {
+
+  // Random model with many failures
+  private def model(seed: Int)(implicit cp: CPSolver): Array[CPIntVar] = {
+    val rand = new scala.util.Random(seed)
+    val x = Array.fill(8)(CPIntVar(0 to 7))
+    add(allDifferent(x), Weak)
+    add(sum(x.take(4)) <= 8 + rand.nextInt(6))
+    add(sum(x.drop(4)) >= 18 + rand.nextInt(6))
+    for (_ <- 0 until 4) add(x(rand.nextInt(8)) !== x(rand.nextInt(8)) + 1)
+    x
+  }
+
+  // Checks that the selected variable is the best one for the scores
+  private class CheckedBranching(x: Array[CPIntVar], scores: ConflictScores, divideByDomain: Boolean) extends BinaryDecisionBranching {
+    private[this] val branching = new ConflictScoreBranching(scores, x(_).min, divideByDomain)
+    var nChecks = 0
+    override def select(): Boolean = {
+      val selected = branching.select()
+      val unbound = x.indices.filter(!x(_).isBound)
+      selected should be(unbound.nonEmpty)
+      if (selected) {
+        val best =
+          if (divideByDomain) unbound.minBy(i => (-scores.score(i) / x(i).size, x(i).size, i))
+          else unbound.minBy(i => (-scores.score(i), i))
+        branching.selectedVariable should be(x(best))
+        nChecks += 1
+      }
+      selected
+    }
+    override def selectedVariable: IntVarLike = branching.selectedVariable
+    override def selectedValue: Int = branching.selectedValue
+    override def reset(): Unit = branching.reset()
+  }
+
+  // Conflict history starting from the degree of the variables
+  private class DegreeHistory(x: Array[CPIntVar])(implicit cp: CPSolver) extends ConflictHistory(cp, x) {
+    for (i <- x.indices) setScore(i, x(i).constraintDegree)
+  }
+
+  // Weighted degrees computed as in the definition, with the decay applied at each failure
+  private def eagerWeightedDegrees(x: Array[CPIntVar], decayRatio: Double)(implicit cp: CPSolver): Array[Double] = {
+    val eager = x.map(_.constraintDegree.toDouble)
+    cp.onFailure {
+      for (i <- x.indices) eager(i) *= decayRatio
+      val constraint = cp.lastConstraintCalled
+      if (constraint != null) {
+        for (v <- constraint.associatedVars().toSeq.distinct; i = x.indexOf(v); if i >= 0) eager(i) += 1
+      }
+    }
+    eager
+  }
+
+  test("The weights count the failures of the constraints") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    // Pigeon hole on x, the domain of w avoids the failure of the setup
+    val x = Array.fill(5)(CPIntVar(0 to 3))
+    val w = CPIntVar(4 to 8)
+    val y = CPIntVar(0 to 3)
+    add(allDifferent(x :+ w), Weak)
+    val weightedDegree = new WeightedDegree(cp, x :+ w :+ y)
+    for (i <- 0 until 6) weightedDegree.weightedDegree(i) should be(1.0)
+    search(binaryFirstFail(x :+ w :+ y))
+    val stats = start()
+    stats.nSols should be(0)
+    weightedDegree.nConflicts should be(stats.nFails.toLong)
+    for (i <- 0 until 6) weightedDegree.weightedDegree(i) should be(1.0 + stats.nFails)
+    weightedDegree.weightedDegree(6) should be(0.0)
+  }
+
+  test("The lazy decay gives the same weighted degrees as the eager decay") {
+    for (seed <- 0 until 5; decayRatio <- Seq(1.0, 0.95, 0.5)) {
+      implicit val cp = CPSolver()
+      cp.deactivateNoSolExceptions()
+      val x = model(seed)
+      val weightedDegree = new WeightedDegree(cp, x, decayRatio)
+      val eager = eagerWeightedDegrees(x, decayRatio)
+      search(binaryFirstFail(x))
+      val stats = start()
+      withClue(s"seed $seed, decay $decayRatio") {
+        stats.nFails should be > 0
+        for (i <- x.indices) weightedDegree.weightedDegree(i) should be(eager(i) +- (1e-9 * math.max(1.0, eager(i))))
+      }
+    }
+  }
+
+  test("The weights are rescaled without changing the weighted degrees") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    // Permutations without consecutive values next to each other
+    val x = Array.fill(8)(CPIntVar(0 to 7))
+    add(allDifferent(x), Weak)
+    for (i <- 0 until 7) {
+      add(x(i) !== x(i + 1) + 1)
+      add(x(i) !== x(i + 1) - 1)
+    }
+    val weightedDegree = new WeightedDegree(cp, x, 0.5)
+    val eager = eagerWeightedDegrees(x, 0.5)
+    search(binaryFirstFail(x))
+    val stats = start()
+    // The increment 2^nFails has exceeded the rescaling threshold
+    stats.nFails should be > 400
+    for (i <- x.indices) {
+      weightedDegree.weightedDegree(i).isNaN should be(false)
+      weightedDegree.weightedDegree(i) should be(eager(i) +- (1e-9 * math.max(1.0, eager(i))))
+    }
+  }
+
+  test("The heap selects the variable with the largest weighted degree") {
+    for (seed <- 0 until 5; decayRatio <- Seq(1.0, 0.5)) {
+      implicit val cp = CPSolver()
+      cp.deactivateNoSolExceptions()
+      val x = model(seed)
+      val branching = new CheckedBranching(x, new WeightedDegree(cp, x, decayRatio), false)
+      search(branching)
+      start()
+      branching.nChecks should be > 0
+    }
+  }
+
+  test("The ratio selects the variable with the largest weighted degree on domain") {
+    for (seed <- 0 until 5) {
+      implicit val cp = CPSolver()
+      cp.deactivateNoSolExceptions()
+      val x = model(seed)
+      val branching = new CheckedBranching(x, new WeightedDegree(cp, x, 0.95), true)
+      search(branching)
+      start()
+      branching.nChecks should be > 0
+    }
+  }
+
+  test("The conflict-based searches find all the solutions") {
+    val searches: Seq[(String, Array[CPIntVar] => oscar.algo.search.Branching)] = Seq(
+      ("binaryMaxWeightedDegree", x => binaryMaxWeightedDegree(x)),
+      ("binaryMinDomOnWeightedDegree", x => binaryMinDomOnWeightedDegree(x)),
+      ("binaryConflictHistory", x => binaryConflictHistory(x))
+    )
+    for (seed <- 0 until 5) {
+      def nSols(branching: Array[CPIntVar] => oscar.algo.search.Branching): Int = {
+        implicit val cp = CPSolver()
+        cp.deactivateNoSolExceptions()
+        val x = model(seed)
+        search(branching(x))
+        start().nSols
+      }
+      val expected = nSols(x => binaryFirstFail(x))
+      for ((name, branching) <- searches) {
+        withClue(s"$name, seed $seed") {
+          nSols(branching) should be(expected)
+        }
+      }
+    }
+  }
+
+  test("The conflict history favors the constraints of the recent failures") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = Array.fill(5)(CPIntVar(0 to 3))
+    val w = CPIntVar(4 to 8)
+    val y = Array.fill(3)(CPIntVar(0 to 3))
+    add(allDifferent(x :+ w), Weak)
+    add(sum(y) === 5)
+    val history = new ConflictHistory(cp, x ++ y)
+    search(binaryFirstFail(x ++ y))
+    start()
+    history.nConflicts should be > 0L
+    for (i <- 0 until 5) history.score(i) should be > 0.0
+    for (i <- 5 until 8) history.score(i) should be(0.0)
+    val before = history.score(0)
+    history.smooth()
+    history.score(0) should be > 0.0
+    history.score(0) should be <= before
+  }
+
+  test("The scores of a branching are only updated during the searches of the branching") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(0)
+    val weightedDegree = new WeightedDegree(cp, x)
+    val branching = new ConflictScoreBranching(weightedDegree, x(_).min, true)
+    weightedDegree.isAttached should be(false)
+    search(branching)
+    val stats = start()
+    weightedDegree.isAttached should be(true)
+    weightedDegree.nConflicts should be(stats.nFails.toLong)
+    search(binaryFirstFail(x))
+    start().nFails should be > 0
+    weightedDegree.isAttached should be(false)
+    weightedDegree.nConflicts should be(stats.nFails.toLong)
+  }
+
+  test("Detached scores are not updated") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(1)
+    val weightedDegree = new WeightedDegree(cp, x)
+    weightedDegree.detach()
+    search(binaryFirstFail(x))
+    start().nFails should be > 0
+    weightedDegree.nConflicts should be(0L)
+    for (i <- x.indices) weightedDegree.weightedDegree(i) should be(x(i).constraintDegree.toDouble)
+  }
+
+  test("Recomputing the scores keeps the initial scores") {
+    implicit val cp = CPSolver()
+    cp.deactivateNoSolExceptions()
+    val x = model(2)
+    val history = new DegreeHistory(x)
+    search(binaryFirstFail(x))
+    start().nFails should be > 0
+    val before = x.indices.map(history.score)
+    history.smooth(1.0)
+    for (i <- x.indices) {
+      history.score(i) should be >= x(i).constraintDegree.toDouble
+      history.score(i) should be(before(i) +- 1e-9)
+    }
+  }
+}
@@ -5,6 +5,7 @@ import sbt.Keys._
 import de.johoop.jacoco4sbt.JacocoPlugin._
 import xerial.sbt.Pack._
 import sbtunidoc.Plugin._
+import pl.project13.scala.sbt.JmhPlugin
 
 
 object OscarBuild extends Build {
@@ -185,6 +186,14 @@ object OscarBuild extends Build {
     )
 
 
+  // Not included in the root build, run with: sbt "oscar-bench/jmh:run"
+  lazy val oscarBench = Project(
+    id = "oscar-bench",
+    base = file("oscar-bench"),
+    settings = commonSettings,
+    dependencies = Seq(oscarCp)
+  ).enablePlugins(JmhPlugin)
+
   // Not included in the root build
   lazy val oscarDes = Project(
     id = "oscar-des",